@@ -14,7 +14,7 @@ import jakarta.inject.Singleton;
 
 /**
  * Implements BackendEndpointService for the parser module.
- * Supports live-swapping the Docling backend URL.
+ * Supports live-swapping the Docling backend URL(s) and reports per-endpoint load.
  */
 @Singleton
 @GrpcService
@@ -47,13 +47,21 @@ public class ParserBackendEndpointService implements BackendEndpointService {
 
     @Override
     public Uni<GetBackendEndpointsResponse> getBackendEndpoints(GetBackendEndpointsRequest request) {
-        return Uni.createFrom().item(GetBackendEndpointsResponse.newBuilder()
-                .addEndpoints(BackendEndpointInfo.newBuilder()
-                        .setBackendId("docling")
-                        .setEndpointUrl(doclingEndpointHolder.getActiveUrl())
-                        .setHealthy(doclingEndpointHolder.isHealthy())
-                        .setDescription("Docling document analysis service")
-                        .build())
-                .build());
+        // One entry per pooled Docling endpoint, from the cached health state and its current load
+        GetBackendEndpointsResponse.Builder response = GetBackendEndpointsResponse.newBuilder();
+        for (DoclingEndpointHolder.EndpointStats stats : doclingEndpointHolder.getEndpointStats()) {
+            response.addEndpoints(BackendEndpointInfo.newBuilder()
+                    .setBackendId("docling")
+                    .setEndpointUrl(stats.url())
+                    .setHealthy(stats.healthy())
+                    .setDescription(String.format(
+                            "Docling document analysis service (outstanding=%d, latencyMs=%d, requests=%d, failures=%d, "
+                                    + "errorRate=%.2f, probeLatencyMs=%d%s)",
+                            stats.outstandingRequests(), stats.latencyMs(), stats.totalRequests(), stats.totalFailures(),
+                            stats.errorRate(), stats.probeLatencyMs(),
+                            stats.lastProbeError() != null ? ", probeError=" + stats.lastProbeError() : ""))
+                    .build());
+        }
+        return Uni.createFrom().item(response.build());
     }
 }
@@ -12,19 +12,32 @@ import ai.pipestream.data.v1.PipeDoc;
 import ai.pipestream.data.v1.ProcessConfiguration;
 import ai.pipestream.data.v1.SearchMetadata;
 import ai.pipestream.parsed.data.tika.v1.TikaResponse;
+import ai.pipestream.parsed.data.docling.v1.DoclingParseStatus;
 import ai.pipestream.parsed.data.docling.v1.DoclingResponse;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.protobuf.Struct;
 import com.google.protobuf.util.JsonFormat;
+import ai.pipestream.module.parser.config.OutlineExtractionOptions;
 import ai.pipestream.module.parser.config.ParserConfig;
+import ai.pipestream.module.parser.docling.DoclingDeferredResults;
+import ai.pipestream.module.parser.docling.DoclingJobQueue;
+import ai.pipestream.module.parser.docling.DoclingOutlineBuilder;
+import ai.pipestream.module.parser.docling.DoclingPageSplicer;
+import ai.pipestream.module.parser.docling.DoclingRouter;
 import ai.pipestream.module.parser.util.DocumentParser;
 import ai.pipestream.module.parser.tika.TikaMetadataExtractor;
+import ai.pipestream.module.parser.tika.builders.EpubStructureExtractor;
+import ai.pipestream.module.parser.tika.builders.HtmlOutlineExtractor;
+import ai.pipestream.module.parser.tika.builders.MarkdownExtractor;
+import ai.pipestream.module.parser.tika.builders.MetadataProjection;
+import ai.pipestream.module.parser.tika.builders.SectionOffsetResolver;
 import com.google.protobuf.Any;
 import ai.pipestream.module.parser.schema.SchemaEnhancer;
 import ai.pipestream.server.meta.BuildInfoProvider;
 import io.quarkus.grpc.GrpcService;
 import io.smallrye.mutiny.Uni;
 import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.tuples.Tuple2;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import org.jboss.logging.Logger;
@@ -74,6 +87,15 @@ public class ParserServiceImpl implements PipeStepProcessorService {
     @Inject
     ai.pipestream.module.parser.docling.DoclingEndpointHolder doclingEndpointHolder;
 
+    @Inject
+    DoclingRouter doclingRouter;
+
+    @Inject
+    DoclingDeferredResults doclingDeferredResults;
+
+    @Inject
+    DoclingJobQueue doclingJobQueue;
+
     @Inject
     BuildInfoProvider buildInfoProvider;
 
@@ -152,11 +174,23 @@ public class ParserServiceImpl implements PipeStepProcessorService {
                 if (shouldExtractComprehensiveMetadata(config)) {
                      try {
                         tikaResponse = extractTikaResponse(finalBlobData, finalFilename, 
-                                parsedDoc.getSearchMetadata().getBody(), finalDocId);
+                                parsedDoc.getSearchMetadata().getBody(), finalDocId,
+                                MetadataProjection.of(config.parsingOptions()));
                     } catch (Exception e) {
                         LOG.warnf(e, "Tika extraction failed for document %s", finalDocId);
                     }
                 }
+
+                // EPUB structure (OPF, spine, TOC) straight from the container's central directory
+                if (tikaResponse != null && tikaResponse.hasEpub() && tikaResponse.getEpub().getSpineItemsCount() == 0) {
+                    try {
+                        ai.pipestream.parsed.data.epub.v1.EpubMetadata.Builder epub = tikaResponse.getEpub().toBuilder();
+                        EpubStructureExtractor.enrich(epub, finalBlobData.asReadOnlyByteBuffer());
+                        tikaResponse = tikaResponse.toBuilder().setEpub(epub).build();
+                    } catch (Exception e) {
+                        LOG.debugf(e, "EPUB structure extraction failed for document %s", finalDocId);
+                    }
+                }
                 
                 return new ParsingContext(request.getDocument(), parsedDoc, finalBlobData, finalFilename, config, tikaResponse);
             } catch (Exception e) {
@@ -164,27 +198,41 @@ public class ParserServiceImpl implements PipeStepProcessorService {
             }
         }).runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
 
-        // Task B: Docling Extraction
-        Uni<Optional<DoclingResponse>> doclingTask = Uni.createFrom().item(Optional.<DoclingResponse>empty());
-        if (shouldExtractDoclingMetadata(config)) {
-            final byte[] contentBytes = finalBlobData.toByteArray();
-            doclingTask = Uni.createFrom().item(() -> {
-                try {
-                    LOG.debugf("Starting Docling extraction for %s", finalFilename);
-                    return Optional.ofNullable(doclingMetadataExtractor.extractComprehensiveMetadata(
-                        contentBytes, finalFilename, finalDocId, config.doclingOptions()));
-                } catch (Exception e) {
-                    LOG.warnf(e, "Docling extraction failed for document %s", finalDocId);
-                    return Optional.<DoclingResponse>empty();
-                }
-            }).runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+        // Task B: Docling Extraction — in parallel with Tika, after it when routing is adaptive,
+        // or in the background when progressive results are on
+        Uni<Tuple2<ParsingContext, DoclingStep>> parsed;
+        if (!shouldExtractDoclingMetadata(config)) {
+            parsed = tikaTask.map(ctx -> Tuple2.of(ctx, DoclingStep.NONE));
+        } else if (doclingDeferredResults.isEnabled() && !finalDocId.isEmpty()) {
+            // Tika's result goes out now; Docling's is retrieved later by doc ID
+            if (doclingRouter.isAdaptive()) {
+                Uni<Tuple2<ParsingContext, DoclingRouter.Decision>> routed = tikaTask
+                        .map(ctx -> Tuple2.of(ctx, decideRouting(ctx, finalDocId)))
+                        .memoize().indefinitely();
+                doclingDeferredResults.track(finalDocId, routed
+                        .chain(r -> routeDocling(r.getItem1(), r.getItem2(), finalDocId))
+                        .map(step -> step.response().orElse(null)));
+                parsed = routed.map(r -> Tuple2.of(r.getItem1(), DoclingStep.deferred(r.getItem2())));
+            } else {
+                doclingDeferredResults.track(finalDocId, convertDocling(
+                        finalBlobData, finalFilename, finalDocId, config.doclingOptions()));
+                parsed = tikaTask.map(ctx -> Tuple2.of(ctx, DoclingStep.DEFERRED));
+            }
+        } else if (doclingRouter.isAdaptive()) {
+            parsed = tikaTask.chain(ctx -> routeDocling(ctx, decideRouting(ctx, finalDocId), finalDocId)
+                    .map(step -> Tuple2.of(ctx, step)));
+        } else {
+            LOG.debugf("Starting Docling extraction for %s", finalFilename);
+            Uni<DoclingStep> doclingTask = recoverDocling(convertDocling(
+                    finalBlobData, finalFilename, finalDocId, config.doclingOptions()), finalDocId, null);
+            parsed = Uni.combine().all().unis(tikaTask, doclingTask).asTuple();
         }
 
-        // 4. Execute both in parallel and merge
-        return Uni.combine().all().unis(tikaTask, doclingTask).asTuple()
+        // 4. Merge
+        return parsed
             .map(tuple -> {
                 ParsingContext ctx = tuple.getItem1();
-                Optional<DoclingResponse> doclingRes = tuple.getItem2();
+                Optional<DoclingResponse> doclingRes = tuple.getItem2().response();
 
                 PipeDoc.Builder outputDocBuilder = ctx.parsedDoc.toBuilder()
                         .setDocId(ctx.originalDoc.getDocId());
@@ -194,8 +242,20 @@ public class ParserServiceImpl implements PipeStepProcessorService {
                 }
 
                 doclingRes.ifPresent(dr -> storeDoclingMetadata(outputDocBuilder, dr));
+                DoclingRouter.Decision routing = tuple.getItem2().routing();
+                if (routing != null) {
+                    storeDoclingRouting(outputDocBuilder, routing, tuple.getItem2().deferred());
+                }
+                // A partial conversion (image-only pages) must not replace Tika's whole-document
+                // body; its text goes into the body at those pages instead
+                boolean doclingOutline = doclingRes.isPresent()
+                        && (routing == null || routing.coversWholeDocument())
+                        && applyDoclingStructure(outputDocBuilder, doclingRes.get(), ctx);
+                if (doclingRes.isPresent() && routing != null && routing.route() == DoclingRouter.Route.PAGES) {
+                    spliceDoclingPages(outputDocBuilder, doclingRes.get(), ctx);
+                }
 
-                enrichDocument(outputDocBuilder, ctx.tikaResponse, ctx);
+                enrichDocument(outputDocBuilder, ctx.tikaResponse, ctx, doclingOutline);
 
                     PipeDoc outputDoc = outputDocBuilder.build();
                     long duration = System.currentTimeMillis() - startTime;
@@ -227,9 +287,16 @@ public class ParserServiceImpl implements PipeStepProcessorService {
                     if (ctx.tikaResponse != null) {
                         respBuilder.addLogEntries(moduleLog("Tika metadata stored on document", LogLevel.LOG_LEVEL_INFO));
                     }
+                    if (tuple.getItem2().routing() != null) {
+                        respBuilder.addLogEntries(moduleLog(tuple.getItem2().routing().describe(), LogLevel.LOG_LEVEL_INFO));
+                    }
                     if (doclingRes.isPresent()) {
                         respBuilder.addLogEntries(moduleLog("Docling metadata stored on document", LogLevel.LOG_LEVEL_INFO));
                     }
+                    if (tuple.getItem2().deferred()) {
+                        respBuilder.addLogEntries(moduleLog(String.format(
+                                "Docling metadata deferred: GET /api/parser/service/docling/%s", finalDocId), LogLevel.LOG_LEVEL_INFO));
+                    }
 
                     int outlineSections = outputDoc.getSearchMetadata().hasDocOutline()
                             ? outputDoc.getSearchMetadata().getDocOutline().getSectionsCount() : 0;
@@ -260,16 +327,130 @@ public class ParserServiceImpl implements PipeStepProcessorService {
     private record ParsingContext(PipeDoc originalDoc, PipeDoc parsedDoc, com.google.protobuf.ByteString blobData, 
                                   String filename, ParserConfig config, TikaResponse tikaResponse) {}
 
+    /**
+     * Docling result, with the adaptive routing decision that led to it (null when routing is off);
+     * {@code deferred} when the result is delivered later through {@link DoclingDeferredResults}.
+     */
+    private record DoclingStep(Optional<DoclingResponse> response, DoclingRouter.Decision routing, boolean deferred) {
+        static final DoclingStep NONE = new DoclingStep(Optional.empty(), null, false);
+        static final DoclingStep DEFERRED = new DoclingStep(Optional.empty(), null, true);
+
+        static DoclingStep deferred(DoclingRouter.Decision routing) {
+            return new DoclingStep(Optional.empty(), routing, true);
+        }
+    }
+
+    /**
+     * Adaptive routing: judges Tika's result.
+     */
+    private DoclingRouter.Decision decideRouting(ParsingContext ctx, String docId) {
+        SearchMetadata sm = ctx.parsedDoc.getSearchMetadata();
+        DoclingRouter.Decision decision = doclingRouter.decide(ctx.blobData,
+                sm.hasSourceMimeType() ? sm.getSourceMimeType() : null, sm.getBody());
+        LOG.debugf("%s for document %s", decision.describe(), docId);
+        return decision;
+    }
+
+    /**
+     * Converts the whole document, its image-only pages, or nothing with Docling, as decided.
+     */
+    private Uni<DoclingStep> routeDocling(ParsingContext ctx, DoclingRouter.Decision decision, String docId) {
+        return switch (decision.route()) {
+            case SKIP -> Uni.createFrom().item(new DoclingStep(Optional.empty(), decision, false));
+            case PAGES -> recoverDocling(doclingMetadataExtractor.extractPagesAsync(ctx.blobData, ctx.filename, docId,
+                    ctx.config.doclingOptions(), decision.pageRanges()), docId, decision);
+            case FULL -> recoverDocling(convertDocling(ctx.blobData,
+                    ctx.filename, docId, ctx.config.doclingOptions()), docId, decision);
+        };
+    }
+
+    /**
+     * Whole-document Docling conversion, through the persistent job queue when it is enabled.
+     */
+    private Uni<DoclingResponse> convertDocling(com.google.protobuf.ByteString content, String filename, String docId,
+                                                ai.pipestream.module.parser.config.DoclingOptions options) {
+        return doclingJobQueue.isEnabled()
+                ? doclingJobQueue.submit(content, filename, docId, options)
+                : doclingMetadataExtractor.extractComprehensiveMetadataAsync(content, filename, docId, options);
+    }
+
+    private static Uni<DoclingStep> recoverDocling(Uni<DoclingResponse> docling, String docId, DoclingRouter.Decision decision) {
+        return docling
+                .map(response -> new DoclingStep(Optional.ofNullable(response), decision, false))
+                .onFailure().recoverWithItem(e -> {
+                    LOG.warnf(e, "Docling extraction failed for document %s", docId);
+                    return new DoclingStep(Optional.empty(), decision, false);
+                });
+    }
+
+    /**
+     * Takes the body and DocOutline from a successful whole-document Docling conversion when it
+     * found any headings: reading-order text with section offsets and pages that need no resolving.
+     * Returns true if they replaced the Tika ones.
+     */
+    private boolean applyDoclingStructure(PipeDoc.Builder outputDocBuilder, DoclingResponse doclingResponse,
+                                          ParsingContext ctx) {
+        OutlineExtractionOptions oe = ctx.config.outlineExtraction();
+        if ((oe != null && Boolean.FALSE.equals(oe.enableDoclingOutline()))
+                || doclingResponse.getStatus().getStatus() != DoclingParseStatus.Status.STATUS_SUCCESS
+                || !doclingResponse.hasDocument()) {
+            return false;
+        }
+        try {
+            DoclingOutlineBuilder.Result structure = DoclingOutlineBuilder.build(doclingResponse.getDocument());
+            if (structure.outline().getSectionsCount() == 0 || structure.body().isEmpty()) {
+                return false;
+            }
+            outputDocBuilder.setSearchMetadata(outputDocBuilder.getSearchMetadata().toBuilder()
+                    .setBody(structure.body())
+                    .setDocOutline(structure.outline())
+                    .build());
+            return true;
+        } catch (Exception e) {
+            LOG.warnf(e, "Could not build the outline from the Docling document");
+            return false;
+        }
+    }
+
+    /**
+     * Puts the text Docling read from the image-only pages of a {@link DoclingRouter.Route#PAGES}
+     * conversion into Tika's body, where those pages are, see {@link DoclingPageSplicer}.
+     */
+    private void spliceDoclingPages(PipeDoc.Builder outputDocBuilder, DoclingResponse doclingResponse,
+                                    ParsingContext ctx) {
+        DoclingParseStatus.Status status = doclingResponse.getStatus().getStatus();
+        if ((status != DoclingParseStatus.Status.STATUS_SUCCESS && status != DoclingParseStatus.Status.STATUS_PARTIAL)
+                || !doclingResponse.hasDocument()) {
+            return;
+        }
+        try {
+            SearchMetadata sm = outputDocBuilder.getSearchMetadata();
+            String body = DoclingPageSplicer.splice(ctx.blobData, sm.getBody(),
+                    DoclingOutlineBuilder.pageTexts(doclingResponse.getDocument()));
+            outputDocBuilder.setSearchMetadata(sm.toBuilder().setBody(body).build());
+        } catch (Exception e) {
+            LOG.warnf(e, "Could not splice the Docling page text into the body");
+        }
+    }
+
     /**
      * Post-processing logic moved here for cleaner flow (Outline, Links, etc.)
+     * <p>
+     * With {@code doclingOutline} the outline already came from Docling, so the steps that only
+     * produce an outline (EPUB TOC, PDF bookmarks re-parse) are skipped and the others keep it.
      */
-    private void enrichDocument(PipeDoc.Builder outputDocBuilder, TikaResponse tikaResponse, ParsingContext ctx) {
+    private void enrichDocument(PipeDoc.Builder outputDocBuilder, TikaResponse tikaResponse, ParsingContext ctx,
+                                boolean doclingOutline) {
         if (!shouldExtractComprehensiveMetadata(ctx.config) || tikaResponse == null) return;
         
         try {
             // 1. EPUB TOC
             try {
-                if (tikaResponse.hasEpub() && tikaResponse.getEpub().getTableOfContentsCount() > 0) {
+                // An outline from EPUB chapter mode already carries the TOC with exact offsets
+                DocOutline current = outputDocBuilder.getSearchMetadata().getDocOutline();
+                boolean chapterOutline = SectionOffsetResolver.hasOffsets(current)
+                        && current.getSections(0).getTagsList().contains("nav");
+                if (!doclingOutline && !chapterOutline && tikaResponse.hasEpub() && tikaResponse.getEpub().getTableOfContentsCount() > 0) {
                     ai.pipestream.data.v1.DocOutline outline = ai.pipestream.module.parser.tika.builders.EpubStructureExtractor
                             .buildDocOutlineFromToc(tikaResponse.getEpub().getTableOfContentsList());
                     ai.pipestream.data.v1.SearchMetadata sm = outputDocBuilder.getSearchMetadata().toBuilder().setDocOutline(outline).build();
@@ -277,11 +458,11 @@ public class ParserServiceImpl implements PipeStepProcessorService {
                 }
             } catch (Exception ignored) {}
 
-            // 2. PDF Bookmarks
+            // 2. PDF Bookmarks (catalog + outline only, read straight from the blob without copying)
             try {
-                if (tikaResponse.hasPdf() && (ctx.filename != null && ctx.filename.toLowerCase().endsWith(".pdf"))) {
+                if (!doclingOutline && tikaResponse.hasPdf() && (ctx.filename != null && ctx.filename.toLowerCase().endsWith(".pdf"))) {
                     ai.pipestream.data.v1.DocOutline outline = ai.pipestream.module.parser.tika.builders.PdfOutlineExtractor
-                            .buildDocOutlineFromPdf(ctx.blobData.toByteArray());
+                            .buildDocOutlineFromPdf(ctx.blobData.asReadOnlyByteBuffer());
                     if (outline.getSectionsCount() > 0) {
                         ai.pipestream.data.v1.SearchMetadata sm = outputDocBuilder.getSearchMetadata().toBuilder().setDocOutline(outline).build();
                         outputDocBuilder.setSearchMetadata(sm);
@@ -289,51 +470,69 @@ public class ParserServiceImpl implements PipeStepProcessorService {
                 }
             } catch (Exception ignored) {}
 
-            // 3. Markdown
+            // 3. Markdown: one parse of the original source yields outline, links and exact offsets
             try {
                 boolean mdEnabled = ctx.config.outlineExtraction() == null || Boolean.TRUE.equals(ctx.config.outlineExtraction().enableMarkdownOutline());
-                if (mdEnabled && ctx.filename != null && ctx.filename.toLowerCase().endsWith(".md")) {
-                    byte[] bytes = ctx.parsedDoc.getSearchMetadata().getBody().getBytes(java.nio.charset.StandardCharsets.UTF_8);
-                    DocOutline outline = ai.pipestream.module.parser.tika.builders.MarkdownExtractor.buildDocOutlineFromMarkdown(bytes, 1, 6, true);
-                    if (outline.getSectionsCount() > 0) {
-                         ai.pipestream.data.v1.SearchMetadata sm = outputDocBuilder.getSearchMetadata().toBuilder().setDocOutline(outline).build();
-                         outputDocBuilder.setSearchMetadata(sm);
+                String lowerName = ctx.filename != null ? ctx.filename.toLowerCase() : "";
+                if (mdEnabled && (lowerName.endsWith(".md") || lowerName.endsWith(".markdown"))) {
+                    String source = ctx.blobData.toStringUtf8();
+                    if (!source.isEmpty() && source.charAt(0) == '\uFEFF') source = source.substring(1);
+                    MarkdownExtractor.MarkdownAnalysis md = MarkdownExtractor.analyze(source, 1, 6, true);
+                    ai.pipestream.data.v1.SearchMetadata.Builder smBuilder = outputDocBuilder.getSearchMetadata().toBuilder();
+                    DocOutline outline = md.outline();
+                    if (outline.getSectionsCount() > 0 && !doclingOutline) {
+                        // Offsets are only valid if Tika decoded the source the same way; otherwise let step 5 search
+                        if (!MarkdownExtractor.matchesCollapsedSource(source, smBuilder.getBody())) {
+                            DocOutline.Builder stripped = outline.toBuilder();
+                            for (ai.pipestream.data.v1.Section.Builder sb : stripped.getSectionsBuilderList()) {
+                                sb.clearCharStartOffset().clearCharEndOffset();
+                            }
+                            outline = stripped.build();
+                        }
+                        smBuilder.setDocOutline(outline);
                     }
+                    if (!md.links().isEmpty()) {
+                        smBuilder.addAllDiscoveredLinks(md.links());
+                    }
+                    outputDocBuilder.setSearchMetadata(smBuilder.build());
                 }
             } catch (Exception ignored) {}
             
-            // 4. HTML
+            // 4. HTML: one Jsoup parse yields the heading outline, body links and head links
              try {
                 if (tikaResponse.hasHtml()) {
                     ai.pipestream.parsed.data.html.v1.HtmlMetadata html = tikaResponse.getHtml();
                     ai.pipestream.data.v1.SearchMetadata.Builder smBuilder = outputDocBuilder.getSearchMetadata().toBuilder();
                     boolean added = false;
 
-                    // A. Extract Semantic Links from Metadata (HEAD)
-                    if (html.hasCanonicalUrl()) {
-                        smBuilder.addDiscoveredLinks(ai.pipestream.data.v1.LinkReference.newBuilder()
-                                .setUrl(html.getCanonicalUrl()).setRel("canonical").build());
-                        added = true;
-                    }
-                    if (html.hasAlternateUrl()) {
-                        smBuilder.addDiscoveredLinks(ai.pipestream.data.v1.LinkReference.newBuilder()
-                                .setUrl(html.getAlternateUrl()).setRel("alternate").build());
-                        added = true;
-                    }
-                    if (html.hasStylesheetUrl()) {
-                        smBuilder.addDiscoveredLinks(ai.pipestream.data.v1.LinkReference.newBuilder()
-                                .setUrl(html.getStylesheetUrl()).setRel("stylesheet").build());
-                        added = true;
-                    }
-                    if (html.hasRssUrl()) {
-                        smBuilder.addDiscoveredLinks(ai.pipestream.data.v1.LinkReference.newBuilder()
-                                .setUrl(html.getRssUrl()).setRel("rss").build());
-                        added = true;
+                    OutlineExtractionOptions oe = ctx.config.outlineExtraction() != null
+                            ? ctx.config.outlineExtraction() : OutlineExtractionOptions.defaultOptions();
+                    HtmlOutlineExtractor.HtmlAnalysis analysis = HtmlOutlineExtractor.HtmlAnalysis.empty();
+                    if (ctx.blobData != null && !ctx.blobData.isEmpty()) {
+                        try (InputStream htmlStream = ctx.blobData.newInput()) {
+                            analysis = HtmlOutlineExtractor.analyze(
+                                    htmlStream,
+                                    html.getContentEncoding(),
+                                    "",
+                                    oe.htmlIncludeCss(),
+                                    oe.htmlExcludeCss(),
+                                    !Boolean.FALSE.equals(oe.htmlStripScripts()),
+                                    oe.htmlMinHeadingLevel() != null ? oe.htmlMinHeadingLevel() : 1,
+                                    oe.htmlMaxHeadingLevel() != null ? oe.htmlMaxHeadingLevel() : 6,
+                                    !Boolean.FALSE.equals(oe.htmlGenerateIds()));
+                        }
                     }
-                    if (html.hasAtomUrl()) {
-                        smBuilder.addDiscoveredLinks(ai.pipestream.data.v1.LinkReference.newBuilder()
-                                .setUrl(html.getAtomUrl()).setRel("atom").build());
+
+                    // A. Semantic links from HEAD; fall back to Tika's link metadata if the DOM had none
+                    if (!analysis.headLinks().isEmpty()) {
+                        smBuilder.addAllDiscoveredLinks(analysis.headLinks());
                         added = true;
+                    } else {
+                        added |= addHeadLink(smBuilder, html.hasCanonicalUrl(), html.getCanonicalUrl(), "canonical");
+                        added |= addHeadLink(smBuilder, html.hasAlternateUrl(), html.getAlternateUrl(), "alternate");
+                        added |= addHeadLink(smBuilder, html.hasStylesheetUrl(), html.getStylesheetUrl(), "stylesheet");
+                        added |= addHeadLink(smBuilder, html.hasRssUrl(), html.getRssUrl(), "rss");
+                        added |= addHeadLink(smBuilder, html.hasAtomUrl(), html.getAtomUrl(), "atom");
                     }
                     
                     // Also populate basic metadata from HTML specific fields
@@ -342,20 +541,22 @@ public class ParserServiceImpl implements PipeStepProcessorService {
                         added = true;
                     }
 
-                    // B. Extract Body Links via Jsoup (BODY)
-                    if (ctx.blobData != null) {
-                        java.util.List<ai.pipestream.data.v1.LinkReference> bodyLinks = 
-                            ai.pipestream.module.parser.tika.builders.HtmlOutlineExtractor.extractLinks(
-                                ctx.blobData.toByteArray(), 
-                                "", 
-                                true, 
-                                null, 
-                                null
-                            );
-                        if (!bodyLinks.isEmpty()) {
-                            smBuilder.addAllDiscoveredLinks(bodyLinks);
-                            added = true;
-                        }
+                    // B. Body links
+                    if (!analysis.bodyLinks().isEmpty()) {
+                        smBuilder.addAllDiscoveredLinks(analysis.bodyLinks());
+                        added = true;
+                    }
+
+                    // C. Outline. The outline captured during the Tika parse has exact offsets and is kept
+                    // unless include/exclude selectors narrow the document, which only the DOM can honour.
+                    boolean htmlOutlineEnabled = !Boolean.FALSE.equals(oe.enableHtmlOutline());
+                    boolean selectorsSet = (oe.htmlIncludeCss() != null && !oe.htmlIncludeCss().isBlank())
+                            || (oe.htmlExcludeCss() != null && !oe.htmlExcludeCss().isBlank());
+                    boolean hasOutline = smBuilder.hasDocOutline() && smBuilder.getDocOutline().getSectionsCount() > 0;
+                    if (htmlOutlineEnabled && !doclingOutline && analysis.outline().getSectionsCount() > 0
+                            && (selectorsSet || !hasOutline)) {
+                        smBuilder.setDocOutline(analysis.outline());
+                        added = true;
                     }
                     
                     if (added) {
@@ -368,9 +569,11 @@ public class ParserServiceImpl implements PipeStepProcessorService {
 
             // 5. Resolve section character offsets for any DocOutline that was set.
             // Enables section-level vector centroids and search result highlighting.
+            // Outlines captured from the Tika SAX stream already carry exact offsets.
             try {
                 ai.pipestream.data.v1.SearchMetadata currentSm = outputDocBuilder.getSearchMetadata();
-                if (currentSm.hasDocOutline() && currentSm.getDocOutline().getSectionsCount() > 0) {
+                if (currentSm.hasDocOutline() && currentSm.getDocOutline().getSectionsCount() > 0
+                        && !ai.pipestream.module.parser.tika.builders.SectionOffsetResolver.hasOffsets(currentSm.getDocOutline())) {
                     String bodyText = currentSm.getBody();
                     if (bodyText != null && !bodyText.isEmpty()) {
                         DocOutline resolved = ai.pipestream.module.parser.tika.builders.SectionOffsetResolver
@@ -385,6 +588,12 @@ public class ParserServiceImpl implements PipeStepProcessorService {
         }
     }
 
+    private static boolean addHeadLink(ai.pipestream.data.v1.SearchMetadata.Builder smBuilder, boolean present, String url, String rel) {
+        if (!present || url == null || url.isEmpty()) return false;
+        smBuilder.addDiscoveredLinks(ai.pipestream.data.v1.LinkReference.newBuilder().setUrl(url).setRel(rel).build());
+        return true;
+    }
+
     @Override
     public Uni<GetServiceRegistrationResponse> getServiceRegistration(GetServiceRegistrationRequest request) {
         LOG.debug("Parser service registration requested");
@@ -464,7 +673,8 @@ public class ParserServiceImpl implements PipeStepProcessorService {
     private TikaResponse extractTikaResponse(com.google.protobuf.ByteString content,
                                              String filename,
                                              String extractedText,
-                                             String docId) throws Exception {
+                                             String docId,
+                                             MetadataProjection projection) throws Exception {
         Metadata metadata = new Metadata();
         if (filename != null && !filename.isEmpty()) {
             metadata.set("resourceName", filename);
@@ -489,7 +699,7 @@ public class ParserServiceImpl implements PipeStepProcessorService {
             }
         }
 
-        return TikaMetadataExtractor.extractComprehensiveMetadata(metadata, parser.getClass().getName(), extractedText, docId);
+        return TikaMetadataExtractor.extractComprehensiveMetadata(metadata, parser.getClass().getName(), extractedText, docId, projection);
     }
 
     private void storeTikaMetadata(PipeDoc.Builder outputDocBuilder, TikaResponse tikaResponse) {
@@ -533,5 +743,21 @@ public class ParserServiceImpl implements PipeStepProcessorService {
         }
     }
 
+    /**
+     * Stores the adaptive routing decision in parsed_metadata["docling_routing"] as a Struct.
+     */
+    private void storeDoclingRouting(PipeDoc.Builder outputDocBuilder, DoclingRouter.Decision routing, boolean deferred) {
+        Struct data = routing.toStruct().toBuilder()
+                .putFields("deferred", com.google.protobuf.Value.newBuilder().setBoolValue(deferred).build())
+                .build();
+        outputDocBuilder.putParsedMetadata("docling_routing", ai.pipestream.data.v1.ParsedMetadata.newBuilder()
+                .setParserName("docling_routing")
+                .setParsedAt(com.google.protobuf.Timestamp.newBuilder()
+                        .setSeconds(System.currentTimeMillis() / 1000)
+                        .build())
+                .setData(Any.pack(data))
+                .build());
+    }
+
     // UpdateBackendEndpoint moved to ParserBackendEndpointService (BackendEndpointService gRPC)
 }
\ No newline at end of file
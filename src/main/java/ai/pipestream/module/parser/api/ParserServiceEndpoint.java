@@ -65,6 +65,18 @@ public class ParserServiceEndpoint {
     @Inject
     ai.pipestream.module.parser.docling.DoclingMetadataExtractor doclingMetadataExtractor;
 
+    @Inject
+    ai.pipestream.module.parser.docling.DoclingResultCache doclingResultCache;
+
+    @Inject
+    ai.pipestream.module.parser.docling.DoclingDeferredResults doclingDeferredResults;
+
+    @Inject
+    ai.pipestream.module.parser.docling.DoclingJobQueue doclingJobQueue;
+
+    @Inject
+    ai.pipestream.module.parser.docling.DoclingEndpointHolder doclingEndpointHolder;
+
     @Inject
     RepositoryDocumentClient repositoryDocumentClient;
 
@@ -188,12 +200,71 @@ public class ParserServiceEndpoint {
                 health.put("status", "unhealthy");
                 health.put("tika_status", "error: " + e.getMessage());
             }
-            
+
+            if (doclingResultCache.isEnabled()) {
+                health.put("docling_cache", doclingResultCache.getStats());
+            }
+            if (doclingJobQueue.isEnabled()) {
+                health.put("docling_queue", doclingJobQueue.getStats());
+            }
+            // Cached by the endpoint health monitor; no probe runs here
+            health.put("docling_healthy", doclingEndpointHolder.isHealthy());
+            health.put("docling_endpoints", doclingEndpointHolder.getEndpointStats());
+
             return health;
         })
         .map(health -> Response.ok(health).build());
     }
 
+    @GET
+    @Path("/docling/{docId}")
+    @Operation(summary = "Get deferred Docling result",
+               description = "Docling result of a document processed in progressive mode, optionally waiting up to 'wait' seconds for it")
+    @APIResponse(responseCode = "200", description = "Docling conversion finished")
+    @APIResponse(responseCode = "202", description = "Docling conversion still running")
+    @APIResponse(responseCode = "404", description = "No deferred Docling result for this document")
+    public Uni<Response> getDeferredDocling(@PathParam("docId") String docId,
+                                            @QueryParam("wait") @DefaultValue("0") int waitSeconds) {
+        Optional<Uni<ai.pipestream.parsed.data.docling.v1.DoclingResponse>> deferred = doclingDeferredResults.get(docId);
+        if (deferred.isEmpty()) {
+            return Uni.createFrom().item(Response.status(Response.Status.NOT_FOUND)
+                    .entity(Map.of("doc_id", docId, "error", "No deferred Docling result for this document"))
+                    .build());
+        }
+        if (waitSeconds <= 0 && !doclingDeferredResults.isDone(docId)) {
+            return Uni.createFrom().item(Response.status(Response.Status.ACCEPTED)
+                    .entity(Map.of("doc_id", docId, "status", "pending"))
+                    .build());
+        }
+
+        return deferred.get()
+                .ifNoItem().after(java.time.Duration.ofSeconds(Math.max(1, waitSeconds))).fail()
+                .map(docling -> {
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("doc_id", docId);
+                    if (docling == null) {
+                        result.put("status", "no_result");
+                        return Response.ok(result).build();
+                    }
+                    try {
+                        String json = com.google.protobuf.util.JsonFormat.printer().print(docling);
+                        result.put("status", "done");
+                        result.put("docling", objectMapper.readValue(json, Object.class));
+                        return Response.ok(result).build();
+                    } catch (Exception e) {
+                        LOG.warn("Failed to print Docling result to JSON", e);
+                        result.put("error", e.getMessage());
+                        return Response.serverError().entity(result).build();
+                    }
+                })
+                .onFailure(io.smallrye.mutiny.TimeoutException.class).recoverWithItem(() -> Response.status(Response.Status.ACCEPTED)
+                        .entity(Map.of("doc_id", docId, "status", "pending"))
+                        .build())
+                .onFailure().recoverWithItem(e -> Response.serverError()
+                        .entity(Map.of("doc_id", docId, "status", "failed", "error", String.valueOf(e.getMessage())))
+                        .build());
+    }
+
     @GET
     @Path("/info")
     @Operation(summary = "Get module information", description = "Retrieve module name, description, and other metadata")
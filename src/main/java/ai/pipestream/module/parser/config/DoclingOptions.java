@@ -14,6 +14,8 @@ import java.util.List;
  * All 28 fields from the Docling API are exposed here.
  *
  * DO NOT add extra fields - keep it synchronized with ConvertDocumentOptions.
+ * The one exception is {@code output_projection}, which is applied by the parser (it rewrites
+ * to_formats and filters the mapped document) and is never sent to docling-serve as such.
  */
 @RegisterForReflection(targets = {
     InputFormat.class, OutputFormat.class, ImageRefMode.class, OcrEngine.class, 
@@ -231,7 +233,15 @@ public record DoclingOptions(
     @Schema(
         description = "API details for vision-language model in VLM pipeline"
     )
-    String vlmPipelineModelApi
+    String vlmPipelineModelApi,
+
+    // ==================== Output Projection (parser-side) ====================
+
+    @JsonProperty("output_projection")
+    @Schema(
+        description = "Exports and DoclingDocument sections to request and keep; everything when absent"
+    )
+    DoclingOutputProjection outputProjection
 
 ) {
 
@@ -267,7 +277,8 @@ public record DoclingOptions(
             null,                   // picture_description_api
             null,                   // vlm_pipeline_model
             null,                   // vlm_pipeline_model_local
-            null                    // vlm_pipeline_model_api
+            null,                   // vlm_pipeline_model_api
+            null                    // output_projection (everything)
         );
     }
 
@@ -303,6 +314,7 @@ public record DoclingOptions(
             null,
             null,
             null,
+            null,
             null
         );
     }
@@ -339,6 +351,7 @@ public record DoclingOptions(
             null,
             null,
             null,
+            null,
             null
         );
     }
@@ -0,0 +1,112 @@
+package ai.pipestream.module.parser.config;
+
+import ai.docling.serve.api.convert.request.options.OutputFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Which parts of a Docling result to request and keep.
+ * <p>
+ * {@code exports} replaces {@code to_formats} for the request to docling-serve. {@code sections}
+ * selects the DoclingDocument collections that are mapped into the proto; the others are skipped
+ * while reading the JSON. When {@code sections} is set it also decides whether the JSON document
+ * is requested at all: an empty list drops it, a non-empty one adds it. Document-level fields
+ * (name, version, origin) are always kept. References into skipped collections are left as they
+ * are, so a body that points at skipped texts keeps those refs.
+ */
+@RegisterForReflection
+@Schema(
+    name = "DoclingOutputProjection",
+    description = "Selects the Docling exports and DoclingDocument sections to request and keep"
+)
+public record DoclingOutputProjection(
+
+    @JsonProperty("exports")
+    @Schema(
+        description = "Output formats to request, replacing to_formats. JSON is governed by sections when set",
+        examples = {"[\"md\"]", "[\"md\", \"html\"]"}
+    )
+    List<OutputFormat> exports,
+
+    @JsonProperty("sections")
+    @Schema(
+        description = "DoclingDocument sections to keep; all when absent, no JSON document when empty",
+        examples = {"[\"tables\"]", "[\"texts\", \"tables\", \"pages\"]"}
+    )
+    List<Section> sections
+
+) {
+
+    /**
+     * Top-level collections of a DoclingDocument, named as in its JSON.
+     */
+    @RegisterForReflection
+    public enum Section {
+        @JsonProperty("body") BODY("body"),
+        @JsonProperty("furniture") FURNITURE("furniture"),
+        @JsonProperty("groups") GROUPS("groups"),
+        @JsonProperty("texts") TEXTS("texts"),
+        @JsonProperty("pictures") PICTURES("pictures"),
+        @JsonProperty("tables") TABLES("tables"),
+        @JsonProperty("key_value_items") KEY_VALUE_ITEMS("key_value_items"),
+        @JsonProperty("form_items") FORM_ITEMS("form_items"),
+        @JsonProperty("pages") PAGES("pages");
+
+        private final String field;
+
+        Section(String field) {
+            this.field = field;
+        }
+
+        /** The JSON (and proto) field name of the section. */
+        public String field() {
+            return field;
+        }
+
+        static Section forField(String field) {
+            for (Section section : values()) {
+                if (section.field.equals(field)) {
+                    return section;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The output formats to request given the caller's {@code to_formats}.
+     */
+    public List<OutputFormat> toFormats(List<OutputFormat> requested) {
+        List<OutputFormat> formats = new ArrayList<>(exports != null ? exports : requested != null ? requested : List.of());
+        if (sections != null) {
+            formats.remove(OutputFormat.JSON);
+            if (!sections.isEmpty()) {
+                formats.add(OutputFormat.JSON);
+            }
+        }
+        return formats;
+    }
+
+    /**
+     * Whether a top-level DoclingDocument field should be mapped. Fields that are not one of
+     * the {@link Section}s are always kept.
+     */
+    public boolean keeps(String documentField) {
+        if (sections == null) {
+            return true;
+        }
+        Section section = Section.forField(documentField);
+        return section == null || sections.contains(section);
+    }
+
+    /**
+     * Whether a section should be mapped.
+     */
+    public boolean keeps(Section section) {
+        return sections == null || sections.contains(section);
+    }
+}
@@ -31,7 +31,7 @@ public record OutlineExtractionOptions(
         Boolean htmlStripScripts,
 
         @JsonProperty("enableMarkdownOutline")
-        @Schema(description = "Populate SearchMetadata.doc_outline and discovered_links from Markdown using flexmark", defaultValue = "true")
+        @Schema(description = "Populate SearchMetadata.doc_outline and discovered_links from Markdown using CommonMark", defaultValue = "true")
         Boolean enableMarkdownOutline,
 
         @JsonProperty("htmlMinHeadingLevel")
@@ -46,7 +46,15 @@ public record OutlineExtractionOptions(
 
         @JsonProperty("htmlGenerateIds")
         @Schema(description = "Generate stable section ids when heading has no id attribute", defaultValue = "true")
-        Boolean htmlGenerateIds
+        Boolean htmlGenerateIds,
+
+        @JsonProperty("enableHeadingOutline")
+        @Schema(description = "Populate SearchMetadata.doc_outline from h1..h6 headings captured during the Tika parse (HTML, DOCX, ODT, ...), with exact body offsets", defaultValue = "true")
+        Boolean enableHeadingOutline,
+
+        @JsonProperty("enableDoclingOutline")
+        @Schema(description = "When a Docling result is available, take SearchMetadata.body (reading order) and doc_outline (section headers with exact offsets and pages) from it instead of Tika's", defaultValue = "true")
+        Boolean enableDoclingOutline
 ) {
     public static OutlineExtractionOptions defaultOptions() {
         return new OutlineExtractionOptions(
@@ -58,7 +66,9 @@ public record OutlineExtractionOptions(
                 true,   // enableMarkdownOutline
                 1,      // htmlMinHeadingLevel
                 6,      // htmlMaxHeadingLevel
-                true    // htmlGenerateIds
+                true,   // htmlGenerateIds
+                true,   // enableHeadingOutline
+                true    // enableDoclingOutline
         );
     }
 }
@@ -49,7 +49,34 @@ public record ParsingOptions(
     )
     @Min(1)
     @Max(300)
-    Integer parseTimeoutSeconds
+    Integer parseTimeoutSeconds,
+
+    @JsonProperty("parallelEpubChapters")
+    @Schema(
+        description = "Parse EPUB spine chapters concurrently and concatenate them in spine order. " +
+                     "Records exact chapter offsets in the body and maps the TOC onto them.",
+        examples = {"true", "false"},
+        defaultValue = "false"
+    )
+    Boolean parallelEpubChapters,
+
+    @JsonProperty("includeRawMetadata")
+    @Schema(
+        description = "Whether the Tika response repeats every metadata field in base_fields.raw_metadata. " +
+                     "Unmapped fields are always kept in additional_metadata.",
+        examples = {"true", "false"},
+        defaultValue = "true"
+    )
+    Boolean includeRawMetadata,
+
+    @JsonProperty("dropBinaryMetadata")
+    @Schema(
+        description = "Leave metadata values that look like encoded binary data (long base64 runs, " +
+                     "control characters) out of the Tika response, e.g. EXIF thumbnails and maker notes.",
+        examples = {"true", "false"},
+        defaultValue = "false"
+    )
+    Boolean dropBinaryMetadata
     
 ) {
     
@@ -61,7 +88,10 @@ public record ParsingOptions(
             -1,      // maxContentLength: unlimited
             true,    // extractMetadata: enabled
             10000,   // maxMetadataValueLength: 10KB
-            60       // parseTimeoutSeconds: 1 minute
+            60,      // parseTimeoutSeconds: 1 minute
+            false,   // parallelEpubChapters: sequential Tika parse
+            true,    // includeRawMetadata: keep the full raw copy
+            false    // dropBinaryMetadata: keep every value
         );
     }
     
@@ -73,7 +103,10 @@ public record ParsingOptions(
             5242880, // maxContentLength: 5MB
             true,    // extractMetadata: enabled
             5000,    // maxMetadataValueLength: 5KB
-            120      // parseTimeoutSeconds: 2 minutes
+            120,     // parseTimeoutSeconds: 2 minutes
+            true,    // parallelEpubChapters: use all cores on large e-books
+            false,   // includeRawMetadata: unmapped fields are enough
+            true     // dropBinaryMetadata: skip encoded binary values
         );
     }
     
@@ -85,7 +118,10 @@ public record ParsingOptions(
             1048576, // maxContentLength: 1MB
             false,   // extractMetadata: disabled for speed
             1000,    // maxMetadataValueLength: 1KB
-            30       // parseTimeoutSeconds: 30 seconds
+            30,      // parseTimeoutSeconds: 30 seconds
+            false,   // parallelEpubChapters: sequential Tika parse
+            false,   // includeRawMetadata: unmapped fields are enough
+            true     // dropBinaryMetadata: skip encoded binary values
         );
     }
 }
\ No newline at end of file
@@ -0,0 +1,182 @@
+package ai.pipestream.module.parser.docling;
+
+import ai.docling.serve.api.convert.request.options.ConvertDocumentOptions;
+import ai.pipestream.module.parser.config.DoclingOptions;
+import ai.pipestream.module.parser.config.DoclingOutputProjection;
+import com.google.protobuf.ByteString;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro-batcher that gathers small Docling conversions from concurrent requests into one
+ * multi-file request.
+ * <p>
+ * Conversions are grouped by their {@link DoclingOptions} (a record, so equal options group
+ * together). A group is sent as soon as it holds {@code parser.docling.batch.max-size}
+ * documents, or {@code parser.docling.batch.max-wait} after its first document arrived,
+ * whichever comes first. Each caller gets back the result for its own document. If docling-serve
+ * cannot answer the batch as a whole, every document is retried on its own so one bad file
+ * does not fail its neighbours.
+ * <p>
+ * Only documents up to {@code parser.docling.batch.max-document-bytes} are batched; large
+ * documents gain nothing from sharing a request and would delay the small ones.
+ * <p>
+ * Batches are multi-file uploads to {@code /v1/convert/file}, so batching only applies with
+ * {@code parser.docling.transport=multipart}. With the base64 or async transport every document
+ * goes through that transport on its own, and a warning says the batch setting is ignored.
+ */
+@ApplicationScoped
+public class DoclingBatcher {
+
+    private static final Logger LOG = Logger.getLogger(DoclingBatcher.class);
+
+    @Inject
+    DoclingHttpClient doclingHttpClient;
+
+    @ConfigProperty(name = "parser.docling.batch.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "parser.docling.batch.max-size", defaultValue = "8")
+    int maxSize;
+
+    @ConfigProperty(name = "parser.docling.batch.max-wait", defaultValue = "PT0.05S")
+    Duration maxWait;
+
+    @ConfigProperty(name = "parser.docling.batch.max-document-bytes", defaultValue = "2097152")
+    long maxDocumentBytes;
+
+    @ConfigProperty(name = "parser.docling.transport", defaultValue = DoclingMetadataExtractor.TRANSPORT_MULTIPART)
+    String transport;
+
+    /** Batches still collecting documents, by options; guarded by {@code this}. */
+    private final Map<DoclingOptions, Batch> open = new HashMap<>();
+
+    @PostConstruct
+    void init() {
+        if (enabled && !isMultipartTransport()) {
+            LOG.warnf("parser.docling.batch.enabled is ignored with parser.docling.transport=%s; "
+                    + "batches are only sent as multipart uploads", transport);
+        }
+    }
+
+    /**
+     * Returns true if the document should go through the batcher.
+     */
+    public boolean accepts(ByteString content) {
+        return enabled && maxSize > 1 && isMultipartTransport() && content.size() <= maxDocumentBytes;
+    }
+
+    private boolean isMultipartTransport() {
+        return DoclingMetadataExtractor.TRANSPORT_MULTIPART.equalsIgnoreCase(transport);
+    }
+
+    /**
+     * Queues a document for the next batch with the same options.
+     *
+     * @param options        the caller's options, used as the batch key
+     * @param convertOptions the options as sent to Docling
+     * @param content        the document bytes
+     * @param filename       the original filename
+     * @return Uni with this document's result; {@code null} item if Docling produced nothing for it
+     */
+    public Uni<DoclingHttpClient.ConvertedFile> submit(DoclingOptions options, ConvertDocumentOptions convertOptions,
+                                                       ByteString content, String filename) {
+        return Uni.createFrom().completionStage(() -> enqueue(options, convertOptions,
+                new DoclingHttpClient.Upload(content, filename)));
+    }
+
+    private CompletableFuture<DoclingHttpClient.ConvertedFile> enqueue(DoclingOptions key, ConvertDocumentOptions convertOptions,
+                                                                       DoclingHttpClient.Upload upload) {
+        Entry entry = new Entry(upload, new CompletableFuture<>());
+        Batch full = null;
+        synchronized (this) {
+            Batch batch = open.get(key);
+            if (batch == null) {
+                Batch created = new Batch(convertOptions, key.outputProjection());
+                open.put(key, created);
+                Infrastructure.getDefaultWorkerPool().schedule(() -> flushIfOpen(key, created),
+                        Math.max(1, maxWait.toMillis()), TimeUnit.MILLISECONDS);
+                batch = created;
+            }
+            batch.entries.add(entry);
+            if (batch.entries.size() >= maxSize) {
+                open.remove(key);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return entry.result;
+    }
+
+    private void flushIfOpen(DoclingOptions key, Batch batch) {
+        synchronized (this) {
+            if (open.get(key) != batch) {
+                return; // already sent because it filled up
+            }
+            open.remove(key);
+        }
+        dispatch(batch);
+    }
+
+    private void dispatch(Batch batch) {
+        Infrastructure.getDefaultWorkerPool().execute(() -> {
+            List<DoclingHttpClient.Upload> uploads = new ArrayList<>(batch.entries.size());
+            batch.entries.forEach(entry -> uploads.add(entry.upload));
+            try {
+                List<DoclingHttpClient.ConvertedFile> results =
+                        doclingHttpClient.convertFiles(uploads, batch.convertOptions, batch.projection);
+                LOG.debugf("Docling batch of %d documents converted", uploads.size());
+                for (int i = 0; i < batch.entries.size(); i++) {
+                    batch.entries.get(i).result.complete(results.get(i));
+                }
+            } catch (IOException e) {
+                if (batch.entries.size() == 1) {
+                    batch.entries.get(0).result.completeExceptionally(e);
+                } else {
+                    LOG.warnf("Docling batch of %d documents failed, converting individually: %s",
+                            batch.entries.size(), e.getMessage());
+                    batch.entries.forEach(entry -> dispatch(new Batch(batch.convertOptions, batch.projection, entry)));
+                }
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                batch.entries.forEach(entry -> entry.result.completeExceptionally(e));
+            }
+        });
+    }
+
+    private record Entry(DoclingHttpClient.Upload upload, CompletableFuture<DoclingHttpClient.ConvertedFile> result) {}
+
+    private static final class Batch {
+        final ConvertDocumentOptions convertOptions;
+        final DoclingOutputProjection projection;
+        final List<Entry> entries = new ArrayList<>();
+
+        Batch(ConvertDocumentOptions convertOptions, DoclingOutputProjection projection) {
+            this.convertOptions = convertOptions;
+            this.projection = projection;
+        }
+
+        Batch(ConvertDocumentOptions convertOptions, DoclingOutputProjection projection, Entry single) {
+            this(convertOptions, projection);
+            entries.add(single);
+        }
+    }
+}
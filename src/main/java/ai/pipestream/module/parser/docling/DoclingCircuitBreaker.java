@@ -0,0 +1,182 @@
+package ai.pipestream.module.parser.docling;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+
+/**
+ * Circuit breaker in front of every Docling conversion.
+ * <p>
+ * The breaker looks at the outcome of the last {@code parser.docling.breaker.window-size}
+ * conversions. Once at least {@code minimum-calls} have been seen and the failure rate reaches
+ * {@code failure-rate-threshold} percent, it opens and every conversion fails immediately
+ * instead of waiting for the Docling timeout. After {@code open-duration} a single trial
+ * conversion is let through (half-open): success closes the breaker, failure opens it again.
+ * Each call holds a {@link Permit}, so only the trial's own outcome decides; conversions let
+ * through before the breaker opened and finishing late are not counted.
+ * <p>
+ * Only transport failures and timeouts count; a document Docling answers with an error status
+ * is a success as far as the breaker is concerned.
+ */
+@ApplicationScoped
+public class DoclingCircuitBreaker {
+
+    private static final Logger LOG = Logger.getLogger(DoclingCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    @ConfigProperty(name = "parser.docling.breaker.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "parser.docling.breaker.window-size", defaultValue = "20")
+    int windowSize;
+
+    @ConfigProperty(name = "parser.docling.breaker.minimum-calls", defaultValue = "10")
+    int minimumCalls;
+
+    @ConfigProperty(name = "parser.docling.breaker.failure-rate-threshold", defaultValue = "50")
+    int failureRateThreshold;
+
+    @ConfigProperty(name = "parser.docling.breaker.open-duration", defaultValue = "PT30S")
+    Duration openDuration;
+
+    private State state = State.CLOSED;
+    private boolean[] outcomes;
+    private int recorded;
+    private int next;
+    private int failures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    /**
+     * Asks for permission to call Docling. Every permit must be completed with exactly one of
+     * {@link Permit#success()}, {@link Permit#failure()} or {@link Permit#ignored()}; further
+     * calls on a completed permit are no-ops.
+     *
+     * @return the permit, or null if the breaker is open and the call should fail fast
+     */
+    public synchronized Permit tryAcquire() {
+        if (!enabled) {
+            return new Permit(false);
+        }
+        switch (state) {
+            case CLOSED:
+                return new Permit(false);
+            case OPEN:
+                if (System.nanoTime() - openedAt < openDuration.toNanos()) {
+                    return null;
+                }
+                state = State.HALF_OPEN;
+                LOG.info("Docling circuit breaker half-open — allowing a trial conversion");
+                // fall through to the half-open trial
+            case HALF_OPEN:
+            default:
+                if (trialInFlight) {
+                    return null;
+                }
+                trialInFlight = true;
+                return new Permit(true);
+        }
+    }
+
+    /**
+     * Permission for one Docling call. Only the half-open trial's outcome closes or re-opens
+     * the breaker; calls let through while it was closed that finish after it opened are not
+     * counted, so a late success cannot close it on the trial's behalf.
+     */
+    public final class Permit {
+        private final boolean trial;
+        private boolean completed;
+
+        private Permit(boolean trial) {
+            this.trial = trial;
+        }
+
+        public void success() {
+            complete(this, Boolean.FALSE);
+        }
+
+        public void failure() {
+            complete(this, Boolean.TRUE);
+        }
+
+        /**
+         * Releases the permit without an outcome, e.g. when the caller cancelled the conversion
+         * or Docling rejected the document.
+         */
+        public void ignored() {
+            complete(this, null);
+        }
+    }
+
+    private synchronized void complete(Permit permit, Boolean failed) {
+        if (permit.completed) {
+            return;
+        }
+        permit.completed = true;
+        if (!enabled) {
+            return;
+        }
+        if (permit.trial) {
+            trialInFlight = false;
+            if (failed == null) {
+                return;
+            }
+            if (failed) {
+                open("trial conversion failed");
+            } else {
+                LOG.info("Docling circuit breaker closed — trial conversion succeeded");
+                state = State.CLOSED;
+                resetWindow();
+            }
+            return;
+        }
+        if (failed == null || state != State.CLOSED) {
+            return;
+        }
+        record(failed);
+        if (failed && recorded >= minimumCalls && failures * 100 >= failureRateThreshold * recorded) {
+            open(failures + " of the last " + recorded + " conversions failed");
+        }
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openDuration.toNanos()) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    private void open(String reason) {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        resetWindow();
+        LOG.warnf("Docling circuit breaker opened for %ds: %s", openDuration.toSeconds(), reason);
+    }
+
+    private void record(boolean failed) {
+        if (outcomes == null || outcomes.length != Math.max(1, windowSize)) {
+            outcomes = new boolean[Math.max(1, windowSize)];
+            recorded = 0;
+            next = 0;
+            failures = 0;
+        }
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) failures--;
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failed;
+        if (failed) failures++;
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void resetWindow() {
+        outcomes = null;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,182 @@
+package ai.pipestream.module.parser.docling;
+
+import ai.pipestream.parsed.data.docling.v1.DoclingResponse;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Docling results delivered after the Tika result, for progressive processing.
+ * <p>
+ * With {@code parser.docling.progressive.enabled}, {@code processData} returns the Tika-based
+ * document as soon as it is ready and hands the Docling conversion to {@link #track}. The result
+ * is then retrievable by document ID (see {@code GET /api/parser/service/docling/{docId}}).
+ * <p>
+ * Finished results are kept for {@code parser.docling.progressive.retention}. Beyond
+ * {@code max-entries} tracked documents, or {@code max-bytes} of finished results (serialized
+ * size), the longest-finished results are dropped first; conversions still running are never
+ * dropped, since their callers have nothing else to fall back on. Eviction runs when a
+ * conversion is tracked or finishes, on every lookup, and on a timer, so an idle replica lets
+ * go of expired results too.
+ */
+@ApplicationScoped
+public class DoclingDeferredResults {
+
+    private static final Logger LOG = Logger.getLogger(DoclingDeferredResults.class);
+
+    @ConfigProperty(name = "parser.docling.progressive.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "parser.docling.progressive.retention", defaultValue = "PT30M")
+    Duration retention;
+
+    @ConfigProperty(name = "parser.docling.progressive.max-entries", defaultValue = "10000")
+    int maxEntries;
+
+    @ConfigProperty(name = "parser.docling.progressive.max-bytes", defaultValue = "268435456")
+    long maxBytes;
+
+    private final ConcurrentHashMap<String, Pending> results = new ConcurrentHashMap<>();
+    /** Finished entries in completion order, so eviction never scans or sorts the whole map. */
+    private final ConcurrentLinkedQueue<Finished> finished = new ConcurrentLinkedQueue<>();
+    /** Serialized size of the results in {@link #finished}. */
+    private final AtomicLong weight = new AtomicLong();
+    private ScheduledExecutorService evictor;
+
+    private static final class Pending {
+        final CompletableFuture<DoclingResponse> result = new CompletableFuture<>();
+        volatile long completedAt;
+        volatile long size;
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "docling-deferred-evict");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1000, Math.min(60_000, retention.toMillis()));
+        evictor.scheduleWithFixedDelay(this::evict, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+    }
+
+    private record Finished(String docId, Pending pending) {}
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts the conversion in the background and keeps its result under {@code docId},
+     * replacing any earlier result for the same document.
+     */
+    public void track(String docId, Uni<DoclingResponse> conversion) {
+        Pending pending = new Pending();
+        results.put(docId, pending);
+        evict();
+        conversion.subscribe().with(
+                response -> {
+                    pending.size = response != null ? response.getSerializedSize() : 0;
+                    markFinished(docId, pending);
+                    pending.result.complete(response);
+                    evict();
+                },
+                failure -> {
+                    LOG.warnf(failure, "Deferred Docling conversion failed for document %s", docId);
+                    markFinished(docId, pending);
+                    pending.result.completeExceptionally(failure);
+                });
+    }
+
+    /**
+     * The result for a document: empty if none is tracked, otherwise a Uni that completes when
+     * the conversion does (immediately if it already has).
+     */
+    public Optional<Uni<DoclingResponse>> get(String docId) {
+        evict();
+        Pending pending = results.get(docId);
+        if (pending == null || isExpired(pending, System.currentTimeMillis())) {
+            return Optional.empty();
+        }
+        return Optional.of(Uni.createFrom().completionStage(pending.result));
+    }
+
+    /**
+     * Whether the conversion for a tracked document has finished.
+     */
+    public boolean isDone(String docId) {
+        Pending pending = results.get(docId);
+        return pending != null && pending.result.isDone();
+    }
+
+    /** Number of tracked documents, running or finished. */
+    int size() {
+        return results.size();
+    }
+
+    /** Serialized size of the finished results held. */
+    long retainedBytes() {
+        return weight.get();
+    }
+
+    private boolean isExpired(Pending pending, long now) {
+        return pending.completedAt > 0 && now - pending.completedAt > retention.toMillis();
+    }
+
+    private void markFinished(String docId, Pending pending) {
+        pending.completedAt = System.currentTimeMillis();
+        weight.addAndGet(pending.size);
+        finished.add(new Finished(docId, pending));
+    }
+
+    /**
+     * Drops expired results, then the longest-finished ones while more than {@code max-entries}
+     * documents are tracked or the finished results exceed {@code max-bytes}. Only the head of
+     * the completion queue is looked at; entries already replaced by a newer conversion of the
+     * same document are discarded on the way. A single result larger than {@code max-bytes} is
+     * dropped as soon as it finishes, after being handed to the callers already waiting for it.
+     */
+    void evict() {
+        long now = System.currentTimeMillis();
+        int limit = Math.max(1, maxEntries);
+        for (Finished head = finished.peek(); head != null; head = finished.peek()) {
+            boolean stale = results.get(head.docId()) != head.pending();
+            if (!stale && !isExpired(head.pending(), now) && results.size() <= limit && weight.get() <= maxBytes) {
+                return;
+            }
+            if (finished.remove(head)) {
+                weight.addAndGet(-head.pending().size);
+                if (!stale) {
+                    results.remove(head.docId(), head.pending());
+                }
+            }
+        }
+        if (results.size() > limit) {
+            LOG.debugf("%d deferred Docling conversions tracked (limit %d); running conversions are not dropped",
+                    results.size(), limit);
+        }
+    }
+}
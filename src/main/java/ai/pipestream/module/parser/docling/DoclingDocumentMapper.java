@@ -1,6 +1,8 @@
 package ai.pipestream.module.parser.docling;
 
 import ai.docling.core.DoclingDocument;
+import ai.pipestream.module.parser.config.DoclingOutputProjection;
+import ai.pipestream.module.parser.config.DoclingOutputProjection.Section;
 import ai.pipestream.parsed.data.docling.v1.*;
 import org.jboss.logging.Logger;
 
@@ -25,6 +27,19 @@ public class DoclingDocumentMapper {
      * @return Proto DoclingDocument message
      */
     public static ai.pipestream.parsed.data.docling.v1.DoclingDocument map(DoclingDocument javaDoc) {
+        return map(javaDoc, null);
+    }
+
+    /**
+     * Maps Java DoclingDocument to Proto DoclingDocument, skipping the sections the projection
+     * leaves out.
+     *
+     * @param javaDoc The Java DoclingDocument from docling-java library
+     * @param projection Sections to map; all if null
+     * @return Proto DoclingDocument message
+     */
+    public static ai.pipestream.parsed.data.docling.v1.DoclingDocument map(DoclingDocument javaDoc,
+                                                                            DoclingOutputProjection projection) {
         if (javaDoc == null) {
             return ai.pipestream.parsed.data.docling.v1.DoclingDocument.getDefaultInstance();
         }
@@ -52,47 +67,47 @@ public class DoclingDocumentMapper {
         }
 
         // Map body (GroupItem)
-        if (javaDoc.getBody() != null) {
+        if (javaDoc.getBody() != null && keeps(projection, Section.BODY)) {
             builder.setBody(mapGroupItem(javaDoc.getBody()));
         }
 
         // Map furniture (GroupItem)
-        if (javaDoc.getFurniture() != null) {
+        if (javaDoc.getFurniture() != null && keeps(projection, Section.FURNITURE)) {
             builder.setFurniture(mapGroupItem(javaDoc.getFurniture()));
         }
 
         // Map groups
-        if (javaDoc.getGroups() != null) {
+        if (javaDoc.getGroups() != null && keeps(projection, Section.GROUPS)) {
             javaDoc.getGroups().forEach(group -> builder.addGroups(mapGroupItem(group)));
         }
 
         // Map texts
-        if (javaDoc.getTexts() != null) {
+        if (javaDoc.getTexts() != null && keeps(projection, Section.TEXTS)) {
             javaDoc.getTexts().forEach(text -> builder.addTexts(mapBaseTextItem(text)));
         }
 
         // Map pictures
-        if (javaDoc.getPictures() != null) {
+        if (javaDoc.getPictures() != null && keeps(projection, Section.PICTURES)) {
             javaDoc.getPictures().forEach(picture -> builder.addPictures(mapPictureItem(picture)));
         }
 
         // Map tables
-        if (javaDoc.getTables() != null) {
+        if (javaDoc.getTables() != null && keeps(projection, Section.TABLES)) {
             javaDoc.getTables().forEach(table -> builder.addTables(mapTableItem(table)));
         }
 
         // Map key_value_items
-        if (javaDoc.getKeyValueItems() != null) {
+        if (javaDoc.getKeyValueItems() != null && keeps(projection, Section.KEY_VALUE_ITEMS)) {
             javaDoc.getKeyValueItems().forEach(kv -> builder.addKeyValueItems(mapKeyValueItem(kv)));
         }
 
         // Map form_items
-        if (javaDoc.getFormItems() != null) {
+        if (javaDoc.getFormItems() != null && keeps(projection, Section.FORM_ITEMS)) {
             javaDoc.getFormItems().forEach(form -> builder.addFormItems(mapFormItem(form)));
         }
 
         // Map pages
-        if (javaDoc.getPages() != null) {
+        if (javaDoc.getPages() != null && keeps(projection, Section.PAGES)) {
             javaDoc.getPages().forEach((key, page) ->
                 builder.putPages(key, mapPageItem(page))
             );
@@ -101,6 +116,10 @@ public class DoclingDocumentMapper {
         return builder.build();
     }
 
+    private static boolean keeps(DoclingOutputProjection projection, Section section) {
+        return projection == null || projection.keeps(section);
+    }
+
     private static DocumentOrigin mapDocumentOrigin(DoclingDocument.DocumentOrigin javaOrigin) {
         DocumentOrigin.Builder builder = DocumentOrigin.newBuilder();
 
@@ -0,0 +1,526 @@
+package ai.pipestream.module.parser.docling;
+
+import ai.pipestream.parsed.data.docling.v1.DoclingDocument;
+import ai.pipestream.parsed.data.docling.v1.GroupItem;
+import ai.pipestream.parsed.data.docling.v1.PageItem;
+import ai.pipestream.parsed.data.docling.v1.ProvenanceItem;
+import ai.pipestream.parsed.data.docling.v1.RefItem;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Merges DoclingDocuments converted from consecutive page windows of one PDF into a single
+ * document, as if Docling had converted the whole file in one request.
+ * <p>
+ * Items are appended window by window. Every JSON pointer ({@code self_ref}, and the
+ * {@code ref} of parent/children/captions/... references) into {@code texts}, {@code tables},
+ * {@code pictures}, {@code groups}, {@code key_value_items} or {@code form_items} is shifted by
+ * the number of items of that kind in the preceding windows; {@code #/body} and
+ * {@code #/furniture} stay as they are and the windows' body/furniture children are
+ * concatenated. Page numbers ({@code page_no} anywhere, and the {@code pages} map keys) are
+ * shifted when a window came back numbered from 1 rather than with the source PDF's numbers.
+ * <p>
+ * {@link #splitPages} goes the other way and cuts a multi-page document into one document per
+ * page, e.g. to cache the pages of one conversion individually.
+ * <p>
+ * The rewrite walks the proto descriptors, so it covers every nested item and provenance
+ * without a hand-written copy of the 1000-line mapper.
+ */
+public final class DoclingDocumentMerger {
+
+    private static final Pattern BODY_OPEN = Pattern.compile("<body\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern BODY_CLOSE = Pattern.compile("</body\\s*>", Pattern.CASE_INSENSITIVE);
+
+    private static final String[] COLLECTIONS = {
+            "texts", "tables", "pictures", "groups", "key_value_items", "form_items"
+    };
+
+    private DoclingDocumentMerger() {
+    }
+
+    /**
+     * One converted page window.
+     *
+     * @param document  the window's DoclingDocument
+     * @param firstPage 1-based number of the window's first page in the source PDF
+     */
+    public record Part(DoclingDocument document, int firstPage) {}
+
+    /**
+     * Merges the parts in the given order (ascending page windows).
+     */
+    public static DoclingDocument merge(List<Part> parts) {
+        DoclingDocument.Builder merged = DoclingDocument.newBuilder();
+        Map<String, Integer> offsets = new HashMap<>();
+        GroupItem.Builder body = null;
+        GroupItem.Builder furniture = null;
+        boolean first = true;
+
+        for (Part part : parts) {
+            DoclingDocument doc = part.document();
+            if (doc == null) {
+                continue;
+            }
+            Rewriter rewriter = new Rewriter(new HashMap<>(offsets), pageShift(doc, part.firstPage()));
+
+            if (first) {
+                merged.setSchemaName(doc.getSchemaName())
+                        .setVersion(doc.getVersion())
+                        .setName(doc.getName());
+                if (doc.hasOrigin()) {
+                    merged.setOrigin(doc.getOrigin());
+                }
+                first = false;
+            }
+            if (doc.hasBody()) {
+                GroupItem rewritten = rewriter.rewrite(doc.getBody());
+                if (body == null) {
+                    body = rewritten.toBuilder();
+                } else {
+                    body.addAllChildren(rewritten.getChildrenList());
+                }
+            }
+            if (doc.hasFurniture()) {
+                GroupItem rewritten = rewriter.rewrite(doc.getFurniture());
+                if (furniture == null) {
+                    furniture = rewritten.toBuilder();
+                } else {
+                    furniture.addAllChildren(rewritten.getChildrenList());
+                }
+            }
+
+            doc.getGroupsList().forEach(item -> merged.addGroups(rewriter.rewrite(item)));
+            doc.getTextsList().forEach(item -> merged.addTexts(rewriter.rewrite(item)));
+            doc.getPicturesList().forEach(item -> merged.addPictures(rewriter.rewrite(item)));
+            doc.getTablesList().forEach(item -> merged.addTables(rewriter.rewrite(item)));
+            doc.getKeyValueItemsList().forEach(item -> merged.addKeyValueItems(rewriter.rewrite(item)));
+            doc.getFormItemsList().forEach(item -> merged.addFormItems(rewriter.rewrite(item)));
+
+            for (Map.Entry<String, PageItem> page : doc.getPagesMap().entrySet()) {
+                PageItem rewritten = rewriter.rewrite(page.getValue());
+                String key = rewritten.getPageNo() > 0
+                        ? String.valueOf(rewritten.getPageNo())
+                        : shiftKey(page.getKey(), rewriter.pageShift);
+                merged.putPages(key, rewritten);
+            }
+
+            offsets.merge("texts", doc.getTextsCount(), Integer::sum);
+            offsets.merge("tables", doc.getTablesCount(), Integer::sum);
+            offsets.merge("pictures", doc.getPicturesCount(), Integer::sum);
+            offsets.merge("groups", doc.getGroupsCount(), Integer::sum);
+            offsets.merge("key_value_items", doc.getKeyValueItemsCount(), Integer::sum);
+            offsets.merge("form_items", doc.getFormItemsCount(), Integer::sum);
+        }
+
+        if (body != null) {
+            merged.setBody(body);
+        }
+        if (furniture != null) {
+            merged.setFurniture(furniture);
+        }
+        return merged.build();
+    }
+
+    /**
+     * Merges the HTML exports of consecutive windows into one HTML document: the first
+     * window's prologue and {@code <head>}, then the {@code <body>} content of every window in
+     * order. An export without a {@code <body>} element is taken as body content as a whole.
+     */
+    public static String mergeHtml(List<String> exports) {
+        StringBuilder merged = new StringBuilder();
+        String epilogue = "";
+        for (String html : exports) {
+            if (html == null || html.isEmpty()) {
+                continue;
+            }
+            Matcher open = BODY_OPEN.matcher(html);
+            int start = open.find() ? open.end() : 0;
+            int end = html.length();
+            Matcher close = BODY_CLOSE.matcher(html);
+            if (close.find(start)) {
+                do {
+                    end = close.start();
+                } while (close.find());
+            }
+            if (merged.length() == 0) {
+                merged.append(html, 0, start);
+                epilogue = html.substring(end);
+            } else {
+                merged.append('\n');
+            }
+            merged.append(html, start, end);
+        }
+        return merged.append(epilogue).toString();
+    }
+
+    /**
+     * Splits a document converted from {@code pageCount} consecutive pages, starting at source
+     * page {@code firstPage}, into one document per page, each numbered from page 1.
+     * <p>
+     * An item belongs to the page of its first provenance; items without any go to the first
+     * page. Groups and other ancestors go with every page holding one of their descendants, so
+     * a list continuing onto the next page becomes one list per page. References to items on
+     * other pages (children, captions, ...) are dropped and the rest renumbered.
+     */
+    public static List<DoclingDocument> splitPages(DoclingDocument doc, int firstPage, int pageCount) {
+        int docFirst = firstPage - pageShift(doc, firstPage);
+        Map<String, List<Message>> items = new HashMap<>();
+        Map<String, int[]> pageOf = new HashMap<>();
+        Map<String, String[]> parents = new HashMap<>();
+        for (String collection : COLLECTIONS) {
+            @SuppressWarnings("unchecked")
+            List<Message> list = (List<Message>) doc.getField(DoclingDocument.getDescriptor().findFieldByName(collection));
+            int[] pages = new int[list.size()];
+            String[] parentRefs = new String[list.size()];
+            for (int i = 0; i < list.size(); i++) {
+                int page = "groups".equals(collection) ? -1 : firstProvenancePage(list.get(i));
+                pages[i] = page < 0 ? page : Math.max(0, Math.min(pageCount - 1, page - docFirst));
+                parentRefs[i] = parentRef(list.get(i));
+            }
+            items.put(collection, list);
+            pageOf.put(collection, pages);
+            parents.put(collection, parentRefs);
+        }
+        // Items without provenance (other than groups) belong to the first page
+        for (String collection : COLLECTIONS) {
+            int[] pages = pageOf.get(collection);
+            if (!"groups".equals(collection)) {
+                for (int i = 0; i < pages.length; i++) {
+                    if (pages[i] < 0) pages[i] = 0;
+                }
+            }
+        }
+
+        List<DoclingDocument> result = new ArrayList<>(pageCount);
+        for (int page = 0; page < pageCount; page++) {
+            Map<String, BitSet> selected = new HashMap<>();
+            for (String collection : COLLECTIONS) {
+                BitSet bits = new BitSet();
+                int[] pages = pageOf.get(collection);
+                for (int i = 0; i < pages.length; i++) {
+                    if (pages[i] == page) bits.set(i);
+                }
+                selected.put(collection, bits);
+            }
+            for (String collection : COLLECTIONS) {
+                BitSet own = (BitSet) selected.get(collection).clone();
+                for (int i = own.nextSetBit(0); i >= 0; i = own.nextSetBit(i + 1)) {
+                    selectAncestors(parents.get(collection)[i], parents, selected);
+                }
+            }
+
+            Map<String, int[]> remap = new HashMap<>();
+            for (String collection : COLLECTIONS) {
+                int[] map = new int[items.get(collection).size()];
+                Arrays.fill(map, -1);
+                BitSet bits = selected.get(collection);
+                int next = 0;
+                for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                    map[i] = next++;
+                }
+                remap.put(collection, map);
+            }
+
+            Rewriter rewriter = new Rewriter(remap);
+            DoclingDocument.Builder slice = doc.toBuilder().clearPages();
+            for (String collection : COLLECTIONS) {
+                FieldDescriptor field = DoclingDocument.getDescriptor().findFieldByName(collection);
+                slice.clearField(field);
+                BitSet bits = selected.get(collection);
+                List<Message> list = items.get(collection);
+                for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                    slice.addRepeatedField(field, rewriter.rewrite(list.get(i)));
+                }
+            }
+            if (doc.hasBody()) {
+                slice.setBody(rewriter.rewrite(doc.getBody()));
+            }
+            if (doc.hasFurniture()) {
+                slice.setFurniture(rewriter.rewrite(doc.getFurniture()));
+            }
+            int pageNo = docFirst + page;
+            for (Map.Entry<String, PageItem> entry : doc.getPagesMap().entrySet()) {
+                if (entry.getValue().getPageNo() == pageNo || entry.getKey().equals(String.valueOf(pageNo))) {
+                    slice.putPages(entry.getKey(), entry.getValue());
+                }
+            }
+            result.add(shiftPages(slice.build(), 1 - pageNo));
+        }
+        return result;
+    }
+
+    private static void selectAncestors(String ref, Map<String, String[]> parents, Map<String, BitSet> selected) {
+        for (int depth = 0; ref != null && depth < 64; depth++) {
+            int[] target = target(ref);
+            if (target == null) {
+                return; // #/body, #/furniture or unknown
+            }
+            String collection = COLLECTIONS[target[0]];
+            String[] parentRefs = parents.get(collection);
+            if (target[1] >= parentRefs.length || selected.get(collection).get(target[1])) {
+                return;
+            }
+            selected.get(collection).set(target[1]);
+            ref = parentRefs[target[1]];
+        }
+    }
+
+    /** {@code [collection index, item index]} of a JSON pointer into the item lists, or null. */
+    private static int[] target(String ref) {
+        if (ref == null || !ref.startsWith("#/")) {
+            return null;
+        }
+        for (int c = 0; c < COLLECTIONS.length; c++) {
+            String collection = COLLECTIONS[c];
+            int prefixEnd = 2 + collection.length();
+            if (ref.startsWith(collection, 2) && ref.length() > prefixEnd + 1 && ref.charAt(prefixEnd) == '/') {
+                int end = prefixEnd + 1;
+                while (end < ref.length() && Character.isDigit(ref.charAt(end))) end++;
+                if (end == prefixEnd + 1) {
+                    return null;
+                }
+                return new int[]{c, Integer.parseInt(ref.substring(prefixEnd + 1, end))};
+            }
+        }
+        return null;
+    }
+
+    /** Page number of the first provenance anywhere in the item, or -1. */
+    private static int firstProvenancePage(Message message) {
+        for (Map.Entry<FieldDescriptor, Object> field : message.getAllFields().entrySet()) {
+            FieldDescriptor fd = field.getKey();
+            if (fd.getJavaType() != FieldDescriptor.JavaType.MESSAGE) {
+                continue;
+            }
+            if (fd.getMessageType().equals(ProvenanceItem.getDescriptor())) {
+                Object value = fd.isRepeated() ? ((List<?>) field.getValue()).get(0) : field.getValue();
+                int page = ((ProvenanceItem) value).getPageNo();
+                if (page > 0) {
+                    return page;
+                }
+            } else if (!fd.isRepeated()) {
+                int page = firstProvenancePage((Message) field.getValue());
+                if (page > 0) {
+                    return page;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /** The item's {@code parent} reference, wherever it is nested, or null. */
+    private static String parentRef(Message message) {
+        for (Map.Entry<FieldDescriptor, Object> field : message.getAllFields().entrySet()) {
+            FieldDescriptor fd = field.getKey();
+            if (fd.isRepeated() || fd.getJavaType() != FieldDescriptor.JavaType.MESSAGE) {
+                continue;
+            }
+            if ("parent".equals(fd.getName()) && field.getValue() instanceof RefItem parent) {
+                return parent.getRef();
+            }
+            String ref = parentRef((Message) field.getValue());
+            if (ref != null) {
+                return ref;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Renumbers a document's pages so its lowest page becomes page 1, e.g. to store a
+     * single-page conversion independently of where the page sat in its source file.
+     */
+    public static DoclingDocument renumberFromFirstPage(DoclingDocument doc) {
+        int minPage = minPage(doc);
+        return minPage == Integer.MAX_VALUE ? doc : shiftPages(doc, 1 - minPage);
+    }
+
+    /**
+     * Shifts every page number ({@code page_no} anywhere, and the {@code pages} map keys) by
+     * {@code shift}, leaving references alone.
+     */
+    static DoclingDocument shiftPages(DoclingDocument doc, int shift) {
+        if (shift == 0) {
+            return doc;
+        }
+        DoclingDocument rewritten = new Rewriter(new HashMap<>(), shift).rewrite(doc);
+        DoclingDocument.Builder shifted = rewritten.toBuilder().clearPages();
+        rewritten.getPagesMap().forEach((key, page) -> shifted.putPages(shiftKey(key, shift), page));
+        return shifted.build();
+    }
+
+    /**
+     * Pages to add to a window's page numbers: zero when Docling kept the source numbering,
+     * otherwise the distance from its lowest page to the window's first page.
+     */
+    static int pageShift(DoclingDocument doc, int firstPage) {
+        int minPage = minPage(doc);
+        if (minPage == Integer.MAX_VALUE || firstPage <= 1 || minPage >= firstPage) {
+            return 0;
+        }
+        return firstPage - minPage;
+    }
+
+    private static int minPage(DoclingDocument doc) {
+        int minPage = Integer.MAX_VALUE;
+        for (PageItem page : doc.getPagesMap().values()) {
+            if (page.getPageNo() > 0) {
+                minPage = Math.min(minPage, page.getPageNo());
+            }
+        }
+        return minPage;
+    }
+
+    private static String shiftKey(String key, int shift) {
+        if (shift == 0) {
+            return key;
+        }
+        try {
+            return String.valueOf(Integer.parseInt(key) + shift);
+        } catch (NumberFormatException e) {
+            return key;
+        }
+    }
+
+    /**
+     * Descriptor-driven copy that renumbers references and page numbers. With a remap, a
+     * message whose reference points at an item that is not kept is dropped: left out of a
+     * repeated field, cleared from a singular one.
+     */
+    private static final class Rewriter {
+        private final Map<String, Integer> offsets;
+        private final Map<String, int[]> remap;
+        private final int pageShift;
+        private final boolean identity;
+
+        Rewriter(Map<String, Integer> offsets, int pageShift) {
+            this.offsets = offsets;
+            this.remap = null;
+            this.pageShift = pageShift;
+            this.identity = pageShift == 0 && offsets.values().stream().allMatch(v -> v == 0);
+        }
+
+        /** Renumbers references through {@code remap} (old index to new index, -1 if not kept). */
+        Rewriter(Map<String, int[]> remap) {
+            this.offsets = Map.of();
+            this.remap = remap;
+            this.pageShift = 0;
+            this.identity = false;
+        }
+
+        @SuppressWarnings("unchecked")
+        <M extends Message> M rewrite(M message) {
+            if (identity) {
+                return message;
+            }
+            Message.Builder builder = null;
+            for (Map.Entry<FieldDescriptor, Object> field : message.getAllFields().entrySet()) {
+                FieldDescriptor fd = field.getKey();
+                Object value = field.getValue();
+                if (fd.isRepeated()) {
+                    List<?> values = (List<?>) value;
+                    List<Object> rewritten = new ArrayList<>(values.size());
+                    boolean changed = false;
+                    for (Object v : values) {
+                        Object r = rewriteValue(fd, v);
+                        changed |= r != v;
+                        if (r != null) {
+                            rewritten.add(r);
+                        }
+                    }
+                    if (changed) {
+                        if (builder == null) builder = message.toBuilder();
+                        builder.setField(fd, rewritten);
+                    }
+                } else {
+                    Object r = rewriteValue(fd, value);
+                    if (r == null) {
+                        if (fd.getJavaType() == FieldDescriptor.JavaType.STRING) {
+                            return null; // reference to an item that is not kept
+                        }
+                        if (builder == null) builder = message.toBuilder();
+                        builder.clearField(fd);
+                    } else if (r != value) {
+                        if (builder == null) builder = message.toBuilder();
+                        builder.setField(fd, r);
+                    }
+                }
+            }
+            return builder == null ? message : (M) builder.build();
+        }
+
+        private Object rewriteValue(FieldDescriptor fd, Object value) {
+            switch (fd.getJavaType()) {
+                case MESSAGE:
+                    return rewrite((Message) value);
+                case STRING:
+                    if ("self_ref".equals(fd.getName()) || "ref".equals(fd.getName())) {
+                        return rewriteRef((String) value);
+                    }
+                    return value;
+                case INT:
+                    if (pageShift != 0 && "page_no".equals(fd.getName()) && (Integer) value > 0) {
+                        return (Integer) value + pageShift;
+                    }
+                    return value;
+                case LONG:
+                    if (pageShift != 0 && "page_no".equals(fd.getName()) && (Long) value > 0) {
+                        return (Long) value + pageShift;
+                    }
+                    return value;
+                default:
+                    return value;
+            }
+        }
+
+        /**
+         * "#/texts/12" becomes "#/texts/(12 + texts in earlier windows)", or with a remap its
+         * new index; null if the item is not kept.
+         */
+        private String rewriteRef(String ref) {
+            if (ref == null || !ref.startsWith("#/")) {
+                return ref;
+            }
+            if (remap != null) {
+                int[] target = target(ref);
+                if (target == null) {
+                    return ref;
+                }
+                String collection = COLLECTIONS[target[0]];
+                int[] map = remap.get(collection);
+                int index = target[1] < map.length ? map[target[1]] : -1;
+                if (index < 0) {
+                    return null;
+                }
+                String prefix = "#/" + collection + "/" + target[1];
+                return "#/" + collection + "/" + index + ref.substring(prefix.length());
+            }
+            for (String collection : COLLECTIONS) {
+                int prefixEnd = 2 + collection.length();
+                if (ref.startsWith(collection, 2) && ref.length() > prefixEnd + 1 && ref.charAt(prefixEnd) == '/') {
+                    int offset = offsets.getOrDefault(collection, 0);
+                    if (offset == 0) {
+                        return ref;
+                    }
+                    int end = prefixEnd + 1;
+                    while (end < ref.length() && Character.isDigit(ref.charAt(end))) end++;
+                    if (end == prefixEnd + 1) {
+                        return ref;
+                    }
+                    int index = Integer.parseInt(ref.substring(prefixEnd + 1, end));
+                    return "#/" + collection + "/" + (index + offset) + ref.substring(end);
+                }
+            }
+            return ref;
+        }
+    }
+}
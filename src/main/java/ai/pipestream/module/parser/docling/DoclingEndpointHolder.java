@@ -1,91 +1,527 @@
 package ai.pipestream.module.parser.docling;
 
 import ai.docling.serve.api.DoclingServeApi;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
- * Holds the active Docling endpoint URL and client. Supports live swapping
+ * Holds the pool of Docling endpoints and their clients. Supports live swapping
  * with automatic rollback if the new endpoint fails a health probe.
+ * <p>
+ * The pool is configured with {@code parser.docling.endpoints} (comma-separated base URLs);
+ * without it the pool holds just the injected client. Each conversion takes a {@link Lease}
+ * from {@link #acquire()}, which picks the endpoint with the fewest outstanding requests,
+ * breaking ties by the lower latency average. Endpoints that fail
+ * {@code parser.docling.pool.ejection-failures} times in a row are ejected for
+ * {@code parser.docling.pool.ejection-time} (longer on each repeat) and re-admitted early by
+ * the background probe as soon as their health endpoint answers again.
+ * <p>
+ * The background monitor probes every endpoint each {@code parser.docling.pool.probe-interval}
+ * and caches the outcome with a rolling probe latency; endpoints failing their probe, or not
+ * answering it within the probe interval, are taken out of rotation until they answer again. Together with the rolling error rate of real
+ * conversions this feeds {@link #acquire()}, {@link #isHealthy()} and {@link #getEndpointStats()},
+ * none of which wait on the network.
  */
 @ApplicationScoped
 public class DoclingEndpointHolder {
 
     private static final Logger LOG = Logger.getLogger(DoclingEndpointHolder.class);
 
+    /** URL reported for the injected client when no base URL is configured. */
+    static final String DEFAULT_URL = "default";
+
+    /** Weight of the newest sample in the latency average. */
+    private static final double LATENCY_ALPHA = 0.2;
+
+    /** Weight of the newest outcome in the rolling error rate. */
+    private static final double ERROR_ALPHA = 0.1;
+
+    /** How much a fully failing endpoint's latency is inflated when breaking ties. */
+    private static final double ERROR_PENALTY = 4.0;
+
     @Inject
     DoclingServeApi initialClient;
 
+    @ConfigProperty(name = "parser.docling.endpoints")
+    Optional<List<String>> configuredEndpoints;
+
+    @ConfigProperty(name = "quarkus.docling.base-url")
+    Optional<String> configuredBaseUrl;
+
+    @ConfigProperty(name = "parser.docling.pool.ejection-failures", defaultValue = "3")
+    int ejectionFailures;
+
+    @ConfigProperty(name = "parser.docling.pool.ejection-time", defaultValue = "PT30S")
+    Duration ejectionTime;
+
+    @ConfigProperty(name = "parser.docling.pool.probe-interval", defaultValue = "PT5S")
+    Duration probeInterval;
+
+    private final AtomicReference<List<Endpoint>> pool = new AtomicReference<>(List.of());
     private final AtomicReference<String> activeUrl = new AtomicReference<>();
-    private final AtomicReference<DoclingServeApi> activeClient = new AtomicReference<>();
+    private ScheduledExecutorService prober;
+    private ExecutorService probeWorkers;
+
+    @PostConstruct
+    void init() {
+        List<String> urls = configuredEndpoints.orElse(List.of()).stream()
+                .map(String::trim)
+                .filter(u -> !u.isEmpty())
+                .toList();
+        if (urls.isEmpty()) {
+            pool.set(List.of(new Endpoint(configuredBaseUrl.orElse(DEFAULT_URL), initialClient)));
+        } else {
+            pool.set(buildEndpoints(urls));
+            activeUrl.set(String.join(",", urls));
+            LOG.infof("Docling endpoint pool initialised with %d endpoints: %s", urls.size(), urls);
+        }
+
+        prober = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "docling-endpoint-probe");
+            t.setDaemon(true);
+            return t;
+        });
+        // Probes run on their own threads so one slow endpoint does not delay the others
+        AtomicInteger workerCount = new AtomicInteger();
+        probeWorkers = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "docling-endpoint-probe-" + workerCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1, probeInterval.toMillis());
+        prober.scheduleWithFixedDelay(() -> checkHealth(probeWorkers), 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (prober != null) {
+            prober.shutdownNow();
+        }
+        if (probeWorkers != null) {
+            probeWorkers.shutdownNow();
+        }
+    }
 
     /**
-     * Returns the active Docling client. On first call, returns the injected client.
+     * Returns the client of the currently preferred endpoint. Callers that can report the
+     * outcome of their call should use {@link #acquire()} instead so load and failures are
+     * tracked.
      */
     public DoclingServeApi getClient() {
-        DoclingServeApi client = activeClient.get();
-        return client != null ? client : initialClient;
+        List<Endpoint> endpoints = pool.get();
+        return endpoints.isEmpty() ? initialClient : select(endpoints).client;
     }
 
     /**
-     * Returns the active endpoint URL, or "default" if using the injected client.
+     * Returns the active endpoint URL(s), or "default" if using the injected client.
      */
     public String getActiveUrl() {
         String url = activeUrl.get();
-        return url != null ? url : "default";
+        return url != null ? url : DEFAULT_URL;
+    }
+
+    /**
+     * Takes a lease on the least loaded healthy endpoint. The lease must be closed once the
+     * call finishes; report the outcome with {@link Lease#success()},
+     * {@link Lease#failure(Throwable)} or {@link Lease#report(Throwable)} before closing.
+     */
+    public Lease acquire() {
+        Endpoint endpoint = select(pool.get());
+        endpoint.outstanding.incrementAndGet();
+        return new Lease(endpoint);
     }
 
     /**
-     * Swaps the Docling endpoint to a new URL. Probes the new endpoint first.
-     * If the probe fails, rolls back to the previous endpoint.
+     * Least-outstanding-requests selection over available endpoints, ties broken by latency
+     * inflated by the rolling error rate, then by the error rate alone. If no endpoint is available, the one whose ejection
+     * expires first is used (an endpoint failing only its health probe counts as expiring now)
+     * rather than failing the request outright.
+     */
+    private Endpoint select(List<Endpoint> endpoints) {
+        long now = System.nanoTime();
+        Endpoint best = null;
+        Endpoint leastEjected = null;
+        for (Endpoint e : endpoints) {
+            if (!e.isAvailable(now)) {
+                if (leastEjected == null || e.unavailableUntil(now) - leastEjected.unavailableUntil(now) < 0) {
+                    leastEjected = e;
+                }
+                continue;
+            }
+            if (best == null || isPreferred(e, best)) {
+                best = e;
+            }
+        }
+        return best != null ? best : leastEjected;
+    }
+
+    private static boolean isPreferred(Endpoint candidate, Endpoint current) {
+        int byLoad = Integer.compare(candidate.outstanding.get(), current.outstanding.get());
+        if (byLoad != 0) {
+            return byLoad < 0;
+        }
+        int byLatency = Double.compare(candidate.weightedLatency(), current.weightedLatency());
+        return byLatency != 0 ? byLatency < 0 : candidate.errorRate < current.errorRate;
+    }
+
+    /**
+     * Swaps the Docling endpoint(s) to a new URL, or a comma-separated list of URLs. Every
+     * new endpoint is probed first. If any probe fails, the current pool is kept.
      *
-     * @param newUrl the new Docling base URL
+     * @param newUrl the new Docling base URL(s)
      * @return result of the swap attempt
      */
     public SwapResult swap(String newUrl) {
         String previousUrl = getActiveUrl();
-        DoclingServeApi previousClient = getClient();
 
         LOG.infof("Attempting Docling endpoint swap: %s -> %s", previousUrl, newUrl);
 
         try {
-            // Build a new client pointing to the new URL
-            DoclingServeApi newClient = previousClient.toBuilder()
-                    .baseUrl(newUrl)
-                    .build();
+            List<String> urls = List.of(newUrl.split(",")).stream()
+                    .map(String::trim)
+                    .filter(u -> !u.isEmpty())
+                    .toList();
+            if (urls.isEmpty()) {
+                throw new IllegalArgumentException("No endpoint URL given");
+            }
+            List<Endpoint> endpoints = buildEndpoints(urls);
 
-            // Health probe — call the health endpoint
-            newClient.health();
+            // Health probe — call the health endpoint of every new client
+            for (Endpoint endpoint : endpoints) {
+                endpoint.client.health();
+            }
 
-            // Probe passed — activate the new client
-            activeClient.set(newClient);
-            activeUrl.set(newUrl);
-            LOG.infof("Docling endpoint swap successful: now using %s", newUrl);
-            return new SwapResult(true, newUrl, previousUrl, null);
+            // Probes passed — activate the new pool
+            String joined = String.join(",", urls);
+            pool.set(endpoints);
+            activeUrl.set(joined);
+            LOG.infof("Docling endpoint swap successful: now using %s", joined);
+            return new SwapResult(true, joined, previousUrl, null);
 
         } catch (Exception e) {
             LOG.errorf(e, "Docling endpoint swap failed for %s — rolling back to %s", newUrl, previousUrl);
-            // No state change needed — activeClient/activeUrl still point to previous
+            // No state change needed — the pool still holds the previous endpoints
             return new SwapResult(false, previousUrl, previousUrl, e.getMessage());
         }
     }
 
     /**
-     * Probes the active Docling endpoint for health.
-     * Returns true if the health endpoint responds successfully.
+     * Whether at least one endpoint is available, from the cached health state — never waits
+     * on a probe. Endpoints not yet probed count as healthy.
      */
     public boolean isHealthy() {
+        return availableEndpointCount() > 0;
+    }
+
+    /**
+     * Number of endpoints currently accepting traffic (not ejected and passing their health probe).
+     */
+    public int availableEndpointCount() {
+        long now = System.nanoTime();
+        int available = 0;
+        for (Endpoint endpoint : pool.get()) {
+            if (endpoint.isAvailable(now)) {
+                available++;
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Snapshot of every endpoint in the pool with its current load and cached health.
+     */
+    public List<EndpointStats> getEndpointStats() {
+        long now = System.nanoTime();
+        return pool.get().stream()
+                .map(e -> new EndpointStats(e.url, e.isAvailable(now), e.outstanding.get(),
+                        Math.round(e.latencyMs), e.requests.get(), e.failures.get(),
+                        e.errorRate, Math.round(e.probeLatencyMs), e.lastProbedAt, e.lastProbeError))
+                .collect(Collectors.toList());
+    }
+
+    private List<Endpoint> buildEndpoints(List<String> urls) {
+        return buildEndpoints(urls, url -> initialClient.toBuilder()
+                .baseUrl(url)
+                .build());
+    }
+
+    private List<Endpoint> buildEndpoints(List<String> urls, Function<String, DoclingServeApi> clientFactory) {
+        List<Endpoint> endpoints = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            endpoints.add(new Endpoint(url, clientFactory.apply(url)));
+        }
+        return endpoints;
+    }
+
+    /**
+     * Replaces the pool without probing; used by tests to build a pool from stub clients.
+     */
+    void setEndpoints(List<String> urls, Function<String, DoclingServeApi> clientFactory) {
+        pool.set(buildEndpoints(urls, clientFactory));
+        activeUrl.set(String.join(",", urls));
+    }
+
+    /**
+     * Starts one health probe per endpoint on {@code executor}; an endpoint whose previous probe
+     * is still running is skipped. A probe that has not answered within the probe interval fails
+     * and its call is interrupted. Returns once every started probe has finished or timed out.
+     */
+    CompletableFuture<Void> checkHealth(ExecutorService executor) {
+        long timeoutMillis = Math.max(1, probeInterval.toMillis());
+        List<CompletableFuture<Void>> probes = new ArrayList<>();
+        for (Endpoint endpoint : pool.get()) {
+            if (endpoint.probing.compareAndSet(false, true)) {
+                long start = System.nanoTime();
+                AtomicBoolean started = new AtomicBoolean();
+                AtomicBoolean settled = new AtomicBoolean();
+                CompletableFuture<Void> done = new CompletableFuture<>();
+                Future<?> call = executor.submit(() -> {
+                    started.set(true);
+                    try {
+                        probe(endpoint, start, settled);
+                    } finally {
+                        endpoint.probing.set(false);
+                        done.complete(null);
+                    }
+                });
+                probes.add(done.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).exceptionally(e -> {
+                    call.cancel(true);
+                    if (!started.get()) {
+                        endpoint.probing.set(false); // cancelled before it ran
+                    }
+                    if (settled.compareAndSet(false, true)) {
+                        recordProbe(endpoint, System.nanoTime() - start,
+                                "health probe timed out after " + timeoutMillis + " ms");
+                    }
+                    return null;
+                }));
+            }
+        }
+        return CompletableFuture.allOf(probes.toArray(CompletableFuture[]::new));
+    }
+
+    /** Calls the health endpoint; the outcome is dropped if the probe already timed out. */
+    private void probe(Endpoint endpoint, long start, AtomicBoolean settled) {
+        String error = null;
         try {
-            getClient().health();
-            return true;
+            endpoint.client.health();
         } catch (Exception e) {
-            LOG.debugf("Docling health probe failed: %s", e.getMessage());
-            return false;
+            error = String.valueOf(e.getMessage());
+        }
+        if (settled.compareAndSet(false, true)) {
+            recordProbe(endpoint, System.nanoTime() - start, error);
+        }
+    }
+
+    private void recordProbe(Endpoint endpoint, long elapsedNanos, String error) {
+        if (error == null) {
+            boolean wasAvailable = endpoint.isAvailable(System.nanoTime());
+            endpoint.recordProbe(elapsedNanos, null);
+            if (!wasAvailable) {
+                endpoint.readmit();
+                LOG.infof("Docling endpoint %s passed health probe — re-admitted", endpoint.url);
+            }
+        } else {
+            if (endpoint.probeHealthy) {
+                LOG.warnf("Docling endpoint %s failed health probe — taken out of rotation: %s", endpoint.url, error);
+            }
+            endpoint.recordProbe(elapsedNanos, error);
+        }
+    }
+
+    /**
+     * A single pooled endpoint with its load and outlier-detection state.
+     */
+    private final class Endpoint {
+        final String url;
+        final DoclingServeApi client;
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicInteger consecutiveFailures = new AtomicInteger();
+        final AtomicInteger ejections = new AtomicInteger();
+        final AtomicLong ejectedUntil = new AtomicLong(Long.MIN_VALUE);
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicBoolean probing = new AtomicBoolean();
+        volatile double latencyMs;
+        volatile double errorRate;
+        volatile boolean probeHealthy = true;
+        volatile double probeLatencyMs;
+        volatile long lastProbedAt;
+        volatile String lastProbeError;
+
+        Endpoint(String url, DoclingServeApi client) {
+            this.url = url;
+            this.client = client;
+        }
+
+        boolean isEjected(long now) {
+            long until = ejectedUntil.get();
+            return until != Long.MIN_VALUE && now - until < 0;
+        }
+
+        boolean isAvailable(long now) {
+            return probeHealthy && !isEjected(now);
+        }
+
+        /** When the endpoint comes back: its ejection expiry, or now if only the probe failed. */
+        long unavailableUntil(long now) {
+            return isEjected(now) ? ejectedUntil.get() : now;
+        }
+
+        double weightedLatency() {
+            return latencyMs * (1 + ERROR_PENALTY * errorRate);
+        }
+
+        void recordProbe(long elapsedNanos, String error) {
+            double sample = elapsedNanos / 1_000_000.0;
+            double current = probeLatencyMs;
+            probeLatencyMs = current == 0 ? sample : current + LATENCY_ALPHA * (sample - current);
+            lastProbedAt = System.currentTimeMillis();
+            lastProbeError = error;
+            probeHealthy = error == null;
+        }
+
+        void recordSuccess(long elapsedNanos) {
+            requests.incrementAndGet();
+            consecutiveFailures.set(0);
+            errorRate = errorRate * (1 - ERROR_ALPHA);
+            double sample = elapsedNanos / 1_000_000.0;
+            double current = latencyMs;
+            latencyMs = current == 0 ? sample : current + LATENCY_ALPHA * (sample - current);
+        }
+
+        void recordFailure(Throwable error) {
+            requests.incrementAndGet();
+            failures.incrementAndGet();
+            errorRate = errorRate + ERROR_ALPHA * (1 - errorRate);
+            if (consecutiveFailures.incrementAndGet() >= ejectionFailures && !isEjected(System.nanoTime())) {
+                int count = Math.min(ejections.incrementAndGet(), 10);
+                long until = System.nanoTime() + ejectionTime.toNanos() * count;
+                ejectedUntil.set(until);
+                LOG.warnf("Ejecting Docling endpoint %s for %ds after %d consecutive failures (last: %s)",
+                        url, ejectionTime.toSeconds() * count, consecutiveFailures.get(),
+                        error instanceof TimeoutException ? "timeout" : String.valueOf(error));
+            }
+        }
+
+        void readmit() {
+            ejectedUntil.set(Long.MIN_VALUE);
+            consecutiveFailures.set(0);
         }
     }
 
+    /**
+     * A claim on one endpoint for the duration of a call.
+     */
+    public final class Lease implements AutoCloseable {
+        private final Endpoint endpoint;
+        private final long startNanos = System.nanoTime();
+        private boolean reported;
+        private boolean closed;
+
+        private Lease(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public DoclingServeApi client() {
+            return endpoint.client;
+        }
+
+        /**
+         * Base URL of the leased endpoint, or "default" if the injected client has none configured.
+         */
+        public String url() {
+            return endpoint.url;
+        }
+
+        public synchronized void success() {
+            if (!reported) {
+                reported = true;
+                endpoint.recordSuccess(System.nanoTime() - startNanos);
+            }
+        }
+
+        public synchronized void failure(Throwable error) {
+            if (!reported) {
+                reported = true;
+                endpoint.recordFailure(error);
+            }
+        }
+
+        /**
+         * Reports the outcome of a call: success if {@code error} is null, a failure if it is an
+         * {@linkplain #isEndpointFailure endpoint failure}, and nothing at all otherwise — a 4xx
+         * answer says the endpoint is up and the request was at fault.
+         */
+        public synchronized void report(Throwable error) {
+            if (error == null) {
+                success();
+            } else if (isEndpointFailure(error)) {
+                failure(error);
+            } else {
+                reported = true;
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                endpoint.outstanding.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Whether a failed call says something about the endpoint's health: connection errors,
+     * timeouts and 5xx answers do; a 4xx answer ({@link DoclingHttpClient.HttpStatusException})
+     * means the endpoint rejected this particular request and does not, and neither does an
+     * error that is not I/O at all, such as a mapping bug.
+     */
+    public static boolean isEndpointFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause() != cause ? cause.getCause() : null) {
+            if (cause instanceof DoclingHttpClient.HttpStatusException status) {
+                return status.statusCode() >= 500;
+            }
+            if (cause instanceof IOException || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public record SwapResult(boolean success, String activeUrl, String previousUrl, String error) {}
+
+    /**
+     * @param errorRate      rolling share of failed conversions, 0 to 1
+     * @param probeLatencyMs rolling health probe latency
+     * @param lastProbedAt   epoch millis of the last completed health probe, 0 if none yet
+     * @param lastProbeError message of the last failed probe, null if it passed
+     */
+    public record EndpointStats(String url, boolean healthy, int outstandingRequests, long latencyMs,
+                                long totalRequests, long totalFailures, double errorRate,
+                                long probeLatencyMs, long lastProbedAt, String lastProbeError) {}
 }
@@ -0,0 +1,578 @@
+package ai.pipestream.module.parser.docling;
+
+import ai.docling.serve.api.convert.request.options.ConvertDocumentOptions;
+import ai.docling.serve.api.convert.response.ConvertDocumentResponse;
+import ai.docling.serve.api.convert.response.DocumentResponse;
+import ai.docling.serve.api.convert.response.InBodyConvertDocumentResponse;
+import ai.pipestream.module.parser.config.DoclingOutputProjection;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Talks to docling-serve's file endpoints over plain HTTP.
+ * <p>
+ * The generated Docling client only offers {@code convertSource}, which needs the whole
+ * document as a base64 string inside a JSON body. For large scanned PDFs that means the
+ * blob, a {@code byte[]} copy and a base64 string (a third larger again) all live on the
+ * heap at once. This client instead posts the blob to {@code /v1/convert/file} as
+ * {@code multipart/form-data}, streaming the bytes straight out of the protobuf
+ * {@link ByteString} with a known content length, so no intermediate copy is made.
+ * <p>
+ * Conversion options are sent as form fields using the same snake_case names the JSON
+ * request uses; the response body is the same {@link ConvertDocumentResponse} JSON the
+ * generated client returns. {@link #convertFileAsync} submits the same upload as a
+ * docling-serve job and waits for it with non-blocking calls.
+ * <p>
+ * Responses are read with {@link DoclingJsonMapper}, which streams the document JSON into the
+ * proto instead of building the docling-java POJOs first; {@code parser.docling.json-mapping=pojo}
+ * switches back to binding the POJOs.
+ */
+@ApplicationScoped
+public class DoclingHttpClient {
+
+    private static final Logger LOG = Logger.getLogger(DoclingHttpClient.class);
+
+    static final String CONVERT_FILE_PATH = "/v1/convert/file";
+    static final String CONVERT_FILE_ASYNC_PATH = "/v1/convert/file/async";
+    static final String STATUS_POLL_PATH = "/v1/status/poll/";
+    static final String RESULT_PATH = "/v1/result/";
+    static final String API_KEY_HEADER = "X-Api-Key";
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    DoclingEndpointHolder doclingEndpointHolder;
+
+    @ConfigProperty(name = "quarkus.docling.base-url")
+    Optional<String> configuredBaseUrl;
+
+    @ConfigProperty(name = "quarkus.docling.api-key")
+    Optional<String> apiKey;
+
+    @ConfigProperty(name = "parser.docling.http.connect-timeout", defaultValue = "PT30S")
+    Duration connectTimeout;
+
+    @ConfigProperty(name = "parser.docling.http.read-timeout", defaultValue = "PT5M")
+    Duration readTimeout;
+
+    @ConfigProperty(name = "parser.docling.async.timeout", defaultValue = "PT10M")
+    Duration asyncTimeout;
+
+    @ConfigProperty(name = "parser.docling.async.poll-wait", defaultValue = "PT5S")
+    Duration pollWait;
+
+    @ConfigProperty(name = "parser.docling.async.poll-interval", defaultValue = "PT1S")
+    Duration pollInterval;
+
+    @ConfigProperty(name = "parser.docling.json-mapping", defaultValue = JSON_MAPPING_STREAMING)
+    String jsonMapping;
+
+    /** Streams the document JSON into the proto with {@link DoclingJsonMapper}. */
+    public static final String JSON_MAPPING_STREAMING = "streaming";
+    /** Binds the docling-java POJOs and maps them with {@link DoclingDocumentMapper}. */
+    public static final String JSON_MAPPING_POJO = "pojo";
+
+    private volatile HttpClient httpClient;
+
+    /**
+     * Converts a document by streaming it to docling-serve as a multipart file upload.
+     *
+     * @param content  the raw document bytes; read incrementally, never copied
+     * @param filename the filename (used by Docling for format detection)
+     * @param options  conversion options, sent as form fields
+     * @param projection document sections to map; all if null
+     * @return the parsed Docling response
+     * @throws IOException if the endpoint is unreachable; {@link HttpStatusException} if it answers
+     *                     with a non-2xx status
+     */
+    public DoclingJsonMapper.Converted convertFile(ByteString content, String filename, ConvertDocumentOptions options,
+                                                   DoclingOutputProjection projection)
+            throws IOException, InterruptedException {
+        try (DoclingEndpointHolder.Lease lease = doclingEndpointHolder.acquire()) {
+            String baseUrl = resolveBaseUrl(lease);
+            Map<String, List<String>> fields = toFormFields(options);
+            HttpRequest request = buildFileRequest(baseUrl + CONVERT_FILE_PATH, content, filename, fields,
+                    apiKey.orElse(null), readTimeout);
+
+            LOG.debugf("Streaming %d bytes to Docling at %s%s", content.size(), baseUrl, CONVERT_FILE_PATH);
+            try {
+                HttpResponse<InputStream> response = client().send(request, HttpResponse.BodyHandlers.ofInputStream());
+                try (InputStream body = response.body()) {
+                    if (response.statusCode() / 100 != 2) {
+                        String detail = new String(body.readNBytes(2048), StandardCharsets.UTF_8);
+                        throw new HttpStatusException(response.statusCode(),
+                                "Docling file conversion failed with HTTP " + response.statusCode() + ": " + detail);
+                    }
+                    DoclingJsonMapper.Converted converted = readConverted(body, projection);
+                    lease.success();
+                    return converted;
+                }
+            } catch (IOException e) {
+                lease.report(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Converts several documents with identical options in one multipart request.
+     * <p>
+     * Files are renamed {@code doc-<n>.<ext>} (keeping the extension Docling uses for format
+     * detection) so the results can be routed back by name: docling-serve answers a single
+     * document with the usual JSON body and several documents with a zip holding
+     * {@code <stem>.json}, {@code .md}, {@code .html} and {@code .txt} per document.
+     *
+     * @return one result per upload, in upload order; {@code null} where Docling produced nothing
+     * @throws IOException if the request fails or the response cannot be routed to the uploads
+     */
+    public List<ConvertedFile> convertFiles(List<Upload> uploads, ConvertDocumentOptions options,
+                                            DoclingOutputProjection projection)
+            throws IOException, InterruptedException {
+        List<Upload> renamed = new ArrayList<>(uploads.size());
+        for (int i = 0; i < uploads.size(); i++) {
+            renamed.add(new Upload(uploads.get(i).content(), batchName(i, uploads.get(i).filename())));
+        }
+
+        try (DoclingEndpointHolder.Lease lease = doclingEndpointHolder.acquire()) {
+            String baseUrl = resolveBaseUrl(lease);
+            HttpRequest request = buildFilesRequest(baseUrl + CONVERT_FILE_PATH, renamed, toFormFields(options),
+                    apiKey.orElse(null), readTimeout);
+            LOG.debugf("Sending batch of %d documents to Docling at %s", uploads.size(), baseUrl);
+            try {
+                HttpResponse<InputStream> response = client().send(request, HttpResponse.BodyHandlers.ofInputStream());
+                try (InputStream body = response.body()) {
+                    if (response.statusCode() / 100 != 2) {
+                        String detail = new String(body.readNBytes(2048), StandardCharsets.UTF_8);
+                        throw new HttpStatusException(response.statusCode(),
+                                "Docling batch conversion failed with HTTP " + response.statusCode() + ": " + detail);
+                    }
+                    String contentType = response.headers().firstValue("Content-Type").orElse("");
+                    List<ConvertedFile> results = contentType.contains("zip")
+                            ? readZip(body, uploads.size(), projection)
+                            : readSingle(body, uploads.size(), projection);
+                    lease.success();
+                    return results;
+                }
+            } catch (IOException e) {
+                lease.report(e);
+                throw e;
+            }
+        }
+    }
+
+    private List<ConvertedFile> readSingle(InputStream body, int expected, DoclingOutputProjection projection)
+            throws IOException {
+        if (expected != 1) {
+            throw new IOException("Docling answered a batch of " + expected + " documents with a single result");
+        }
+        DoclingJsonMapper.Converted converted = readConverted(body, projection);
+        if (!(converted.response() instanceof InBodyConvertDocumentResponse inBody) || inBody.getDocument() == null) {
+            return Collections.singletonList(null);
+        }
+        DocumentResponse document = inBody.getDocument();
+        ai.pipestream.parsed.data.docling.v1.DoclingDocument mapped = converted.document() != null
+                ? converted.document()
+                : document.getJsonContent() != null ? DoclingDocumentMapper.map(document.getJsonContent(), projection) : null;
+        return List.of(new ConvertedFile(mapped, document.getMarkdownContent(),
+                document.getHtmlContent(), document.getTextContent()));
+    }
+
+    private List<ConvertedFile> readZip(InputStream body, int expected, DoclingOutputProjection projection)
+            throws IOException {
+        ai.pipestream.parsed.data.docling.v1.DoclingDocument[] documents =
+                new ai.pipestream.parsed.data.docling.v1.DoclingDocument[expected];
+        String[] markdown = new String[expected];
+        String[] html = new String[expected];
+        String[] text = new String[expected];
+        try (ZipInputStream zip = new ZipInputStream(body)) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                String name = entry.getName().substring(entry.getName().lastIndexOf('/') + 1);
+                int dot = name.lastIndexOf('.');
+                int index = dot > 0 ? batchIndex(name.substring(0, dot)) : -1;
+                if (entry.isDirectory() || index < 0 || index >= expected) {
+                    continue;
+                }
+                switch (name.substring(dot + 1)) {
+                    case "json" -> documents[index] = readDocument(zip, projection);
+                    case "md" -> markdown[index] = new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+                    case "html" -> html[index] = new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+                    case "txt" -> text[index] = new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+                    default -> { }
+                }
+            }
+        }
+        List<ConvertedFile> results = new ArrayList<>(expected);
+        for (int i = 0; i < expected; i++) {
+            boolean any = documents[i] != null || markdown[i] != null || html[i] != null || text[i] != null;
+            results.add(any ? new ConvertedFile(documents[i], markdown[i], html[i], text[i]) : null);
+        }
+        return results;
+    }
+
+    static String batchName(int index, String filename) {
+        String ext = "";
+        if (filename != null) {
+            int dot = filename.lastIndexOf('.');
+            if (dot >= 0 && dot > filename.lastIndexOf('/') && dot < filename.length() - 1) {
+                ext = filename.substring(dot);
+            }
+        }
+        return "doc-" + index + ext;
+    }
+
+    static int batchIndex(String stem) {
+        if (!stem.startsWith("doc-")) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(stem.substring(4));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** A document to upload. */
+    public record Upload(ByteString content, String filename) {}
+
+    /** What Docling returned for one document of a batch. */
+    public record ConvertedFile(ai.pipestream.parsed.data.docling.v1.DoclingDocument document,
+                                String markdown, String html, String text) {}
+
+    /**
+     * Converts a document as a docling-serve job without blocking any thread.
+     * <p>
+     * The file is streamed to {@code /v1/convert/file/async}; the returned task is then
+     * long-polled on {@code /v1/status/poll/{task_id}} and the result fetched from
+     * {@code /v1/result/{task_id}}. Every step is a {@code sendAsync} call, so while the job
+     * runs nothing but an idle connection is held. Cancelling the Uni cancels the in-flight
+     * HTTP exchange and ends the polling; docling-serve has no per-task cancel endpoint, so the
+     * job itself finishes server-side and its result simply expires.
+     *
+     * @param content  the raw document bytes; read incrementally, never copied
+     * @param filename the filename (used by Docling for format detection)
+     * @param options  conversion options, sent as form fields
+     * @param projection document sections to map; all if null
+     * @return Uni completing with the conversion result, or failing with {@link TimeoutException}
+     *         once {@code parser.docling.async.timeout} has passed
+     */
+    public Uni<DoclingJsonMapper.Converted> convertFileAsync(ByteString content, String filename,
+                                                         ConvertDocumentOptions options,
+                                                         DoclingOutputProjection projection) {
+        return Uni.createFrom().deferred(() -> {
+            DoclingEndpointHolder.Lease lease = doclingEndpointHolder.acquire();
+            String resolved;
+            try {
+                resolved = resolveBaseUrl(lease);
+            } catch (IOException e) {
+                lease.close();
+                return Uni.createFrom().failure(e);
+            }
+            String baseUrl = resolved;
+            long deadline = System.nanoTime() + asyncTimeout.toNanos();
+            HttpRequest submit = buildFileRequest(baseUrl + CONVERT_FILE_ASYNC_PATH, content, filename,
+                    toFormFields(options), apiKey.orElse(null), readTimeout);
+
+            LOG.debugf("Submitting %d-byte Docling job to %s%s", content.size(), baseUrl, CONVERT_FILE_ASYNC_PATH);
+            return sendAsync(submit)
+                    .map(body -> readTaskStatus(body, "submit"))
+                    .onItem().transformToUni(task -> awaitTask(baseUrl, task, deadline))
+                    .onItem().transformToUni(taskId -> sendAsync(get(baseUrl + RESULT_PATH + taskId, readTimeout)))
+                    .map(body -> readConvertResponse(body, projection))
+                    .onTermination().invoke((response, failure, cancelled) -> {
+                        if (!cancelled) {
+                            lease.report(failure);
+                        }
+                        lease.close();
+                    });
+        });
+    }
+
+    /**
+     * Long-polls until the task leaves the pending/started states. Each round trip waits up to
+     * {@code poll-wait} on the server; if the server answers early the next poll is delayed by
+     * {@code poll-interval} on the Mutiny scheduler rather than by sleeping a thread.
+     */
+    private Uni<String> awaitTask(String baseUrl, TaskStatus task, long deadline) {
+        switch (task.status()) {
+            case "success":
+                return Uni.createFrom().item(task.taskId());
+            case "failure":
+            case "revoked":
+                return Uni.createFrom().failure(new IOException(
+                        "Docling task " + task.taskId() + " ended with status " + task.status()));
+            default:
+                break;
+        }
+        if (System.nanoTime() - deadline >= 0) {
+            return Uni.createFrom().failure(new TimeoutException(
+                    "Docling task " + task.taskId() + " still " + task.status() + " after " + asyncTimeout));
+        }
+        long waitSeconds = Math.max(1, pollWait.toSeconds());
+        HttpRequest poll = get(baseUrl + STATUS_POLL_PATH + task.taskId() + "?wait=" + waitSeconds,
+                pollWait.plus(connectTimeout));
+        long polledAt = System.nanoTime();
+        return sendAsync(poll)
+                .map(body -> readTaskStatus(body, "poll"))
+                .onItem().transformToUni(next -> {
+                    Duration elapsed = Duration.ofNanos(System.nanoTime() - polledAt);
+                    if (isTerminal(next.status()) || elapsed.compareTo(pollInterval) >= 0) {
+                        return awaitTask(baseUrl, next, deadline);
+                    }
+                    return Uni.createFrom().item(next)
+                            .onItem().delayIt().by(pollInterval.minus(elapsed))
+                            .onItem().transformToUni(delayed -> awaitTask(baseUrl, delayed, deadline));
+                });
+    }
+
+    private static boolean isTerminal(String status) {
+        return "success".equals(status) || "failure".equals(status) || "revoked".equals(status);
+    }
+
+    private Uni<byte[]> sendAsync(HttpRequest request) {
+        // Cancelling the Uni cancels the CompletableFuture, which aborts the HTTP exchange
+        return Uni.createFrom().completionStage(() -> client().sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()))
+                .onItem().transformToUni(response -> {
+                    if (response.statusCode() / 100 != 2) {
+                        int len = Math.min(response.body().length, 2048);
+                        return Uni.createFrom().failure(new HttpStatusException(response.statusCode(),
+                                "Docling request " + request.uri().getPath()
+                                + " failed with HTTP " + response.statusCode() + ": "
+                                + new String(response.body(), 0, len, StandardCharsets.UTF_8)));
+                    }
+                    return Uni.createFrom().item(response.body());
+                });
+    }
+
+    private HttpRequest get(String url, Duration timeout) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .header("Accept", "application/json")
+                .timeout(timeout)
+                .GET();
+        apiKey.filter(key -> !key.isBlank()).ifPresent(key -> builder.header(API_KEY_HEADER, key));
+        return builder.build();
+    }
+
+    TaskStatus readTaskStatus(byte[] body, String step) {
+        try {
+            JsonNode node = objectMapper.readTree(body);
+            String taskId = node.path("task_id").asText("");
+            if (taskId.isEmpty()) {
+                throw new IOException("Docling " + step + " response has no task_id");
+            }
+            return new TaskStatus(taskId, node.path("task_status").asText("pending").toLowerCase());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private DoclingJsonMapper.Converted readConvertResponse(byte[] body, DoclingOutputProjection projection) {
+        try {
+            return readConverted(new ByteArrayInputStream(body), projection);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads a {@code ConvertDocumentResponse} body with the configured JSON mapping. The POJO
+     * mapping leaves the document to be projected when it is mapped to the proto.
+     */
+    DoclingJsonMapper.Converted readConverted(InputStream body, DoclingOutputProjection projection) throws IOException {
+        if (JSON_MAPPING_POJO.equalsIgnoreCase(jsonMapping)) {
+            return DoclingJsonMapper.Converted.of(objectMapper.readValue(body, ConvertDocumentResponse.class), projection);
+        }
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            return DoclingJsonMapper.readResponse(parser, objectMapper, projection);
+        }
+    }
+
+    /**
+     * Reads a bare DoclingDocument JSON (a {@code .json} entry of a zipped result) without
+     * closing the stream it comes from.
+     */
+    private ai.pipestream.parsed.data.docling.v1.DoclingDocument readDocument(InputStream in, DoclingOutputProjection projection)
+            throws IOException {
+        if (JSON_MAPPING_POJO.equalsIgnoreCase(jsonMapping)) {
+            return DoclingDocumentMapper.map(objectMapper.readValue(in.readAllBytes(), ai.docling.core.DoclingDocument.class), projection);
+        }
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            return DoclingJsonMapper.readDocument(parser, projection);
+        }
+    }
+
+    /**
+     * Docling answered with a non-2xx status. The endpoint itself was reachable, so callers can
+     * tell a missing route or a rejected document apart from a transport failure.
+     */
+    public static final class HttpStatusException extends IOException {
+        private final int statusCode;
+
+        public HttpStatusException(int statusCode, String message) {
+            super(message);
+            this.statusCode = statusCode;
+        }
+
+        public int statusCode() {
+            return statusCode;
+        }
+
+        /** 404 or 405: the server does not offer the route, e.g. an older docling-serve. */
+        public boolean isRouteMissing() {
+            return statusCode == 404 || statusCode == 405;
+        }
+    }
+
+    /** Task id and lower-cased status as reported by docling-serve. */
+    record TaskStatus(String taskId, String status) {}
+
+    /**
+     * Base URL of the leased endpoint; the injected client falls back to the configured one.
+     */
+    String resolveBaseUrl(DoclingEndpointHolder.Lease lease) throws IOException {
+        String url = !DoclingEndpointHolder.DEFAULT_URL.equals(lease.url()) ? lease.url() : configuredBaseUrl.orElse(null);
+        if (url == null || url.isBlank()) {
+            throw new IOException("No Docling base URL configured (quarkus.docling.base-url)");
+        }
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private HttpClient client() {
+        HttpClient client = httpClient;
+        if (client == null) {
+            synchronized (this) {
+                client = httpClient;
+                if (client == null) {
+                    client = HttpClient.newBuilder()
+                            .connectTimeout(connectTimeout)
+                            .version(HttpClient.Version.HTTP_1_1)
+                            .build();
+                    httpClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Flattens the JSON form of the options into multipart form fields. Arrays become
+     * repeated fields, nested objects are sent as JSON strings, nulls are skipped.
+     */
+    Map<String, List<String>> toFormFields(ConvertDocumentOptions options) {
+        Map<String, List<String>> fields = new LinkedHashMap<>();
+        if (options == null) {
+            return fields;
+        }
+        JsonNode tree = objectMapper.valueToTree(options);
+        Iterator<Map.Entry<String, JsonNode>> it = tree.fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> field = it.next();
+            JsonNode value = field.getValue();
+            if (value == null || value.isNull()) {
+                continue;
+            }
+            List<String> values = new ArrayList<>();
+            if (value.isArray()) {
+                value.forEach(v -> values.add(v.isValueNode() ? v.asText() : v.toString()));
+            } else {
+                values.add(value.isValueNode() ? value.asText() : value.toString());
+            }
+            if (!values.isEmpty()) {
+                fields.put(field.getKey(), values);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Builds the multipart upload request. The file part is a publisher over
+     * {@link ByteString#newInput()} with the exact length declared, so the request is sent
+     * with a Content-Length header and without buffering the document.
+     */
+    static HttpRequest buildFileRequest(String url, ByteString content, String filename,
+                                        Map<String, List<String>> fields, String apiKey, Duration timeout) {
+        return buildFilesRequest(url, List.of(new Upload(content, filename)), fields, apiKey, timeout);
+    }
+
+    /**
+     * Builds a multipart request with one {@code files} part per upload, each streamed the
+     * same way as a single file.
+     */
+    static HttpRequest buildFilesRequest(String url, List<Upload> uploads,
+                                         Map<String, List<String>> fields, String apiKey, Duration timeout) {
+        String boundary = "----pipestream-" + UUID.randomUUID();
+
+        StringBuilder head = new StringBuilder();
+        for (Map.Entry<String, List<String>> field : fields.entrySet()) {
+            for (String value : field.getValue()) {
+                head.append("--").append(boundary).append("\r\n")
+                    .append("Content-Disposition: form-data; name=\"").append(escape(field.getKey())).append("\"\r\n\r\n")
+                    .append(value).append("\r\n");
+            }
+        }
+
+        List<HttpRequest.BodyPublisher> parts = new ArrayList<>();
+        for (Upload upload : uploads) {
+            String name = upload.filename() != null && !upload.filename().isBlank() ? upload.filename() : "document";
+            head.append("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"files\"; filename=\"").append(escape(name)).append("\"\r\n")
+                .append("Content-Type: application/octet-stream\r\n\r\n");
+            ByteString content = upload.content();
+            parts.add(HttpRequest.BodyPublishers.ofByteArray(head.toString().getBytes(StandardCharsets.UTF_8)));
+            parts.add(HttpRequest.BodyPublishers.fromPublisher(
+                    HttpRequest.BodyPublishers.ofInputStream(content::newInput), content.size()));
+            head.setLength(0);
+            head.append("\r\n");
+        }
+        head.append("--").append(boundary).append("--\r\n");
+        parts.add(HttpRequest.BodyPublishers.ofByteArray(head.toString().getBytes(StandardCharsets.UTF_8)));
+
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.concat(parts.toArray(new HttpRequest.BodyPublisher[0]));
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .header("Accept", "application/json, application/zip")
+                .POST(body);
+        if (timeout != null) {
+            builder.timeout(timeout);
+        }
+        if (apiKey != null && !apiKey.isBlank()) {
+            builder.header(API_KEY_HEADER, apiKey);
+        }
+        return builder.build();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "%22").replace("\r", " ").replace("\n", " ");
+    }
+}
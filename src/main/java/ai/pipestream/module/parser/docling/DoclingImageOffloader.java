@@ -0,0 +1,168 @@
+package ai.pipestream.module.parser.docling;
+
+import ai.pipestream.parsed.data.docling.v1.DoclingDocument;
+import ai.pipestream.parsed.data.docling.v1.DoclingResponse;
+import ai.pipestream.parsed.data.docling.v1.ImageRef;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Moves images embedded in Docling results out of the response.
+ * <p>
+ * With {@code includeImages} or {@code imageExportMode=EMBEDDED}, Docling returns page and
+ * picture images as base64 {@code data:} URIs, both in the document's {@link ImageRef}s and in
+ * the markdown and HTML exports. With {@code parser.docling.images.offload.enabled} every such
+ * image of at least {@code min-bytes} is written to the {@link DoclingImageStore} and its
+ * {@code data:} URI replaced by the store's URI; mimetype, DPI and size stay on the
+ * {@code ImageRef}, and the URI carries the image's SHA-256. Images that cannot be stored stay
+ * inline.
+ */
+@ApplicationScoped
+public class DoclingImageOffloader {
+
+    private static final Logger LOG = Logger.getLogger(DoclingImageOffloader.class);
+
+    private static final Pattern DATA_URI = Pattern.compile("data:(image/[A-Za-z0-9.+-]+);base64,([A-Za-z0-9+/=]+)");
+
+    @Inject
+    DoclingImageStore imageStore;
+
+    @ConfigProperty(name = "parser.docling.images.offload.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "parser.docling.images.offload.min-bytes", defaultValue = "1024")
+    int minBytes;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The response with its embedded images replaced by store URIs; the response itself if
+     * offloading is disabled or it has no embedded images.
+     */
+    public DoclingResponse offload(DoclingResponse response) {
+        if (!enabled) {
+            return response;
+        }
+        DoclingResponse.Builder builder = null;
+        if (response.hasDocument()) {
+            DoclingDocument document = rewrite(response.getDocument());
+            if (document != response.getDocument()) {
+                builder = response.toBuilder().setDocument(document);
+            }
+        }
+        String markdown = offloadDataUris(response.getMarkdown());
+        if (markdown != null) {
+            builder = (builder != null ? builder : response.toBuilder()).setMarkdown(markdown);
+        }
+        String html = offloadDataUris(response.getHtml());
+        if (html != null) {
+            builder = (builder != null ? builder : response.toBuilder()).setHtml(html);
+        }
+        return builder != null ? builder.build() : response;
+    }
+
+    /**
+     * Descriptor-driven copy that replaces {@code data:} URIs on every {@link ImageRef},
+     * rebuilding only the messages on the path to a changed image.
+     */
+    @SuppressWarnings("unchecked")
+    private <M extends Message> M rewrite(M message) {
+        if (message instanceof ImageRef image) {
+            String uri = image.getUri().startsWith("data:") ? offloadDataUri(image.getUri()) : null;
+            return uri != null ? (M) image.toBuilder().setUri(uri).build() : message;
+        }
+        Message.Builder builder = null;
+        for (Map.Entry<FieldDescriptor, Object> field : message.getAllFields().entrySet()) {
+            FieldDescriptor fd = field.getKey();
+            if (fd.getJavaType() != FieldDescriptor.JavaType.MESSAGE) {
+                continue;
+            }
+            if (fd.isRepeated()) {
+                List<?> values = (List<?>) field.getValue();
+                List<Object> rewritten = new ArrayList<>(values.size());
+                boolean changed = false;
+                for (Object value : values) {
+                    Object r = rewrite((Message) value);
+                    changed |= r != value;
+                    rewritten.add(r);
+                }
+                if (changed) {
+                    if (builder == null) builder = message.toBuilder();
+                    builder.setField(fd, rewritten);
+                }
+            } else {
+                Message value = (Message) field.getValue();
+                Message r = rewrite(value);
+                if (r != value) {
+                    if (builder == null) builder = message.toBuilder();
+                    builder.setField(fd, r);
+                }
+            }
+        }
+        return builder == null ? message : (M) builder.build();
+    }
+
+    /** The text with its data URIs offloaded, or null if none was replaced. */
+    private String offloadDataUris(String text) {
+        if (text.isEmpty() || !text.contains("data:image/")) {
+            return null;
+        }
+        Matcher matcher = DATA_URI.matcher(text);
+        StringBuilder out = new StringBuilder(text.length() / 4);
+        boolean changed = false;
+        while (matcher.find()) {
+            String uri = offloadDataUri(matcher.group());
+            changed |= uri != null;
+            matcher.appendReplacement(out, Matcher.quoteReplacement(uri != null ? uri : matcher.group()));
+        }
+        matcher.appendTail(out);
+        return changed ? out.toString() : null;
+    }
+
+    /** Stores one base64 image data URI; null if it is too small, malformed or not stored. */
+    private String offloadDataUri(String dataUri) {
+        Matcher matcher = DATA_URI.matcher(dataUri);
+        if (!matcher.matches() || matcher.group(2).length() * 3L / 4 < minBytes) {
+            return null;
+        }
+        byte[] data;
+        try {
+            data = Base64.getDecoder().decode(matcher.group(2).getBytes(StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        String sha256 = HexFormat.of().formatHex(sha256().digest(data));
+        try {
+            return imageStore.put(sha256, data, matcher.group(1));
+        } catch (IOException | RuntimeException e) {
+            LOG.warnf("Could not offload Docling image %s, keeping it inline: %s", sha256, e.getMessage());
+            return null;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ai.pipestream.module.parser.docling;
+
+import java.io.IOException;
+
+/**
+ * Content-addressed storage for images taken out of Docling results by
+ * {@link DoclingImageOffloader}.
+ * <p>
+ * The store decides where bytes live; callers only keep the returned URI. Identical images
+ * must map to the same URI, so storing one twice costs nothing. {@link LocalDoclingImageStore}
+ * is the implementation in use; other backends (object storage, the repository service) can
+ * replace it as a different bean.
+ */
+public interface DoclingImageStore {
+
+    /**
+     * Stores the image and returns the URI it can be fetched from.
+     *
+     * @param sha256 hex SHA-256 of {@code data}, the content address
+     * @param data image bytes
+     * @param mimeType image MIME type, e.g. {@code image/png}
+     * @throws IOException if the image could not be stored
+     */
+    String put(String sha256, byte[] data, String mimeType) throws IOException;
+}
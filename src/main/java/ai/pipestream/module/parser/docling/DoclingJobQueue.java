@@ -0,0 +1,495 @@
+package ai.pipestream.module.parser.docling;
+
+import ai.pipestream.module.parser.config.DoclingOptions;
+import ai.pipestream.parsed.data.docling.v1.DoclingParseStatus;
+import ai.pipestream.parsed.data.docling.v1.DoclingResponse;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import io.quarkus.runtime.Startup;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent local queue for Docling conversions.
+ * <p>
+ * With {@code parser.docling.queue.enabled}, Docling jobs are written to an append-only journal
+ * in {@code parser.docling.queue.directory} (one JSON line per event: enqueue, lease, retry,
+ * complete, fail) with the document stored next to it, and at most
+ * {@code parser.docling.queue.concurrency} jobs are sent to docling-serve at a time. Bursts
+ * wait in the queue instead of timing out against a saturated service.
+ * <p>
+ * A conversion that timed out or failed because docling-serve was unavailable is retried with
+ * exponential backoff up to {@code max-attempts}; documents Docling rejected or could not
+ * convert, and conversions skipped by the open circuit breaker, are not retried. Completions
+ * are handled on the queue's own thread, which does the journal writes, and documents are read
+ * back on the worker pool, so neither blocks the thread that finished a conversion.
+ * <p>
+ * On startup the journal is replayed: jobs that were queued or running when the replica
+ * stopped are run again. Nobody waits for those any more, so their results go to the
+ * {@link DoclingDeferredResults} (when progressive results are on) and to the
+ * {@link DoclingResultCache}, where a re-submitted document finds them. The journal is
+ * compacted on startup and whenever finished jobs dominate it.
+ */
+@Startup
+@ApplicationScoped
+public class DoclingJobQueue {
+
+    private static final Logger LOG = Logger.getLogger(DoclingJobQueue.class);
+
+    private static final String JOURNAL = "journal.log";
+    private static final String BLOBS = "blobs";
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    DoclingMetadataExtractor doclingMetadataExtractor;
+
+    @Inject
+    DoclingDeferredResults deferredResults;
+
+    @ConfigProperty(name = "parser.docling.queue.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "parser.docling.queue.directory", defaultValue = "docling-queue")
+    String directory;
+
+    @ConfigProperty(name = "parser.docling.queue.concurrency", defaultValue = "4")
+    int concurrency;
+
+    @ConfigProperty(name = "parser.docling.queue.max-attempts", defaultValue = "5")
+    int maxAttempts;
+
+    @ConfigProperty(name = "parser.docling.queue.initial-backoff", defaultValue = "PT2S")
+    Duration initialBackoff;
+
+    @ConfigProperty(name = "parser.docling.queue.max-backoff", defaultValue = "PT5M")
+    Duration maxBackoff;
+
+    /** Jobs not yet finished, in enqueue order; guarded by {@code this}. */
+    private final Map<String, Job> jobs = new LinkedHashMap<>();
+    private int running;
+    private long wakeUpAt = Long.MAX_VALUE;
+
+    private FileChannel journal;
+    private long journalRecords;
+    /** Handles completions: journal writes, fsync and compaction stay off the callers' threads. */
+    private ExecutorService completions;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * Queue depth and age, and lifetime counters.
+     *
+     * @param queued        jobs waiting, including those backing off
+     * @param running       jobs sent to Docling
+     * @param oldestAgeMs   age of the oldest unfinished job, 0 if none
+     */
+    public record Stats(int queued, int running, long oldestAgeMs, long completed, long retried, long failed) {}
+
+    /** One line of the journal. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Event(String op, String id, String docId, String filename, DoclingOptions options,
+                 Long at, Integer attempts, Long notBefore, String error) {
+
+        static Event of(String op, Job job) {
+            return new Event(op, job.id, null, null, null, System.currentTimeMillis(), job.attempts, null, null);
+        }
+    }
+
+    static final class Job {
+        final String id;
+        final String docId;
+        final String filename;
+        final DoclingOptions options;
+        final long enqueuedAt;
+        final CompletableFuture<DoclingResponse> result = new CompletableFuture<>();
+        int attempts;
+        long notBefore;
+        boolean running;
+        /** Replayed from the journal; no caller is waiting. */
+        boolean recovered;
+
+        Job(String id, String docId, String filename, DoclingOptions options, long enqueuedAt) {
+            this.id = id;
+            this.docId = docId;
+            this.filename = filename;
+            this.options = options;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        completions = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "docling-job-queue");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            Files.createDirectories(Path.of(directory, BLOBS));
+            List<Job> recovered = replay(Path.of(directory, JOURNAL));
+            synchronized (this) {
+                recovered.forEach(job -> jobs.put(job.id, job));
+                compact();
+            }
+            if (!recovered.isEmpty()) {
+                LOG.infof("Recovered %d Docling jobs from %s", recovered.size(), directory);
+            }
+            pump();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open Docling job queue in " + directory, e);
+        }
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        if (completions != null) {
+            completions.shutdownNow();
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                LOG.debugf("Closing Docling job journal: %s", e.getMessage());
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a conversion and completes when it has finished, after any retries. The job is
+     * durable once the returned Uni has been subscribed to and its journal entry written.
+     */
+    public Uni<DoclingResponse> submit(ByteString content, String filename, String docId, DoclingOptions options) {
+        return Uni.createFrom().completionStage(() -> enqueue(content, filename, docId, options))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+
+    public Stats getStats() {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            long oldest = jobs.values().stream().mapToLong(job -> job.enqueuedAt).min().orElse(now);
+            return new Stats(jobs.size() - running, running, now - oldest,
+                    completed.get(), retried.get(), failed.get());
+        }
+    }
+
+    private CompletableFuture<DoclingResponse> enqueue(ByteString content, String filename, String docId,
+                                                       DoclingOptions options) {
+        Job job = new Job(UUID.randomUUID().toString(), docId, filename, options, System.currentTimeMillis());
+        try {
+            writeBlob(job.id, content);
+            synchronized (this) {
+                append(new Event("enqueue", job.id, docId, filename, options, job.enqueuedAt, 0, null, null), true);
+                jobs.put(job.id, job);
+            }
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        pump();
+        return job.result;
+    }
+
+    /**
+     * Starts ready jobs up to the concurrency limit and arms a timer for the next backoff expiry.
+     */
+    private void pump() {
+        List<Job> start = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            long nextReady = Long.MAX_VALUE;
+            for (Job job : jobs.values()) {
+                if (job.running) {
+                    continue;
+                }
+                if (job.notBefore > now) {
+                    nextReady = Math.min(nextReady, job.notBefore);
+                } else if (running < Math.max(1, concurrency)) {
+                    job.running = true;
+                    job.attempts++;
+                    running++;
+                    start.add(job);
+                    appendQuietly(Event.of("lease", job), false);
+                }
+            }
+            if (nextReady < wakeUpAt) {
+                wakeUpAt = nextReady;
+                Infrastructure.getDefaultWorkerPool().schedule(this::wakeUp,
+                        Math.max(1, nextReady - now), TimeUnit.MILLISECONDS);
+            }
+        }
+        // Reading a document back from disk is blocking I/O; never do it on the caller's thread
+        start.forEach(job -> Infrastructure.getDefaultWorkerPool().execute(() -> run(job)));
+    }
+
+    private void wakeUp() {
+        synchronized (this) {
+            wakeUpAt = Long.MAX_VALUE;
+        }
+        pump();
+    }
+
+    private void run(Job job) {
+        ByteString content;
+        try {
+            content = UnsafeByteOperations.unsafeWrap(Files.readAllBytes(blobPath(job.id)));
+        } catch (IOException e) {
+            job.attempts = maxAttempts; // nothing left to retry with
+            complete(job, null, e);
+            return;
+        }
+        doclingMetadataExtractor.extractComprehensiveMetadataAsync(content, job.filename, job.docId, job.options)
+                .subscribe().with(response -> complete(job, response, null), failure -> complete(job, null, failure));
+    }
+
+    /**
+     * Hands a finished attempt to the completion thread; the conversion callback may run on an
+     * event loop or HTTP client thread that must not wait on the journal.
+     */
+    private void complete(Job job, DoclingResponse response, Throwable failure) {
+        completions.execute(() -> finish(job, response, failure));
+    }
+
+    private void finish(Job job, DoclingResponse response, Throwable failure) {
+        boolean failedAttempt = failure != null || isFailed(response);
+        boolean retryable = failure != null ? DoclingEndpointHolder.isEndpointFailure(failure)
+                : DoclingMetadataExtractor.isTransientFailure(response);
+        if (retryable && job.attempts < maxAttempts) {
+            long backoff = backoff(job.attempts);
+            synchronized (this) {
+                job.running = false;
+                job.notBefore = System.currentTimeMillis() + backoff;
+                running--;
+                appendQuietly(new Event("retry", job.id, null, null, null, System.currentTimeMillis(),
+                        job.attempts, job.notBefore, errorOf(response, failure)), false);
+            }
+            retried.incrementAndGet();
+            LOG.debugf("Docling job for document %s failed (attempt %d), retrying in %d ms",
+                    job.docId, job.attempts, backoff);
+            pump();
+            return;
+        }
+
+        synchronized (this) {
+            jobs.remove(job.id);
+            running--;
+            appendQuietly(failedAttempt
+                    ? new Event("fail", job.id, null, null, null, System.currentTimeMillis(), job.attempts, null,
+                            errorOf(response, failure))
+                    : Event.of("complete", job), true);
+            if (journalRecords > 1000 && journalRecords > jobs.size() * 8L) {
+                compactQuietly();
+            }
+        }
+        (failedAttempt ? failed : completed).incrementAndGet();
+        deleteBlob(job.id);
+
+        if (response == null) {
+            job.result.completeExceptionally(failure);
+        } else {
+            job.result.complete(response);
+        }
+        if (job.recovered && deferredResults.isEnabled() && job.docId != null && !job.docId.isEmpty()) {
+            deferredResults.track(job.docId, Uni.createFrom().completionStage(job.result));
+        }
+        pump();
+    }
+
+    private static boolean isFailed(DoclingResponse response) {
+        DoclingParseStatus.Status status = response.getStatus().getStatus();
+        return status == DoclingParseStatus.Status.STATUS_FAILED || status == DoclingParseStatus.Status.STATUS_TIMEOUT;
+    }
+
+    private static String errorOf(DoclingResponse response, Throwable failure) {
+        if (failure != null) {
+            return String.valueOf(failure.getMessage());
+        }
+        return response.getStatus().getErrorsCount() > 0 ? response.getStatus().getErrors(0) : null;
+    }
+
+    /** Exponential backoff from the initial delay, capped, with up to 20% jitter. */
+    private long backoff(int attempts) {
+        long base = Math.max(1, initialBackoff.toMillis());
+        long delay = base << Math.min(20, Math.max(0, attempts - 1));
+        delay = Math.min(delay, Math.max(base, maxBackoff.toMillis()));
+        return delay + ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+    }
+
+    // ---- journal ----
+
+    /**
+     * Rebuilds unfinished jobs from the journal. Running jobs died with the previous process
+     * and are queued again; a torn last line is ignored.
+     */
+    private List<Job> replay(Path path) throws IOException {
+        Map<String, Job> live = new LinkedHashMap<>();
+        if (Files.exists(path)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    Event event;
+                    try {
+                        event = objectMapper.readValue(line, Event.class);
+                    } catch (IOException e) {
+                        LOG.warnf("Skipping unreadable Docling journal entry: %s", e.getMessage());
+                        continue;
+                    }
+                    apply(live, event);
+                }
+            }
+        }
+        List<Job> recovered = new ArrayList<>();
+        for (Job job : live.values()) {
+            if (Files.exists(blobPath(job.id))) {
+                job.recovered = true;
+                recovered.add(job);
+            } else {
+                LOG.warnf("Dropping Docling job %s for document %s: document file missing", job.id, job.docId);
+            }
+        }
+        return recovered;
+    }
+
+    private static void apply(Map<String, Job> live, Event event) {
+        switch (event.op()) {
+            case "enqueue" -> live.put(event.id(), new Job(event.id(), event.docId(), event.filename(),
+                    event.options(), event.at() != null ? event.at() : System.currentTimeMillis()));
+            case "lease", "retry" -> {
+                Job job = live.get(event.id());
+                if (job != null) {
+                    job.attempts = event.attempts() != null ? event.attempts() : job.attempts;
+                    job.notBefore = event.notBefore() != null ? event.notBefore() : job.notBefore;
+                }
+            }
+            case "complete", "fail" -> live.remove(event.id());
+            default -> LOG.debugf("Ignoring Docling journal entry %s", event.op());
+        }
+    }
+
+    /**
+     * Rewrites the journal with only the unfinished jobs. Caller holds {@code this}.
+     */
+    private void compact() throws IOException {
+        Path path = Path.of(directory, JOURNAL);
+        Path tmp = Path.of(directory, JOURNAL + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Job job : jobs.values()) {
+                write(out, new Event("enqueue", job.id, job.docId, job.filename, job.options, job.enqueuedAt, 0, null, null));
+                if (job.attempts > 0 || job.notBefore > 0) {
+                    write(out, new Event("retry", job.id, null, null, null, job.enqueuedAt, job.attempts,
+                            job.notBefore, null));
+                }
+            }
+            out.force(true);
+        }
+        if (journal != null) {
+            journal.close();
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journal = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        journalRecords = jobs.size();
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException e) {
+            LOG.warnf("Could not compact Docling job journal: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Appends one event; {@code sync} forces it to disk. Caller holds {@code this}.
+     */
+    private void append(Event event, boolean sync) throws IOException {
+        write(journal, event);
+        if (sync) {
+            journal.force(false);
+        }
+        journalRecords++;
+    }
+
+    private void appendQuietly(Event event, boolean sync) {
+        try {
+            append(event, sync);
+        } catch (IOException e) {
+            LOG.warnf("Could not write Docling job journal entry %s for job %s: %s", event.op(), event.id(), e.getMessage());
+        }
+    }
+
+    private void write(FileChannel channel, Event event) throws IOException {
+        byte[] line = (objectMapper.writeValueAsString(event) + "\n").getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // ---- documents ----
+
+    private Path blobPath(String id) {
+        return Path.of(directory, BLOBS, id + ".bin");
+    }
+
+    private void writeBlob(String id, ByteString content) throws IOException {
+        try (FileChannel out = FileChannel.open(blobPath(id), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            for (ByteBuffer buffer : content.asReadOnlyByteBufferList()) {
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+            }
+            out.force(false);
+        }
+    }
+
+    private void deleteBlob(String id) {
+        try {
+            Files.deleteIfExists(blobPath(id));
+        } catch (IOException e) {
+            LOG.debugf("Could not delete Docling job document %s: %s", id, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,563 @@
+package ai.pipestream.module.parser.docling;
+
+import ai.docling.serve.api.convert.response.ConvertDocumentResponse;
+import ai.docling.serve.api.convert.response.InBodyConvertDocumentResponse;
+import ai.pipestream.module.parser.config.DoclingOutputProjection;
+import ai.pipestream.parsed.data.docling.v1.*;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumDescriptor;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps docling-serve JSON straight into the DoclingDocument proto with a streaming parser.
+ * <p>
+ * {@link DoclingDocumentMapper} needs the whole {@code ai.docling.core.DoclingDocument} POJO
+ * graph first, so a table-heavy document exists twice on the heap (POJOs and protos) before the
+ * POJOs can be collected. This mapper reads tokens and writes them into proto builders as they
+ * arrive; only the proto is ever built.
+ * <p>
+ * The hot structures — text items, table cells, provenance, bounding boxes and references —
+ * are read with typed code. Everything else (groups, pictures, pages, meta, graphs) is read
+ * through the proto descriptors: docling's JSON keys are the proto field names, enums are
+ * matched by their value name without the type prefix ({@code "section_header"} →
+ * {@code DOC_ITEM_LABEL_SECTION_HEADER}), and keys the proto does not know are skipped. The
+ * result is the same proto {@link DoclingDocumentMapper} produces from the POJOs.
+ */
+public final class DoclingJsonMapper {
+
+    private static final Logger LOG = Logger.getLogger(DoclingJsonMapper.class);
+
+    private static final Map<EnumDescriptor, Map<String, EnumValueDescriptor>> ENUM_INDEX = new ConcurrentHashMap<>();
+
+    private DoclingJsonMapper() {
+    }
+
+    /**
+     * A parsed {@code ConvertDocumentResponse}. When the response was read by this mapper,
+     * {@code document} holds the mapped {@code json_content} and the response's own
+     * {@code json_content} is left empty; otherwise {@code document} is null and the POJO
+     * still carries it.
+     */
+    public record Converted(ConvertDocumentResponse response, DoclingDocument document) {
+
+        public static Converted of(ConvertDocumentResponse response) {
+            return new Converted(response, null);
+        }
+
+        /**
+         * A POJO response whose {@code json_content} is mapped right away with the projection,
+         * or left for later if there is no projection.
+         */
+        public static Converted of(ConvertDocumentResponse response, DoclingOutputProjection projection) {
+            if (projection != null && response instanceof InBodyConvertDocumentResponse inBody
+                    && inBody.getDocument() != null && inBody.getDocument().getJsonContent() != null) {
+                return new Converted(response, DoclingDocumentMapper.map(inBody.getDocument().getJsonContent(), projection));
+            }
+            return of(response);
+        }
+    }
+
+    /**
+     * Reads a whole {@code ConvertDocumentResponse}. {@code document.json_content} is streamed
+     * into the proto; the remaining, small fields (exports, status, errors, timings) are bound
+     * to the docling-java response class as usual.
+     */
+    public static Converted readResponse(JsonParser p, ObjectMapper objectMapper) throws IOException {
+        return readResponse(p, objectMapper, null);
+    }
+
+    /**
+     * Same, keeping only the document sections selected by {@code projection} (all if null).
+     */
+    public static Converted readResponse(JsonParser p, ObjectMapper objectMapper, DoclingOutputProjection projection)
+            throws IOException {
+        if (p.currentToken() == null) {
+            p.nextToken();
+        }
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object for the Docling response, got " + p.currentToken());
+        }
+        ObjectNode rest = objectMapper.createObjectNode();
+        DoclingDocument document = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken token = p.nextToken();
+            if ("document".equals(field) && token == JsonToken.START_OBJECT) {
+                ObjectNode documentNode = rest.putObject("document");
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String documentField = p.currentName();
+                    if (p.nextToken() == JsonToken.START_OBJECT && "json_content".equals(documentField)) {
+                        document = readDocument(p, projection);
+                    } else {
+                        documentNode.set(documentField, readTree(p, objectMapper));
+                    }
+                }
+            } else {
+                rest.set(field, readTree(p, objectMapper));
+            }
+        }
+        return new Converted(objectMapper.treeToValue(rest, ConvertDocumentResponse.class), document);
+    }
+
+    /**
+     * Reads one DoclingDocument JSON object (docling's {@code json_content}, or a {@code .json}
+     * file from a zipped result). The parser may be positioned before or on the
+     * {@code START_OBJECT}; it is left on the matching {@code END_OBJECT}.
+     */
+    public static DoclingDocument readDocument(JsonParser p) throws IOException {
+        return readDocument(p, null);
+    }
+
+    /**
+     * Same, skipping the top-level sections {@code projection} leaves out (all kept if null)
+     * without building anything for them.
+     */
+    public static DoclingDocument readDocument(JsonParser p, DoclingOutputProjection projection) throws IOException {
+        if (p.currentToken() == null || p.currentToken() == JsonToken.FIELD_NAME) {
+            p.nextToken();
+        }
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object for the DoclingDocument, got " + p.currentToken());
+        }
+        DoclingDocument.Builder builder = DoclingDocument.newBuilder();
+        Descriptor type = DoclingDocument.getDescriptor();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken token = p.nextToken();
+            if (token == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            if (projection != null && !projection.keeps(field)) {
+                p.skipChildren();
+                continue;
+            }
+            if ("texts".equals(field)) {
+                readArray(p, () -> builder.addTexts(readText(p)));
+                continue;
+            }
+            FieldDescriptor fd = type.findFieldByName(field);
+            if (fd == null) {
+                p.skipChildren();
+            } else {
+                readField(p, builder, fd);
+            }
+        }
+        return builder.build();
+    }
+
+    // ---- typed readers for the structures a large document has thousands of ----
+
+    /**
+     * A text item: the label decides which oneof branch of BaseTextItem it becomes, but may
+     * come after the other fields, so the type-specific fields are held until the end.
+     */
+    private static BaseTextItem readText(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return BaseTextItem.getDefaultInstance();
+        }
+        TextItemBase.Builder base = TextItemBase.newBuilder();
+        CodeItem.Builder code = CodeItem.newBuilder();
+        FloatingMeta meta = null;
+        Integer level = null;
+        boolean enumerated = false;
+        String marker = null;
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            if (p.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "self_ref" -> base.setSelfRef(p.getText());
+                case "parent" -> base.setParent(readRef(p));
+                case "children" -> readArray(p, () -> base.addChildren(readRef(p)));
+                case "content_layer" -> {
+                    EnumValueDescriptor value = enumValue(ContentLayer.getDescriptor(), p);
+                    if (value != null) base.setContentLayer(ContentLayer.valueOf(value));
+                }
+                case "label" -> {
+                    EnumValueDescriptor value = enumValue(DocItemLabel.getDescriptor(), p);
+                    if (value != null) base.setLabel(DocItemLabel.valueOf(value));
+                }
+                case "prov" -> readArray(p, () -> base.addProv(readProvenance(p)));
+                case "orig" -> base.setOrig(p.getText());
+                case "text" -> base.setText(p.getText());
+                case "hyperlink" -> base.setHyperlink(p.getText());
+                case "formatting" -> base.setFormatting((Formatting) readMessage(p, Formatting.newBuilder()));
+                case "meta" -> meta = (FloatingMeta) readMessage(p, FloatingMeta.newBuilder());
+                case "level" -> level = p.getValueAsInt();
+                case "enumerated" -> enumerated = p.getValueAsBoolean();
+                case "marker" -> marker = p.getText();
+                case "code_language" -> code.setCodeLanguage(p.getText());
+                case "captions" -> readArray(p, () -> code.addCaptions(readRef(p)));
+                case "references" -> readArray(p, () -> code.addReferences(readRef(p)));
+                case "footnotes" -> readArray(p, () -> code.addFootnotes(readRef(p)));
+                case "image" -> code.setImage((ImageRef) readMessage(p, ImageRef.newBuilder()));
+                default -> p.skipChildren();
+            }
+        }
+
+        BaseTextItem.Builder item = BaseTextItem.newBuilder();
+        DocItemLabel label = base.getLabel();
+        if (label == DocItemLabel.DOC_ITEM_LABEL_CODE) {
+            if (meta != null) code.setMeta(meta);
+            return item.setCode(code.setBase(base)).build();
+        }
+        if (meta != null) {
+            BaseMeta.Builder baseMeta = BaseMeta.newBuilder();
+            if (meta.hasSummary()) baseMeta.setSummary(meta.getSummary());
+            base.setMeta(baseMeta);
+        }
+        switch (label) {
+            case DOC_ITEM_LABEL_TITLE -> item.setTitle(TitleItem.newBuilder().setBase(base));
+            case DOC_ITEM_LABEL_SECTION_HEADER -> {
+                SectionHeaderItem.Builder section = SectionHeaderItem.newBuilder().setBase(base);
+                if (level != null) section.setLevel(level);
+                item.setSectionHeader(section);
+            }
+            case DOC_ITEM_LABEL_LIST_ITEM -> {
+                ListItem.Builder list = ListItem.newBuilder().setBase(base).setEnumerated(enumerated);
+                if (marker != null) list.setMarker(marker);
+                item.setListItem(list);
+            }
+            case DOC_ITEM_LABEL_FORMULA -> item.setFormula(FormulaItem.newBuilder().setBase(base));
+            default -> item.setText(TextItem.newBuilder().setBase(base));
+        }
+        return item.build();
+    }
+
+    private static RefItem readRef(JsonParser p) throws IOException {
+        RefItem.Builder builder = RefItem.newBuilder();
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return builder.build();
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken token = p.nextToken();
+            // Docling serialises the pointer under its pydantic alias "$ref"
+            if (token == JsonToken.VALUE_STRING && ("$ref".equals(field) || "ref".equals(field))) {
+                builder.setRef(p.getText());
+            } else {
+                p.skipChildren();
+            }
+        }
+        return builder.build();
+    }
+
+    private static ProvenanceItem readProvenance(JsonParser p) throws IOException {
+        ProvenanceItem.Builder builder = ProvenanceItem.newBuilder();
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return builder.build();
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            if (p.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "page_no" -> builder.setPageNo(p.getValueAsInt());
+                case "bbox" -> builder.setBbox(readBoundingBox(p));
+                case "charspan" -> readArray(p, () -> builder.addCharspan(p.getValueAsInt()));
+                default -> p.skipChildren();
+            }
+        }
+        return builder.build();
+    }
+
+    private static BoundingBox readBoundingBox(JsonParser p) throws IOException {
+        BoundingBox.Builder builder = BoundingBox.newBuilder();
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return builder.build();
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            if (p.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "l" -> builder.setL(p.getValueAsDouble());
+                case "t" -> builder.setT(p.getValueAsDouble());
+                case "r" -> builder.setR(p.getValueAsDouble());
+                case "b" -> builder.setB(p.getValueAsDouble());
+                case "coord_origin" -> builder.setCoordOrigin(p.getText());
+                default -> p.skipChildren();
+            }
+        }
+        return builder.build();
+    }
+
+    private static TableData readTableData(JsonParser p) throws IOException {
+        TableData.Builder builder = TableData.newBuilder();
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return builder.build();
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            if (p.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "table_cells" -> readArray(p, () -> builder.addTableCells(readTableCell(p)));
+                case "num_rows" -> builder.setNumRows(p.getValueAsInt());
+                case "num_cols" -> builder.setNumCols(p.getValueAsInt());
+                case "grid" -> readArray(p, () -> {
+                    TableRow.Builder row = TableRow.newBuilder();
+                    readArray(p, () -> row.addCells(readTableCell(p)));
+                    builder.addGrid(row);
+                });
+                default -> p.skipChildren();
+            }
+        }
+        return builder.build();
+    }
+
+    private static TableCell readTableCell(JsonParser p) throws IOException {
+        TableCell.Builder builder = TableCell.newBuilder();
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return builder.build();
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            if (p.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "bbox" -> builder.setBbox(readBoundingBox(p));
+                case "row_span" -> builder.setRowSpan(p.getValueAsInt());
+                case "col_span" -> builder.setColSpan(p.getValueAsInt());
+                case "start_row_offset_idx" -> builder.setStartRowOffsetIdx(p.getValueAsInt());
+                case "end_row_offset_idx" -> builder.setEndRowOffsetIdx(p.getValueAsInt());
+                case "start_col_offset_idx" -> builder.setStartColOffsetIdx(p.getValueAsInt());
+                case "end_col_offset_idx" -> builder.setEndColOffsetIdx(p.getValueAsInt());
+                case "text" -> builder.setText(p.getText());
+                case "column_header" -> builder.setColumnHeader(p.getValueAsBoolean());
+                case "row_header" -> builder.setRowHeader(p.getValueAsBoolean());
+                case "row_section" -> builder.setRowSection(p.getValueAsBoolean());
+                case "fillable" -> builder.setFillable(p.getValueAsBoolean());
+                default -> p.skipChildren();
+            }
+        }
+        return builder.build();
+    }
+
+    // ---- descriptor-driven reading for everything else ----
+
+    /**
+     * Reads a JSON object into the given builder, matching keys to proto field names.
+     */
+    private static Message readMessage(JsonParser p, Message.Builder builder) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return builder.build();
+        }
+        Descriptor type = builder.getDescriptorForType();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            FieldDescriptor fd = type.findFieldByName(p.currentName());
+            JsonToken token = p.nextToken();
+            if (fd == null || token == JsonToken.VALUE_NULL) {
+                p.skipChildren();
+            } else {
+                readField(p, builder, fd);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Reads the current value into one field: a map, a repeated field or a single value.
+     */
+    private static void readField(JsonParser p, Message.Builder builder, FieldDescriptor fd) throws IOException {
+        if (fd.isMapField()) {
+            readMap(p, builder, fd);
+        } else if (fd.isRepeated()) {
+            if (p.currentToken() != JsonToken.START_ARRAY) {
+                p.skipChildren();
+                return;
+            }
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                Object value = readValue(p, builder, fd);
+                if (value != null) {
+                    builder.addRepeatedField(fd, value);
+                }
+            }
+        } else {
+            Object value = readValue(p, builder, fd);
+            if (value != null) {
+                builder.setField(fd, value);
+            }
+        }
+    }
+
+    private static void readMap(JsonParser p, Message.Builder builder, FieldDescriptor fd) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return;
+        }
+        FieldDescriptor keyField = fd.getMessageType().findFieldByName("key");
+        FieldDescriptor valueField = fd.getMessageType().findFieldByName("value");
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String key = p.currentName();
+            if (p.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            Message.Builder entry = builder.newBuilderForField(fd);
+            Object value = readValue(p, entry, valueField);
+            Object typedKey = mapKey(keyField, key);
+            if (value != null && typedKey != null) {
+                builder.addRepeatedField(fd, entry.setField(keyField, typedKey).setField(valueField, value).build());
+            }
+        }
+    }
+
+    private static Object mapKey(FieldDescriptor keyField, String key) {
+        try {
+            return switch (keyField.getJavaType()) {
+                case STRING -> key;
+                case INT -> Integer.parseInt(key);
+                case LONG -> Long.parseLong(key);
+                case BOOLEAN -> Boolean.parseBoolean(key);
+                default -> null;
+            };
+        } catch (NumberFormatException e) {
+            LOG.debugf("Skipping Docling map entry with non-numeric key %s for %s", key, keyField.getFullName());
+            return null;
+        }
+    }
+
+    /**
+     * Reads one value for the field, or returns null (with the value skipped) if the JSON
+     * type does not fit.
+     */
+    private static Object readValue(JsonParser p, Message.Builder parent, FieldDescriptor fd) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        switch (fd.getJavaType()) {
+            case MESSAGE:
+                return readMessageValue(p, parent, fd);
+            case ENUM:
+                return enumValue(fd.getEnumType(), p);
+            default:
+                break;
+        }
+        if (!token.isScalarValue()) {
+            p.skipChildren();
+            return null;
+        }
+        return switch (fd.getJavaType()) {
+            case STRING -> p.getText();
+            case INT -> p.getValueAsInt();
+            case LONG -> p.getValueAsLong();
+            case DOUBLE -> p.getValueAsDouble();
+            case FLOAT -> (float) p.getValueAsDouble();
+            case BOOLEAN -> p.getValueAsBoolean();
+            default -> null;
+        };
+    }
+
+    private static Message readMessageValue(JsonParser p, Message.Builder parent, FieldDescriptor fd) throws IOException {
+        Descriptor type = fd.getMessageType();
+        if (type == RefItem.getDescriptor()) return readRef(p);
+        if (type == ProvenanceItem.getDescriptor()) return readProvenance(p);
+        if (type == BoundingBox.getDescriptor()) return readBoundingBox(p);
+        if (type == TableData.getDescriptor()) return readTableData(p);
+        if (type == TableCell.getDescriptor()) return readTableCell(p);
+        if (type == BaseTextItem.getDescriptor()) return readText(p);
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return null;
+        }
+        return readMessage(p, parent.newBuilderForField(fd));
+    }
+
+    /**
+     * Enum value for a JSON string ({@code "section_header"}, {@code "SECTION_HEADER"} or the
+     * full proto name) or number; null if the value is unknown, leaving the field unset as the
+     * POJO mapper's {@code UNSPECIFIED} default does.
+     */
+    private static EnumValueDescriptor enumValue(EnumDescriptor type, JsonParser p) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return type.findValueByNumber(p.getIntValue());
+        }
+        if (token != JsonToken.VALUE_STRING) {
+            p.skipChildren();
+            return null;
+        }
+        String name = p.getText().toUpperCase(Locale.ROOT).replace('-', '_').replace(' ', '_');
+        return ENUM_INDEX.computeIfAbsent(type, DoclingJsonMapper::indexEnum).get(name);
+    }
+
+    private static Map<String, EnumValueDescriptor> indexEnum(EnumDescriptor type) {
+        String prefix = upperSnake(type.getName()) + "_";
+        Map<String, EnumValueDescriptor> index = new HashMap<>();
+        for (EnumValueDescriptor value : type.getValues()) {
+            index.put(value.getName(), value);
+            if (value.getName().startsWith(prefix)) {
+                index.putIfAbsent(value.getName().substring(prefix.length()), value);
+            }
+        }
+        return index;
+    }
+
+    /** "DocItemLabel" becomes "DOC_ITEM_LABEL". */
+    static String upperSnake(String camel) {
+        StringBuilder out = new StringBuilder(camel.length() + 4);
+        for (int i = 0; i < camel.length(); i++) {
+            char c = camel.charAt(i);
+            if (Character.isUpperCase(c) && i > 0) {
+                out.append('_');
+            }
+            out.append(Character.toUpperCase(c));
+        }
+        return out.toString();
+    }
+
+    @FunctionalInterface
+    private interface ElementReader {
+        void read() throws IOException;
+    }
+
+    /**
+     * Calls the reader once per array element, with the parser on the element's first token.
+     */
+    private static void readArray(JsonParser p, ElementReader reader) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return;
+        }
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (p.currentToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            reader.read();
+        }
+    }
+
+    private static JsonNode readTree(JsonParser p, ObjectMapper objectMapper) throws IOException {
+        JsonNode node = objectMapper.readTree(p);
+        return node != null ? node : NullNode.getInstance();
+    }
+}
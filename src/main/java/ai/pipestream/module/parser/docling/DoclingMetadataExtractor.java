@@ -8,25 +8,41 @@ import ai.docling.serve.api.convert.response.ConvertDocumentResponse;
 import ai.docling.serve.api.convert.response.DocumentResponse;
 import ai.docling.serve.api.convert.response.InBodyConvertDocumentResponse;
 import ai.pipestream.module.parser.config.DoclingOptions;
+import ai.pipestream.module.parser.config.DoclingOutputProjection;
 import ai.pipestream.parsed.data.docling.v1.DoclingDocument;
 import ai.pipestream.parsed.data.docling.v1.DoclingParseMetadata;
 import ai.pipestream.parsed.data.docling.v1.DoclingParseStatus;
 import ai.pipestream.parsed.data.docling.v1.DoclingResponse;
+import com.google.protobuf.ByteString;
 import com.google.protobuf.Timestamp;
+import com.google.protobuf.UnsafeByteOperations;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.unchecked.Unchecked;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.apache.pdfbox.pdmodel.PDDocument;
 import org.jboss.logging.Logger;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Extracts comprehensive metadata from documents using the Docling service.
  *
  * This class:
- * 1. Calls DoclingServeApi directly with full ConvertDocumentOptions
+ * 1. Calls DoclingServeApi directly with full ConvertDocumentOptions, or streams the file to
+ *    docling-serve as a multipart upload ({@code parser.docling.transport=multipart}), or
+ *    submits it as an async job that is polled without blocking ({@code async})
  * 2. Maps ConvertDocumentResponse → DoclingResponse proto
  * 3. Converts DoclingDocument Java POJO → DoclingDocument proto using proper field-by-field mapping
  * 4. Handles errors gracefully and provides status information
@@ -38,9 +54,122 @@ public class DoclingMetadataExtractor {
 
     private static final Logger LOG = Logger.getLogger(DoclingMetadataExtractor.class);
 
+    /** Sends the whole document base64-encoded inside a JSON {@code FileSource}. */
+    public static final String TRANSPORT_BASE64 = "base64";
+    /** Streams the document to {@code /v1/convert/file} as multipart/form-data. */
+    public static final String TRANSPORT_MULTIPART = "multipart";
+    /** Streams the document to {@code /v1/convert/file/async} and polls the job without holding a thread. */
+    public static final String TRANSPORT_ASYNC = "async";
+
+    /** Error prefix of failures caused by docling-serve being unreachable, timing out or answering 5xx. */
+    static final String UNAVAILABLE_ERROR_PREFIX = "Docling unavailable: ";
+
     @Inject
     DoclingEndpointHolder doclingEndpointHolder;
 
+    @Inject
+    DoclingHttpClient doclingHttpClient;
+
+    @Inject
+    DoclingCircuitBreaker circuitBreaker;
+
+    @Inject
+    DoclingBatcher batcher;
+
+    @Inject
+    DoclingResultCache resultCache;
+
+    @Inject
+    DoclingImageOffloader imageOffloader;
+
+    @ConfigProperty(name = "parser.docling.transport", defaultValue = TRANSPORT_MULTIPART)
+    String transport;
+
+    @ConfigProperty(name = "parser.docling.hedge.enabled", defaultValue = "false")
+    boolean hedgeEnabled;
+
+    @ConfigProperty(name = "parser.docling.hedge.percentile", defaultValue = "0.95")
+    double hedgePercentile;
+
+    @ConfigProperty(name = "parser.docling.hedge.min-delay", defaultValue = "PT2S")
+    Duration hedgeMinDelay;
+
+    /** Samples needed before the latency percentile is trusted for hedging. */
+    private static final int HEDGE_MIN_SAMPLES = 20;
+
+    @ConfigProperty(name = "parser.docling.fanout.enabled", defaultValue = "false")
+    boolean fanOutEnabled;
+
+    @ConfigProperty(name = "parser.docling.fanout.min-pages", defaultValue = "60")
+    int fanOutMinPages;
+
+    @ConfigProperty(name = "parser.docling.fanout.window-pages", defaultValue = "20")
+    int fanOutWindowPages;
+
+    @ConfigProperty(name = "parser.docling.fanout.concurrency", defaultValue = "4")
+    int fanOutConcurrency;
+
+    @ConfigProperty(name = "parser.docling.page-cache.enabled", defaultValue = "false")
+    boolean pageCacheEnabled;
+
+    @ConfigProperty(name = "parser.docling.page-cache.min-pages", defaultValue = "10")
+    int pageCacheMinPages;
+
+    private static final ByteString PDF_MAGIC = ByteString.copyFromUtf8("%PDF-");
+
+    /** Latency of recent successful conversions, source of the hedge delay. */
+    final LatencyWindow latencies = new LatencyWindow(200);
+
+    /**
+     * Extracts comprehensive metadata from a document blob using Docling.
+     * <p>
+     * With the multipart transport the blob is streamed to docling-serve without being copied
+     * or base64-encoded. If docling-serve answers the upload with 404 or 405, the base64 request
+     * is tried once so an older docling-serve without the file endpoint keeps working.
+     *
+     * @param content The document content as it arrived on the request
+     * @param filename The filename (used for format detection)
+     * @param docId The document ID
+     * @param options Docling configuration options (if null, uses defaults)
+     * @return Complete DoclingResponse with parsed document structure
+     */
+    public DoclingResponse extractComprehensiveMetadata(
+            ByteString content,
+            String filename,
+            String docId,
+            DoclingOptions options) {
+
+        return extract(content, filename, docId, options, convertOptions -> convertBlocking(content, filename, docId, convertOptions, projection(options)));
+    }
+
+    /**
+     * Blocking conversion over the configured transport. The multipart upload falls back to
+     * the base64 request only when the file endpoint does not exist (HTTP 404/405); transport
+     * errors and every other status are rethrown, since resending the document as a third-larger
+     * base64 body would fail the same way.
+     */
+    private DoclingJsonMapper.Converted convertBlocking(ByteString content, String filename, String docId,
+                                                        ConvertDocumentOptions convertOptions,
+                                                        DoclingOutputProjection projection) throws Exception {
+        if (!isMultipartTransport()) {
+            return DoclingJsonMapper.Converted.of(convertBase64(content.toByteArray(), filename, convertOptions), projection);
+        }
+        try {
+            return doclingHttpClient.convertFile(content, filename, convertOptions, projection);
+        } catch (DoclingHttpClient.HttpStatusException e) {
+            if (!e.isRouteMissing()) {
+                throw e;
+            }
+            LOG.warnf("Docling has no multipart file endpoint (HTTP %d) for document %s, retrying with base64 request",
+                    e.statusCode(), docId);
+            return DoclingJsonMapper.Converted.of(convertBase64(content.toByteArray(), filename, convertOptions), projection);
+        }
+    }
+
+    private static DoclingOutputProjection projection(DoclingOptions options) {
+        return options != null ? options.outputProjection() : null;
+    }
+
     /**
      * Extracts comprehensive metadata from document bytes using Docling.
      *
@@ -55,7 +184,551 @@ public class DoclingMetadataExtractor {
             String filename,
             String docId,
             DoclingOptions options) {
+        if (isMultipartTransport()) {
+            // Wrapping does not copy; the array is only read while streaming the upload
+            return extractComprehensiveMetadata(UnsafeByteOperations.unsafeWrap(content), filename, docId, options);
+        }
+        return extract(UnsafeByteOperations.unsafeWrap(content), filename, docId, options,
+                convertOptions -> DoclingJsonMapper.Converted.of(convertBase64(content, filename, convertOptions),
+                        projection(options)));
+    }
+
+    /**
+     * Extracts comprehensive metadata as a {@link Uni}, for use inside the reactive pipeline.
+     * <p>
+     * With {@code parser.docling.transport=async} the document is submitted as a docling-serve
+     * job and its status is long-polled with non-blocking HTTP calls, so a pending conversion
+     * holds no thread. Cancelling the returned Uni aborts the in-flight HTTP exchange and stops
+     * polling. The other transports run the blocking call on the worker pool as before.
+     * <p>
+     * While the {@link DoclingCircuitBreaker} is open the Uni completes immediately with a
+     * failed status, so the Tika result is not held back by a Docling timeout. With
+     * {@code parser.docling.hedge.enabled} and the async transport, a slow conversion is
+     * duplicated to a second endpoint once it exceeds the recent p95 latency (never earlier than
+     * {@code hedge.min-delay}).
+     * <p>
+     * Results are looked up in the {@link DoclingResultCache} first, and identical documents
+     * converting at the same time share one Docling call. A shared conversion keeps running
+     * when one of its callers cancels.
+     *
+     * @param content The document content as it arrived on the request
+     * @param filename The filename (used for format detection)
+     * @param docId The document ID
+     * @param options Docling configuration options (if null, uses defaults)
+     * @return Uni completing with the DoclingResponse; failures are reported in its status
+     */
+    public Uni<DoclingResponse> extractComprehensiveMetadataAsync(
+            ByteString content,
+            String filename,
+            String docId,
+            DoclingOptions options) {
+
+        DoclingOptions effective = options != null ? options : DoclingOptions.defaultOptions();
+        if (!resultCache.isEnabled()) {
+            return convertAsync(content, filename, docId, effective);
+        }
+        // Hashing a large document is not event-loop work
+        return Uni.createFrom().item(() -> resultCache.key(content, filename, buildConvertDocumentOptions(effective),
+                        effective.outputProjection()))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .chain(key -> resultCache.getOrConvert(key, docId,
+                        () -> convertAsync(content, filename, docId, effective)));
+    }
+
+    private Uni<DoclingResponse> convertAsync(ByteString content, String filename, String docId,
+                                              DoclingOptions effective) {
+        return Uni.createFrom().deferred(() -> {
+            LOG.debugf("Extracting Docling metadata for document %s with filename %s, OCR engine: %s",
+                    docId, filename, effective.ocrEngine());
+            long startTime = System.currentTimeMillis();
+
+            if (isPageCacheCandidate(content, effective)) {
+                // The page cache is read before asking the breaker: a fully cached PDF makes no call
+                return Uni.createFrom().item(() -> pageHashes(content, docId))
+                        .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                        .chain(hashes -> hashes.size() >= Math.max(1, pageCacheMinPages)
+                                ? convertChangedPages(content, filename, docId, effective, hashes, startTime)
+                                : guarded(docId, permit -> convertWhole(content, filename, docId, effective, startTime, permit)));
+            }
+            return guarded(docId, permit -> isFanOutCandidate(content, effective)
+                    ? Uni.createFrom().item(() -> fanOutWindows(content, docId))
+                            .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                            .chain(windows -> !windows.isEmpty()
+                                    ? fanOut(filename, docId, effective, windows, startTime, permit)
+                                    : convertWhole(content, filename, docId, effective, startTime, permit))
+                    : convertWhole(content, filename, docId, effective, startTime, permit));
+        });
+    }
+
+    /**
+     * Runs a conversion under a {@link DoclingCircuitBreaker} permit. While the breaker is open
+     * the Uni completes with a failed status right away; a cancelled conversion hands its
+     * permit back without an outcome.
+     */
+    private Uni<DoclingResponse> guarded(String docId,
+                                         Function<DoclingCircuitBreaker.Permit, Uni<DoclingResponse>> conversion) {
+        return Uni.createFrom().deferred(() -> {
+            DoclingCircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+            if (permit == null) {
+                return Uni.createFrom().item(circuitOpenResponse(docId));
+            }
+            return conversion.apply(permit)
+                    .onCancellation().invoke(() -> {
+                        permit.ignored();
+                        LOG.debugf("Docling conversion for document %s cancelled by caller", docId);
+                    });
+        });
+    }
+
+    /**
+     * Converts the document in a single (possibly hedged) request, or as part of a
+     * micro-batch when it is small enough for the {@link DoclingBatcher}.
+     */
+    private Uni<DoclingResponse> convertWhole(ByteString content, String filename, String docId,
+                                              DoclingOptions options, long startTime,
+                                              DoclingCircuitBreaker.Permit permit) {
+        ConvertDocumentOptions convertOptions = buildConvertDocumentOptions(options, null);
+        if (batcher.accepts(content)) {
+            return batcher.submit(options, convertOptions, content, filename)
+                    .onItemOrFailure().transform((file, failure) -> {
+                        recordOutcome(permit, failure, startTime);
+                        return failure != null
+                                ? toDoclingResponse(null, failure, docId, startTime)
+                                : fromConvertedFile(file, docId, startTime);
+                    });
+        }
+        return hedged(attempt(content, filename, docId, convertOptions, options.outputProjection()), docId)
+                .onItemOrFailure().transform((response, failure) -> {
+                    recordOutcome(permit, failure, startTime);
+                    return toDoclingResponse(response, failure, docId, startTime);
+                });
+    }
+
+    /**
+     * Converts the page windows of a large PDF, up to {@code parser.docling.fanout.concurrency}
+     * at a time (each window takes its own lease, so windows spread over the endpoint pool), and
+     * merges the results in page order with {@link DoclingDocumentMerger}.
+     * <p>
+     * Each window is uploaded as its own PDF cut out by {@link PdfPageSplitter}, so the document
+     * crosses the network about once in total rather than once per window. A failed window
+     * turns the merged status into {@code STATUS_PARTIAL} instead of failing the whole document.
+     */
+    private Uni<DoclingResponse> fanOut(String filename, String docId, DoclingOptions options,
+                                        List<PdfPageSplitter.Window> windows, long startTime,
+                                        DoclingCircuitBreaker.Permit permit) {
+        LOG.debugf("Fanning out Docling conversion of document %s: %d pages in %d windows",
+                docId, windows.get(windows.size() - 1).lastPage(), windows.size());
+        return convertSplitWindows(null, filename, docId, options, windows)
+                .map(results -> mergeAndRecord(results, docId, startTime, permit));
+    }
+
+    /**
+     * Converts only the given page ranges of a PDF and merges them in page order, for documents
+     * where Tika read all other pages (see {@link DoclingRouter}). Ranges are converted like
+     * fan-out windows; the result cache is not consulted.
+     *
+     * @param pageRanges inclusive 1-based {@code [first, last]} page ranges
+     */
+    public Uni<DoclingResponse> extractPagesAsync(ByteString content, String filename, String docId,
+                                                  DoclingOptions options, List<int[]> pageRanges) {
+        DoclingOptions effective = options != null ? options : DoclingOptions.defaultOptions();
+        return guarded(docId, permit -> {
+            LOG.debugf("Extracting Docling metadata for %d page ranges of document %s", pageRanges.size(), docId);
+            return convertWindows(content, filename, docId, effective, pageRanges, System.currentTimeMillis(), permit);
+        });
+    }
+
+    private Uni<DoclingResponse> convertWindows(ByteString content, String filename, String docId,
+                                                DoclingOptions options, List<int[]> windows, long startTime,
+                                                DoclingCircuitBreaker.Permit permit) {
+        return convertWindowResults(content, filename, docId, options, windows)
+                .map(results -> mergeAndRecord(results, docId, startTime, permit));
+    }
+
+    /**
+     * Incremental conversion of a PDF against the page cache: pages whose content hash has
+     * been converted before (with the same options) are taken from the {@link DoclingResultCache},
+     * the others are sent to Docling as runs of consecutive pages, at most
+     * {@code fanout.window-pages} per request, and the results are merged into one document.
+     * <p>
+     * Each converted run is split by provenance into one cache entry per page, renumbered as
+     * page 1, so a page is found again wherever it moves in a later revision. The Markdown,
+     * HTML and text exports cannot be split by page: page entries carry only the document,
+     * and a result that took any page from the cache comes back without exports.
+     * <p>
+     * A PDF whose pages are all cached is answered without asking the circuit breaker.
+     */
+    private Uni<DoclingResponse> convertChangedPages(ByteString content, String filename, String docId,
+                                                     DoclingOptions options, List<String> pageHashes, long startTime) {
+        ConvertDocumentOptions baseOptions = buildConvertDocumentOptions(options);
+        List<WindowResult> cached = new ArrayList<>();
+        List<Integer> changed = new ArrayList<>();
+        for (int page = 1; page <= pageHashes.size(); page++) {
+            DoclingResponse hit = resultCache.get(resultCache.pageKey(pageHashes.get(page - 1), baseOptions, options.outputProjection()), docId);
+            if (hit != null) {
+                cached.add(new WindowResult(page, page, hit));
+            } else {
+                changed.add(page);
+            }
+        }
+        LOG.debugf("Docling page cache for document %s: %d of %d pages cached, converting %d",
+                docId, cached.size(), pageHashes.size(), changed.size());
+        if (changed.isEmpty()) {
+            return Uni.createFrom().item(mergeWindows(cached, docId, startTime));
+        }
+
+        List<int[]> windows = windowRanges(changed, fanOutWindowPages);
+        return guarded(docId, permit -> convertWindowResults(content, filename, docId, options, windows)
+                .map(results -> {
+                    for (WindowResult result : results) {
+                        cachePages(result, pageHashes, baseOptions, options.outputProjection());
+                    }
+                    List<WindowResult> all = new ArrayList<>(cached);
+                    all.addAll(results);
+                    DoclingResponse merged = mergeAndRecord(all, docId, startTime, permit);
+                    return cached.isEmpty()
+                            ? merged
+                            : merged.toBuilder().clearMarkdown().clearHtml().clearText().build();
+                }));
+    }
+
+    /**
+     * Collapses sorted page numbers into inclusive ranges of consecutive pages, each at most
+     * {@code windowPages} long.
+     */
+    static List<int[]> windowRanges(List<Integer> pages, int windowPages) {
+        int size = Math.max(1, windowPages);
+        List<int[]> windows = new ArrayList<>();
+        for (int[] range : DoclingRouter.ranges(pages)) {
+            for (int first = range[0]; first <= range[1]; first += size) {
+                windows.add(new int[]{first, Math.min(range[1], first + size - 1)});
+            }
+        }
+        return windows;
+    }
+
+    /**
+     * Caches a successfully converted run of pages as one document per page.
+     */
+    private void cachePages(WindowResult result, List<String> pageHashes, ConvertDocumentOptions baseOptions,
+                            DoclingOutputProjection projection) {
+        DoclingResponse response = result.response();
+        if (response.getStatus().getStatus() != DoclingParseStatus.Status.STATUS_SUCCESS || !response.hasDocument()) {
+            return;
+        }
+        int pageCount = result.lastPage() - result.firstPage() + 1;
+        List<DoclingDocument> pages = DoclingDocumentMerger.splitPages(response.getDocument(), result.firstPage(), pageCount);
+        DoclingResponse.Builder entry = response.toBuilder().clearMarkdown().clearHtml().clearText();
+        for (int i = 0; i < pageCount; i++) {
+            resultCache.put(resultCache.pageKey(pageHashes.get(result.firstPage() - 1 + i), baseOptions, projection),
+                    entry.setDocument(pages.get(i)).build());
+        }
+    }
+
+    private DoclingResponse mergeAndRecord(List<WindowResult> results, String docId, long startTime,
+                                           DoclingCircuitBreaker.Permit permit) {
+        DoclingResponse merged = mergeWindows(results, docId, startTime);
+        if (merged.getStatus().getStatus() != DoclingParseStatus.Status.STATUS_FAILED) {
+            permit.success();
+        } else if (results.stream().anyMatch(WindowResult::endpointFailed)) {
+            permit.failure();
+        } else {
+            // Every window was rejected (4xx); Docling is up
+            permit.ignored();
+        }
+        return merged;
+    }
+
+    /**
+     * Converts the page windows, up to {@code parser.docling.fanout.concurrency} at a time. The
+     * PDF is split into the windows first (one load, on a worker thread).
+     */
+    private Uni<List<WindowResult>> convertWindowResults(ByteString content, String filename, String docId,
+                                                         DoclingOptions options, List<int[]> windows) {
+        return Uni.createFrom().item(() -> splitWindows(content, windows, docId))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .chain(split -> convertSplitWindows(content, filename, docId, options, split));
+    }
+
+    /**
+     * Converts windows, up to {@code parser.docling.fanout.concurrency} at a time. A window
+     * without its own content is sent as {@code content} with a {@code page_range}.
+     */
+    private Uni<List<WindowResult>> convertSplitWindows(ByteString content, String filename, String docId,
+                                                        DoclingOptions options, List<PdfPageSplitter.Window> windows) {
+        return Multi.createFrom().iterable(windows)
+                .onItem().transformToUni(window -> {
+                    long windowStart = System.currentTimeMillis();
+                    boolean split = window.content() != null;
+                    ConvertDocumentOptions convertOptions = buildConvertDocumentOptions(options,
+                            split ? null : List.of(window.firstPage(), window.lastPage()));
+                    ByteString upload = split ? window.content() : content;
+                    return hedged(attempt(upload, filename, docId, convertOptions, options.outputProjection()), docId)
+                            .onItemOrFailure().transform((response, failure) -> {
+                                if (failure == null) {
+                                    latencies.record(System.currentTimeMillis() - windowStart);
+                                }
+                                return new WindowResult(window.firstPage(), window.lastPage(),
+                                        toDoclingResponse(response, failure, docId, windowStart),
+                                        failure != null && DoclingEndpointHolder.isEndpointFailure(failure));
+                            });
+                })
+                .merge(Math.max(1, fanOutConcurrency))
+                .collect().asList();
+    }
+
+    /**
+     * Result of one page window of a fan-out conversion.
+     *
+     * @param endpointFailed whether the window failed in a way that counts against Docling's health
+     */
+    private record WindowResult(int firstPage, int lastPage, DoclingResponse response, boolean endpointFailed) {
+
+        WindowResult(int firstPage, int lastPage, DoclingResponse response) {
+            this(firstPage, lastPage, response, false);
+        }
+    }
+
+    /**
+     * Merges per-window responses in page order: documents via {@link DoclingDocumentMerger},
+     * Markdown and text exports concatenated, HTML exports merged into one document, errors
+     * prefixed with their page window.
+     */
+    private DoclingResponse mergeWindows(List<WindowResult> results, String docId, long startTime) {
+        List<WindowResult> ordered = new ArrayList<>(results);
+        ordered.sort(Comparator.comparingInt(WindowResult::firstPage));
+
+        List<DoclingDocumentMerger.Part> parts = new ArrayList<>();
+        StringBuilder markdown = new StringBuilder();
+        List<String> html = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        DoclingParseStatus.Builder status = DoclingParseStatus.newBuilder();
+        int succeeded = 0;
+        int failed = 0;
+        for (WindowResult window : ordered) {
+            DoclingResponse response = window.response();
+            DoclingParseStatus.Status windowStatus = response.getStatus().getStatus();
+            if (windowStatus == DoclingParseStatus.Status.STATUS_SUCCESS) {
+                succeeded++;
+            } else if (windowStatus == DoclingParseStatus.Status.STATUS_FAILED
+                    || windowStatus == DoclingParseStatus.Status.STATUS_TIMEOUT) {
+                failed++;
+            }
+            for (String error : response.getStatus().getErrorsList()) {
+                status.addErrors(String.format("pages %d-%d: %s", window.firstPage(), window.lastPage(), error));
+            }
+            if (response.hasDocument()) {
+                parts.add(new DoclingDocumentMerger.Part(response.getDocument(), window.firstPage()));
+            }
+            appendExport(markdown, response.getMarkdown());
+            html.add(response.getHtml());
+            appendExport(text, response.getText());
+        }
+
+        DoclingResponse.Builder merged = DoclingResponse.newBuilder();
+        if (docId != null && !docId.isEmpty()) {
+            merged.setDocId(docId);
+        }
+        if (!parts.isEmpty()) {
+            merged.setDocument(DoclingDocumentMerger.merge(parts));
+        }
+        if (markdown.length() > 0) merged.setMarkdown(markdown.toString());
+        String mergedHtml = DoclingDocumentMerger.mergeHtml(html);
+        if (!mergedHtml.isEmpty()) merged.setHtml(mergedHtml);
+        if (text.length() > 0) merged.setText(text.toString());
+
+        if (succeeded == ordered.size()) {
+            status.setStatus(DoclingParseStatus.Status.STATUS_SUCCESS);
+        } else if (failed == ordered.size()) {
+            status.setStatus(DoclingParseStatus.Status.STATUS_FAILED);
+        } else {
+            status.setStatus(DoclingParseStatus.Status.STATUS_PARTIAL);
+        }
+        status.setParseTimeMs(System.currentTimeMillis() - startTime);
+        merged.setStatus(status.build());
+        merged.setParsedAt(now());
+        return merged.build();
+    }
+
+    private static void appendExport(StringBuilder target, String export) {
+        if (export == null || export.isEmpty()) {
+            return;
+        }
+        if (target.length() > 0) {
+            target.append("\n\n");
+        }
+        target.append(export);
+    }
+
+    /**
+     * Fan-out applies to PDFs when it is enabled and the caller has not chosen pages itself.
+     */
+    private boolean isFanOutCandidate(ByteString content, DoclingOptions options) {
+        return fanOutEnabled
+                && (options.pageRange() == null || options.pageRange().isEmpty())
+                && content.size() > PDF_MAGIC.size()
+                && content.startsWith(PDF_MAGIC);
+    }
+
+    private boolean isPageCacheCandidate(ByteString content, DoclingOptions options) {
+        return pageCacheEnabled && resultCache.isEnabled()
+                && (options.pageRange() == null || options.pageRange().isEmpty())
+                && content.size() > PDF_MAGIC.size()
+                && content.startsWith(PDF_MAGIC);
+    }
 
+    /**
+     * Per-page content hashes, or an empty list if the PDF cannot be read.
+     */
+    private static List<String> pageHashes(ByteString content, String docId) {
+        try {
+            return PdfPageHasher.pageHashes(content);
+        } catch (Exception e) {
+            LOG.debugf("Could not hash pages of document %s for the Docling page cache: %s", docId, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Fan-out windows of the PDF, split from a single load, or an empty list if it has fewer
+     * than {@code fanout.min-pages} pages or cannot be read.
+     */
+    private List<PdfPageSplitter.Window> fanOutWindows(ByteString content, String docId) {
+        try (PDDocument pdf = PdfPageSplitter.load(content)) {
+            int pages = pdf.getNumberOfPages();
+            if (pages < fanOutMinPages) {
+                return List.of();
+            }
+            return PdfPageSplitter.split(pdf, PdfPageSplitter.windows(pages, fanOutWindowPages));
+        } catch (Exception e) {
+            LOG.debugf("Could not split document %s for Docling fan-out: %s", docId, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * The given page ranges split out of the PDF. If it cannot be split, the windows carry no
+     * content and the whole file is sent once per window with a {@code page_range}.
+     */
+    private static List<PdfPageSplitter.Window> splitWindows(ByteString content, List<int[]> ranges, String docId) {
+        try (PDDocument pdf = PdfPageSplitter.load(content)) {
+            return PdfPageSplitter.split(pdf, ranges);
+        } catch (Exception e) {
+            LOG.debugf("Could not split document %s into page windows, sending page ranges instead: %s",
+                    docId, e.getMessage());
+            List<PdfPageSplitter.Window> windows = new ArrayList<>(ranges.size());
+            for (int[] range : ranges) {
+                windows.add(new PdfPageSplitter.Window(range[0], range[1], null));
+            }
+            return windows;
+        }
+    }
+
+    /**
+     * One conversion attempt over the configured transport.
+     */
+    private Supplier<Uni<DoclingJsonMapper.Converted>> attempt(ByteString content, String filename, String docId,
+                                                               ConvertDocumentOptions convertOptions,
+                                                               DoclingOutputProjection projection) {
+        if (TRANSPORT_ASYNC.equalsIgnoreCase(transport)) {
+            return () -> doclingHttpClient.convertFileAsync(content, filename, convertOptions, projection);
+        }
+        return () -> Uni.createFrom().item(Unchecked.supplier(
+                        () -> convertBlocking(content, filename, docId, convertOptions, projection)))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+
+    /**
+     * Runs the conversion, and if hedging is on and more than one endpoint is available, starts
+     * a duplicate once the primary has been running longer than the recent latency percentile.
+     * The first result wins and the slower attempt is cancelled; the duplicate lands on another
+     * endpoint because the pool routes to the one with the fewest outstanding requests.
+     * <p>
+     * Only the async transport is hedged: cancelling it aborts the HTTP exchange and releases
+     * its lease at once. A blocking attempt cannot be interrupted, so a losing one would keep a
+     * worker thread and an endpoint lease until Docling answered, doubling the load exactly
+     * when the endpoints are slow.
+     */
+    Uni<DoclingJsonMapper.Converted> hedged(Supplier<Uni<DoclingJsonMapper.Converted>> attempt, String docId) {
+        Duration delay = hedgeDelay();
+        if (delay == null) {
+            return attempt.get();
+        }
+        Uni<DoclingJsonMapper.Converted> hedge = Uni.createFrom().voidItem()
+                .onItem().delayIt().by(delay)
+                .onItem().transformToUni(ignored -> {
+                    LOG.debugf("Docling conversion for document %s exceeded %dms — sending hedged request",
+                            docId, delay.toMillis());
+                    return attempt.get();
+                });
+        return Uni.join().first(attempt.get(), hedge).withItem();
+    }
+
+    /**
+     * Delay before a hedged request, or null when hedging does not apply.
+     */
+    Duration hedgeDelay() {
+        if (!hedgeEnabled || !TRANSPORT_ASYNC.equalsIgnoreCase(transport)
+                || doclingEndpointHolder.availableEndpointCount() < 2) {
+            return null;
+        }
+        long percentileMs = latencies.percentile(hedgePercentile, HEDGE_MIN_SAMPLES);
+        if (percentileMs < 0) {
+            return null;
+        }
+        Duration delay = Duration.ofMillis(percentileMs);
+        return delay.compareTo(hedgeMinDelay) < 0 ? hedgeMinDelay : delay;
+    }
+
+    /**
+     * Feeds the circuit breaker. Only failures that say Docling itself is unwell count against
+     * it (see {@link DoclingEndpointHolder#isEndpointFailure}); a 4xx for one bad document is
+     * recorded as neither success nor failure.
+     */
+    private void recordOutcome(DoclingCircuitBreaker.Permit permit, Throwable failure, long startTime) {
+        if (failure == null) {
+            permit.success();
+            latencies.record(System.currentTimeMillis() - startTime);
+        } else if (DoclingEndpointHolder.isEndpointFailure(failure)) {
+            permit.failure();
+        } else {
+            permit.ignored();
+        }
+    }
+
+    /**
+     * Failed response returned without calling Docling while the circuit breaker is open.
+     */
+    private DoclingResponse circuitOpenResponse(String docId) {
+        LOG.debugf("Docling circuit breaker open — skipping conversion for document %s", docId);
+        DoclingResponse.Builder responseBuilder = DoclingResponse.newBuilder();
+        if (docId != null && !docId.isEmpty()) {
+            responseBuilder.setDocId(docId);
+        }
+        responseBuilder.setStatus(DoclingParseStatus.newBuilder()
+                .setStatus(DoclingParseStatus.Status.STATUS_FAILED)
+                .setParseTimeMs(0)
+                .addErrors("Docling parsing skipped: circuit breaker is open")
+                .build());
+        responseBuilder.setParsedAt(now());
+        return responseBuilder.build();
+    }
+
+    private boolean isMultipartTransport() {
+        // The async transport uploads the same way; its blocking calls fall back to a direct upload
+        return TRANSPORT_MULTIPART.equalsIgnoreCase(transport) || TRANSPORT_ASYNC.equalsIgnoreCase(transport);
+    }
+
+    /**
+     * One Docling conversion, however the document gets to the service.
+     */
+    @FunctionalInterface
+    interface Conversion {
+        DoclingJsonMapper.Converted convert(ConvertDocumentOptions options) throws Exception;
+    }
+
+    private DoclingResponse extract(ByteString content, String filename, String docId, DoclingOptions options,
+                                    Conversion conversion) {
         if (options == null) {
             options = DoclingOptions.defaultOptions();
         }
@@ -63,7 +736,42 @@ public class DoclingMetadataExtractor {
         LOG.debugf("Extracting Docling metadata for document %s with filename %s, OCR engine: %s",
                   docId, filename, options.ocrEngine());
 
+        // Build complete ConvertDocumentOptions from DoclingOptions (1:1 mapping)
+        ConvertDocumentOptions convertOptions = buildConvertDocumentOptions(options);
+        String cacheKey = null;
+        if (resultCache.isEnabled()) {
+            cacheKey = resultCache.key(content, filename, convertOptions, options.outputProjection());
+            DoclingResponse cached = resultCache.get(cacheKey, docId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        DoclingCircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+        if (permit == null) {
+            return circuitOpenResponse(docId);
+        }
+
         long startTime = System.currentTimeMillis();
+        try {
+            DoclingJsonMapper.Converted doclingResponse = conversion.convert(convertOptions);
+            recordOutcome(permit, null, startTime);
+            DoclingResponse response = toDoclingResponse(doclingResponse, null, docId, startTime);
+            if (cacheKey != null) {
+                resultCache.put(cacheKey, response);
+            }
+            return response;
+        } catch (Exception e) {
+            recordOutcome(permit, e, startTime);
+            return toDoclingResponse(null, e, docId, startTime);
+        }
+    }
+
+    /**
+     * Maps a finished (or failed) conversion to the DoclingResponse proto.
+     */
+    private DoclingResponse toDoclingResponse(DoclingJsonMapper.Converted converted, Throwable failure,
+                                              String docId, long startTime) {
         DoclingResponse.Builder responseBuilder = DoclingResponse.newBuilder();
 
         // Set document ID
@@ -72,28 +780,15 @@ public class DoclingMetadataExtractor {
         }
 
         try {
-            // Build complete ConvertDocumentOptions from DoclingOptions (1:1 mapping)
-            ConvertDocumentOptions convertOptions = buildConvertDocumentOptions(options);
-
-            // Build FileSource from base64-encoded content
-            String base64Content = Base64.getEncoder().encodeToString(content);
-            FileSource source = FileSource.builder()
-                    .filename(filename)
-                    .base64String(base64Content)
-                    .build();
-
-            // Build conversion request
-            ConvertDocumentRequest request = ConvertDocumentRequest.builder()
-                    .source(source)
-                    .options(convertOptions)
-                    .build();
-
-            // Call Docling service directly with full options
-            ConvertDocumentResponse doclingResponse = doclingEndpointHolder.getClient().convertSource(request);
+            if (failure != null) {
+                throw failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause() : failure;
+            }
 
             // Map ConvertDocumentResponse to DoclingResponse proto
+            ConvertDocumentResponse doclingResponse = converted != null ? converted.response() : null;
             if (doclingResponse instanceof InBodyConvertDocumentResponse inBodyResponse) {
-                mapDoclingResponse(inBodyResponse, responseBuilder, docId, startTime);
+                mapDoclingResponse(inBodyResponse, converted.document(), responseBuilder, docId, startTime);
             } else {
                 String errorMsg = String.format("Unsupported or unexpected Docling response type: %s", 
                     doclingResponse != null ? doclingResponse.getClass().getName() : "null");
@@ -105,43 +800,147 @@ public class DoclingMetadataExtractor {
                 responseBuilder.setStatus(statusBuilder.build());
             }
 
-        } catch (Exception e) {
+        } catch (Throwable e) {
             LOG.errorf(e, "Failed to extract Docling metadata for document %s", docId);
 
             // Build error response
             long processingTime = System.currentTimeMillis() - startTime;
 
             DoclingParseStatus.Builder statusBuilder = DoclingParseStatus.newBuilder()
-                .setStatus(DoclingParseStatus.Status.STATUS_FAILED)
+                .setStatus(e instanceof TimeoutException
+                        ? DoclingParseStatus.Status.STATUS_TIMEOUT
+                        : DoclingParseStatus.Status.STATUS_FAILED)
                 .setParseTimeMs(processingTime)
-                .addErrors(String.format("Docling parsing failed: %s", e.getMessage()));
+                .addErrors(String.format("%s%s", DoclingEndpointHolder.isEndpointFailure(e)
+                        ? UNAVAILABLE_ERROR_PREFIX : "Docling parsing failed: ", e.getMessage()));
 
             responseBuilder.setStatus(statusBuilder.build());
         }
 
         // Set parsed_at timestamp
-        Timestamp now = Timestamp.newBuilder()
-            .setSeconds(System.currentTimeMillis() / 1000)
-            .setNanos((int) ((System.currentTimeMillis() % 1000) * 1000000))
+        responseBuilder.setParsedAt(now());
+
+        return imageOffloader.offload(responseBuilder.build());
+    }
+
+    /**
+     * Maps one document of a batched conversion to the DoclingResponse proto.
+     */
+    private DoclingResponse fromConvertedFile(DoclingHttpClient.ConvertedFile file, String docId, long startTime) {
+        DoclingResponse.Builder responseBuilder = DoclingResponse.newBuilder();
+        if (docId != null && !docId.isEmpty()) {
+            responseBuilder.setDocId(docId);
+        }
+        DoclingParseStatus.Builder statusBuilder = DoclingParseStatus.newBuilder()
+                .setParseTimeMs(System.currentTimeMillis() - startTime);
+        if (file == null) {
+            statusBuilder.setStatus(DoclingParseStatus.Status.STATUS_FAILED)
+                    .addErrors("Docling parsing failed: document missing from batch result");
+        } else {
+            try {
+                if (file.document() != null) {
+                    responseBuilder.setDocument(file.document());
+                }
+                if (file.markdown() != null && !file.markdown().isEmpty()) {
+                    responseBuilder.setMarkdown(file.markdown());
+                }
+                if (file.html() != null && !file.html().isEmpty()) {
+                    responseBuilder.setHtml(file.html());
+                }
+                if (file.text() != null && !file.text().isEmpty()) {
+                    responseBuilder.setText(file.text());
+                }
+                statusBuilder.setStatus(DoclingParseStatus.Status.STATUS_SUCCESS);
+            } catch (Exception e) {
+                LOG.errorf(e, "Failed to map batched Docling result for document %s", docId);
+                statusBuilder.setStatus(DoclingParseStatus.Status.STATUS_FAILED)
+                        .addErrors(String.format("Docling parsing failed: %s", e.getMessage()));
+            }
+        }
+        responseBuilder.setStatus(statusBuilder.build());
+        responseBuilder.setParsedAt(now());
+        return imageOffloader.offload(responseBuilder.build());
+    }
+
+    /**
+     * Whether a failed response is worth retrying later: a timeout, or a failure because
+     * docling-serve could not be reached or answered 5xx. Documents Docling rejected or could
+     * not convert, and conversions skipped by the open circuit breaker, are not.
+     */
+    public static boolean isTransientFailure(DoclingResponse response) {
+        DoclingParseStatus.Status status = response.getStatus().getStatus();
+        if (status == DoclingParseStatus.Status.STATUS_TIMEOUT) {
+            return true;
+        }
+        if (status != DoclingParseStatus.Status.STATUS_FAILED) {
+            return false;
+        }
+        // Fan-out prefixes window errors with their page range
+        return response.getStatus().getErrorsList().stream().anyMatch(error -> error.contains(UNAVAILABLE_ERROR_PREFIX));
+    }
+
+    private static Timestamp now() {
+        long millis = System.currentTimeMillis();
+        return Timestamp.newBuilder()
+            .setSeconds(millis / 1000)
+            .setNanos((int) ((millis % 1000) * 1000000))
             .build();
-        responseBuilder.setParsedAt(now);
+    }
 
-        return responseBuilder.build();
+    /**
+     * Sends the document base64-encoded in a JSON {@code FileSource} through the Docling client.
+     */
+    private ConvertDocumentResponse convertBase64(byte[] content, String filename, ConvertDocumentOptions convertOptions) {
+        // Build FileSource from base64-encoded content
+        String base64Content = Base64.getEncoder().encodeToString(content);
+        FileSource source = FileSource.builder()
+                .filename(filename)
+                .base64String(base64Content)
+                .build();
+
+        // Build conversion request
+        ConvertDocumentRequest request = ConvertDocumentRequest.builder()
+                .source(source)
+                .options(convertOptions)
+                .build();
+
+        // Call Docling service directly with full options on the least loaded endpoint
+        try (DoclingEndpointHolder.Lease lease = doclingEndpointHolder.acquire()) {
+            try {
+                ConvertDocumentResponse response = lease.client().convertSource(request);
+                lease.success();
+                return response;
+            } catch (RuntimeException e) {
+                lease.report(e);
+                throw e;
+            }
+        }
     }
 
     /**
      * Builds ConvertDocumentOptions from our DoclingOptions config.
-     * This is a 1:1 mapping of all 28 fields.
+     * This is a 1:1 mapping of all 28 fields; to_formats is rewritten by the output projection
+     * when one is set.
+     */
+    ConvertDocumentOptions buildConvertDocumentOptions(DoclingOptions options) {
+        return buildConvertDocumentOptions(options, null);
+    }
+
+    /**
+     * Same mapping, with the page range replaced when {@code pageRange} is non-null.
      */
-    private ConvertDocumentOptions buildConvertDocumentOptions(DoclingOptions options) {
+    private ConvertDocumentOptions buildConvertDocumentOptions(DoclingOptions options, List<Integer> pageRange) {
         ConvertDocumentOptions.Builder builder = ConvertDocumentOptions.builder();
 
         // Input/Output Formats
         if (options.fromFormats() != null && !options.fromFormats().isEmpty()) {
             options.fromFormats().forEach(builder::fromFormat);
         }
-        if (options.toFormats() != null && !options.toFormats().isEmpty()) {
-            options.toFormats().forEach(builder::toFormat);
+        List<OutputFormat> toFormats = options.outputProjection() != null
+                ? options.outputProjection().toFormats(options.toFormats())
+                : options.toFormats();
+        if (toFormats != null && !toFormats.isEmpty()) {
+            toFormats.forEach(builder::toFormat);
         }
         if (options.imageExportMode() != null) {
             builder.imageExportMode(options.imageExportMode());
@@ -181,8 +980,9 @@ public class DoclingMetadataExtractor {
         if (options.pipeline() != null) {
             builder.pipeline(options.pipeline());
         }
-        if (options.pageRange() != null && !options.pageRange().isEmpty()) {
-            options.pageRange().forEach(builder::pageRange);
+        List<Integer> pages = pageRange != null ? pageRange : options.pageRange();
+        if (pages != null && !pages.isEmpty()) {
+            pages.forEach(builder::pageRange);
         }
         if (options.documentTimeout() != null) {
             builder.documentTimeout(Duration.ofSeconds(options.documentTimeout()));
@@ -245,17 +1045,21 @@ public class DoclingMetadataExtractor {
 
     /**
      * Maps InBodyConvertDocumentResponse from Docling Java API to DoclingResponse proto.
+     * A document already streamed into the proto by {@link DoclingJsonMapper} is used as is.
      */
     private void mapDoclingResponse(
             InBodyConvertDocumentResponse doclingResponse,
+            DoclingDocument streamedDocument,
             DoclingResponse.Builder responseBuilder,
             String docId,
             long startTime) throws Exception {
 
         DocumentResponse document = doclingResponse.getDocument();
 
-        // Convert DoclingDocument Java POJO to proto using proper field-by-field mapping
-        if (document != null && document.getJsonContent() != null) {
+        if (streamedDocument != null) {
+            responseBuilder.setDocument(streamedDocument);
+        } else if (document != null && document.getJsonContent() != null) {
+            // Convert DoclingDocument Java POJO to proto using proper field-by-field mapping
             ai.docling.core.DoclingDocument javaDoclingDoc = document.getJsonContent();
 
             // Map Java object to Proto object - NO JSON, proper field mapping
@@ -0,0 +1,191 @@
+package ai.pipestream.module.parser.docling;
+
+import ai.pipestream.data.v1.DocOutline;
+import ai.pipestream.data.v1.Section;
+import ai.pipestream.parsed.data.docling.v1.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Builds the body text and DocOutline of a document from its Docling conversion.
+ * <p>
+ * The body is the text of the items under {@code body} in Docling's reading order (page
+ * headers, footers and other furniture are left out), with whitespace collapsed the way
+ * {@code DocumentParser.cleanUpText} collapses the Tika body. Every title and section header
+ * becomes a section whose character offsets are exact positions in that body, and whose
+ * {@code page_start} is the page of the heading's provenance, so neither a re-parse of the
+ * source nor {@code SectionOffsetResolver} is needed.
+ */
+public final class DoclingOutlineBuilder {
+
+    private DoclingOutlineBuilder() {
+    }
+
+    /**
+     * Reading-order body and outline; the outline is empty if the document has no headings.
+     */
+    public record Result(String body, DocOutline outline) {}
+
+    public static Result build(DoclingDocument document) {
+        Walker walker = new Walker(document);
+        for (RefItem child : document.getBody().getChildrenList()) {
+            walker.visit(child.getRef());
+        }
+        return new Result(walker.body.toString(), walker.outline());
+    }
+
+    /**
+     * Body text of each page, in reading order and keyed by page number; items without
+     * provenance are left out.
+     */
+    public static Map<Integer, String> pageTexts(DoclingDocument document) {
+        Walker walker = new Walker(document);
+        for (RefItem child : document.getBody().getChildrenList()) {
+            walker.visit(child.getRef());
+        }
+        Map<Integer, String> pages = new TreeMap<>();
+        walker.pages.forEach((page, text) -> pages.put(page, text.toString()));
+        return pages;
+    }
+
+    private static final class Walker {
+        private final DoclingDocument document;
+        private final StringBuilder body = new StringBuilder();
+        private final Set<String> visited = new HashSet<>();
+        private final List<Heading> headings = new ArrayList<>();
+        private final Map<Integer, StringBuilder> pages = new TreeMap<>();
+
+        Walker(DoclingDocument document) {
+            this.document = document;
+        }
+
+        private record Heading(String title, int level, int start, int page) {}
+
+        void visit(String ref) {
+            if (ref == null || !visited.add(ref)) {
+                return;
+            }
+            int slash = ref.lastIndexOf('/');
+            if (!ref.startsWith("#/") || slash < 2) {
+                return;
+            }
+            String collection = ref.substring(2, slash);
+            int index;
+            try {
+                index = Integer.parseInt(ref.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                return;
+            }
+            List<RefItem> children = switch (collection) {
+                case "texts" -> index < document.getTextsCount() ? visitText(document.getTexts(index)) : List.of();
+                case "groups" -> index < document.getGroupsCount() ? document.getGroups(index).getChildrenList() : List.of();
+                case "tables" -> index < document.getTablesCount() ? visitTable(document.getTables(index)) : List.of();
+                case "pictures" -> index < document.getPicturesCount() ? document.getPictures(index).getChildrenList() : List.of();
+                default -> List.of();
+            };
+            for (RefItem child : children) {
+                visit(child.getRef());
+            }
+        }
+
+        private List<RefItem> visitText(BaseTextItem item) {
+            TextItemBase base = base(item);
+            if (base.getContentLayer() == ContentLayer.CONTENT_LAYER_FURNITURE) {
+                return base.getChildrenList();
+            }
+            int page = base.getProvCount() > 0 ? base.getProv(0).getPageNo() : 0;
+            int start = append(base.getText(), page);
+            if (start >= 0 && (item.hasTitle() || item.hasSectionHeader())) {
+                int level = item.hasTitle() ? 1 : Math.min(6, Math.max(1, item.getSectionHeader().getLevel()) + 1);
+                headings.add(new Heading(collapse(base.getText()), level, start, page));
+            }
+            return base.getChildrenList();
+        }
+
+        private List<RefItem> visitTable(TableItem table) {
+            int page = table.getProvCount() > 0 ? table.getProv(0).getPageNo() : 0;
+            for (TableCell cell : table.getData().getTableCellsList()) {
+                append(cell.getText(), page);
+            }
+            return table.getChildrenList();
+        }
+
+        /**
+         * Appends the collapsed text (also to its page's text, for a page &gt; 0) and returns
+         * where it starts, or -1 if it is blank.
+         */
+        private int append(String text, int page) {
+            String collapsed = collapse(text);
+            if (collapsed.isEmpty()) {
+                return -1;
+            }
+            if (!body.isEmpty()) {
+                body.append(' ');
+            }
+            int start = body.length();
+            body.append(collapsed);
+            if (page > 0) {
+                StringBuilder pageText = pages.computeIfAbsent(page, p -> new StringBuilder());
+                if (!pageText.isEmpty()) {
+                    pageText.append(' ');
+                }
+                pageText.append(collapsed);
+            }
+            return start;
+        }
+
+        DocOutline outline() {
+            DocOutline.Builder outline = DocOutline.newBuilder();
+            Map<Integer, String> lastSectionIdAtLevel = new HashMap<>();
+            for (int i = 0; i < headings.size(); i++) {
+                Heading h = headings.get(i);
+                String id = "sec-" + i;
+                String parentId = null;
+                for (int l = h.level() - 1; l >= 1 && parentId == null; l--) {
+                    parentId = lastSectionIdAtLevel.get(l);
+                }
+                Section.Builder sb = Section.newBuilder()
+                        .setId(id)
+                        .setTitle(h.title())
+                        .setDepth(h.level() - 1)
+                        .setHeadingLevel(h.level())
+                        .setOrderIndex(i)
+                        .addTags("heading")
+                        .addTags("docling")
+                        .setCharStartOffset(h.start())
+                        .setCharEndOffset(i + 1 < headings.size() ? headings.get(i + 1).start() : body.length());
+                if (h.page() > 0) {
+                    sb.setPageStart(h.page());
+                    sb.setHref("page=" + h.page());
+                }
+                if (parentId != null) sb.setParentId(parentId);
+                outline.addSections(sb.build());
+
+                lastSectionIdAtLevel.put(h.level(), id);
+                for (int l = h.level() + 1; l <= 6; l++) {
+                    lastSectionIdAtLevel.remove(l);
+                }
+            }
+            return outline.build();
+        }
+    }
+
+    private static TextItemBase base(BaseTextItem item) {
+        if (item.hasTitle()) return item.getTitle().getBase();
+        if (item.hasSectionHeader()) return item.getSectionHeader().getBase();
+        if (item.hasListItem()) return item.getListItem().getBase();
+        if (item.hasCode()) return item.getCode().getBase();
+        if (item.hasFormula()) return item.getFormula().getBase();
+        return item.getText().getBase();
+    }
+
+    private static String collapse(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ");
+    }
+}
@@ -0,0 +1,109 @@
+package ai.pipestream.module.parser.docling;
+
+import com.google.protobuf.ByteString;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Splices the text Docling read from some pages of a PDF into the body Tika extracted from the
+ * whole file, for the {@link DoclingRouter.Route#PAGES} route.
+ * <p>
+ * Tika's body carries no page boundaries, so each converted page is placed after the text of
+ * the closest preceding page that has any: the last words PDFBox reads from that page are
+ * looked up in the body (whitespace collapsed as in the body), searching forward from the
+ * previous insertion. Pages before any text go first; a page whose anchor is not found is
+ * appended at the end.
+ */
+public final class DoclingPageSplicer {
+
+    /** Characters at the end of the preceding page that are looked up in the body. */
+    static final int ANCHOR_CHARS = 80;
+
+    private DoclingPageSplicer() {
+    }
+
+    /**
+     * @param pdf       the source PDF
+     * @param body      Tika's body, whitespace collapsed
+     * @param pageTexts text of the converted pages by page number, e.g. from
+     *                  {@link DoclingOutlineBuilder#pageTexts}
+     * @return the body with the page texts inserted
+     */
+    public static String splice(ByteString pdf, String body, Map<Integer, String> pageTexts) throws IOException {
+        Map<Integer, String> pages = new TreeMap<>();
+        pageTexts.forEach((page, text) -> {
+            String collapsed = collapse(text);
+            if (!collapsed.isEmpty()) {
+                pages.put(page, collapsed);
+            }
+        });
+        if (pages.isEmpty()) {
+            return body;
+        }
+
+        List<String> pieces = new ArrayList<>();
+        List<String> unplaced = new ArrayList<>();
+        int cursor = 0;
+        try (PDDocument document = PdfPageSplitter.load(pdf)) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            for (Map.Entry<Integer, String> page : pages.entrySet()) {
+                int at = insertionPoint(document, stripper, body, cursor, page.getKey(), pages);
+                if (at < 0) {
+                    unplaced.add(page.getValue());
+                    continue;
+                }
+                pieces.add(body.substring(cursor, at));
+                pieces.add(page.getValue());
+                cursor = at;
+            }
+        }
+        pieces.add(body.substring(cursor));
+        pieces.addAll(unplaced);
+
+        StringBuilder out = new StringBuilder(body.length() + 256);
+        for (String piece : pieces) {
+            String trimmed = piece.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!out.isEmpty()) {
+                out.append(' ');
+            }
+            out.append(trimmed);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Body offset right after the text of the closest preceding page with text, the cursor if
+     * that page was itself inserted or there is none, or -1 if its text is not in the body.
+     */
+    private static int insertionPoint(PDDocument document, PDFTextStripper stripper, String body, int cursor,
+                                      int page, Map<Integer, String> inserted) throws IOException {
+        for (int previous = page - 1; previous >= 1 && previous <= document.getNumberOfPages(); previous--) {
+            if (inserted.containsKey(previous)) {
+                return cursor;
+            }
+            stripper.setStartPage(previous);
+            stripper.setEndPage(previous);
+            String text = collapse(stripper.getText(document));
+            if (text.isEmpty()) {
+                continue;
+            }
+            String anchor = text.substring(Math.max(0, text.length() - ANCHOR_CHARS));
+            int found = body.indexOf(anchor, cursor);
+            return found < 0 ? -1 : found + anchor.length();
+        }
+        return cursor;
+    }
+
+    private static String collapse(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ");
+    }
+}
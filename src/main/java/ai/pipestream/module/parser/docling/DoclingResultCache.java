@@ -0,0 +1,420 @@
+package ai.pipestream.module.parser.docling;
+
+import ai.docling.serve.api.convert.request.options.ConvertDocumentOptions;
+import ai.pipestream.module.parser.config.DoclingOutputProjection;
+import ai.pipestream.parsed.data.docling.v1.DoclingParseStatus;
+import ai.pipestream.parsed.data.docling.v1.DoclingResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.protobuf.ByteString;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Cache of successful Docling conversions, keyed by document content and conversion options.
+ * <p>
+ * The key is a SHA-256 over the document bytes, the file extension (Docling detects the format
+ * from it) and the {@link ConvertDocumentOptions} as canonical JSON, so options that produce the
+ * same request share entries. Only {@code STATUS_SUCCESS} responses are kept.
+ * <p>
+ * The memory tier is an LRU bounded by the serialized size of the responses
+ * ({@code parser.docling.cache.max-bytes}). With {@code parser.docling.cache.disk.directory} set,
+ * every entry is also written there and a memory miss is served from disk before Docling is
+ * called; the directory is trimmed, oldest files first, to {@code disk.max-bytes}.
+ * <p>
+ * Concurrent requests for the same key are coalesced: the first one converts, the others wait
+ * for its result. Hits, disk hits, misses and coalesced requests are counted in {@link #getStats()}.
+ */
+@ApplicationScoped
+public class DoclingResultCache {
+
+    private static final Logger LOG = Logger.getLogger(DoclingResultCache.class);
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @ConfigProperty(name = "parser.docling.cache.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "parser.docling.cache.max-bytes", defaultValue = "268435456")
+    long maxBytes;
+
+    @ConfigProperty(name = "parser.docling.cache.disk.directory")
+    Optional<String> diskDirectory;
+
+    @ConfigProperty(name = "parser.docling.cache.disk.max-bytes", defaultValue = "10737418240")
+    long diskMaxBytes;
+
+    /** Access-ordered memory tier; guarded by {@code this}. */
+    private final LinkedHashMap<String, DoclingResponse> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long weight;
+
+    private final ConcurrentHashMap<String, Uni<DoclingResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    /** Bytes in the disk tier, -1 until the directory was first listed. */
+    private final AtomicLong diskBytes = new AtomicLong(-1);
+    private final Object diskLock = new Object();
+
+    /**
+     * Cache counters and current memory-tier size.
+     */
+    public record Stats(long hits, long diskHits, long misses, long coalesced, long evictions,
+                        int entries, long bytes) {}
+
+    public boolean isEnabled() {
+        return enabled && maxBytes > 0;
+    }
+
+    /**
+     * Cache key for a document converted with the given options.
+     */
+    public String key(ByteString content, String filename, ConvertDocumentOptions options) {
+        return key(content, filename, options, null);
+    }
+
+    /**
+     * Cache key for a document converted with the given options and mapped with the given
+     * output projection (null for the whole result).
+     */
+    public String key(ByteString content, String filename, ConvertDocumentOptions options,
+                      DoclingOutputProjection projection) {
+        MessageDigest digest = sha256();
+        for (ByteBuffer buffer : content.asReadOnlyByteBufferList()) {
+            digest.update(buffer);
+        }
+        digest.update((byte) 0);
+        digest.update(extension(filename).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        updateOptions(digest, options, projection);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Cache key for a single PDF page converted with the given options, from its
+     * {@link PdfPageHasher} hash. The options must not carry a page range.
+     */
+    public String pageKey(String pageHash, ConvertDocumentOptions options, DoclingOutputProjection projection) {
+        MessageDigest digest = sha256();
+        digest.update("page:".getBytes(StandardCharsets.UTF_8));
+        digest.update(pageHash.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        updateOptions(digest, options, projection);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void updateOptions(MessageDigest digest, ConvertDocumentOptions options, DoclingOutputProjection projection) {
+        if (options != null) {
+            digest.update(canonical(objectMapper.valueToTree(options)).getBytes(StandardCharsets.UTF_8));
+        }
+        if (projection != null && projection.sections() != null) {
+            digest.update((byte) 0);
+            digest.update(canonical(objectMapper.valueToTree(projection.sections())).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Returns the cached response for the key, re-labelled with {@code docId}, or runs the
+     * conversion — at most once per key at a time — and caches a successful result.
+     *
+     * @param key        from {@link #key}
+     * @param docId      the requesting document's ID
+     * @param conversion the Docling conversion to run on a miss
+     */
+    public Uni<DoclingResponse> getOrConvert(String key, String docId, Supplier<Uni<DoclingResponse>> conversion) {
+        return Uni.createFrom().deferred(() -> {
+            DoclingResponse cached = getFromMemory(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return Uni.createFrom().item(forDocument(cached, docId));
+            }
+            AtomicReference<Uni<DoclingResponse>> created = new AtomicReference<>();
+            Uni<DoclingResponse> flight = inFlight.computeIfAbsent(key, k -> {
+                Uni<DoclingResponse> shared = loadOrConvert(k, conversion)
+                        .onTermination().invoke(() -> inFlight.remove(k, created.get()))
+                        .memoize().indefinitely();
+                created.set(shared);
+                return shared;
+            });
+            if (flight != created.get()) {
+                coalesced.incrementAndGet();
+                LOG.debugf("Coalescing Docling conversion for document %s with an in-flight identical request", docId);
+            }
+            return flight.map(response -> forDocument(response, docId));
+        });
+    }
+
+    /**
+     * Blocking lookup in memory, then on disk. Counts a hit or a miss.
+     */
+    public DoclingResponse get(String key, String docId) {
+        DoclingResponse cached = getFromMemory(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return forDocument(cached, docId);
+        }
+        cached = readDisk(key);
+        if (cached != null) {
+            diskHits.incrementAndGet();
+            putInMemory(key, cached);
+            return forDocument(cached, docId);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Caches the response if Docling converted the document successfully.
+     */
+    public void put(String key, DoclingResponse response) {
+        if (response == null || response.getStatus().getStatus() != DoclingParseStatus.Status.STATUS_SUCCESS) {
+            return;
+        }
+        DoclingResponse stored = response.toBuilder().clearDocId().build();
+        putInMemory(key, stored);
+        if (diskDirectory.isPresent()) {
+            Infrastructure.getDefaultWorkerPool().execute(() -> writeDisk(key, stored));
+        }
+    }
+
+    public Stats getStats() {
+        synchronized (this) {
+            return new Stats(hits.get(), diskHits.get(), misses.get(), coalesced.get(), evictions.get(),
+                    entries.size(), weight);
+        }
+    }
+
+    private Uni<DoclingResponse> loadOrConvert(String key, Supplier<Uni<DoclingResponse>> conversion) {
+        Uni<DoclingResponse> fromDisk = diskDirectory.isEmpty()
+                ? Uni.createFrom().nullItem()
+                : Uni.createFrom().item(() -> readDisk(key)).runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+        return fromDisk.chain(stored -> {
+            if (stored != null) {
+                diskHits.incrementAndGet();
+                putInMemory(key, stored);
+                return Uni.createFrom().item(stored);
+            }
+            misses.incrementAndGet();
+            return conversion.get().invoke(response -> put(key, response));
+        });
+    }
+
+    private synchronized DoclingResponse getFromMemory(String key) {
+        return entries.get(key);
+    }
+
+    private void putInMemory(String key, DoclingResponse response) {
+        long size = response.getSerializedSize();
+        if (size > maxBytes / 4) {
+            return; // one huge document would flush everything else
+        }
+        synchronized (this) {
+            DoclingResponse previous = entries.put(key, response);
+            weight += size - (previous != null ? previous.getSerializedSize() : 0);
+            Iterator<Map.Entry<String, DoclingResponse>> eldest = entries.entrySet().iterator();
+            while (weight > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, DoclingResponse> entry = eldest.next();
+                weight -= entry.getValue().getSerializedSize();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static DoclingResponse forDocument(DoclingResponse response, String docId) {
+        if (docId == null || docId.isEmpty()) {
+            return response.getDocId().isEmpty() ? response : response.toBuilder().clearDocId().build();
+        }
+        return docId.equals(response.getDocId()) ? response : response.toBuilder().setDocId(docId).build();
+    }
+
+    // ---- disk tier ----
+
+    private Path diskPath(String key) {
+        return Path.of(diskDirectory.orElseThrow(), key.substring(0, 2), key + ".pb");
+    }
+
+    private DoclingResponse readDisk(String key) {
+        if (diskDirectory.isEmpty()) {
+            return null;
+        }
+        Path path = diskPath(key);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            return DoclingResponse.parseFrom(in);
+        } catch (IOException e) {
+            LOG.warnf("Dropping unreadable Docling cache file %s: %s", path, e.getMessage());
+            deleteQuietly(path);
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, DoclingResponse response) {
+        Path path = diskPath(key);
+        try {
+            long usage = diskUsage();
+            Files.createDirectories(path.getParent());
+            Path tmp = Files.createTempFile(path.getParent(), key, ".tmp");
+            try {
+                Files.write(tmp, response.toByteArray());
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            if (usage + response.getSerializedSize() > diskMaxBytes) {
+                trimDisk();
+            } else {
+                diskBytes.addAndGet(response.getSerializedSize());
+            }
+        } catch (IOException e) {
+            LOG.warnf("Could not write Docling cache file %s: %s", path, e.getMessage());
+        }
+    }
+
+    private long diskUsage() {
+        long usage = diskBytes.get();
+        if (usage < 0) {
+            usage = listDisk().stream().mapToLong(DiskEntry::size).sum();
+            diskBytes.compareAndSet(-1, usage);
+        }
+        return usage;
+    }
+
+    /**
+     * Deletes the least recently written files until the directory is at 90% of its limit.
+     */
+    private void trimDisk() {
+        synchronized (diskLock) {
+            trimDiskLocked();
+        }
+    }
+
+    private void trimDiskLocked() {
+        List<DiskEntry> files = listDisk();
+        files.sort(Comparator.comparingLong(DiskEntry::modified));
+        long usage = files.stream().mapToLong(DiskEntry::size).sum();
+        long target = diskMaxBytes / 10 * 9;
+        for (DiskEntry file : files) {
+            if (usage <= target) {
+                break;
+            }
+            if (deleteQuietly(file.path())) {
+                usage -= file.size();
+            }
+        }
+        diskBytes.set(usage);
+    }
+
+    private record DiskEntry(Path path, long size, long modified) {}
+
+    private List<DiskEntry> listDisk() {
+        List<DiskEntry> files = new ArrayList<>();
+        Path root = Path.of(diskDirectory.orElseThrow());
+        if (!Files.isDirectory(root)) {
+            return files;
+        }
+        try (Stream<Path> walk = Files.walk(root, 2)) {
+            walk.filter(path -> path.toString().endsWith(".pb")).forEach(path -> {
+                try {
+                    files.add(new DiskEntry(path, Files.size(path), Files.getLastModifiedTime(path).toMillis()));
+                } catch (IOException e) {
+                    // removed concurrently
+                }
+            });
+        } catch (IOException e) {
+            LOG.warnf("Could not list Docling cache directory %s: %s", root, e.getMessage());
+        }
+        return files;
+    }
+
+    private static boolean deleteQuietly(Path path) {
+        try {
+            return Files.deleteIfExists(path);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // ---- key helpers ----
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static String extension(String filename) {
+        if (filename == null) {
+            return "";
+        }
+        int dot = filename.lastIndexOf('.');
+        int slash = Math.max(filename.lastIndexOf('/'), filename.lastIndexOf('\\'));
+        return dot > slash ? filename.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    /**
+     * JSON with object keys sorted at every level, so equal options always hash the same.
+     */
+    static String canonical(JsonNode node) {
+        if (node instanceof ObjectNode object) {
+            TreeMap<String, JsonNode> sorted = new TreeMap<>();
+            object.fields().forEachRemaining(field -> sorted.put(field.getKey(), field.getValue()));
+            StringBuilder out = new StringBuilder("{");
+            for (Map.Entry<String, JsonNode> field : sorted.entrySet()) {
+                if (field.getValue().isNull()) {
+                    continue;
+                }
+                if (out.length() > 1) out.append(',');
+                out.append('"').append(field.getKey()).append("\":").append(canonical(field.getValue()));
+            }
+            return out.append('}').toString();
+        }
+        if (node.isArray()) {
+            StringBuilder out = new StringBuilder("[");
+            for (int i = 0; i < node.size(); i++) {
+                if (i > 0) out.append(',');
+                out.append(canonical(node.get(i)));
+            }
+            return out.append(']').toString();
+        }
+        return node.toString();
+    }
+}
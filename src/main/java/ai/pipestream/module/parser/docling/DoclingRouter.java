@@ -0,0 +1,283 @@
+package ai.pipestream.module.parser.docling;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Decides whether a document needs Docling once Tika has parsed it.
+ * <p>
+ * With {@code parser.docling.routing=always} (the default) every document with Docling enabled
+ * is sent to Docling in parallel with Tika. With {@code adaptive}, Tika runs first and cheap
+ * signals taken from its result decide:
+ * <ul>
+ *   <li>an empty body, too few characters per page or too many garbage characters (broken
+ *       glyph mappings) send the whole document to Docling;</li>
+ *   <li>PDF pages that only draw images (scans) are sent as page ranges, unless they make up
+ *       more than {@code max-image-only-page-ratio} of the document;</li>
+ *   <li>anything else keeps Tika's text and skips Docling.</li>
+ * </ul>
+ * Image-only pages are found from the page resources (images but no fonts), without parsing
+ * content streams. The text Docling reads from them is spliced into Tika's body by
+ * {@link DoclingPageSplicer}.
+ */
+@ApplicationScoped
+public class DoclingRouter {
+
+    private static final Logger LOG = Logger.getLogger(DoclingRouter.class);
+
+    /** Docling runs for every document, in parallel with Tika. */
+    public static final String ROUTING_ALWAYS = "always";
+    /** Docling runs after Tika, only for documents or pages Tika could not read. */
+    public static final String ROUTING_ADAPTIVE = "adaptive";
+
+    private static final ByteString PDF_MAGIC = ByteString.copyFromUtf8("%PDF-");
+
+    @ConfigProperty(name = "parser.docling.routing", defaultValue = ROUTING_ALWAYS)
+    String routing;
+
+    @ConfigProperty(name = "parser.docling.routing.min-chars-per-page", defaultValue = "200")
+    int minCharsPerPage;
+
+    @ConfigProperty(name = "parser.docling.routing.max-garbage-ratio", defaultValue = "0.05")
+    double maxGarbageRatio;
+
+    @ConfigProperty(name = "parser.docling.routing.max-image-only-page-ratio", defaultValue = "0.5")
+    double maxImageOnlyPageRatio;
+
+    /** What to send to Docling. */
+    public enum Route {
+        /** The whole document. */
+        FULL,
+        /** Only {@link Decision#pageRanges()}. */
+        PAGES,
+        /** Nothing; Tika's result is kept. */
+        SKIP
+    }
+
+    /**
+     * Quality signals of Tika's result.
+     *
+     * @param pages          page count (PDFs), 1 otherwise
+     * @param characters     non-whitespace characters in the body
+     * @param garbageRatio   share of those that are replacement, private-use, unassigned or control characters
+     * @param imageOnlyPages 1-based numbers of PDF pages drawing images but no text
+     */
+    public record Signals(int pages, int characters, double garbageRatio, List<Integer> imageOnlyPages) {
+
+        public double charsPerPage() {
+            return pages > 0 ? (double) characters / pages : characters;
+        }
+    }
+
+    /**
+     * Routing decision with the signals it was based on.
+     *
+     * @param pageRanges inclusive 1-based {@code [first, last]} ranges for {@link Route#PAGES}
+     */
+    public record Decision(Route route, List<int[]> pageRanges, Signals signals, String reason) {
+
+        static Decision always() {
+            return new Decision(Route.FULL, List.of(), null, "routing=always");
+        }
+
+        /**
+         * Whether Docling converts the whole document, so its text and outline can stand in for
+         * Tika's; a {@link Route#PAGES} result covers only some pages.
+         */
+        public boolean coversWholeDocument() {
+            return route == Route.FULL;
+        }
+
+        /**
+         * The decision as structured data: {@code route}, {@code reason}, {@code page_ranges}
+         * ("2-3", "5") and, when known, the signals.
+         */
+        public Struct toStruct() {
+            Struct.Builder out = Struct.newBuilder()
+                    .putFields("route", string(route.name().toLowerCase(Locale.ROOT)))
+                    .putFields("reason", string(reason));
+            ListValue.Builder ranges = ListValue.newBuilder();
+            for (int[] range : pageRanges) {
+                ranges.addValues(string(range[1] != range[0] ? range[0] + "-" + range[1] : String.valueOf(range[0])));
+            }
+            out.putFields("page_ranges", Value.newBuilder().setListValue(ranges).build());
+            if (signals != null) {
+                ListValue.Builder imageOnly = ListValue.newBuilder();
+                signals.imageOnlyPages().forEach(page -> imageOnly.addValues(number(page)));
+                out.putFields("pages", number(signals.pages()))
+                        .putFields("characters", number(signals.characters()))
+                        .putFields("chars_per_page", number(signals.charsPerPage()))
+                        .putFields("garbage_ratio", number(signals.garbageRatio()))
+                        .putFields("image_only_pages", Value.newBuilder().setListValue(imageOnly).build());
+            }
+            return out.build();
+        }
+
+        private static Value string(String value) {
+            return Value.newBuilder().setStringValue(value).build();
+        }
+
+        private static Value number(double value) {
+            return Value.newBuilder().setNumberValue(value).build();
+        }
+
+        /**
+         * One-line summary for the response log.
+         */
+        public String describe() {
+            StringBuilder out = new StringBuilder("Docling routing: ").append(route.name().toLowerCase(Locale.ROOT));
+            if (route == Route.PAGES) {
+                out.append(' ');
+                for (int i = 0; i < pageRanges.size(); i++) {
+                    int[] range = pageRanges.get(i);
+                    if (i > 0) out.append(',');
+                    out.append(range[0]);
+                    if (range[1] != range[0]) out.append('-').append(range[1]);
+                }
+            }
+            out.append(" (").append(reason);
+            if (signals != null) {
+                out.append(String.format(Locale.ROOT, "; %d pages, %.0f chars/page, %.1f%% garbage, %d image-only pages",
+                        signals.pages(), signals.charsPerPage(), signals.garbageRatio() * 100,
+                        signals.imageOnlyPages().size()));
+            }
+            return out.append(')').toString();
+        }
+    }
+
+    public boolean isAdaptive() {
+        return ROUTING_ADAPTIVE.equalsIgnoreCase(routing);
+    }
+
+    /**
+     * Decides what to convert with Docling, given the document and the body Tika extracted.
+     *
+     * @param content  the original document
+     * @param mimeType MIME type Tika detected, may be null
+     * @param body     Tika's body text
+     */
+    public Decision decide(ByteString content, String mimeType, String body) {
+        if (!isAdaptive()) {
+            return Decision.always();
+        }
+        boolean pdf = content.size() > PDF_MAGIC.size() && content.startsWith(PDF_MAGIC);
+        List<Integer> imageOnlyPages = new ArrayList<>();
+        int pages = pdf ? scanPdfPages(content, imageOnlyPages) : 1;
+        Signals signals = signals(body, Math.max(1, pages), imageOnlyPages);
+
+        if (signals.characters() == 0) {
+            return new Decision(Route.FULL, List.of(), signals, "empty body");
+        }
+        if (signals.garbageRatio() > maxGarbageRatio) {
+            return new Decision(Route.FULL, List.of(), signals, "garbled text");
+        }
+        if (pdf && signals.charsPerPage() < minCharsPerPage) {
+            return new Decision(Route.FULL, List.of(), signals, "sparse text");
+        }
+        if (!imageOnlyPages.isEmpty()) {
+            if (imageOnlyPages.size() > signals.pages() * maxImageOnlyPageRatio) {
+                return new Decision(Route.FULL, List.of(), signals, "mostly image-only pages");
+            }
+            return new Decision(Route.PAGES, ranges(imageOnlyPages), signals, "image-only pages");
+        }
+        if (mimeType != null && mimeType.startsWith("image/")) {
+            return new Decision(Route.FULL, List.of(), signals, "image");
+        }
+        return new Decision(Route.SKIP, List.of(), signals, "Tika text adequate");
+    }
+
+    static Signals signals(String body, int pages, List<Integer> imageOnlyPages) {
+        int characters = 0;
+        int garbage = 0;
+        if (body != null) {
+            for (int i = 0; i < body.length(); ) {
+                int cp = body.codePointAt(i);
+                i += Character.charCount(cp);
+                if (Character.isWhitespace(cp) || Character.isSpaceChar(cp)) {
+                    continue;
+                }
+                characters++;
+                if (isGarbage(cp)) {
+                    garbage++;
+                }
+            }
+        }
+        return new Signals(pages, characters, characters > 0 ? (double) garbage / characters : 0, imageOnlyPages);
+    }
+
+    private static boolean isGarbage(int cp) {
+        if (cp == 0xFFFD) {
+            return true;
+        }
+        int type = Character.getType(cp);
+        return type == Character.PRIVATE_USE || type == Character.UNASSIGNED
+                || type == Character.CONTROL || type == Character.SURROGATE;
+    }
+
+    /**
+     * Page count; collects pages whose resources hold images but no fonts and no form XObjects
+     * (which could carry text of their own).
+     */
+    private static int scanPdfPages(ByteString content, List<Integer> imageOnlyPages) {
+        try (PDDocument pdf = Loader.loadPDF(new RandomAccessReadBuffer(content.asReadOnlyByteBuffer()))) {
+            int number = 0;
+            for (PDPage page : pdf.getPages()) {
+                number++;
+                if (isImageOnly(page.getResources())) {
+                    imageOnlyPages.add(number);
+                }
+            }
+            return number;
+        } catch (Exception e) {
+            LOG.debugf("Could not scan PDF pages for Docling routing: %s", e.getMessage());
+            imageOnlyPages.clear();
+            return 0;
+        }
+    }
+
+    private static boolean isImageOnly(PDResources resources) throws IOException {
+        if (resources == null || resources.getFontNames().iterator().hasNext()) {
+            return false;
+        }
+        boolean images = false;
+        for (COSName name : resources.getXObjectNames()) {
+            if (!resources.isImageXObject(name)) {
+                return false;
+            }
+            images = true;
+        }
+        return images;
+    }
+
+    /**
+     * Collapses sorted page numbers into inclusive ranges.
+     */
+    static List<int[]> ranges(List<Integer> pages) {
+        List<int[]> ranges = new ArrayList<>();
+        for (int page : pages) {
+            int[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && page == last[1] + 1) {
+                last[1] = page;
+            } else {
+                ranges.add(new int[]{page, page});
+            }
+        }
+        return ranges;
+    }
+}
@@ -0,0 +1,45 @@
+package ai.pipestream.module.parser.docling;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size ring of recent latency samples with on-demand percentiles.
+ * <p>
+ * Conversions take seconds, so copying and sorting a few hundred longs per query is noise
+ * next to the calls being measured.
+ */
+final class LatencyWindow {
+
+    private final long[] samples;
+    private int count;
+    private int next;
+
+    LatencyWindow(int size) {
+        this.samples = new long[Math.max(1, size)];
+    }
+
+    synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    /**
+     * Returns the given percentile (0..1) in milliseconds, or -1 with fewer than
+     * {@code minimumSamples} samples recorded.
+     */
+    long percentile(double percentile, int minimumSamples) {
+        long[] copy;
+        synchronized (this) {
+            if (count == 0 || count < minimumSamples) {
+                return -1;
+            }
+            copy = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(copy);
+        int index = (int) Math.ceil(percentile * copy.length) - 1;
+        return copy[Math.max(0, Math.min(copy.length - 1, index))];
+    }
+}
@@ -0,0 +1,60 @@
+package ai.pipestream.module.parser.docling;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * {@link DoclingImageStore} on the local filesystem: each image is written once to
+ * {@code <directory>/<first two hash chars>/<sha256>.<ext>}.
+ * <p>
+ * URIs are {@code file:} URIs unless {@code parser.docling.images.base-uri} is set, in which
+ * case the path below the directory is appended to it (for a directory served over HTTP or
+ * mounted elsewhere under another path).
+ */
+@ApplicationScoped
+public class LocalDoclingImageStore implements DoclingImageStore {
+
+    @ConfigProperty(name = "parser.docling.images.directory", defaultValue = "docling-images")
+    String directory;
+
+    @ConfigProperty(name = "parser.docling.images.base-uri")
+    Optional<String> baseUri;
+
+    @Override
+    public String put(String sha256, byte[] data, String mimeType) throws IOException {
+        String relative = sha256.substring(0, 2) + "/" + sha256 + "." + extension(mimeType);
+        Path path = Path.of(directory).resolve(relative);
+        if (!Files.isRegularFile(path)) {
+            Files.createDirectories(path.getParent());
+            Path tmp = Files.createTempFile(path.getParent(), sha256, ".tmp");
+            try {
+                Files.write(tmp, data);
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        return baseUri.isPresent()
+                ? baseUri.get().replaceAll("/+$", "") + "/" + relative
+                : path.toAbsolutePath().toUri().toString();
+    }
+
+    private static String extension(String mimeType) {
+        if (mimeType == null) {
+            return "bin";
+        }
+        String subtype = mimeType.substring(mimeType.indexOf('/') + 1).toLowerCase(Locale.ROOT);
+        return switch (subtype) {
+            case "jpeg", "pjpeg" -> "jpg";
+            case "svg+xml" -> "svg";
+            default -> subtype.matches("[a-z0-9]{1,10}") ? subtype : "bin";
+        };
+    }
+}
@@ -0,0 +1,159 @@
+package ai.pipestream.module.parser.docling;
+
+import com.google.protobuf.ByteString;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Content hashes of the pages of a PDF, so a revised file can be compared page by page with
+ * an earlier one.
+ * <p>
+ * A page's hash covers its dictionary and everything it references — content streams, fonts,
+ * images, annotations — with streams hashed as stored. Back-references to the page tree and
+ * structure tree ({@code /Parent}, {@code /P}, {@code /StructParents}) are skipped, so a page
+ * keeps its hash when pages are inserted or removed elsewhere in the document. Attributes a
+ * page may inherit from the page tree ({@code /Resources}, {@code /MediaBox}, {@code /CropBox},
+ * {@code /Rotate}) are hashed as resolved, whether set on the page or on an ancestor. Streams
+ * shared between pages (fonts, images) are read once per document.
+ */
+public final class PdfPageHasher {
+
+    private static final Set<COSName> SKIPPED = Set.of(
+            COSName.PARENT, COSName.P, COSName.STRUCT_PARENTS, COSName.STRUCT_PARENT);
+
+    /** Inheritable page attributes, hashed from their resolved values instead of the page dictionary. */
+    private static final Set<COSName> INHERITABLE = Set.of(
+            COSName.RESOURCES, COSName.MEDIA_BOX, COSName.CROP_BOX, COSName.ROTATE);
+
+    private static final int MAX_DEPTH = 64;
+
+    private PdfPageHasher() {
+    }
+
+    /**
+     * Hex SHA-256 per page, in page order.
+     *
+     * @throws IOException if the PDF cannot be read
+     */
+    public static List<String> pageHashes(ByteString content) throws IOException {
+        try (PDDocument pdf = Loader.loadPDF(new RandomAccessReadBuffer(content.asReadOnlyByteBuffer()))) {
+            Map<COSStream, byte[]> streamDigests = new IdentityHashMap<>();
+            List<String> hashes = new ArrayList<>(pdf.getNumberOfPages());
+            for (PDPage page : pdf.getPages()) {
+                hashes.add(HexFormat.of().formatHex(hashPage(page, streamDigests)));
+            }
+            return hashes;
+        }
+    }
+
+    private static byte[] hashPage(PDPage page, Map<COSStream, byte[]> streamDigests) throws IOException {
+        MessageDigest digest = sha256();
+        Set<COSBase> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        COSDictionary dictionary = page.getCOSObject();
+        visited.add(dictionary);
+        hashEntries(dictionary, INHERITABLE, digest, visited, streamDigests, 0);
+        // Resolved through the page tree, so a change to an ancestor's attributes changes the page
+        PDResources resources = page.getResources();
+        hash(resources != null ? resources.getCOSObject() : null, digest, visited, streamDigests, 1);
+        hash(page.getMediaBox().getCOSArray(), digest, visited, streamDigests, 1);
+        hash(page.getCropBox().getCOSArray(), digest, visited, streamDigests, 1);
+        digest.update(Integer.toString(page.getRotation()).getBytes(StandardCharsets.UTF_8));
+        return digest.digest();
+    }
+
+    private static void hash(COSBase base, MessageDigest digest, Set<COSBase> visited,
+                             Map<COSStream, byte[]> streamDigests, int depth) throws IOException {
+        if (base instanceof COSObject indirect) {
+            base = indirect.getObject();
+        }
+        if (base == null) {
+            digest.update((byte) 'n');
+            return;
+        }
+        if (depth > MAX_DEPTH) {
+            return;
+        }
+        if ((base instanceof COSDictionary || base instanceof COSArray) && !visited.add(base)) {
+            digest.update((byte) 'r'); // cycle or repeat within this page
+            return;
+        }
+        if (base instanceof COSStream stream) {
+            digest.update((byte) 's');
+            byte[] streamDigest = streamDigests.get(stream);
+            if (streamDigest == null) {
+                MessageDigest inner = sha256();
+                // Fresh visited set: the digest is reused by other pages and must not depend on this one
+                hashDictionary(stream, inner, Collections.newSetFromMap(new IdentityHashMap<>()), streamDigests, depth);
+                try (InputStream raw = stream.createRawInputStream()) {
+                    byte[] buffer = new byte[8192];
+                    for (int n; (n = raw.read(buffer)) > 0; ) {
+                        inner.update(buffer, 0, n);
+                    }
+                }
+                streamDigest = inner.digest();
+                streamDigests.put(stream, streamDigest);
+            }
+            digest.update(streamDigest);
+        } else if (base instanceof COSDictionary dictionary) {
+            hashDictionary(dictionary, digest, visited, streamDigests, depth);
+        } else if (base instanceof COSArray array) {
+            digest.update((byte) '[');
+            for (int i = 0; i < array.size(); i++) {
+                hash(array.get(i), digest, visited, streamDigests, depth + 1);
+            }
+            digest.update((byte) ']');
+        } else {
+            digest.update(base.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void hashDictionary(COSDictionary dictionary, MessageDigest digest, Set<COSBase> visited,
+                                       Map<COSStream, byte[]> streamDigests, int depth) throws IOException {
+        hashEntries(dictionary, Set.of(), digest, visited, streamDigests, depth);
+    }
+
+    private static void hashEntries(COSDictionary dictionary, Set<COSName> excluded, MessageDigest digest,
+                                    Set<COSBase> visited, Map<COSStream, byte[]> streamDigests, int depth)
+            throws IOException {
+        digest.update((byte) '<');
+        for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet()) {
+            if (SKIPPED.contains(entry.getKey()) || excluded.contains(entry.getKey())) {
+                continue;
+            }
+            digest.update(entry.getKey().getName().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '=');
+            hash(entry.getValue(), digest, visited, streamDigests, depth + 1);
+        }
+        digest.update((byte) '>');
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ai.pipestream.module.parser.docling;
+
+import com.google.protobuf.ByteString;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.multipdf.Splitter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cuts page windows out of a PDF as standalone PDFs, so a fan-out or page-range conversion
+ * uploads only the pages Docling is asked to convert instead of the whole file per window.
+ * <p>
+ * The source is parsed once for all windows. Resources shared between pages (fonts, images)
+ * are copied into every window that uses them, so the windows together can be somewhat larger
+ * than the source file.
+ */
+final class PdfPageSplitter {
+
+    private PdfPageSplitter() {
+    }
+
+    /**
+     * One window of the source PDF.
+     *
+     * @param firstPage 1-based number of the window's first page in the source
+     * @param lastPage  1-based number of the window's last page in the source, inclusive
+     * @param content   the window as its own PDF, numbered from page 1
+     */
+    record Window(int firstPage, int lastPage, ByteString content) {}
+
+    static PDDocument load(ByteString content) throws IOException {
+        return Loader.loadPDF(new RandomAccessReadBuffer(content.asReadOnlyByteBuffer()));
+    }
+
+    /**
+     * Consecutive {@code [first, last]} windows of {@code windowPages} pages covering {@code pages} pages.
+     */
+    static List<int[]> windows(int pages, int windowPages) {
+        int size = Math.max(1, windowPages);
+        List<int[]> windows = new ArrayList<>();
+        for (int first = 1; first <= pages; first += size) {
+            windows.add(new int[]{first, Math.min(pages, first + size - 1)});
+        }
+        return windows;
+    }
+
+    /**
+     * Saves each inclusive 1-based {@code [first, last]} range of {@code pdf} as its own PDF.
+     *
+     * @throws IOException if a range lies outside the document or a window cannot be written
+     */
+    static List<Window> split(PDDocument pdf, List<int[]> ranges) throws IOException {
+        int pages = pdf.getNumberOfPages();
+        List<Window> windows = new ArrayList<>(ranges.size());
+        for (int[] range : ranges) {
+            if (range[0] < 1 || range[1] > pages || range[0] > range[1]) {
+                throw new IOException("Page range " + range[0] + "-" + range[1] + " outside a " + pages + "-page document");
+            }
+            Splitter splitter = new Splitter();
+            splitter.setStartPage(range[0]);
+            splitter.setEndPage(range[1]);
+            splitter.setSplitAtPage(range[1] - range[0] + 1);
+            List<PDDocument> parts = splitter.split(pdf);
+            try {
+                ByteString.Output out = ByteString.newOutput();
+                parts.get(0).save(out);
+                windows.add(new Window(range[0], range[1], out.toByteString()));
+            } finally {
+                for (PDDocument part : parts) {
+                    part.close();
+                }
+            }
+        }
+        return windows;
+    }
+}
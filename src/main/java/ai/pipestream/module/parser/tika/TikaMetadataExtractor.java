@@ -1,6 +1,8 @@
 package ai.pipestream.module.parser.tika;
 
 import ai.pipestream.module.parser.tika.builders.DocumentTypeDetector;
+import ai.pipestream.module.parser.tika.builders.IndexedMetadata;
+import ai.pipestream.module.parser.tika.builders.MetadataProjection;
 import ai.pipestream.module.parser.tika.builders.MetadataUtils;
 import ai.pipestream.module.parser.tika.builders.PdfMetadataBuilder;
 import ai.pipestream.module.parser.tika.builders.OfficeMetadataBuilder;
@@ -20,7 +22,6 @@ import ai.pipestream.shaded.tika.metadata.Metadata;
 import ai.pipestream.shaded.tika.metadata.DublinCore;
 import org.jboss.logging.Logger;
 
-import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -52,11 +53,34 @@ public class TikaMetadataExtractor {
             String parserClass, 
             String extractedText,
             String docId) {
+        return extractComprehensiveMetadata(tikaMetadata, parserClass, extractedText, docId, MetadataProjection.ALL);
+    }
+
+    /**
+     * Extracts comprehensive metadata, copying into the metadata structs only what
+     * {@code projection} keeps. Strongly-typed fields are unaffected.
+     * 
+     * @param tikaMetadata The Tika metadata extracted from document
+     * @param parserClass The Tika parser class name used
+     * @param extractedText The text content extracted by Tika
+     * @param docId The document ID
+     * @param projection Raw metadata inclusion, value length cap and binary filtering
+     * @return Complete TikaResponse with strongly-typed metadata and flexible struct data
+     */
+    public static TikaResponse extractComprehensiveMetadata(
+            Metadata tikaMetadata, 
+            String parserClass, 
+            String extractedText,
+            String docId,
+            MetadataProjection projection) {
         
         LOG.debugf("Extracting comprehensive metadata for document %s using parser %s", docId, parserClass);
+
+        // Index the metadata once; every builder below reads this view
+        IndexedMetadata metadata = IndexedMetadata.of(tikaMetadata);
         
         // Detect document type
-        DocumentTypeDetector.DocumentType docType = DocumentTypeDetector.detect(tikaMetadata);
+        DocumentTypeDetector.DocumentType docType = DocumentTypeDetector.detect(metadata);
         LOG.debugf("Detected document type: %s", docType);
         
         // Build TikaResponse
@@ -76,7 +100,7 @@ public class TikaMetadataExtractor {
         // Add content type and other content metadata
         // Content-Type is captured in typed metadata or additional metadata; TikaContent has no content_type field
         
-        String contentLength = tikaMetadata.get("Content-Length");
+        String contentLength = metadata.get("Content-Length");
         if (contentLength != null && !contentLength.isEmpty()) {
             try {
                 long length = Long.parseLong(contentLength);
@@ -90,15 +114,12 @@ public class TikaMetadataExtractor {
         
         // Build Dublin Core metadata (common to all document types)
         // Collect consumed keys so document-type builders can exclude them from additional_metadata
-        Set<String> dublinCoreKeys = new HashSet<>();
-        DublinCoreMetadata dublinCore = buildDublinCoreMetadata(tikaMetadata, dublinCoreKeys);
+        IndexedMetadata.FieldSet dublinCoreKeys = metadata.newFieldSet();
+        DublinCoreMetadata dublinCore = buildDublinCoreMetadata(metadata, dublinCoreKeys);
         responseBuilder.setDublinCore(dublinCore);
 
-        // Also exclude XMP-sourced Dublin Core duplicates and x-default variants
-        collectDublinCoreRelatedKeys(tikaMetadata, dublinCoreKeys);
-
-        // Exclude Tika internal fields common to all document types
-        collectTikaInternalKeys(tikaMetadata, dublinCoreKeys);
+        // Also exclude XMP-sourced Dublin Core duplicates and Tika internal fields
+        boolean xmpRights = collectSharedKeys(metadata, dublinCoreKeys);
 
         // Get Tika version
         String tikaVersion = MetadataUtils.getTikaVersion();
@@ -106,90 +127,84 @@ public class TikaMetadataExtractor {
         // Route to appropriate metadata builder based on document type
         switch (docType) {
             case PDF:
-                responseBuilder.setPdf(PdfMetadataBuilder.build(tikaMetadata, parserClass, tikaVersion, dublinCoreKeys));
+                responseBuilder.setPdf(PdfMetadataBuilder.build(metadata, parserClass, tikaVersion, dublinCoreKeys, projection));
                 break;
                 
             case OFFICE:
-                responseBuilder.setOffice(OfficeMetadataBuilder.build(tikaMetadata, parserClass, tikaVersion, dublinCoreKeys));
+                responseBuilder.setOffice(OfficeMetadataBuilder.build(metadata, parserClass, tikaVersion, dublinCoreKeys, projection));
                 break;
 
             case IMAGE:
-                responseBuilder.setImage(ImageMetadataBuilder.build(tikaMetadata, parserClass, tikaVersion, dublinCoreKeys));
+                responseBuilder.setImage(ImageMetadataBuilder.build(metadata, parserClass, tikaVersion, dublinCoreKeys, projection));
                 break;
 
             case EMAIL:
-                responseBuilder.setEmail(EmailMetadataBuilder.build(tikaMetadata, parserClass, tikaVersion, dublinCoreKeys));
+                responseBuilder.setEmail(EmailMetadataBuilder.build(metadata, parserClass, tikaVersion, dublinCoreKeys, projection));
                 break;
 
             case MEDIA:
-                responseBuilder.setMedia(MediaMetadataBuilder.build(tikaMetadata, parserClass, tikaVersion, dublinCoreKeys));
+                responseBuilder.setMedia(MediaMetadataBuilder.build(metadata, parserClass, tikaVersion, dublinCoreKeys, projection));
                 break;
 
             case HTML:
-                responseBuilder.setHtml(HtmlMetadataBuilder.build(tikaMetadata, parserClass, tikaVersion, dublinCoreKeys));
+                responseBuilder.setHtml(HtmlMetadataBuilder.build(metadata, parserClass, tikaVersion, dublinCoreKeys, projection));
                 break;
 
             case RTF:
-                responseBuilder.setRtf(RtfMetadataBuilder.build(tikaMetadata, parserClass, tikaVersion, dublinCoreKeys));
+                responseBuilder.setRtf(RtfMetadataBuilder.build(metadata, parserClass, tikaVersion, dublinCoreKeys, projection));
                 break;
 
             case DATABASE:
                 responseBuilder.setDatabase(ai.pipestream.module.parser.tika.builders.DatabaseMetadataBuilder
-                        .build(tikaMetadata, parserClass, tikaVersion, dublinCoreKeys));
+                        .build(metadata, parserClass, tikaVersion, dublinCoreKeys, projection));
                 break;
 
             case FONT:
-                responseBuilder.setFont(FontMetadataBuilder.build(tikaMetadata, parserClass, tikaVersion, dublinCoreKeys));
+                responseBuilder.setFont(FontMetadataBuilder.build(metadata, parserClass, tikaVersion, dublinCoreKeys, projection));
                 break;
 
             case EPUB:
-                responseBuilder.setEpub(EpubMetadataBuilder.build(tikaMetadata, parserClass, tikaVersion, dublinCoreKeys));
+                responseBuilder.setEpub(EpubMetadataBuilder.build(metadata, parserClass, tikaVersion, dublinCoreKeys, projection));
                 break;
 
             case WARC:
-                responseBuilder.setWarc(WarcMetadataBuilder.build(tikaMetadata, parserClass, tikaVersion, dublinCoreKeys));
+                responseBuilder.setWarc(WarcMetadataBuilder.build(metadata, parserClass, tikaVersion, dublinCoreKeys, projection));
                 break;
 
             case CLIMATE_FORECAST:
                 responseBuilder.setClimateForecast(ai.pipestream.module.parser.tika.builders.ClimateForecastMetadataBuilder
-                        .build(tikaMetadata, parserClass, tikaVersion, dublinCoreKeys));
+                        .build(metadata, parserClass, tikaVersion, dublinCoreKeys, projection));
                 break;
 
             case CREATIVE_COMMONS:
-                responseBuilder.setCreativeCommons(CreativeCommonsMetadataBuilder.build(tikaMetadata, parserClass, tikaVersion, dublinCoreKeys));
+                responseBuilder.setCreativeCommons(CreativeCommonsMetadataBuilder.build(metadata, parserClass, tikaVersion, dublinCoreKeys, projection));
                 break;
 
             case GENERIC:
             default:
-                responseBuilder.setGeneric(buildGenericMetadata(tikaMetadata, parserClass, tikaVersion));
+                responseBuilder.setGeneric(buildGenericMetadata(metadata, parserClass, tikaVersion, projection));
                 break;
         }
         
         // Overlay: attach Creative Commons metadata when present, regardless of primary type
         try {
-            if (DocumentTypeDetector.detect(tikaMetadata) != DocumentTypeDetector.DocumentType.CREATIVE_COMMONS) {
-                if (hasXmpRights(tikaMetadata)) {
-                    responseBuilder.setCreativeCommons(CreativeCommonsMetadataBuilder.build(tikaMetadata, parserClass, tikaVersion, dublinCoreKeys));
+            if (docType != DocumentTypeDetector.DocumentType.CREATIVE_COMMONS) {
+                if (xmpRights) {
+                    responseBuilder.setCreativeCommons(CreativeCommonsMetadataBuilder.build(metadata, parserClass, tikaVersion, dublinCoreKeys, projection));
                 }
             }
         } catch (Exception ignored) {}
 
         TikaResponse response = responseBuilder.build();
         LOG.debugf("Built comprehensive metadata response for document %s with %d total metadata fields", 
-                  docId, tikaMetadata.names().length);
+                  docId, metadata.size());
         
         return response;
     }
 
-    private static boolean hasXmpRights(ai.pipestream.shaded.tika.metadata.Metadata md) {
-        String[] names = md.names();
-        for (String n : names) {
-            String ln = n.toLowerCase();
-            if (ln.contains("xmprights") || ln.contains("xmp-rights") || ln.contains(":rights") || ln.contains("xmp.rights")) {
-                return true;
-            }
-        }
-        return false;
+    private static boolean isXmpRights(String lowerName) {
+        return lowerName.contains("xmprights") || lowerName.contains("xmp-rights")
+                || lowerName.contains(":rights") || lowerName.contains("xmp.rights");
     }
     
     /**
@@ -197,7 +212,7 @@ public class TikaMetadataExtractor {
      * Populates consumedKeys with the Tika metadata key names that were consumed,
      * so document-type builders can exclude them from additional_metadata.
      */
-    private static DublinCoreMetadata buildDublinCoreMetadata(Metadata tikaMetadata, Set<String> consumedKeys) {
+    private static DublinCoreMetadata buildDublinCoreMetadata(IndexedMetadata tikaMetadata, Set<String> consumedKeys) {
         DublinCoreMetadata.Builder builder = DublinCoreMetadata.newBuilder();
 
         mapDcField(tikaMetadata, DublinCore.TITLE, builder::setTitle, consumedKeys);
@@ -250,56 +265,56 @@ public class TikaMetadataExtractor {
     }
 
     /**
-     * Collects all Dublin Core related keys from Tika metadata, including
-     * XMP-sourced duplicates (xmp:dc:*) and x-default locale variants (*:x-default).
-     * These are all representations of the same Dublin Core data and should be
-     * excluded from document-type builder additional_metadata.
+     * Adds the keys every document-type builder excludes from additional_metadata, in a single
+     * pass over the field names:
+     * <ul>
+     *   <li>Dublin Core related keys, including XMP-sourced duplicates (xmp:dc:*) — all
+     *       representations of the same Dublin Core data;</li>
+     *   <li>Tika internal processing keys common to ALL document types. These are not document
+     *       metadata — they describe Tika's parsing behavior and are already captured in
+     *       TikaBaseFields.raw_metadata.</li>
+     * </ul>
+     *
+     * @return whether any field carries XMP rights, for the Creative Commons overlay
      */
-    private static void collectDublinCoreRelatedKeys(Metadata tikaMetadata, Set<String> keys) {
-        for (String name : tikaMetadata.names()) {
+    private static boolean collectSharedKeys(IndexedMetadata metadata, IndexedMetadata.FieldSet keys) {
+        boolean xmpRights = false;
+        for (int i = 0; i < metadata.size(); i++) {
+            String name = metadata.name(i);
+            xmpRights |= isXmpRights(metadata.lowerName(i));
             // dc:* and dcterms:* (normalized Dublin Core)
             if (name.startsWith("dc:") || name.startsWith("dcterms:")) {
-                keys.add(name);
+                keys.add(i);
             }
             // xmp:dc:* (XMP-sourced Dublin Core duplicates)
             else if (name.startsWith("xmp:dc:")) {
-                keys.add(name);
+                keys.add(i);
             }
             // meta:keyword is a Tika alias for dc:subject
             else if (name.equals("meta:keyword")) {
-                keys.add(name);
+                keys.add(i);
             }
-        }
-    }
-
-    /**
-     * Collects Tika internal processing metadata keys that are common to ALL document types.
-     * These are not document metadata — they describe Tika's parsing behavior.
-     * They're already captured in TikaBaseFields.raw_metadata, so excluding them from
-     * document-type additional_metadata prevents duplication.
-     */
-    private static void collectTikaInternalKeys(Metadata tikaMetadata, Set<String> keys) {
-        for (String name : tikaMetadata.names()) {
             // X-TIKA:* fields (Parsed-By, Parsed-By-Full-Set, versionCount, etc.)
-            if (name.startsWith("X-TIKA:")) {
-                keys.add(name);
+            else if (name.startsWith("X-TIKA:")) {
+                keys.add(i);
             }
             // Content-Type-Magic-Detected — Tika's magic detection
             else if (name.equals("Content-Type-Magic-Detected")) {
-                keys.add(name);
+                keys.add(i);
             }
             // resourceName — the original filename passed to Tika
             else if (name.equals("resourceName")) {
-                keys.add(name);
+                keys.add(i);
             }
             // zip:detectorZipFileOpened — Tika ZIP detector internal
             else if (name.startsWith("zip:")) {
-                keys.add(name);
+                keys.add(i);
             }
         }
+        return xmpRights;
     }
 
-    private static void mapDcField(Metadata metadata, ai.pipestream.shaded.tika.metadata.Property prop,
+    private static void mapDcField(IndexedMetadata metadata, ai.pipestream.shaded.tika.metadata.Property prop,
                                     java.util.function.Consumer<String> setter, Set<String> consumedKeys) {
         String key = prop.getName();
         String value = metadata.get(key);
@@ -309,7 +324,7 @@ public class TikaMetadataExtractor {
         }
     }
 
-    private static void mapDcRepeatedField(Metadata metadata, ai.pipestream.shaded.tika.metadata.Property prop,
+    private static void mapDcRepeatedField(IndexedMetadata metadata, ai.pipestream.shaded.tika.metadata.Property prop,
                                             java.util.function.Consumer<String> adder, Set<String> consumedKeys) {
         String key = prop.getName();
         String[] values = metadata.getValues(key);
@@ -338,7 +353,7 @@ public class TikaMetadataExtractor {
      * TODO: Replace with proper GenericMetadataBuilder when implemented.
      */
     private static ai.pipestream.parsed.data.generic.v1.GenericMetadata buildGenericMetadata(
-            Metadata tikaMetadata, String parserClass, String tikaVersion) {
+            IndexedMetadata tikaMetadata, String parserClass, String tikaVersion, MetadataProjection projection) {
         
         ai.pipestream.parsed.data.generic.v1.GenericMetadata.Builder builder = 
                 ai.pipestream.parsed.data.generic.v1.GenericMetadata.newBuilder();
@@ -363,12 +378,12 @@ public class TikaMetadataExtractor {
         }
         
         // Put all metadata in the flexible struct
-        com.google.protobuf.Struct allMetadata = MetadataUtils.buildAdditionalMetadata(tikaMetadata, new java.util.HashSet<>());
+        com.google.protobuf.Struct allMetadata = MetadataUtils.buildAdditionalMetadata(tikaMetadata, tikaMetadata.newFieldSet(), projection);
         builder.setAllMetadata(allMetadata);
         
         // Build base fields
         ai.pipestream.parsed.data.tika.base.v1.TikaBaseFields baseFields = 
-                MetadataUtils.buildBaseFields(parserClass, tikaVersion, tikaMetadata);
+                MetadataUtils.buildBaseFields(parserClass, tikaVersion, tikaMetadata, projection);
         builder.setBaseFields(baseFields);
         
         return builder.build();
@@ -3,10 +3,7 @@ package ai.pipestream.module.parser.tika.builders;
 import com.google.protobuf.Struct;
 import ai.pipestream.parsed.data.climate.v1.ClimateForcastMetadata;
 import ai.pipestream.parsed.data.tika.base.v1.TikaBaseFields;
-import ai.pipestream.shaded.tika.metadata.Metadata;
 
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * Builds ClimateForcastMetadata from Tika Metadata as a minimal MVP: carry base fields
@@ -16,18 +13,19 @@ public final class ClimateForecastMetadataBuilder {
 
     private ClimateForecastMetadataBuilder() {}
 
-    public static ClimateForcastMetadata build(Metadata md, String parserClass, String tikaVersion, Set<String> excludedKeys) {
+    public static ClimateForcastMetadata build(IndexedMetadata md, String parserClass, String tikaVersion, IndexedMetadata.FieldSet excludedKeys,
+            MetadataProjection projection) {
         ClimateForcastMetadata.Builder builder = ClimateForcastMetadata.newBuilder();
-        Set<String> mapped = new HashSet<>(excludedKeys);
+        IndexedMetadata.FieldSet mapped = excludedKeys.copy();
 
         // TODO: Map well-known CF/global attributes incrementally using MetadataUtils when catalogued
 
         // Additional scientific metadata (preserve fidelity)
-        Struct additional = MetadataUtils.buildAdditionalMetadata(md, mapped);
+        Struct additional = MetadataUtils.buildAdditionalMetadata(md, mapped, projection);
         builder.setAdditionalScientificMetadata(additional);
 
         // Base fields
-        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, md);
+        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, md, projection);
         builder.setBaseFields(base);
 
         return builder.build();
@@ -3,11 +3,8 @@ package ai.pipestream.module.parser.tika.builders;
 import com.google.protobuf.Struct;
 import ai.pipestream.parsed.data.creative_commons.v1.CreativeCommonsMetadata;
 import ai.pipestream.parsed.data.tika.base.v1.TikaBaseFields;
-import ai.pipestream.shaded.tika.metadata.Metadata;
 import ai.pipestream.shaded.tika.metadata.XMPRights;
 
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * Builds CreativeCommonsMetadata from Tika Metadata. Overlay metadata across types.
@@ -16,9 +13,10 @@ public final class CreativeCommonsMetadataBuilder {
 
     private CreativeCommonsMetadataBuilder() {}
 
-    public static CreativeCommonsMetadata build(Metadata metadata, String parserClass, String tikaVersion, Set<String> excludedKeys) {
+    public static CreativeCommonsMetadata build(IndexedMetadata metadata, String parserClass, String tikaVersion, IndexedMetadata.FieldSet excludedKeys,
+            MetadataProjection projection) {
         CreativeCommonsMetadata.Builder builder = CreativeCommonsMetadata.newBuilder();
-        Set<String> mapped = new HashSet<>(excludedKeys);
+        IndexedMetadata.FieldSet mapped = excludedKeys.copy();
 
         org.jboss.logging.Logger LOG = org.jboss.logging.Logger.getLogger(CreativeCommonsMetadataBuilder.class);
 //        LOG.debugf("Building CreativeCommonsMetadata, checking for XMPRights fields...");
@@ -34,10 +32,10 @@ public final class CreativeCommonsMetadataBuilder {
         MetadataUtils.mapStringField(metadata, XMPRights.WEB_STATEMENT, builder::setWebStatement, mapped);
 
         // Additional (any cc:* or license* fields) left in additional_metadata
-        Struct additional = MetadataUtils.buildAdditionalMetadata(metadata, mapped);
+        Struct additional = MetadataUtils.buildAdditionalMetadata(metadata, mapped, projection);
         builder.setAdditionalRightsMetadata(additional);
 
-        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, metadata);
+        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, metadata, projection);
         builder.setBaseFields(base);
 
         return builder.build();
@@ -3,11 +3,9 @@ package ai.pipestream.module.parser.tika.builders;
 import com.google.protobuf.Struct;
 import ai.pipestream.parsed.data.database.v1.DatabaseMetadata;
 import ai.pipestream.parsed.data.tika.base.v1.TikaBaseFields;
-import ai.pipestream.shaded.tika.metadata.Metadata;
 import ai.pipestream.shaded.tika.metadata.TikaCoreProperties;
 import ai.pipestream.shaded.tika.metadata.Database; // Tika's Database metadata interface
 
-import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -20,9 +18,10 @@ public final class DatabaseMetadataBuilder {
 
     private DatabaseMetadataBuilder() {}
 
-    public static DatabaseMetadata build(Metadata md, String parserClass, String tikaVersion, Set<String> excludedKeys) {
+    public static DatabaseMetadata build(IndexedMetadata md, String parserClass, String tikaVersion, IndexedMetadata.FieldSet excludedKeys,
+            MetadataProjection projection) {
         DatabaseMetadata.Builder builder = DatabaseMetadata.newBuilder();
-        Set<String> mapped = new HashSet<>(excludedKeys);
+        IndexedMetadata.FieldSet mapped = excludedKeys.copy();
 
         // Core document fields
         mapCore(md, builder, mapped);
@@ -37,17 +36,17 @@ public final class DatabaseMetadataBuilder {
         MetadataUtils.mapStringField(md, TikaCoreProperties.ORIGINAL_RESOURCE_NAME, builder::setOriginalResourceName, mapped);
 
         // Additional metadata
-        Struct additional = MetadataUtils.buildAdditionalMetadata(md, mapped);
+        Struct additional = MetadataUtils.buildAdditionalMetadata(md, mapped, projection);
         builder.setAdditionalMetadata(additional);
 
         // Base fields
-        TikaBaseFields baseFields = MetadataUtils.buildBaseFields(parserClass, tikaVersion, md);
+        TikaBaseFields baseFields = MetadataUtils.buildBaseFields(parserClass, tikaVersion, md, projection);
         builder.setBaseFields(baseFields);
 
         return builder.build();
     }
 
-    private static void mapCore(Metadata md, DatabaseMetadata.Builder b, Set<String> mapped) {
+    private static void mapCore(IndexedMetadata md, DatabaseMetadata.Builder b, Set<String> mapped) {
         MetadataUtils.mapStringField(md, TikaCoreProperties.TITLE, b::setTitle, mapped);
         MetadataUtils.mapStringField(md, TikaCoreProperties.CREATOR, b::setCreator, mapped);
         MetadataUtils.mapStringField(md, TikaCoreProperties.DESCRIPTION, b::setDescription, mapped);
@@ -61,7 +60,7 @@ public final class DatabaseMetadataBuilder {
         MetadataUtils.mapStringField(md, TikaCoreProperties.CREATOR_TOOL, b::setCreatorTool, mapped);
     }
 
-    private static void mapDbCore(Metadata md, DatabaseMetadata.Builder b, Set<String> mapped) {
+    private static void mapDbCore(IndexedMetadata md, DatabaseMetadata.Builder b, Set<String> mapped) {
         try {
             // Table names and column names (repeated)
             MetadataUtils.mapRepeatedStringField(md, Database.TABLE_NAME, b::addAllTableNames, mapped);
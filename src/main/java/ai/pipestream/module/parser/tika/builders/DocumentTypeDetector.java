@@ -53,6 +53,16 @@ public class DocumentTypeDetector {
      * @return DocumentType enum value
      */
     public static DocumentType detect(Metadata metadata) {
+        return detect(IndexedMetadata.of(metadata));
+    }
+
+    /**
+     * Detects document type from an indexed metadata view.
+     * 
+     * @param metadata Indexed Tika metadata
+     * @return DocumentType enum value
+     */
+    public static DocumentType detect(IndexedMetadata metadata) {
         String mimeType = metadata.get("Content-Type");
         String resourceName = metadata.get("resourceName");
         
@@ -253,16 +263,16 @@ public class DocumentTypeDetector {
     /**
      * Checks if metadata contains Creative Commons licensing information.
      */
-    private static boolean hasCreativeCommonsMetadata(Metadata metadata) {
-        String[] allFields = metadata.names();
-
-        for (String field : allFields) {
-            String lowerField = field.toLowerCase();
+    private static boolean hasCreativeCommonsMetadata(IndexedMetadata metadata) {
+        for (int i = 0; i < metadata.size(); i++) {
+            String field = metadata.name(i);
+            String lowerField = metadata.lowerName(i);
             if (lowerField.contains("license") ||
                 lowerField.contains("creative") ||
                 lowerField.contains("cc:") ||
                 lowerField.contains("rights")) {
-                String value = metadata.get(field);
+                String[] values = metadata.values(i);
+                String value = values.length > 0 ? values[0] : null;
                 LOG.debugf("  Field '%s' matches CC pattern, value: %s", field, value);
                 if (value != null && value.toLowerCase().contains("creative")) {
                     LOG.infof("Detected Creative Commons via field '%s' = '%s'", field, value);
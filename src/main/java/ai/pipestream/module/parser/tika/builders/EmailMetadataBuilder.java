@@ -5,33 +5,32 @@ import ai.pipestream.parsed.data.email.v1.EmailMetadata;
 import ai.pipestream.parsed.data.tika.base.v1.TikaBaseFields;
 import ai.pipestream.shaded.tika.metadata.MAPI;
 import ai.pipestream.shaded.tika.metadata.Message;
-import ai.pipestream.shaded.tika.metadata.Metadata;
 import ai.pipestream.shaded.tika.metadata.TikaCoreProperties;
 
-import java.util.HashSet;
 import java.util.Set;
 
 public class EmailMetadataBuilder {
 
-    public static EmailMetadata build(Metadata md, String parserClass, String tikaVersion, Set<String> excludedKeys) {
+    public static EmailMetadata build(IndexedMetadata md, String parserClass, String tikaVersion, IndexedMetadata.FieldSet excludedKeys,
+            MetadataProjection projection) {
         EmailMetadata.Builder b = EmailMetadata.newBuilder();
-        Set<String> mapped = new HashSet<>(excludedKeys);
+        IndexedMetadata.FieldSet mapped = excludedKeys.copy();
 
         mapCore(md, b, mapped);
         mapMessage(md, b, mapped);
         mapMAPI(md, b, mapped);
         mapContentAndSecurity(md, b, mapped);
 
-        Struct additional = MetadataUtils.buildAdditionalMetadata(md, mapped);
+        Struct additional = MetadataUtils.buildAdditionalMetadata(md, mapped, projection);
         b.setAdditionalMetadata(additional);
 
-        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, md);
+        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, md, projection);
         b.setBaseFields(base);
 
         return b.build();
     }
 
-    private static void mapCore(Metadata md, EmailMetadata.Builder b, Set<String> mapped) {
+    private static void mapCore(IndexedMetadata md, EmailMetadata.Builder b, Set<String> mapped) {
         MetadataUtils.mapStringField(md, TikaCoreProperties.TITLE, b::setTitle, mapped);
         MetadataUtils.mapStringField(md, TikaCoreProperties.CREATOR, b::setCreator, mapped);
         MetadataUtils.mapStringField(md, TikaCoreProperties.DESCRIPTION, b::setDescription, mapped);
@@ -52,7 +51,7 @@ public class EmailMetadataBuilder {
         MetadataUtils.mapStringField(md, TikaCoreProperties.COMMENTS, b::setComments, mapped);
     }
 
-    private static void mapMessage(Metadata md, EmailMetadata.Builder b, Set<String> mapped) {
+    private static void mapMessage(IndexedMetadata md, EmailMetadata.Builder b, Set<String> mapped) {
         MetadataUtils.mapStringField(md, Message.MESSAGE_FROM, b::setMessageFrom, mapped);
         MetadataUtils.mapStringField(md, Message.MESSAGE_TO, b::setMessageTo, mapped);
         MetadataUtils.mapStringField(md, Message.MESSAGE_CC, b::setMessageCc, mapped);
@@ -72,7 +71,7 @@ public class EmailMetadataBuilder {
         MetadataUtils.mapStringField(md, Message.MULTIPART_BOUNDARY, b::setMultipartBoundary, mapped);
     }
 
-    private static void mapMAPI(Metadata md, EmailMetadata.Builder b, Set<String> mapped) {
+    private static void mapMAPI(IndexedMetadata md, EmailMetadata.Builder b, Set<String> mapped) {
         MetadataUtils.mapStringField(md, MAPI.MESSAGE_CLASS, b::setMessageClass, mapped);
         MetadataUtils.mapStringField(md, MAPI.MESSAGE_CLASS_RAW, b::setMessageClassRaw, mapped);
         MetadataUtils.mapStringField(md, MAPI.SENT_BY_SERVER_TYPE, b::setSentByServerType, mapped);
@@ -102,7 +101,7 @@ public class EmailMetadataBuilder {
         MetadataUtils.mapStringField(md, MAPI.ATTACH_LANGUAGE, b::setAttachLanguage, mapped);
     }
 
-    private static void mapContentAndSecurity(Metadata md, EmailMetadata.Builder b, Set<String> mapped) {
+    private static void mapContentAndSecurity(IndexedMetadata md, EmailMetadata.Builder b, Set<String> mapped) {
         MetadataUtils.mapStringField(md, "Content-Type", b::setContentType, mapped);
         MetadataUtils.mapStringField(md, TikaCoreProperties.ENCODING_DETECTOR, b::setEncodingDetector, mapped);
         MetadataUtils.mapStringField(md, TikaCoreProperties.DETECTED_ENCODING, b::setDetectedEncoding, mapped);
@@ -0,0 +1,294 @@
+package ai.pipestream.module.parser.tika.builders;
+
+import ai.pipestream.data.v1.DocOutline;
+import ai.pipestream.data.v1.Section;
+import ai.pipestream.parsed.data.epub.v1.EpubContentItem;
+import ai.pipestream.parsed.data.epub.v1.EpubTocItem;
+import ai.pipestream.shaded.tika.metadata.Metadata;
+import ai.pipestream.shaded.tika.parser.ParseContext;
+import ai.pipestream.shaded.tika.parser.Parser;
+import ai.pipestream.shaded.tika.sax.BodyContentHandler;
+import ai.pipestream.shaded.tika.sax.ContentHandlerDecorator;
+import ai.pipestream.shaded.tika.sax.WriteOutContentHandler;
+import org.jboss.logging.Logger;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Extracts EPUB body text chapter by chapter.
+ * <p>
+ * Spine XHTML items are parsed concurrently (one Tika parse per chapter) and concatenated in
+ * spine order. Each chapter's start and end offset in the resulting body is recorded, and TOC
+ * hrefs, including {@code #fragment} anchors, are mapped to exact body offsets, so the outline
+ * needs no text search afterwards.
+ * <p>
+ * The body uses the same normalization as {@code DocumentParser.cleanUpText}: every chapter is
+ * trimmed and whitespace-collapsed, and chapters are joined with a single space.
+ * <p>
+ * The caller waits for the chapters, so {@code executor} must not be the pool the caller itself
+ * runs on: with every worker blocked in {@link #extract} no chapter could ever start.
+ */
+public final class EpubChapterExtractor {
+
+    private static final Logger LOG = Logger.getLogger(EpubChapterExtractor.class);
+
+    private EpubChapterExtractor() {}
+
+    /**
+     * One spine item's slice of the body.
+     *
+     * @param href       container path of the spine item
+     * @param spineIndex position in the spine
+     * @param start      inclusive body offset
+     * @param end        exclusive body offset
+     */
+    public record Chapter(String href, int spineIndex, int start, int end) {}
+
+    /**
+     * @param body     concatenated, cleaned chapter text
+     * @param chapters chapters that contributed text, in spine order
+     * @param outline  TOC outline with exact char offsets (empty when the book has no TOC)
+     */
+    public record Result(String body, List<Chapter> chapters, DocOutline outline) {}
+
+    /**
+     * Parses the spine items concurrently and assembles body, chapter offsets and outline.
+     *
+     * @param epub             opened container
+     * @param spine            spine items from {@link EpubStructureExtractor#enrich}
+     * @param toc              table of contents from {@link EpubStructureExtractor#enrich}
+     * @param parser           thread-safe Tika parser used for each chapter
+     * @param executor         dedicated executor the chapter parses run on (not the caller's pool)
+     * @param maxContentLength body length limit, or -1 for unlimited
+     * @param timeoutMillis    deadline for all chapters together, or 0 or less for none
+     * @throws TimeoutException if the chapters did not finish in time; unfinished parses are interrupted
+     */
+    public static Result extract(EpubContainer epub,
+                                 List<EpubContentItem> spine,
+                                 List<EpubTocItem> toc,
+                                 Parser parser,
+                                 Executor executor,
+                                 int maxContentLength,
+                                 long timeoutMillis) throws TimeoutException {
+        // Fragment ids each chapter must locate for the TOC
+        Map<String, Set<String>> anchorsByPath = new HashMap<>();
+        List<EpubTocItem> flatToc = new ArrayList<>();
+        flatten(toc, flatToc);
+        for (EpubTocItem item : flatToc) {
+            if (!item.hasHref()) continue;
+            String href = item.getHref();
+            int hash = href.indexOf('#');
+            if (hash >= 0 && hash < href.length() - 1) {
+                anchorsByPath.computeIfAbsent(href.substring(0, hash), k -> new HashSet<>()).add(href.substring(hash + 1));
+            }
+        }
+
+        List<EpubContentItem> items = new ArrayList<>();
+        for (EpubContentItem item : spine) {
+            if (item.hasHref() && isXhtml(item.getMediaType()) && epub.contains(item.getHref())) {
+                items.add(item);
+            }
+        }
+
+        // FutureTask rather than CompletableFuture so cancelling on timeout interrupts the parse
+        List<FutureTask<ChapterText>> futures = new ArrayList<>(items.size());
+        for (EpubContentItem item : items) {
+            Set<String> anchors = anchorsByPath.getOrDefault(item.getHref(), Set.of());
+            FutureTask<ChapterText> task = new FutureTask<>(() -> parseChapter(epub, item.getHref(), anchors, parser));
+            futures.add(task);
+            executor.execute(task);
+        }
+        long deadline = timeoutMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0L;
+
+        // Concatenate in spine order
+        StringBuilder body = new StringBuilder();
+        List<Chapter> chapters = new ArrayList<>();
+        Map<String, Integer> startByHref = new HashMap<>();
+        boolean truncated = false;
+        for (int i = 0; i < items.size(); i++) {
+            ChapterText text = await(futures, i, items.get(i).getHref(), deadline);
+            if (truncated || text.text.isEmpty()) continue;
+            if (body.length() > 0) body.append(' ');
+            int start = body.length();
+            String chapterText = text.text;
+            if (maxContentLength > 0 && start + chapterText.length() > maxContentLength) {
+                chapterText = chapterText.substring(0, Math.max(0, maxContentLength - start));
+                truncated = true;
+            }
+            body.append(chapterText);
+            String href = items.get(i).getHref();
+            chapters.add(new Chapter(href, items.get(i).getSpineIndex(), start, body.length()));
+            startByHref.putIfAbsent(href, start);
+            for (Map.Entry<String, Integer> anchor : text.anchors.entrySet()) {
+                if (anchor.getValue() <= chapterText.length()) {
+                    startByHref.putIfAbsent(href + "#" + anchor.getKey(), start + anchor.getValue());
+                }
+            }
+        }
+
+        DocOutline outline = toc.isEmpty()
+                ? DocOutline.getDefaultInstance()
+                : withOffsets(EpubStructureExtractor.buildDocOutlineFromToc(toc), startByHref, body.length());
+        return new Result(body.toString(), chapters, outline);
+    }
+
+    /**
+     * Waits for chapter {@code i} until {@code deadline} (0 for none); on timeout or interrupt
+     * every chapter still running is cancelled.
+     */
+    private static ChapterText await(List<FutureTask<ChapterText>> futures, int i, String href, long deadline)
+            throws TimeoutException {
+        try {
+            if (deadline == 0L) {
+                return futures.get(i).get();
+            }
+            return futures.get(i).get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            cancelAll(futures);
+            throw new TimeoutException("EPUB chapters did not finish in time; waiting on " + href);
+        } catch (InterruptedException e) {
+            cancelAll(futures);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing EPUB chapter " + href, e);
+        } catch (ExecutionException e) {
+            cancelAll(futures);
+            throw new IllegalStateException("EPUB chapter " + href + " failed", e.getCause());
+        }
+    }
+
+    private static void cancelAll(List<FutureTask<ChapterText>> futures) {
+        for (FutureTask<ChapterText> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Assigns each TOC section the offset of its href (chapter start or anchor). A section ends
+     * where the next resolved section begins, or at the end of the body.
+     */
+    private static DocOutline withOffsets(DocOutline outline, Map<String, Integer> startByHref, int bodyLength) {
+        int n = outline.getSectionsCount();
+        int[] starts = new int[n];
+        for (int i = 0; i < n; i++) {
+            Section s = outline.getSections(i);
+            Integer start = null;
+            if (s.hasHref()) {
+                start = startByHref.get(s.getHref());
+                if (start == null) {
+                    int hash = s.getHref().indexOf('#');
+                    if (hash >= 0) start = startByHref.get(s.getHref().substring(0, hash));
+                }
+            }
+            starts[i] = start != null ? start : -1;
+        }
+
+        DocOutline.Builder out = DocOutline.newBuilder();
+        int[] ends = new int[n];
+        int nextStart = bodyLength;
+        for (int i = n - 1; i >= 0; i--) {
+            ends[i] = nextStart >= starts[i] ? nextStart : bodyLength;
+            if (starts[i] >= 0) nextStart = starts[i];
+        }
+        for (int i = 0; i < n; i++) {
+            Section.Builder sb = outline.getSections(i).toBuilder();
+            if (starts[i] >= 0) {
+                sb.setCharStartOffset(starts[i]).setCharEndOffset(ends[i]);
+            }
+            out.addSections(sb.build());
+        }
+        return out.build();
+    }
+
+    private static ChapterText parseChapter(EpubContainer epub, String href, Set<String> anchors, Parser parser) {
+        AnchorRecorder recorder = new AnchorRecorder(new WriteOutContentHandler(-1), anchors);
+        Metadata metadata = new Metadata();
+        metadata.set("resourceName", href);
+        metadata.set(Metadata.CONTENT_TYPE, "application/xhtml+xml");
+        ParseContext context = new ParseContext();
+        context.set(Parser.class, parser);
+        try (InputStream in = epub.open(href)) {
+            parser.parse(in, new BodyContentHandler(recorder), metadata, context);
+        } catch (Exception e) {
+            // Keep whatever text was written before the failure; one bad chapter must not sink the book
+            LOG.debugf("EPUB chapter %s failed to parse: %s", href, e.getMessage());
+        }
+
+        String raw = recorder.toString();
+        List<String> ids = new ArrayList<>(recorder.positions.keySet());
+        long[] rawOffsets = new long[ids.size() + 1];
+        for (int i = 0; i < ids.size(); i++) rawOffsets[i] = recorder.positions.get(ids.get(i));
+        rawOffsets[ids.size()] = raw.length();
+        int[] mapped = HeadingOutlineHandler.toCollapsedOffsets(raw, rawOffsets);
+
+        Map<String, Integer> anchorOffsets = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) anchorOffsets.put(ids.get(i), mapped[i]);
+        return new ChapterText(raw.trim().replaceAll("\\s+", " "), anchorOffsets);
+    }
+
+    private static boolean isXhtml(String mediaType) {
+        return mediaType == null || mediaType.isEmpty()
+                || mediaType.contains("xhtml") || mediaType.startsWith("text/html");
+    }
+
+    private static void flatten(List<EpubTocItem> items, List<EpubTocItem> out) {
+        for (EpubTocItem item : items) {
+            out.add(item);
+            flatten(item.getChildrenList(), out);
+        }
+    }
+
+    private record ChapterText(String text, Map<String, Integer> anchors) {}
+
+    /**
+     * Records the number of characters written before each wanted {@code id} (or {@code name})
+     * attribute appears. Anchors the XHTML mapper drops simply fall back to the chapter start.
+     * Ids are recorded in document order, so positions are ascending.
+     */
+    private static final class AnchorRecorder extends ContentHandlerDecorator {
+        private final Set<String> wanted;
+        private final Map<String, Long> positions = new LinkedHashMap<>();
+        private long written = 0;
+
+        AnchorRecorder(ContentHandler handler, Set<String> wanted) {
+            super(handler);
+            this.wanted = wanted;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String name, Attributes atts) throws SAXException {
+            if (!wanted.isEmpty() && atts != null) {
+                String id = atts.getValue("id");
+                if (id == null) id = atts.getValue("name"); // legacy <a name="..."> anchors
+                if (id != null && wanted.contains(id)) positions.putIfAbsent(id, written);
+            }
+            super.startElement(uri, localName, name, atts);
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            written += length;
+            super.characters(ch, start, length);
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+            written += length;
+            super.ignorableWhitespace(ch, start, length);
+        }
+    }
+}
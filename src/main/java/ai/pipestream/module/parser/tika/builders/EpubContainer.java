@@ -0,0 +1,302 @@
+package ai.pipestream.module.parser.tika.builders;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Random-access, read-only view of an EPUB (ZIP) container held in memory.
+ * <p>
+ * Only the central directory is read when the container is opened. Entry names, sizes and
+ * compression methods come from directory metadata; an entry's bytes are inflated only when
+ * {@link #read(String)} or {@link #open(String)} is called for it. Images, fonts and audio are
+ * never touched unless explicitly requested.
+ * <p>
+ * Reads use absolute positions on private buffer duplicates, so one container can be read
+ * from several threads at once.
+ */
+public final class EpubContainer {
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_EOCD_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int EOCD_MIN_LENGTH = 22;
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+    private static final long UINT32_MAX = 0xFFFFFFFFL;
+
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+
+    /** Largest entry {@link #read(String)} inflates into memory; larger ones must be streamed. */
+    static final long MAX_READ_SIZE = 256L * 1024 * 1024;
+
+    /** DEFLATE cannot expand data by more than about 1032:1, so a larger declared size is a lie. */
+    private static final long MAX_DEFLATE_RATIO = 1032;
+
+    private final ByteBuffer data;
+    private final Map<String, Entry> entries;
+
+    private EpubContainer(ByteBuffer data, Map<String, Entry> entries) {
+        this.data = data;
+        this.entries = entries;
+    }
+
+    /**
+     * Opens the container by reading its central directory only.
+     *
+     * @param zipData complete ZIP bytes; the buffer's position and limit delimit the archive and are not modified
+     * @throws IOException if the data is not a readable ZIP archive
+     */
+    public static EpubContainer open(ByteBuffer zipData) throws IOException {
+        ByteBuffer buf = zipData.slice().order(ByteOrder.LITTLE_ENDIAN);
+        int eocd = findEndOfCentralDirectory(buf);
+        if (eocd < 0) {
+            throw new ZipException("End of central directory not found");
+        }
+
+        long entryCount = u16(buf, eocd + 10);
+        long cdOffset = u32(buf, eocd + 16);
+        if (entryCount == 0xFFFF || cdOffset == UINT32_MAX) {
+            int locator = eocd - 20;
+            if (locator >= 0 && buf.getInt(locator) == ZIP64_EOCD_LOCATOR_SIGNATURE) {
+                int zip64Eocd = checkedPosition(buf, buf.getLong(locator + 8), 56);
+                if (buf.getInt(zip64Eocd) != ZIP64_EOCD_SIGNATURE) {
+                    throw new ZipException("Invalid ZIP64 end of central directory");
+                }
+                entryCount = buf.getLong(zip64Eocd + 32);
+                cdOffset = buf.getLong(zip64Eocd + 48);
+            }
+        }
+
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        int pos = checkedPosition(buf, cdOffset, 0);
+        for (long i = 0; i < entryCount; i++) {
+            checkedPosition(buf, pos, 46);
+            if (buf.getInt(pos) != CENTRAL_HEADER_SIGNATURE) {
+                throw new ZipException("Invalid central directory header at " + pos);
+            }
+            int method = u16(buf, pos + 10);
+            long compressedSize = u32(buf, pos + 20);
+            long size = u32(buf, pos + 24);
+            int nameLength = u16(buf, pos + 28);
+            int extraLength = u16(buf, pos + 30);
+            int commentLength = u16(buf, pos + 32);
+            long localHeaderOffset = u32(buf, pos + 42);
+
+            checkedPosition(buf, pos + 46L, nameLength + extraLength);
+            byte[] nameBytes = new byte[nameLength];
+            buf.get(pos + 46, nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            // ZIP64 extended information: only the fields saturated in the header are present, in this order
+            int extra = pos + 46 + nameLength;
+            int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                int headerId = u16(buf, extra);
+                int dataSize = u16(buf, extra + 2);
+                if (headerId == 0x0001) {
+                    int field = extra + 4;
+                    if (size == UINT32_MAX && field + 8 <= extraEnd) { size = buf.getLong(field); field += 8; }
+                    if (compressedSize == UINT32_MAX && field + 8 <= extraEnd) { compressedSize = buf.getLong(field); field += 8; }
+                    if (localHeaderOffset == UINT32_MAX && field + 8 <= extraEnd) { localHeaderOffset = buf.getLong(field); }
+                    break;
+                }
+                extra += 4 + dataSize;
+            }
+
+            if (!name.endsWith("/")) {
+                entries.putIfAbsent(EpubStructureExtractor.normalizePath(name),
+                        new Entry(name, method, compressedSize, size, localHeaderOffset));
+            }
+            pos += 46 + nameLength + extraLength + commentLength;
+        }
+        return new EpubContainer(buf, entries);
+    }
+
+    /** Normalized names of all file entries, in central directory order. */
+    public Collection<String> names() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    public boolean contains(String path) {
+        return path != null && entries.containsKey(path);
+    }
+
+    /** Uncompressed size from the central directory, or -1 if the entry does not exist. */
+    public long size(String path) {
+        Entry e = path != null ? entries.get(path) : null;
+        return e != null ? e.size : -1L;
+    }
+
+    /**
+     * Inflates a single entry.
+     * The uncompressed size in the central directory is untrusted: it is checked against
+     * {@link #MAX_READ_SIZE} and the entry's compressed size before anything is allocated, and
+     * the inflated data must match it exactly.
+     *
+     * @return the entry bytes, or null if the entry does not exist
+     * @throws IOException if the entry is corrupt, uses an unsupported method, is larger than
+     *                     {@link #MAX_READ_SIZE} or its declared size does not match its data
+     */
+    public byte[] read(String path) throws IOException {
+        Entry e = path != null ? entries.get(path) : null;
+        if (e == null) return null;
+        if (e.size < 0 || e.compressedSize < 0) {
+            throw new ZipException("Invalid entry size: " + e.name);
+        }
+        if (e.size > MAX_READ_SIZE) {
+            throw new ZipException("Entry too large to read into memory (" + e.size + " bytes): " + e.name);
+        }
+        if (e.method == METHOD_DEFLATED && e.size > Math.max(1024, e.compressedSize * MAX_DEFLATE_RATIO)) {
+            throw new ZipException("Declared size " + e.size + " impossible for " + e.compressedSize
+                    + " compressed bytes: " + e.name);
+        }
+        ByteBuffer compressed = compressedData(e);
+        byte[] out = new byte[(int) e.size];
+        if (e.method == METHOD_STORED) {
+            if (e.size != e.compressedSize || compressed.remaining() < out.length) {
+                throw new ZipException("Stored entry size mismatch: " + e.name);
+            }
+            compressed.get(out);
+            return out;
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            int n = 0;
+            while (n < out.length && !inflater.finished()) {
+                int r = inflater.inflate(out, n, out.length - n);
+                if (r == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                n += r;
+            }
+            if (n != out.length) {
+                throw new ZipException("Truncated entry: " + e.name);
+            }
+            if (!inflater.finished()) {
+                // More data inflates past the declared size
+                byte[] probe = new byte[1];
+                if (inflater.inflate(probe) > 0) {
+                    throw new ZipException("Entry larger than its declared size: " + e.name);
+                }
+            }
+            return out;
+        } catch (DataFormatException ex) {
+            throw new ZipException("Invalid deflate data in " + e.name + ": " + ex.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Opens a stream that inflates the entry incrementally, for entries that should not be
+     * held in memory as a whole.
+     *
+     * @return the stream, or null if the entry does not exist
+     */
+    public InputStream open(String path) throws IOException {
+        Entry e = path != null ? entries.get(path) : null;
+        if (e == null) return null;
+        InputStream raw = new BufferInputStream(compressedData(e));
+        if (e.method == METHOD_STORED) {
+            return raw;
+        }
+        Inflater inflater = new Inflater(true);
+        return new InflaterInputStream(raw, inflater, 8192) {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    inflater.end();
+                    super.close();
+                }
+            }
+        };
+    }
+
+    private ByteBuffer compressedData(Entry e) throws IOException {
+        if (e.method != METHOD_STORED && e.method != METHOD_DEFLATED) {
+            throw new ZipException("Unsupported compression method " + e.method + " for " + e.name);
+        }
+        int local = checkedPosition(data, e.localHeaderOffset, 30);
+        if (data.getInt(local) != LOCAL_HEADER_SIGNATURE) {
+            throw new ZipException("Invalid local header for " + e.name);
+        }
+        long start = (long) local + 30 + u16(data, local + 26) + u16(data, local + 28);
+        int from = checkedPosition(data, start, 0);
+        long length = e.method == METHOD_STORED ? e.size : e.compressedSize;
+        if (length > data.limit() - from) {
+            throw new ZipException("Entry data exceeds archive bounds: " + e.name);
+        }
+        return data.slice(from, (int) length);
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer buf) {
+        int limit = buf.limit();
+        int stop = Math.max(0, limit - EOCD_MIN_LENGTH - MAX_COMMENT_LENGTH);
+        for (int pos = limit - EOCD_MIN_LENGTH; pos >= stop; pos--) {
+            if (buf.getInt(pos) == EOCD_SIGNATURE && pos + EOCD_MIN_LENGTH + u16(buf, pos + 20) <= limit) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    private static int checkedPosition(ByteBuffer buf, long pos, int length) throws ZipException {
+        if (pos < 0 || pos + length > buf.limit()) {
+            throw new ZipException("Offset outside archive: " + pos);
+        }
+        return (int) pos;
+    }
+
+    private static int u16(ByteBuffer buf, int pos) {
+        return buf.getShort(pos) & 0xFFFF;
+    }
+
+    private static long u32(ByteBuffer buf, int pos) {
+        return buf.getInt(pos) & UINT32_MAX;
+    }
+
+    private record Entry(String name, int method, long compressedSize, long size, long localHeaderOffset) {}
+
+    /** Minimal InputStream over a private buffer slice. */
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buf;
+
+        BufferInputStream(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            if (!buf.hasRemaining()) return -1;
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buf.remaining();
+        }
+    }
+}
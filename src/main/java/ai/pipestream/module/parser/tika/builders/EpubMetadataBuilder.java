@@ -4,11 +4,8 @@ import com.google.protobuf.Struct;
 import ai.pipestream.parsed.data.epub.v1.EpubMetadata;
 import ai.pipestream.parsed.data.tika.base.v1.TikaBaseFields;
 import ai.pipestream.shaded.tika.metadata.Epub;
-import ai.pipestream.shaded.tika.metadata.Metadata;
 import ai.pipestream.shaded.tika.metadata.TikaCoreProperties;
 
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * Builds EpubMetadata from Tika Metadata.
@@ -19,9 +16,10 @@ public final class EpubMetadataBuilder {
 
     private EpubMetadataBuilder() {}
 
-    public static EpubMetadata build(Metadata metadata, String parserClass, String tikaVersion, Set<String> excludedKeys) {
+    public static EpubMetadata build(IndexedMetadata metadata, String parserClass, String tikaVersion, IndexedMetadata.FieldSet excludedKeys,
+            MetadataProjection projection) {
         EpubMetadata.Builder builder = EpubMetadata.newBuilder();
-        Set<String> mapped = new HashSet<>(excludedKeys);
+        IndexedMetadata.FieldSet mapped = excludedKeys.copy();
 
         // Core EPUB properties
         MetadataUtils.mapStringField(metadata, Epub.RENDITION_LAYOUT, builder::setRenditionLayout, mapped);
@@ -38,16 +36,15 @@ public final class EpubMetadataBuilder {
         byte[] raw = MetadataUtils.tryGetRawBytes(metadata);
         if (raw != null && raw.length > 0) {
             EpubStructureExtractor.enrich(builder, raw);
-            // Prevent huge base64 field from being embedded into additional/base fields
-            try { metadata.remove("pipe:raw-bytes-b64"); } catch (Exception ignored) {}
+            // The struct builders never copy the base64 field into additional/base fields
         }
 
         // Additional metadata for anything unmapped
-        Struct additional = MetadataUtils.buildAdditionalMetadata(metadata, mapped);
+        Struct additional = MetadataUtils.buildAdditionalMetadata(metadata, mapped, projection);
         builder.setAdditionalMetadata(additional);
 
         // Base fields
-        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, metadata);
+        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, metadata, projection);
         builder.setBaseFields(base);
 
         return builder.build();
@@ -15,14 +15,16 @@ import org.w3c.dom.NodeList;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.util.*;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.function.BiConsumer;
 
 /**
  * Extracts EPUB structure (OPF manifest, spine, TOC, encryption) directly from the .epub container bytes
  * and enriches an EpubMetadata.Builder accordingly.
+ * <p>
+ * The container is read through {@link EpubContainer}, so only container.xml, the OPF, the NCX and the
+ * navigation document are inflated.
  */
 public final class EpubStructureExtractor {
 
@@ -30,31 +32,33 @@ public final class EpubStructureExtractor {
 
     public static void enrich(EpubMetadata.Builder builder, byte[] epubBytes) {
         if (epubBytes == null || epubBytes.length == 0) return;
+        enrich(builder, ByteBuffer.wrap(epubBytes));
+    }
 
-        Map<String, byte[]> pathToBytes = new HashMap<>();
-        Map<String, Long> pathToSize = new HashMap<>();
-        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(epubBytes))) {
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(0, (int) entry.getSize()));
-                byte[] buf = new byte[8192];
-                int r;
-                while ((r = zis.read(buf)) != -1) {
-                    bos.write(buf, 0, r);
-                }
-                String name = normalizePath(entry.getName());
-                pathToBytes.put(name, bos.toByteArray());
-                pathToSize.put(name, entry.getSize());
-            }
+    /**
+     * Enriches from the container bytes without copying them, e.g. {@code ByteString.asReadOnlyByteBuffer()}.
+     */
+    public static void enrich(EpubMetadata.Builder builder, ByteBuffer epubData) {
+        if (epubData == null || !epubData.hasRemaining()) return;
+        EpubContainer epub;
+        try {
+            epub = EpubContainer.open(epubData);
         } catch (Exception ignored) {
             return;
         }
+        enrich(builder, epub);
+    }
 
+    /**
+     * Reads container.xml, the OPF, NCX and navigation document from an already opened container.
+     * Manifest sizes come from the ZIP central directory; no other entry is inflated.
+     */
+    public static void enrich(EpubMetadata.Builder builder, EpubContainer epub) {
         String containerPath = "META-INF/container.xml";
         String opfPath = null;
-        if (pathToBytes.containsKey(containerPath)) {
+        if (epub.contains(containerPath)) {
             try {
-                Document container = parseXml(pathToBytes.get(containerPath));
+                Document container = parseXml(epub.read(containerPath));
                 NodeList roots = container.getElementsByTagName("rootfile");
                 for (int i = 0; i < roots.getLength(); i++) {
                     Element el = (Element) roots.item(i);
@@ -69,17 +73,17 @@ public final class EpubStructureExtractor {
         }
         if (opfPath == null) {
             // Fallback: find first .opf
-            for (String p : pathToBytes.keySet()) {
+            for (String p : epub.names()) {
                 if (p.toLowerCase().endsWith(".opf")) { opfPath = p; break; }
             }
         }
-        if (opfPath == null || !pathToBytes.containsKey(opfPath)) return;
+        if (opfPath == null || !epub.contains(opfPath)) return;
         builder.setRootOpfPath(opfPath);
 
         String opfDir = parentDir(opfPath);
 
         try {
-            Document opf = parseXml(pathToBytes.get(opfPath));
+            Document opf = parseXml(epub.read(opfPath));
 
             // page-progression-direction → reading_direction
             NodeList pkgList = opf.getElementsByTagName("package");
@@ -114,8 +118,7 @@ public final class EpubStructureExtractor {
                     String mediaType = item.getAttribute("media-type");
                     String properties = item.getAttribute("properties");
                     ManifestEntry me = new ManifestEntry(id, href, mediaType, properties);
-                    Long size = pathToSize.getOrDefault(href, -1L);
-                    me.size = size;
+                    me.size = epub.size(href);
                     manifest.put(id, me);
                 }
             }
@@ -169,10 +172,10 @@ public final class EpubStructureExtractor {
 
             // encryption -> DRM
             String encryptionPath = "META-INF/encryption.xml";
-            if (pathToBytes.containsKey(encryptionPath)) {
+            if (epub.contains(encryptionPath)) {
                 builder.setHasDrm(true);
                 try {
-                    Document enc = parseXml(pathToBytes.get(encryptionPath));
+                    Document enc = parseXml(epub.read(encryptionPath));
                     NodeList cipherRefs = enc.getElementsByTagName("CipherReference");
                     for (int i = 0; i < cipherRefs.getLength(); i++) {
                         Element cr = (Element) cipherRefs.item(i);
@@ -204,9 +207,9 @@ public final class EpubStructureExtractor {
 
             // TOC (EPUB 2 NCX)
             ManifestEntry ncxEntry = findByMediaType(manifest, "application/x-dtbncx+xml");
-            if (ncxEntry != null && pathToBytes.containsKey(ncxEntry.href)) {
+            if (ncxEntry != null && epub.contains(ncxEntry.href)) {
                 try {
-                    Document ncx = parseXml(pathToBytes.get(ncxEntry.href));
+                    Document ncx = parseXml(epub.read(ncxEntry.href));
                     Element navMap = firstElement(ncx.getElementsByTagName("navMap"));
                     if (navMap != null) {
                         List<EpubTocItem> toc = new ArrayList<>();
@@ -219,9 +222,9 @@ public final class EpubStructureExtractor {
             // TOC (EPUB 3 NAV XHTML)
             if (builder.hasNavigationDocumentPath()) {
                 String navPath = builder.getNavigationDocumentPath();
-                if (navPath != null && pathToBytes.containsKey(navPath)) {
+                if (navPath != null && epub.contains(navPath)) {
                     try {
-                        Document navDoc = parseXml(pathToBytes.get(navPath));
+                        Document navDoc = parseXml(epub.read(navPath));
                         Element tocNav = findTocNav(navDoc);
                         if (tocNav != null) {
                             String navDir = parentDir(navPath);
@@ -252,6 +255,25 @@ public final class EpubStructureExtractor {
         }
     }
 
+    /**
+     * Reads the Dublin Core elements of the OPF {@code <metadata>} and reports them with Tika's
+     * {@code dc:*} key names (e.g. {@code dc:title}, {@code dc:creator}).
+     */
+    public static void readDublinCore(EpubContainer epub, String opfPath, BiConsumer<String, String> sink) {
+        if (epub == null || opfPath == null || !epub.contains(opfPath)) return;
+        try {
+            Document opf = parseXml(epub.read(opfPath));
+            NodeList dcNodes = opf.getElementsByTagNameNS("http://purl.org/dc/elements/1.1/", "*");
+            for (int i = 0; i < dcNodes.getLength(); i++) {
+                Element el = (Element) dcNodes.item(i);
+                String value = textOf(el);
+                if (value != null && !value.isEmpty()) {
+                    sink.accept("dc:" + el.getLocalName(), value);
+                }
+            }
+        } catch (Exception ignored) {}
+    }
+
     public static DocOutline buildDocOutlineFromToc(List<EpubTocItem> toc) {
         DocOutline.Builder outline = DocOutline.newBuilder();
         int[] counter = new int[]{0};
@@ -446,7 +468,7 @@ public final class EpubStructureExtractor {
         return normalizePath(combined);
     }
 
-    private static String normalizePath(String p) {
+    static String normalizePath(String p) {
         if (p == null) return null;
         String[] parts = p.replace('\\', '/').split("/");
         Deque<String> stack = new ArrayDeque<>();
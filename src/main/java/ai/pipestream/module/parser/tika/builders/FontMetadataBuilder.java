@@ -4,17 +4,15 @@ import com.google.protobuf.Struct;
 import ai.pipestream.parsed.data.tika.font.v1.FontMetadata;
 import ai.pipestream.parsed.data.tika.base.v1.TikaBaseFields;
 import ai.pipestream.shaded.tika.metadata.Font;
-import ai.pipestream.shaded.tika.metadata.Metadata;
 import ai.pipestream.shaded.tika.metadata.TikaCoreProperties;
 
-import java.util.HashSet;
-import java.util.Set;
 
 public class FontMetadataBuilder {
 
-    public static FontMetadata build(Metadata md, String parserClass, String tikaVersion, Set<String> excludedKeys) {
+    public static FontMetadata build(IndexedMetadata md, String parserClass, String tikaVersion, IndexedMetadata.FieldSet excludedKeys,
+            MetadataProjection projection) {
         FontMetadata.Builder b = FontMetadata.newBuilder();
-        Set<String> mapped = new HashSet<>(excludedKeys);
+        IndexedMetadata.FieldSet mapped = excludedKeys.copy();
 
         // Basic font name(s)
         MetadataUtils.mapRepeatedStringField(md, Font.FONT_NAME, names -> {
@@ -55,11 +53,11 @@ public class FontMetadataBuilder {
         }
 
         // Additional metadata dump
-        Struct additional = MetadataUtils.buildAdditionalMetadata(md, mapped);
+        Struct additional = MetadataUtils.buildAdditionalMetadata(md, mapped, projection);
         b.setAdditionalMetadata(additional);
 
         // Base fields
-        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, md);
+        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, md, projection);
         b.setBaseFields(base);
 
         return b.build();
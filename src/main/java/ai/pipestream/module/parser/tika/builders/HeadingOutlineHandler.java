@@ -0,0 +1,247 @@
+package ai.pipestream.module.parser.tika.builders;
+
+import ai.pipestream.data.v1.DocOutline;
+import ai.pipestream.data.v1.Section;
+import ai.pipestream.shaded.tika.sax.ContentHandlerDecorator;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Content handler decorator that records h1..h6 headings while Tika writes the body text.
+ * <p>
+ * Tika emits XHTML heading events for HTML, DOCX, ODT, RTF and many other formats. This
+ * decorator sits between {@code BodyContentHandler} and the text writer, counts every
+ * character that is passed downstream and remembers where each heading starts and ends.
+ * After the parse, {@link #buildDocOutline(String)} turns those raw positions into a
+ * DocOutline whose character offsets point into the cleaned body text, so no re-parse of
+ * the original bytes and no text search ({@link SectionOffsetResolver}) is needed.
+ * <p>
+ * Offsets are translated to the body produced by {@code DocumentParser.cleanUpText}
+ * (trim, then every run of {@code \s} collapsed to a single space).
+ */
+public class HeadingOutlineHandler extends ContentHandlerDecorator {
+
+    private final int minHeadingLevel;
+    private final int maxHeadingLevel;
+    private final boolean generateIds;
+
+    private final List<CapturedHeading> headings = new ArrayList<>();
+
+    /** Number of characters passed to the downstream handler so far. */
+    private long written = 0;
+
+    private CapturedHeading current;
+    private int headingDepth = 0;
+
+    public HeadingOutlineHandler(ContentHandler handler) {
+        this(handler, 1, 6, true);
+    }
+
+    public HeadingOutlineHandler(ContentHandler handler, int minHeadingLevel, int maxHeadingLevel, boolean generateIds) {
+        super(handler);
+        this.minHeadingLevel = minHeadingLevel;
+        this.maxHeadingLevel = maxHeadingLevel;
+        this.generateIds = generateIds;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String name, Attributes atts) throws SAXException {
+        int level = headingLevel(localName, name);
+        if (level > 0) {
+            if (headingDepth++ == 0 && level >= minHeadingLevel && level <= maxHeadingLevel) {
+                String id = atts != null ? atts.getValue("id") : null;
+                current = new CapturedHeading(level, id);
+            }
+        }
+        super.startElement(uri, localName, name, atts);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String name) throws SAXException {
+        super.endElement(uri, localName, name);
+        if (headingLevel(localName, name) > 0 && headingDepth > 0 && --headingDepth == 0) {
+            if (current != null && current.rawStart >= 0) {
+                headings.add(current);
+            }
+            current = null;
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        record(ch, start, length);
+        super.characters(ch, start, length);
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+        record(ch, start, length);
+        super.ignorableWhitespace(ch, start, length);
+    }
+
+    private void record(char[] ch, int start, int length) {
+        if (current != null) {
+            if (current.rawStart < 0) {
+                // Anchor the heading at its first visible character, not at leading whitespace
+                for (int i = 0; i < length; i++) {
+                    if (!isCollapsibleWhitespace(ch[start + i])) {
+                        current.rawStart = written + i;
+                        break;
+                    }
+                }
+            }
+            current.text.append(ch, start, length);
+        }
+        written += length;
+    }
+
+    /**
+     * Returns the number of headings captured so far.
+     */
+    public int getHeadingCount() {
+        return headings.size();
+    }
+
+    /**
+     * Builds a DocOutline from the captured headings with char offsets resolved against the
+     * cleaned body text.
+     *
+     * @param rawContent the text written by the downstream handler (i.e. {@code handler.toString()})
+     * @return outline with ids, hierarchy and exact char_start_offset/char_end_offset
+     */
+    public DocOutline buildDocOutline(String rawContent) {
+        DocOutline.Builder outline = DocOutline.newBuilder();
+        if (headings.isEmpty() || rawContent == null || rawContent.isEmpty()) {
+            return outline.build();
+        }
+
+        List<CapturedHeading> usable = new ArrayList<>(headings.size());
+        for (CapturedHeading h : headings) {
+            if (h.rawStart < rawContent.length() && !collapseWhitespace(h.text).isEmpty()) {
+                usable.add(h);
+            }
+        }
+        if (usable.isEmpty()) {
+            return outline.build();
+        }
+
+        // Heading starts plus the end of the text, mapped together in one pass
+        long[] rawOffsets = new long[usable.size() + 1];
+        for (int i = 0; i < usable.size(); i++) {
+            rawOffsets[i] = usable.get(i).rawStart;
+        }
+        rawOffsets[usable.size()] = rawContent.length();
+        int[] starts = toCollapsedOffsets(rawContent, rawOffsets);
+
+        Map<Integer, String> lastSectionIdAtLevel = new HashMap<>();
+        for (int i = 0; i < usable.size(); i++) {
+            CapturedHeading h = usable.get(i);
+            int level = h.level;
+            String tag = "h" + level;
+            boolean hasId = h.id != null && !h.id.isEmpty();
+            String id = hasId ? h.id : (generateIds ? "sec-" + i : "");
+
+            String parentId = null;
+            for (int l = level - 1; l >= 1; l--) {
+                if (lastSectionIdAtLevel.containsKey(l)) {
+                    parentId = lastSectionIdAtLevel.get(l);
+                    break;
+                }
+            }
+
+            Section.Builder sb = Section.newBuilder()
+                    .setId(id)
+                    .setTitle(collapseWhitespace(h.text))
+                    .setDepth(level - 1)
+                    .setHeadingLevel(level)
+                    .setOrderIndex(i)
+                    .addTags("heading")
+                    .addTags(tag)
+                    .setCharStartOffset(starts[i])
+                    .setCharEndOffset(starts[i + 1]);
+            if (hasId) sb.setHref("#" + h.id);
+            if (parentId != null) sb.setParentId(parentId);
+            outline.addSections(sb.build());
+
+            lastSectionIdAtLevel.put(level, id);
+            for (int l = level + 1; l <= 6; l++) {
+                lastSectionIdAtLevel.remove(l);
+            }
+        }
+        return outline.build();
+    }
+
+    /**
+     * Maps ascending raw offsets into offsets of the trimmed, whitespace-collapsed text in a
+     * single pass over {@code raw}.
+     */
+    static int[] toCollapsedOffsets(CharSequence raw, long[] rawOffsets) {
+        int n = raw.length();
+        int start = 0;
+        while (start < n && raw.charAt(start) <= ' ') start++;
+        int end = n;
+        while (end > start && raw.charAt(end - 1) <= ' ') end--;
+
+        int[] out = new int[rawOffsets.length];
+        int k = 0;
+        int collapsed = 0;
+        boolean inSpace = false;
+        for (int i = start; i <= end && k < rawOffsets.length; i++) {
+            while (k < rawOffsets.length && rawOffsets[k] <= i) {
+                out[k++] = collapsed;
+            }
+            if (i == end) break;
+            if (isCollapsibleWhitespace(raw.charAt(i))) {
+                if (!inSpace) {
+                    collapsed++;
+                    inSpace = true;
+                }
+            } else {
+                collapsed++;
+                inSpace = false;
+            }
+        }
+        while (k < rawOffsets.length) {
+            out[k++] = collapsed;
+        }
+        return out;
+    }
+
+    private static String collapseWhitespace(CharSequence text) {
+        return text.toString().trim().replaceAll("\\s+", " ");
+    }
+
+    /** Mirrors the {@code \s} character class used by DocumentParser.cleanUpText. */
+    private static boolean isCollapsibleWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static int headingLevel(String localName, String name) {
+        String tag = localName != null && !localName.isEmpty() ? localName : name;
+        if (tag == null || tag.length() != 2) return 0;
+        char h = tag.charAt(0);
+        char d = tag.charAt(1);
+        if ((h == 'h' || h == 'H') && d >= '1' && d <= '6') {
+            return d - '0';
+        }
+        return 0;
+    }
+
+    private static final class CapturedHeading {
+        final int level;
+        final String id;
+        final StringBuilder text = new StringBuilder();
+        long rawStart = -1;
+
+        CapturedHeading(int level, String id) {
+            this.level = level;
+            this.id = id;
+        }
+    }
+}
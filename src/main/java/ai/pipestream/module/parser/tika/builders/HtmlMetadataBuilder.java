@@ -6,14 +6,14 @@ import ai.pipestream.parsed.data.tika.base.v1.TikaBaseFields;
 import ai.pipestream.shaded.tika.metadata.Metadata;
 import ai.pipestream.shaded.tika.metadata.TikaCoreProperties;
 
-import java.util.HashSet;
 import java.util.Set;
 
 public class HtmlMetadataBuilder {
 
-    public static HtmlMetadata build(Metadata md, String parserClass, String tikaVersion, Set<String> excludedKeys) {
+    public static HtmlMetadata build(IndexedMetadata md, String parserClass, String tikaVersion, IndexedMetadata.FieldSet excludedKeys,
+            MetadataProjection projection) {
         HtmlMetadata.Builder b = HtmlMetadata.newBuilder();
-        Set<String> mapped = new HashSet<>(excludedKeys);
+        IndexedMetadata.FieldSet mapped = excludedKeys.copy();
 
         // Core
         MetadataUtils.mapStringField(md, TikaCoreProperties.TITLE, b::setTitle, mapped);
@@ -75,17 +75,17 @@ public class HtmlMetadataBuilder {
         MetadataUtils.mapStringField(md, TikaCoreProperties.ORIGINAL_RESOURCE_NAME, b::setOriginalResourceName, mapped);
 
         // Additional
-        Struct additional = MetadataUtils.buildAdditionalMetadata(md, mapped);
+        Struct additional = MetadataUtils.buildAdditionalMetadata(md, mapped, projection);
         b.setAdditionalMetadata(additional);
 
         // Base
-        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, md);
+        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, md, projection);
         b.setBaseFields(base);
 
         return b.build();
     }
 
-    private static void mapMeta(Metadata md, HtmlMetadata.Builder b, Set<String> mapped) {
+    private static void mapMeta(IndexedMetadata md, HtmlMetadata.Builder b, Set<String> mapped) {
         // Standard meta
         MetadataUtils.mapStringField(md, "html:meta:description", b::setMetaDescription, mapped);
         MetadataUtils.mapStringField(md, "html:meta:keywords", b::setMetaKeywords, mapped);
@@ -1,26 +1,54 @@
 package ai.pipestream.module.parser.tika.builders;
 
 import ai.pipestream.data.v1.DocOutline;
+import ai.pipestream.data.v1.LinkReference;
 import ai.pipestream.data.v1.Section;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.NodeFilter;
 import org.jsoup.select.NodeTraversor;
-import org.jsoup.select.NodeVisitor;
+import org.jsoup.select.QueryParser;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Builds a neutral DocOutline from an HTML document by reading headings (h1..h6)
  * in document order and constructing a hierarchy using heading levels.
+ * <p>
+ * {@link #analyze} produces the outline, the body links and the head links from a single
+ * Jsoup parse and a single traversal. Script stripping and include/exclude selectors are
+ * applied while walking the tree, so the DOM is never cloned or mutated.
  */
 public final class HtmlOutlineExtractor {
 
     private HtmlOutlineExtractor() {}
 
+    /**
+     * Result of one HTML analysis pass.
+     *
+     * @param outline   headings h1..h6 within the configured level range
+     * @param bodyLinks {@code a[href]} links in the (filtered) body, in document order
+     * @param headLinks {@code link[href]} elements in the head (canonical, alternate, stylesheet, feeds, ...)
+     */
+    public record HtmlAnalysis(DocOutline outline, List<LinkReference> bodyLinks, List<LinkReference> headLinks) {
+        public static HtmlAnalysis empty() {
+            return new HtmlAnalysis(DocOutline.getDefaultInstance(), List.of(), List.of());
+        }
+    }
+
     public static DocOutline buildDocOutlineFromHtml(byte[] htmlBytes) {
         return buildDocOutlineFromHtml(
                 htmlBytes,
@@ -45,114 +73,210 @@ public final class HtmlOutlineExtractor {
         if (htmlBytes == null || htmlBytes.length == 0) {
             return DocOutline.newBuilder().build();
         }
-        // Jsoup handles charset sniffing internally if charset is null
-        Document doc = Jsoup.parse(new String(htmlBytes, Charset.forName("UTF-8")));
-        if (stripScripts) {
-            doc.select("script, noscript").remove();
-        }
-        // Optional include filter: narrow down to subtree(s)
-        Document working = doc;
-        if (includeCss != null && !includeCss.isBlank()) {
-            // Create a shallow doc with the included elements cloned
-            Document filtered = Document.createShell(doc.baseUri());
-            for (Element el : doc.select(includeCss)) {
-                filtered.body().appendChild(el.clone());
-            }
-            working = filtered;
-        }
-        // Optional exclude filter: remove matching elements
-        if (excludeCss != null && !excludeCss.isBlank()) {
-            working.select(excludeCss).remove();
+        try {
+            return analyze(new ByteArrayInputStream(htmlBytes), null, "", includeCss, excludeCss,
+                    stripScripts, minHeadingLevel, maxHeadingLevel, generateIds).outline();
+        } catch (IOException e) {
+            return DocOutline.newBuilder().build();
         }
-        DocOutline.Builder outline = DocOutline.newBuilder();
-
-        // Track last seen heading at each level (1..6) to compute parents
-        Map<Integer, String> lastSectionIdAtLevel = new HashMap<>();
-        int[] orderCounter = new int[]{0};
-
-        NodeTraversor.traverse(new NodeVisitor() {
-            @Override
-            public void head(Node node, int depth) {
-                if (!(node instanceof Element)) return;
-                Element el = (Element) node;
-                String tag = el.tagName().toLowerCase();
-                if (!tag.matches("h[1-6]")) return;
-                int level = Character.getNumericValue(tag.charAt(1));
-                if (level < minHeadingLevel || level > maxHeadingLevel) return;
-                String title = el.text();
-                String generatedId = "sec-" + orderCounter[0];
-                String id = (el.id() != null && !el.id().isEmpty()) ? el.id() : (generateIds ? generatedId : "");
-                String href = (el.id() != null && !el.id().isEmpty()) ? ("#" + el.id()) : null;
-
-                // Find parent: closest previous heading with smaller level
-                String parentId = null;
-                for (int l = level - 1; l >= 1; l--) {
-                    if (lastSectionIdAtLevel.containsKey(l)) {
-                        parentId = lastSectionIdAtLevel.get(l);
-                        break;
-                    }
-                }
-
-                Section.Builder sb = Section.newBuilder()
-                        .setId(id)
-                        .setTitle(title)
-                        .setDepth(level - 1)
-                        .setHeadingLevel(level)
-                        .setOrderIndex(orderCounter[0]++)
-                        .addTags("heading")
-                        .addTags(tag);
-                if (href != null) sb.setHref(href);
-                if (parentId != null) sb.setParentId(parentId);
-
-                outline.addSections(sb.build());
-
-                // Update last seen at this level and clear deeper levels
-                lastSectionIdAtLevel.put(level, id);
-                for (int l = level + 1; l <= 6; l++) {
-                    lastSectionIdAtLevel.remove(l);
-                }
-            }
-
-            @Override
-            public void tail(Node node, int depth) {
-                // no-op
-            }
-        }, doc);
-
-        return outline.build();
     }
 
-    public static java.util.List<ai.pipestream.data.v1.LinkReference> extractLinks(
+    public static List<LinkReference> extractLinks(
             byte[] htmlBytes,
             String baseUri,
             boolean stripScripts,
             String includeCss,
             String excludeCss
     ) {
-        java.util.List<ai.pipestream.data.v1.LinkReference> out = new java.util.ArrayList<>();
-        if (htmlBytes == null || htmlBytes.length == 0) return out;
-        Document doc = Jsoup.parse(new String(htmlBytes, Charset.forName("UTF-8")), baseUri);
-        if (stripScripts) doc.select("script, noscript").remove();
-        Document working = doc;
+        if (htmlBytes == null || htmlBytes.length == 0) return new ArrayList<>();
+        try {
+            return analyze(new ByteArrayInputStream(htmlBytes), null, baseUri, includeCss, excludeCss,
+                    stripScripts, 1, 6, true).bodyLinks();
+        } catch (IOException e) {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Parses the HTML once and collects outline, body links and head links in one traversal.
+     *
+     * @param in              raw HTML bytes; not closed by this method
+     * @param charsetName     charset already detected upstream (e.g. Tika's Content-Encoding), or null to let
+     *                        Jsoup sniff the BOM and {@code <meta charset>} itself
+     * @param baseUri         base URI for resolving relative links ({@code <base href>} takes precedence)
+     * @param includeCss      optional selector; only matched subtrees are walked for headings and body links
+     * @param excludeCss      optional selector; matched subtrees are skipped
+     * @param stripScripts    skip {@code <script>}/{@code <noscript>} content
+     * @param minHeadingLevel lowest heading level to keep (1..6)
+     * @param maxHeadingLevel highest heading level to keep (1..6)
+     * @param generateIds     generate {@code sec-N} ids for headings without an id attribute
+     */
+    public static HtmlAnalysis analyze(
+            InputStream in,
+            String charsetName,
+            String baseUri,
+            String includeCss,
+            String excludeCss,
+            boolean stripScripts,
+            int minHeadingLevel,
+            int maxHeadingLevel,
+            boolean generateIds
+    ) throws IOException {
+        Document doc = Jsoup.parse(in, supportedCharset(charsetName), baseUri == null ? "" : baseUri);
+
+        List<LinkReference> headLinks = new ArrayList<>();
+        for (Element link : doc.head().getElementsByTag("link")) {
+            String href = link.attr("href");
+            if (href.isEmpty()) continue;
+            String abs = link.absUrl("href");
+            LinkReference.Builder lb = LinkReference.newBuilder().setUrl(!abs.isEmpty() ? abs : href);
+            String rel = link.attr("rel");
+            String type = link.attr("type");
+            String title = link.attr("title");
+            if (!rel.isEmpty()) lb.setRel(rel);
+            if (!type.isEmpty()) lb.setType(type);
+            if (!title.isEmpty()) lb.setText(title);
+            headLinks.add(lb.build());
+        }
+
+        Evaluator exclude = excludeCss != null && !excludeCss.isBlank() ? QueryParser.parse(excludeCss) : null;
+        List<Element> roots;
         if (includeCss != null && !includeCss.isBlank()) {
-            Document filtered = Document.createShell(doc.baseUri());
-            for (Element el : doc.select(includeCss)) filtered.body().appendChild(el.clone());
-            working = filtered;
+            roots = outermost(doc.select(includeCss));
+        } else {
+            roots = List.of(doc.body());
         }
-        if (excludeCss != null && !excludeCss.isBlank()) {
-            working.select(excludeCss).remove();
+
+        OutlineCollector collector = new OutlineCollector(exclude, stripScripts, minHeadingLevel, maxHeadingLevel, generateIds);
+        for (Element root : roots) {
+            NodeTraversor.filter(collector, root);
         }
-        for (Element a : working.select("a[href]")) {
+        return new HtmlAnalysis(collector.outline.build(), collector.bodyLinks, headLinks);
+    }
+
+    /**
+     * Drops selected elements that are nested inside another selected element so no subtree is walked twice.
+     */
+    private static List<Element> outermost(List<Element> selected) {
+        if (selected.size() <= 1) return selected;
+        Set<Element> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        set.addAll(selected);
+        List<Element> out = new ArrayList<>(selected.size());
+        for (Element el : selected) {
+            boolean nested = false;
+            for (Element p = el.parent(); p != null; p = p.parent()) {
+                if (set.contains(p)) {
+                    nested = true;
+                    break;
+                }
+            }
+            if (!nested) out.add(el);
+        }
+        return out;
+    }
+
+    private static String supportedCharset(String charsetName) {
+        if (charsetName == null || charsetName.isBlank()) return null;
+        try {
+            return Charset.isSupported(charsetName.trim()) ? charsetName.trim() : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static final class OutlineCollector implements NodeFilter {
+        private final Evaluator exclude;
+        private final boolean stripScripts;
+        private final int minHeadingLevel;
+        private final int maxHeadingLevel;
+        private final boolean generateIds;
+
+        final DocOutline.Builder outline = DocOutline.newBuilder();
+        final List<LinkReference> bodyLinks = new ArrayList<>();
+
+        // Track last seen heading at each level (1..6) to compute parents
+        private final Map<Integer, String> lastSectionIdAtLevel = new HashMap<>();
+        private int orderCounter = 0;
+
+        OutlineCollector(Evaluator exclude, boolean stripScripts, int minHeadingLevel, int maxHeadingLevel, boolean generateIds) {
+            this.exclude = exclude;
+            this.stripScripts = stripScripts;
+            this.minHeadingLevel = minHeadingLevel;
+            this.maxHeadingLevel = maxHeadingLevel;
+            this.generateIds = generateIds;
+        }
+
+        @Override
+        public FilterResult head(Node node, int depth) {
+            if (!(node instanceof Element el)) return FilterResult.CONTINUE;
+            String tag = el.normalName();
+            if (stripScripts && (tag.equals("script") || tag.equals("noscript"))) {
+                return FilterResult.SKIP_ENTIRELY;
+            }
+            if (exclude != null && el.is(exclude)) {
+                return FilterResult.SKIP_ENTIRELY;
+            }
+            if (tag.equals("a")) {
+                addLink(el);
+            } else if (tag.length() == 2 && tag.charAt(0) == 'h' && tag.charAt(1) >= '1' && tag.charAt(1) <= '6') {
+                addHeading(el, tag);
+            }
+            return FilterResult.CONTINUE;
+        }
+
+        @Override
+        public FilterResult tail(Node node, int depth) {
+            return FilterResult.CONTINUE;
+        }
+
+        private void addLink(Element a) {
+            if (!a.hasAttr("href")) return;
             String href = a.attr("href");
-            String abs = a.hasAttr("href") ? a.absUrl("href") : null;
+            String abs = a.absUrl("href");
             String text = a.text();
             String rel = a.attr("rel");
-            ai.pipestream.data.v1.LinkReference.Builder lb = ai.pipestream.data.v1.LinkReference.newBuilder()
-                    .setUrl(abs != null && !abs.isEmpty() ? abs : href);
-            if (text != null && !text.isEmpty()) lb.setText(text);
-            if (rel != null && !rel.isEmpty()) lb.setRel(rel);
-            out.add(lb.build());
+            LinkReference.Builder lb = LinkReference.newBuilder()
+                    .setUrl(!abs.isEmpty() ? abs : href);
+            if (!text.isEmpty()) lb.setText(text);
+            if (!rel.isEmpty()) lb.setRel(rel);
+            bodyLinks.add(lb.build());
+        }
+
+        private void addHeading(Element el, String tag) {
+            int level = tag.charAt(1) - '0';
+            if (level < minHeadingLevel || level > maxHeadingLevel) return;
+            String title = el.text();
+            String generatedId = "sec-" + orderCounter;
+            String id = !el.id().isEmpty() ? el.id() : (generateIds ? generatedId : "");
+            String href = !el.id().isEmpty() ? ("#" + el.id()) : null;
+
+            // Find parent: closest previous heading with smaller level
+            String parentId = null;
+            for (int l = level - 1; l >= 1; l--) {
+                if (lastSectionIdAtLevel.containsKey(l)) {
+                    parentId = lastSectionIdAtLevel.get(l);
+                    break;
+                }
+            }
+
+            Section.Builder sb = Section.newBuilder()
+                    .setId(id)
+                    .setTitle(title)
+                    .setDepth(level - 1)
+                    .setHeadingLevel(level)
+                    .setOrderIndex(orderCounter++)
+                    .addTags("heading")
+                    .addTags(tag);
+            if (href != null) sb.setHref(href);
+            if (parentId != null) sb.setParentId(parentId);
+
+            outline.addSections(sb.build());
+
+            // Update last seen at this level and clear deeper levels
+            lastSectionIdAtLevel.put(level, id);
+            for (int l = level + 1; l <= 6; l++) {
+                lastSectionIdAtLevel.remove(l);
+            }
         }
-        return out;
     }
 }
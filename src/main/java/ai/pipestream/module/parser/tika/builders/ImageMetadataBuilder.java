@@ -6,20 +6,19 @@ import ai.pipestream.parsed.data.image.v1.ExifMetadata;
 import ai.pipestream.parsed.data.image.v1.GpsMetadata;
 import ai.pipestream.parsed.data.image.v1.IptcMetadata;
 import ai.pipestream.parsed.data.tika.base.v1.TikaBaseFields;
-import ai.pipestream.shaded.tika.metadata.Metadata;
 import ai.pipestream.shaded.tika.metadata.TIFF;
 import ai.pipestream.shaded.tika.metadata.IPTC;
 import ai.pipestream.shaded.tika.metadata.Photoshop;
 import ai.pipestream.shaded.tika.metadata.TikaCoreProperties;
 
-import java.util.HashSet;
 import java.util.Set;
 
 public class ImageMetadataBuilder {
 
-    public static ImageMetadata build(Metadata md, String parserClass, String tikaVersion, Set<String> excludedKeys) {
+    public static ImageMetadata build(IndexedMetadata md, String parserClass, String tikaVersion, IndexedMetadata.FieldSet excludedKeys,
+            MetadataProjection projection) {
         ImageMetadata.Builder b = ImageMetadata.newBuilder();
-        Set<String> mapped = new HashSet<>(excludedKeys);
+        IndexedMetadata.FieldSet mapped = excludedKeys.copy();
 
         mapBasic(md, b, mapped);
         mapDates(md, b, mapped);
@@ -28,16 +27,16 @@ public class ImageMetadataBuilder {
         mapIptc(md, b, mapped);
         mapAdditional(md, b, mapped);
 
-        Struct additional = MetadataUtils.buildAdditionalMetadata(md, mapped);
+        Struct additional = MetadataUtils.buildAdditionalMetadata(md, mapped, projection);
         b.setAdditionalMetadata(additional);
 
-        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, md);
+        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, md, projection);
         b.setBaseFields(base);
 
         return b.build();
     }
 
-    private static void mapBasic(Metadata md, ImageMetadata.Builder b, Set<String> mapped) {
+    private static void mapBasic(IndexedMetadata md, ImageMetadata.Builder b, Set<String> mapped) {
         MetadataUtils.mapIntField(md, TIFF.IMAGE_WIDTH, b::setWidth, mapped);
         MetadataUtils.mapIntField(md, TIFF.IMAGE_LENGTH, b::setHeight, mapped);
         MetadataUtils.mapRepeatedIntField(md, TIFF.BITS_PER_SAMPLE, b::addAllBitsPerSample, mapped);
@@ -56,12 +55,12 @@ public class ImageMetadataBuilder {
         MetadataUtils.mapStringField(md, Photoshop.STATE, v -> b.getIptcBuilder().setProvinceState(v), mapped);
     }
 
-    private static void mapDates(Metadata md, ImageMetadata.Builder b, Set<String> mapped) {
+    private static void mapDates(IndexedMetadata md, ImageMetadata.Builder b, Set<String> mapped) {
         MetadataUtils.mapTimestampField(md, TIFF.ORIGINAL_DATE, b::setDateTimeOriginal, mapped);
         MetadataUtils.mapTimestampField(md, TikaCoreProperties.MODIFIED, b::setDateTime, mapped);
     }
 
-    private static void mapExif(Metadata md, ImageMetadata.Builder b, Set<String> mapped) {
+    private static void mapExif(IndexedMetadata md, ImageMetadata.Builder b, Set<String> mapped) {
         ExifMetadata.Builder ex = ExifMetadata.newBuilder();
         MetadataUtils.mapDoubleField(md, ai.pipestream.shaded.tika.metadata.Metadata.EXPOSURE_TIME, ex::setExposureTime, mapped);
         MetadataUtils.mapDoubleField(md, ai.pipestream.shaded.tika.metadata.Metadata.F_NUMBER, ex::setFNumber, mapped);
@@ -73,7 +72,7 @@ public class ImageMetadataBuilder {
         b.setExif(ex.build());
     }
 
-    private static void mapGps(Metadata md, ImageMetadata.Builder b, Set<String> mapped) {
+    private static void mapGps(IndexedMetadata md, ImageMetadata.Builder b, Set<String> mapped) {
         GpsMetadata.Builder g = GpsMetadata.newBuilder();
         MetadataUtils.mapDoubleField(md, TikaCoreProperties.LATITUDE, g::setLatitude, mapped);
         MetadataUtils.mapDoubleField(md, TikaCoreProperties.LONGITUDE, g::setLongitude, mapped);
@@ -82,7 +81,7 @@ public class ImageMetadataBuilder {
         b.setGps(g.build());
     }
 
-    private static void mapIptc(Metadata md, ImageMetadata.Builder b, Set<String> mapped) {
+    private static void mapIptc(IndexedMetadata md, ImageMetadata.Builder b, Set<String> mapped) {
         IptcMetadata.Builder i = IptcMetadata.newBuilder();
         MetadataUtils.mapStringField(md, IPTC.HEADLINE, i::setHeadline, mapped);
         MetadataUtils.mapStringField(md, IPTC.DESCRIPTION, i::setCaption, mapped);
@@ -102,7 +101,7 @@ public class ImageMetadataBuilder {
         b.setIptc(i.build());
     }
 
-    private static void mapAdditional(Metadata md, ImageMetadata.Builder b, Set<String> mapped) {
+    private static void mapAdditional(IndexedMetadata md, ImageMetadata.Builder b, Set<String> mapped) {
         MetadataUtils.mapIntField(md, TIFF.EXIF_PAGE_COUNT, b::setPageCount, mapped);
         MetadataUtils.mapStringField(md, TikaCoreProperties.COMMENTS, v -> b.addKeywords(v), mapped);
     }
@@ -0,0 +1,222 @@
+package ai.pipestream.module.parser.tika.builders;
+
+import ai.pipestream.shaded.tika.metadata.Metadata;
+import ai.pipestream.shaded.tika.metadata.Property;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Read-only snapshot of a Tika {@link Metadata}, taken once per document and shared by Dublin
+ * Core extraction, the type builders and the struct builders.
+ * <p>
+ * Names and values are copied into arrays in a single pass, and every field gets an ordinal.
+ * Mapped and excluded fields are tracked per ordinal in a {@link FieldSet} (a bitset) instead
+ * of copies of {@code HashSet<String>}, so deciding which fields are unmapped is a bit test
+ * per field. The source {@link Metadata} must not be modified while the view is in use;
+ * {@link #getDate(Property)} still delegates to it for Tika's date parsing.
+ */
+public final class IndexedMetadata {
+
+    private static final String[] NO_VALUES = new String[0];
+
+    private final Metadata source;
+    private final String[] names;
+    private final String[] lowerNames;
+    private final String[][] values;
+    private final Map<String, Integer> index;
+    private final List<String> nameList;
+
+    private IndexedMetadata(Metadata source) {
+        this.source = source;
+        this.names = source.names();
+        this.lowerNames = new String[names.length];
+        this.values = new String[names.length][];
+        this.index = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            lowerNames[i] = names[i].toLowerCase(Locale.ROOT);
+            values[i] = source.getValues(names[i]);
+            index.put(names[i], i);
+        }
+        this.nameList = Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    /**
+     * Indexes {@code metadata}; this is the only pass over its names and values.
+     */
+    public static IndexedMetadata of(Metadata metadata) {
+        return new IndexedMetadata(metadata);
+    }
+
+    /** Number of fields. */
+    public int size() {
+        return names.length;
+    }
+
+    /** Field names in ordinal order. */
+    public List<String> names() {
+        return nameList;
+    }
+
+    public String name(int ordinal) {
+        return names[ordinal];
+    }
+
+    /** Lower-cased field name, computed once at indexing time. */
+    public String lowerName(int ordinal) {
+        return lowerNames[ordinal];
+    }
+
+    /** Values of a field by ordinal; never null. Callers must not modify the array. */
+    public String[] values(int ordinal) {
+        String[] v = values[ordinal];
+        return v != null ? v : NO_VALUES;
+    }
+
+    /** Ordinal of a field, or -1 if the metadata has no such field. */
+    public int indexOf(String name) {
+        Integer ordinal = index.get(name);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /** First value of a field, or null. */
+    public String get(String name) {
+        int ordinal = indexOf(name);
+        if (ordinal < 0) {
+            return null;
+        }
+        String[] v = values(ordinal);
+        return v.length > 0 ? v[0] : null;
+    }
+
+    public String get(Property property) {
+        return get(property.getName());
+    }
+
+    /** All values of a field; empty if absent. Callers must not modify the array. */
+    public String[] getValues(String name) {
+        int ordinal = indexOf(name);
+        return ordinal < 0 ? NO_VALUES : values(ordinal);
+    }
+
+    /** Date value parsed the way Tika does; null if absent or unparseable. */
+    public Date getDate(Property property) {
+        return indexOf(property.getName()) < 0 ? null : source.getDate(property);
+    }
+
+    /** An empty set of fields of this metadata. */
+    public FieldSet newFieldSet() {
+        return new FieldSet(this, new BitSet(names.length));
+    }
+
+    /**
+     * A set of field names of one {@link IndexedMetadata}, stored as a bitset over its ordinals.
+     * Names the metadata does not contain are not recorded — {@link #add} returns false for them —
+     * since they can never show up as unmapped fields.
+     */
+    public static final class FieldSet extends AbstractSet<String> {
+        private final IndexedMetadata metadata;
+        private final BitSet bits;
+
+        private FieldSet(IndexedMetadata metadata, BitSet bits) {
+            this.metadata = metadata;
+            this.bits = bits;
+        }
+
+        /** An independent copy, for a builder to extend without affecting the shared set. */
+        public FieldSet copy() {
+            return new FieldSet(metadata, (BitSet) bits.clone());
+        }
+
+        /** Whether this set belongs to {@code view}, so ordinals can be tested directly. */
+        boolean isOver(IndexedMetadata view) {
+            return metadata == view;
+        }
+
+        public boolean contains(int ordinal) {
+            return bits.get(ordinal);
+        }
+
+        public boolean add(int ordinal) {
+            if (bits.get(ordinal)) {
+                return false;
+            }
+            bits.set(ordinal);
+            return true;
+        }
+
+        @Override
+        public boolean add(String name) {
+            int ordinal = metadata.indexOf(name);
+            return ordinal >= 0 && add(ordinal);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof String name)) {
+                return false;
+            }
+            int ordinal = metadata.indexOf(name);
+            return ordinal >= 0 && bits.get(ordinal);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!(o instanceof String name)) {
+                return false;
+            }
+            int ordinal = metadata.indexOf(name);
+            if (ordinal < 0 || !bits.get(ordinal)) {
+                return false;
+            }
+            bits.clear(ordinal);
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return bits.cardinality();
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<>() {
+                private int next = bits.nextSetBit(0);
+                private int last = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public String next() {
+                    if (next < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    last = next;
+                    next = bits.nextSetBit(next + 1);
+                    return metadata.name(last);
+                }
+
+                @Override
+                public void remove() {
+                    if (last < 0) {
+                        throw new IllegalStateException();
+                    }
+                    bits.clear(last);
+                    last = -1;
+                }
+            };
+        }
+    }
+}
@@ -4,6 +4,7 @@ import ai.pipestream.data.v1.DocOutline;
 import ai.pipestream.data.v1.LinkReference;
 import ai.pipestream.data.v1.Section;
 import org.commonmark.node.*;
+import org.commonmark.parser.IncludeSourceSpans;
 import org.commonmark.parser.Parser;
 
 import java.nio.charset.Charset;
@@ -11,11 +12,28 @@ import java.util.*;
 
 /**
  * Extracts headings and links from Markdown using CommonMark.
+ * <p>
+ * The parser is built once and shared (CommonMark parsers are thread-safe). {@link #analyze}
+ * walks the tree once and returns the outline, with exact offsets taken from block source
+ * spans, together with the links.
  */
 public final class MarkdownExtractor {
 
+    private static final Parser PARSER = Parser.builder()
+            .includeSourceSpans(IncludeSourceSpans.BLOCKS)
+            .build();
+
     private MarkdownExtractor() {}
 
+    /**
+     * Result of one Markdown analysis pass.
+     *
+     * @param outline headings with char offsets into the trimmed, whitespace-collapsed source
+     *                (the same normalization {@code DocumentParser} applies to the body)
+     * @param links   inline links in document order
+     */
+    public record MarkdownAnalysis(DocOutline outline, List<LinkReference> links) {}
+
     public static DocOutline buildDocOutlineFromMarkdown(byte[] markdownBytes,
                                                          int minHeadingLevel,
                                                          int maxHeadingLevel,
@@ -24,12 +42,38 @@ public final class MarkdownExtractor {
             return DocOutline.newBuilder().build();
         }
         String md = new String(markdownBytes, Charset.forName("UTF-8"));
-        Parser parser = Parser.builder().build();
-        Node document = parser.parse(md);
+        return analyze(md, minHeadingLevel, maxHeadingLevel, generateIds).outline();
+    }
 
-        DocOutline.Builder outline = DocOutline.newBuilder();
+    public static List<LinkReference> extractLinks(byte[] markdownBytes, String baseUri) {
+        if (markdownBytes == null || markdownBytes.length == 0) return new ArrayList<>();
+        String md = new String(markdownBytes, Charset.forName("UTF-8"));
+        // is_external determination (best effort) left to service when source_uri is available
+        return new ArrayList<>(analyze(md, 1, 6, true).links());
+    }
+
+    /**
+     * Parses the Markdown source once and collects headings and links.
+     *
+     * @param markdown        original Markdown source (not Tika's collapsed body)
+     * @param minHeadingLevel lowest heading level to keep (1..6)
+     * @param maxHeadingLevel highest heading level to keep (1..6)
+     * @param generateIds     generate {@code sec-N} section ids
+     */
+    public static MarkdownAnalysis analyze(String markdown,
+                                           int minHeadingLevel,
+                                           int maxHeadingLevel,
+                                           boolean generateIds) {
+        if (markdown == null || markdown.isEmpty()) {
+            return new MarkdownAnalysis(DocOutline.newBuilder().build(), List.of());
+        }
+        Node document = PARSER.parse(markdown);
+
+        List<Section.Builder> sections = new ArrayList<>();
+        List<Long> rawStarts = new ArrayList<>();
+        List<LinkReference> links = new ArrayList<>();
         Map<Integer, String> lastSectionIdAtLevel = new HashMap<>();
-        int[] orderCounter = new int[]{0};
+        int[] lineStarts = lineStarts(markdown);
 
         document.accept(new AbstractVisitor() {
             @Override
@@ -39,8 +83,9 @@ public final class MarkdownExtractor {
                     visitChildren(heading);
                     return;
                 }
+                int order = sections.size();
                 String title = extractText(heading);
-                String generatedId = "sec-" + orderCounter[0];
+                String generatedId = "sec-" + order;
                 String id = generateIds ? generatedId : "";
 
                 // Find parent id from last seen heading with smaller level
@@ -57,31 +102,19 @@ public final class MarkdownExtractor {
                         .setTitle(title)
                         .setDepth(level - 1)
                         .setHeadingLevel(level)
-                        .setOrderIndex(orderCounter[0]++)
+                        .setOrderIndex(order)
                         .addTags("heading")
                         .addTags("h" + level);
                 if (parentId != null) sb.setParentId(parentId);
-
-                outline.addSections(sb.build());
+                sections.add(sb);
+                rawStarts.add(sourceOffset(heading, lineStarts));
 
                 lastSectionIdAtLevel.put(level, id);
                 for (int l = level + 1; l <= 6; l++) lastSectionIdAtLevel.remove(l);
 
                 visitChildren(heading);
             }
-        });
-
-        return outline.build();
-    }
-
-    public static List<LinkReference> extractLinks(byte[] markdownBytes, String baseUri) {
-        List<LinkReference> out = new ArrayList<>();
-        if (markdownBytes == null || markdownBytes.length == 0) return out;
-        String md = new String(markdownBytes, Charset.forName("UTF-8"));
-        Parser parser = Parser.builder().build();
-        Node document = parser.parse(md);
 
-        document.accept(new AbstractVisitor() {
             @Override
             public void visit(Link link) {
                 String url = link.getDestination();
@@ -90,12 +123,88 @@ public final class MarkdownExtractor {
                 if (text != null && !text.isEmpty()) lb.setText(text);
                 String title = link.getTitle();
                 if (title != null && !title.isEmpty()) lb.setType(title); // repurpose title as type hint if present
-                out.add(lb.build());
+                links.add(lb.build());
                 visitChildren(link);
             }
         });
-        // is_external determination (best effort) left to service when source_uri is available
-        return out;
+
+        DocOutline.Builder outline = DocOutline.newBuilder();
+        if (!sections.isEmpty()) {
+            boolean allSpans = !rawStarts.contains(-1L);
+            int[] starts = null;
+            if (allSpans) {
+                // Heading starts plus the end of the source, mapped in one pass
+                long[] raw = new long[rawStarts.size() + 1];
+                for (int i = 0; i < rawStarts.size(); i++) raw[i] = rawStarts.get(i);
+                raw[rawStarts.size()] = markdown.length();
+                starts = HeadingOutlineHandler.toCollapsedOffsets(markdown, raw);
+            }
+            for (int i = 0; i < sections.size(); i++) {
+                Section.Builder sb = sections.get(i);
+                if (starts != null) {
+                    sb.setCharStartOffset(starts[i]).setCharEndOffset(starts[i + 1]);
+                }
+                outline.addSections(sb.build());
+            }
+        }
+        return new MarkdownAnalysis(outline.build(), links);
+    }
+
+    /**
+     * Returns true when {@code body} is exactly the trimmed, whitespace-collapsed form of
+     * {@code markdown}, i.e. the outline offsets from {@link #analyze} point into it.
+     * Compares on the fly without building the collapsed string.
+     */
+    public static boolean matchesCollapsedSource(String markdown, String body) {
+        if (markdown == null || body == null) return false;
+        int n = markdown.length();
+        int start = 0;
+        while (start < n && markdown.charAt(start) <= ' ') start++;
+        int end = n;
+        while (end > start && markdown.charAt(end - 1) <= ' ') end--;
+
+        int b = 0;
+        boolean inSpace = false;
+        for (int i = start; i < end; i++) {
+            char c = markdown.charAt(i);
+            boolean space = c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+            if (space) {
+                if (inSpace) continue;
+                inSpace = true;
+                c = ' ';
+            } else {
+                inSpace = false;
+            }
+            if (b >= body.length() || body.charAt(b++) != c) return false;
+        }
+        return b == body.length();
+    }
+
+    /** Offset of the block's first character in the source, or -1 without source spans. */
+    private static long sourceOffset(Block block, int[] lineStarts) {
+        List<SourceSpan> spans = block.getSourceSpans();
+        if (spans == null || spans.isEmpty()) return -1;
+        SourceSpan span = spans.get(0);
+        if (span.getLineIndex() < 0 || span.getLineIndex() >= lineStarts.length) return -1;
+        return (long) lineStarts[span.getLineIndex()] + span.getColumnIndex();
+    }
+
+    /** Start offset of every line, splitting on \n, \r\n and \r as CommonMark does. */
+    private static int[] lineStarts(String source) {
+        int[] starts = new int[16];
+        int count = 0;
+        starts[count++] = 0;
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (c == '\r' && i + 1 < source.length() && source.charAt(i + 1) == '\n') {
+                i++;
+            } else if (c != '\n' && c != '\r') {
+                continue;
+            }
+            if (count == starts.length) starts = Arrays.copyOf(starts, count * 2);
+            starts[count++] = i + 1;
+        }
+        return Arrays.copyOf(starts, count);
     }
 
     private static String extractText(Node node) {
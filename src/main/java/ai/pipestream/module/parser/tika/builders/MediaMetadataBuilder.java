@@ -3,18 +3,17 @@ package ai.pipestream.module.parser.tika.builders;
 import com.google.protobuf.Struct;
 import ai.pipestream.parsed.data.media.v1.MediaMetadata;
 import ai.pipestream.parsed.data.tika.base.v1.TikaBaseFields;
-import ai.pipestream.shaded.tika.metadata.Metadata;
 import ai.pipestream.shaded.tika.metadata.TikaCoreProperties;
 import ai.pipestream.shaded.tika.metadata.XMPDM;
 
-import java.util.HashSet;
 import java.util.Set;
 
 public class MediaMetadataBuilder {
 
-    public static MediaMetadata build(Metadata md, String parserClass, String tikaVersion, Set<String> excludedKeys) {
+    public static MediaMetadata build(IndexedMetadata md, String parserClass, String tikaVersion, IndexedMetadata.FieldSet excludedKeys,
+            MetadataProjection projection) {
         MediaMetadata.Builder b = MediaMetadata.newBuilder();
-        Set<String> mapped = new HashSet<>(excludedKeys);
+        IndexedMetadata.FieldSet mapped = excludedKeys.copy();
 
         mapCore(md, b, mapped);
         mapXmpdm(md, b, mapped);
@@ -22,16 +21,16 @@ public class MediaMetadataBuilder {
         mapTech(md, b, mapped);
         mapGeoAndParse(md, b, mapped);
 
-        Struct additional = MetadataUtils.buildAdditionalMetadata(md, mapped);
+        Struct additional = MetadataUtils.buildAdditionalMetadata(md, mapped, projection);
         b.setAdditionalMetadata(additional);
 
-        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, md);
+        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, md, projection);
         b.setBaseFields(base);
 
         return b.build();
     }
 
-    private static void mapCore(Metadata md, MediaMetadata.Builder b, Set<String> mapped) {
+    private static void mapCore(IndexedMetadata md, MediaMetadata.Builder b, Set<String> mapped) {
         MetadataUtils.mapStringField(md, TikaCoreProperties.TITLE, b::setTitle, mapped);
         MetadataUtils.mapStringField(md, TikaCoreProperties.CREATOR, b::setCreator, mapped);
         MetadataUtils.mapStringField(md, TikaCoreProperties.DESCRIPTION, b::setDescription, mapped);
@@ -54,7 +53,7 @@ public class MediaMetadataBuilder {
         MetadataUtils.mapIntField(md, TikaCoreProperties.RATING, b::setRating, mapped);
     }
 
-    private static void mapXmpdm(Metadata md, MediaMetadata.Builder b, Set<String> mapped) {
+    private static void mapXmpdm(IndexedMetadata md, MediaMetadata.Builder b, Set<String> mapped) {
         MetadataUtils.mapStringField(md, XMPDM.ABS_PEAK_AUDIO_FILE_PATH, b::setAbsPeakAudioFilePath, mapped);
         MetadataUtils.mapStringField(md, XMPDM.ALBUM, b::setAlbum, mapped);
         MetadataUtils.mapStringField(md, XMPDM.ALT_TAPE_NAME, b::setAltTapeName, mapped);
@@ -105,7 +104,7 @@ public class MediaMetadataBuilder {
         MetadataUtils.mapStringField(md, XMPDM.VIDEO_PIXEL_ASPECT_RATIO, b::setVideoPixelAspectRatio, mapped);
     }
 
-    private static void mapParserSpecific(Metadata md, MediaMetadata.Builder b, Set<String> mapped) {
+    private static void mapParserSpecific(IndexedMetadata md, MediaMetadata.Builder b, Set<String> mapped) {
         MetadataUtils.mapStringField(md, "Content-Type", b::setContentType, mapped);
         // Common parser outputs for MP3/MP4
         MetadataUtils.mapStringField(md, "samplerate", b::setSamplerate, mapped);
@@ -117,7 +116,7 @@ public class MediaMetadataBuilder {
         MetadataUtils.mapStringField(md, "year", b::setYear, mapped);
     }
 
-    private static void mapTech(Metadata md, MediaMetadata.Builder b, Set<String> mapped) {
+    private static void mapTech(IndexedMetadata md, MediaMetadata.Builder b, Set<String> mapped) {
         MetadataUtils.mapLongField(md, TikaCoreProperties.PARSE_TIME_MILLIS, v -> {}, mapped); // just to suppress unknown
         // Technical
         MetadataUtils.mapIntField(md, "bitrate", b::setBitrate, mapped);
@@ -134,7 +133,7 @@ public class MediaMetadataBuilder {
         MetadataUtils.mapStringField(md, "xmpDM:codec", b::setCodec, mapped);
     }
 
-    private static void mapGeoAndParse(Metadata md, MediaMetadata.Builder b, Set<String> mapped) {
+    private static void mapGeoAndParse(IndexedMetadata md, MediaMetadata.Builder b, Set<String> mapped) {
         MetadataUtils.mapDoubleField(md, TikaCoreProperties.LATITUDE, b::setLatitude, mapped);
         MetadataUtils.mapDoubleField(md, TikaCoreProperties.LONGITUDE, b::setLongitude, mapped);
         MetadataUtils.mapDoubleField(md, TikaCoreProperties.ALTITUDE, b::setAltitude, mapped);
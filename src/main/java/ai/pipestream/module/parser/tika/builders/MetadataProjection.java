@@ -0,0 +1,139 @@
+package ai.pipestream.module.parser.tika.builders;
+
+import ai.pipestream.module.parser.config.ParsingOptions;
+
+import java.util.Map;
+
+/**
+ * Which Tika metadata values make it into a TikaResponse's structs ({@code additional_metadata},
+ * {@code raw_metadata}, generic {@code all_metadata}).
+ * <p>
+ * Image and media files routinely carry hundreds of EXIF/XMP fields, several of them thumbnails
+ * or maker notes encoded as text. Dropping the raw copy, capping value length and skipping
+ * binary-looking values keeps the response small without touching the strongly-typed fields.
+ *
+ * @param includeRawMetadata whether {@code base_fields.raw_metadata} repeats every Tika field
+ * @param maxValueLength     longer values are truncated to this many characters; -1 for unlimited
+ * @param dropBinaryValues   whether values that look like encoded binary data are left out
+ */
+public record MetadataProjection(boolean includeRawMetadata, int maxValueLength, boolean dropBinaryValues) {
+
+    /** Everything, untruncated — the behaviour before projection existed. */
+    public static final MetadataProjection ALL = new MetadataProjection(true, -1, false);
+
+    /** Base64 runs at least this long without whitespace are treated as binary. */
+    private static final int MIN_BASE64_LENGTH = 256;
+
+    /**
+     * Random base64 has a {@code /} about every 64 characters; text averaging fewer characters
+     * than this between slashes is a path or URL, not encoded data.
+     */
+    private static final int MIN_BASE64_SLASH_SPACING = 24;
+
+    /** How much of a value is inspected for control characters. */
+    private static final int BINARY_SAMPLE = 1024;
+
+    /**
+     * Projection for the given parsing options; unset options keep today's defaults
+     * (raw metadata included, 10000-character values, binary values kept).
+     */
+    public static MetadataProjection of(ParsingOptions options) {
+        if (options == null) {
+            options = ParsingOptions.defaultOptions();
+        }
+        ParsingOptions defaults = ParsingOptions.defaultOptions();
+        return new MetadataProjection(
+                options.includeRawMetadata() != null ? options.includeRawMetadata() : defaults.includeRawMetadata(),
+                options.maxMetadataValueLength() != null ? options.maxMetadataValueLength() : defaults.maxMetadataValueLength(),
+                options.dropBinaryMetadata() != null ? options.dropBinaryMetadata() : defaults.dropBinaryMetadata());
+    }
+
+    /**
+     * Projection from the flattened config map used by {@code DocumentParser}.
+     */
+    public static MetadataProjection fromConfig(Map<String, String> config) {
+        ParsingOptions defaults = ParsingOptions.defaultOptions();
+        String includeRaw = config.get("includeRawMetadata");
+        String maxLength = config.get("maxMetadataValueLength");
+        String dropBinary = config.get("dropBinaryMetadata");
+        int max = defaults.maxMetadataValueLength();
+        if (maxLength != null) {
+            try {
+                max = Integer.parseInt(maxLength.trim());
+            } catch (NumberFormatException ignored) {
+                // keep the default
+            }
+        }
+        return new MetadataProjection(
+                includeRaw != null ? Boolean.parseBoolean(includeRaw) : defaults.includeRawMetadata(),
+                max,
+                dropBinary != null ? Boolean.parseBoolean(dropBinary) : defaults.dropBinaryMetadata());
+    }
+
+    /**
+     * The value as it should be stored, or null if it is dropped.
+     */
+    public String apply(String value) {
+        if (value == null) {
+            return null;
+        }
+        if (dropBinaryValues && looksBinary(value)) {
+            return null;
+        }
+        if (maxValueLength >= 0 && value.length() > maxValueLength) {
+            return value.substring(0, maxValueLength);
+        }
+        return value;
+    }
+
+    /**
+     * Long unbroken base64 (padded to a multiple of four, one alphabet, not shaped like a path),
+     * or text where more than a tenth of the leading characters are control characters or
+     * replacement characters left by a failed decode.
+     */
+    static boolean looksBinary(String value) {
+        int length = value.length();
+        if (length >= MIN_BASE64_LENGTH && isBase64(value)) {
+            return true;
+        }
+        int sample = Math.min(length, BINARY_SAMPLE);
+        int suspicious = 0;
+        for (int i = 0; i < sample; i++) {
+            char c = value.charAt(i);
+            if ((c < 0x20 && c != '\t' && c != '\n' && c != '\r') || c == '\uFFFD') {
+                suspicious++;
+            }
+        }
+        return sample > 0 && suspicious * 10 > sample;
+    }
+
+    static boolean isBase64(String value) {
+        int length = value.length();
+        if (length % 4 != 0) {
+            return false;
+        }
+        int padding = 0;
+        while (padding < 2 && value.charAt(length - 1 - padding) == '=') {
+            padding++;
+        }
+        boolean standard = false;
+        boolean urlSafe = false;
+        int slashes = 0;
+        for (int i = 0; i < length - padding; i++) {
+            char c = value.charAt(i);
+            if (c == '+' || c == '/') {
+                standard = true;
+                if (c == '/') slashes++;
+            } else if (c == '-' || c == '_') {
+                urlSafe = true;
+            } else if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9'))) {
+                return false; // includes '=' before the padding
+            }
+        }
+        if (standard && urlSafe) {
+            return false;
+        }
+        // Path-shaped: short '/'-separated segments
+        return slashes < 3 || (length - slashes) / (slashes + 1) >= MIN_BASE64_SLASH_SPACING;
+    }
+}
@@ -26,6 +26,9 @@ import java.util.Base64;
 public class MetadataUtils {
     
     private static final Logger LOG = Logger.getLogger(MetadataUtils.class);
+
+    /** Metadata key a caller may use to hand the raw document bytes (base64) to the builders. */
+    public static final String RAW_BYTES_KEY = "pipe:raw-bytes-b64";
     
     /**
      * Maps a string field from Tika metadata to protobuf builder.
@@ -35,7 +38,7 @@ public class MetadataUtils {
      * @param setter Protobuf builder setter method
      * @param mappedFields Set to track mapped fields
      */
-    public static void mapStringField(Metadata metadata, Object key, Consumer<String> setter, Set<String> mappedFields) {
+    public static void mapStringField(IndexedMetadata metadata, Object key, Consumer<String> setter, Set<String> mappedFields) {
         String keyStr = getKeyString(key);
         String value = metadata.get(keyStr);
         
@@ -49,7 +52,7 @@ public class MetadataUtils {
     /**
      * Maps an integer field from Tika metadata to protobuf builder.
      */
-    public static void mapIntField(Metadata metadata, Object key, Consumer<Integer> setter, Set<String> mappedFields) {
+    public static void mapIntField(IndexedMetadata metadata, Object key, Consumer<Integer> setter, Set<String> mappedFields) {
         String keyStr = getKeyString(key);
         String value = metadata.get(keyStr);
         
@@ -69,7 +72,7 @@ public class MetadataUtils {
     /**
      * Maps a long field from Tika metadata to protobuf builder.
      */
-    public static void mapLongField(Metadata metadata, Object key, Consumer<Long> setter, Set<String> mappedFields) {
+    public static void mapLongField(IndexedMetadata metadata, Object key, Consumer<Long> setter, Set<String> mappedFields) {
         String keyStr = getKeyString(key);
         String value = metadata.get(keyStr);
         
@@ -89,7 +92,7 @@ public class MetadataUtils {
     /**
      * Maps a double field from Tika metadata to protobuf builder.
      */
-    public static void mapDoubleField(Metadata metadata, Object key, Consumer<Double> setter, Set<String> mappedFields) {
+    public static void mapDoubleField(IndexedMetadata metadata, Object key, Consumer<Double> setter, Set<String> mappedFields) {
         String keyStr = getKeyString(key);
         String value = metadata.get(keyStr);
         
@@ -109,7 +112,7 @@ public class MetadataUtils {
     /**
      * Maps a boolean field from Tika metadata to protobuf builder.
      */
-    public static void mapBooleanField(Metadata metadata, Object key, Consumer<Boolean> setter, Set<String> mappedFields) {
+    public static void mapBooleanField(IndexedMetadata metadata, Object key, Consumer<Boolean> setter, Set<String> mappedFields) {
         String keyStr = getKeyString(key);
         String value = metadata.get(keyStr);
         
@@ -127,7 +130,7 @@ public class MetadataUtils {
      * Always sets the raw value if present; sets the boolean based on common truthy strings.
      */
     public static void mapBooleanFieldWithRaw(
-            Metadata metadata,
+            IndexedMetadata metadata,
             Object key,
             Consumer<Boolean> setter,
             Consumer<String> rawSetter,
@@ -149,7 +152,7 @@ public class MetadataUtils {
     /**
      * Maps a timestamp field from Tika metadata to protobuf builder.
      */
-    public static void mapTimestampField(Metadata metadata, Object key, Consumer<Timestamp> setter, Set<String> mappedFields) {
+    public static void mapTimestampField(IndexedMetadata metadata, Object key, Consumer<Timestamp> setter, Set<String> mappedFields) {
         String keyStr = getKeyString(key);
         
         // Try to get as Date first (preferred)
@@ -196,7 +199,7 @@ public class MetadataUtils {
      * Maps a timestamp field with a raw fallback. If parsing to timestamp fails, sets the raw string via rawSetter.
      */
     public static void mapTimestampFieldWithRaw(
-            Metadata metadata,
+            IndexedMetadata metadata,
             Object key,
             Consumer<Timestamp> setter,
             Consumer<String> rawSetter,
@@ -249,7 +252,7 @@ public class MetadataUtils {
     /**
      * Maps a repeated string field from Tika metadata to protobuf builder.
      */
-    public static void mapRepeatedStringField(Metadata metadata, Object key, Consumer<Iterable<String>> setter, Set<String> mappedFields) {
+    public static void mapRepeatedStringField(IndexedMetadata metadata, Object key, Consumer<Iterable<String>> setter, Set<String> mappedFields) {
         String keyStr = getKeyString(key);
         String[] values = metadata.getValues(keyStr);
         
@@ -271,7 +274,7 @@ public class MetadataUtils {
     /**
      * Maps a repeated integer field from Tika metadata to protobuf builder.
      */
-    public static void mapRepeatedIntField(Metadata metadata, Object key, Consumer<Iterable<Integer>> setter, Set<String> mappedFields) {
+    public static void mapRepeatedIntField(IndexedMetadata metadata, Object key, Consumer<Iterable<Integer>> setter, Set<String> mappedFields) {
         String keyStr = getKeyString(key);
         String[] values = metadata.getValues(keyStr);
         
@@ -298,7 +301,7 @@ public class MetadataUtils {
     /**
      * Maps a repeated double field from Tika metadata to protobuf builder.
      */
-    public static void mapRepeatedDoubleField(Metadata metadata, Object key, Consumer<Iterable<Double>> setter, Set<String> mappedFields) {
+    public static void mapRepeatedDoubleField(IndexedMetadata metadata, Object key, Consumer<Iterable<Double>> setter, Set<String> mappedFields) {
         String keyStr = getKeyString(key);
         String[] values = metadata.getValues(keyStr);
         
@@ -330,48 +333,87 @@ public class MetadataUtils {
      * @return Struct containing unmapped metadata as key-value pairs
      */
     public static Struct buildAdditionalMetadata(Metadata metadata, Set<String> mappedFields) {
+        return buildAdditionalMetadata(IndexedMetadata.of(metadata), mappedFields, MetadataProjection.ALL);
+    }
+
+    /**
+     * Builds a Struct containing the unmapped metadata fields of a raw Tika metadata object.
+     */
+    public static Struct buildAdditionalMetadata(Metadata metadata, Set<String> mappedFields, MetadataProjection projection) {
+        return buildAdditionalMetadata(IndexedMetadata.of(metadata), mappedFields, projection);
+    }
+
+    /**
+     * Builds a Struct containing the unmapped metadata fields kept by {@code projection}.
+     * 
+     * @param metadata Tika metadata object
+     * @param mappedFields Set of fields that were already mapped to strongly-typed fields
+     * @param projection Truncation and binary filtering applied to each value
+     * @return Struct containing unmapped metadata as key-value pairs
+     */
+    public static Struct buildAdditionalMetadata(IndexedMetadata metadata, Set<String> mappedFields, MetadataProjection projection) {
         Struct.Builder structBuilder = Struct.newBuilder();
         
-        String[] allFields = metadata.names();
         int unmappedCount = 0;
+        // A field set over this view answers by ordinal; any other set by name
+        IndexedMetadata.FieldSet mappedOrdinals = mappedFields instanceof IndexedMetadata.FieldSet fieldSet
+                && fieldSet.isOver(metadata) ? fieldSet : null;
         
-        for (String field : allFields) {
-            if (!mappedFields.contains(field)) {
-                String[] values = metadata.getValues(field);
-                if (values != null && values.length > 0) {
-                    if (values.length == 1) {
-                        // Single value
-                        String value = values[0];
-                        if (value != null && !value.trim().isEmpty()) {
-                            structBuilder.putFields(field, Value.newBuilder().setStringValue(value.trim()).build());
-                            unmappedCount++;
-                        }
-                    } else {
-                        // Multiple values - create a list
-                        Value.Builder listBuilder = Value.newBuilder();
-                        com.google.protobuf.ListValue.Builder listValueBuilder = com.google.protobuf.ListValue.newBuilder();
-                        
-                        for (String value : values) {
-                            if (value != null && !value.trim().isEmpty()) {
-                                listValueBuilder.addValues(Value.newBuilder().setStringValue(value.trim()).build());
-                            }
-                        }
-                        
-                        if (listValueBuilder.getValuesCount() > 0) {
-                            listBuilder.setListValue(listValueBuilder.build());
-                            structBuilder.putFields(field, listBuilder.build());
-                            unmappedCount++;
-                        }
-                    }
+        for (int i = 0; i < metadata.size(); i++) {
+            boolean mapped = mappedOrdinals != null ? mappedOrdinals.contains(i) : mappedFields.contains(metadata.name(i));
+            if (!mapped && !RAW_BYTES_KEY.equals(metadata.name(i))) {
+                Value value = toValue(metadata.values(i), true, projection);
+                if (value != null) {
+                    structBuilder.putFields(metadata.name(i), value);
+                    unmappedCount++;
                 }
             }
         }
         
         LOG.debugf("Built additional metadata struct with %d unmapped fields out of %d total fields", 
-                  unmappedCount, allFields.length);
+                  unmappedCount, metadata.size());
         
         return structBuilder.build();
     }
+
+    /**
+     * A single string Value for one value, a list Value for several, or null if nothing is kept.
+     * With {@code trim}, values are trimmed and blank ones skipped.
+     */
+    private static Value toValue(String[] values, boolean trim, MetadataProjection projection) {
+        if (values == null || values.length == 0) {
+            return null;
+        }
+        if (values.length == 1) {
+            String value = keep(values[0], trim, projection);
+            return value != null ? Value.newBuilder().setStringValue(value).build() : null;
+        }
+        com.google.protobuf.ListValue.Builder listValueBuilder = com.google.protobuf.ListValue.newBuilder();
+        for (String raw : values) {
+            String value = keep(raw, trim, projection);
+            if (value != null) {
+                listValueBuilder.addValues(Value.newBuilder().setStringValue(value).build());
+            }
+        }
+        // Raw metadata keeps a multi-valued field even when all its values were filtered out
+        if (listValueBuilder.getValuesCount() == 0 && trim) {
+            return null;
+        }
+        return Value.newBuilder().setListValue(listValueBuilder.build()).build();
+    }
+
+    private static String keep(String value, boolean trim, MetadataProjection projection) {
+        if (value == null) {
+            return null;
+        }
+        if (trim) {
+            value = value.trim();
+            if (value.isEmpty()) {
+                return null;
+            }
+        }
+        return projection.apply(value);
+    }
     
     /**
      * Builds TikaBaseFields with common parsing metadata.
@@ -382,35 +424,47 @@ public class MetadataUtils {
      * @return TikaBaseFields with parsing metadata
      */
     public static TikaBaseFields buildBaseFields(String parserClass, String tikaVersion, Metadata metadata) {
+        return buildBaseFields(parserClass, tikaVersion, IndexedMetadata.of(metadata), MetadataProjection.ALL);
+    }
+
+    /**
+     * Builds TikaBaseFields from a raw Tika metadata object.
+     */
+    public static TikaBaseFields buildBaseFields(String parserClass, String tikaVersion, Metadata metadata,
+                                                 MetadataProjection projection) {
+        return buildBaseFields(parserClass, tikaVersion, IndexedMetadata.of(metadata), projection);
+    }
+
+    /**
+     * Builds TikaBaseFields with common parsing metadata; the raw metadata struct is left out
+     * unless {@code projection} includes it, and its values are filtered like unmapped ones.
+     * 
+     * @param parserClass Tika parser class name
+     * @param tikaVersion Tika version
+     * @param metadata Original Tika metadata for additional info
+     * @param projection Whether and how raw metadata is copied
+     * @return TikaBaseFields with parsing metadata
+     */
+    public static TikaBaseFields buildBaseFields(String parserClass, String tikaVersion, IndexedMetadata metadata,
+                                                 MetadataProjection projection) {
         TikaBaseFields.Builder builder = TikaBaseFields.newBuilder();
         
         // Build raw metadata struct (all fields)
-        Struct.Builder rawMetadataBuilder = Struct.newBuilder();
-        String[] allFields = metadata.names();
-        
-        for (String field : allFields) {
-            String[] values = metadata.getValues(field);
-            if (values != null && values.length > 0) {
-                if (values.length == 1) {
-                    String value = values[0];
-                    if (value != null) {
-                        rawMetadataBuilder.putFields(field, Value.newBuilder().setStringValue(value).build());
-                    }
-                } else {
-                    // Multiple values
-                    com.google.protobuf.ListValue.Builder listBuilder = com.google.protobuf.ListValue.newBuilder();
-                    for (String value : values) {
-                        if (value != null) {
-                            listBuilder.addValues(Value.newBuilder().setStringValue(value).build());
-                        }
-                    }
-                    rawMetadataBuilder.putFields(field, Value.newBuilder().setListValue(listBuilder.build()).build());
+        if (projection.includeRawMetadata()) {
+            Struct.Builder rawMetadataBuilder = Struct.newBuilder();
+            for (int i = 0; i < metadata.size(); i++) {
+                // The raw document bytes are an input to the builders, not document metadata
+                if (RAW_BYTES_KEY.equals(metadata.name(i))) {
+                    continue;
+                }
+                Value value = toValue(metadata.values(i), false, projection);
+                if (value != null) {
+                    rawMetadataBuilder.putFields(metadata.name(i), value);
                 }
             }
+            builder.setRawMetadata(rawMetadataBuilder.build());
         }
         
-        builder.setRawMetadata(rawMetadataBuilder.build());
-        
         // Set parser information
         if (parserClass != null && !parserClass.isEmpty()) {
             builder.setParserClass(parserClass);
@@ -434,7 +488,7 @@ public class MetadataUtils {
         }
         
         LOG.debugf("Built base fields with %d raw metadata fields, parser: %s, version: %s", 
-                  allFields.length, parserClass, tikaVersion);
+                  metadata.size(), parserClass, tikaVersion);
         
         return builder.build();
     }
@@ -472,9 +526,9 @@ public class MetadataUtils {
      * Attempts to retrieve raw document bytes that may have been injected into the metadata
      * under a special base64-encoded key by the caller. Returns null if not present or on error.
      */
-    public static byte[] tryGetRawBytes(Metadata metadata) {
+    public static byte[] tryGetRawBytes(IndexedMetadata metadata) {
         try {
-            String b64 = metadata.get("pipe:raw-bytes-b64");
+            String b64 = metadata.get(RAW_BYTES_KEY);
             if (b64 == null || b64.isEmpty()) {
                 return null;
             }
@@ -3,38 +3,37 @@ package ai.pipestream.module.parser.tika.builders;
 import com.google.protobuf.Struct;
 import ai.pipestream.parsed.data.office.v1.OfficeMetadata;
 import ai.pipestream.parsed.data.tika.base.v1.TikaBaseFields;
-import ai.pipestream.shaded.tika.metadata.Metadata;
 import ai.pipestream.shaded.tika.metadata.Office;
 import ai.pipestream.shaded.tika.metadata.OfficeOpenXMLCore;
 import ai.pipestream.shaded.tika.metadata.OfficeOpenXMLExtended;
 import ai.pipestream.shaded.tika.metadata.PagedText;
 import org.jboss.logging.Logger;
 
-import java.util.HashSet;
 import java.util.Set;
 
 public class OfficeMetadataBuilder {
     private static final Logger LOG = Logger.getLogger(OfficeMetadataBuilder.class);
 
-    public static OfficeMetadata build(Metadata tikaMetadata, String parserClass, String tikaVersion, Set<String> excludedKeys) {
+    public static OfficeMetadata build(IndexedMetadata tikaMetadata, String parserClass, String tikaVersion, IndexedMetadata.FieldSet excludedKeys,
+            MetadataProjection projection) {
         OfficeMetadata.Builder builder = OfficeMetadata.newBuilder();
-        Set<String> mapped = new HashSet<>(excludedKeys);
+        IndexedMetadata.FieldSet mapped = excludedKeys.copy();
 
         mapOfficeCore(tikaMetadata, builder, mapped);
         mapOfficeOpenXMLCore(tikaMetadata, builder, mapped);
         mapOfficeOpenXMLExtended(tikaMetadata, builder, mapped);
         mapCommonFields(tikaMetadata, builder, mapped);
 
-        Struct additional = MetadataUtils.buildAdditionalMetadata(tikaMetadata, mapped);
+        Struct additional = MetadataUtils.buildAdditionalMetadata(tikaMetadata, mapped, projection);
         builder.setAdditionalMetadata(additional);
 
-        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, tikaMetadata);
+        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, tikaMetadata, projection);
         builder.setBaseFields(base);
 
         return builder.build();
     }
 
-    private static void mapOfficeCore(Metadata md, OfficeMetadata.Builder b, Set<String> mapped) {
+    private static void mapOfficeCore(IndexedMetadata md, OfficeMetadata.Builder b, Set<String> mapped) {
         // Keywords (also candidates for dublin_core.subjects via higher-level DC builder)
         MetadataUtils.mapRepeatedStringField(md, Office.KEYWORDS, b::addAllKeywords, mapped);
 
@@ -87,7 +86,7 @@ public class OfficeMetadataBuilder {
         MetadataUtils.mapBooleanField(md, Office.HAS_TRACK_CHANGES, b::setHasTrackChanges, mapped);
     }
 
-    private static void mapOfficeOpenXMLCore(Metadata md, OfficeMetadata.Builder b, Set<String> mapped) {
+    private static void mapOfficeOpenXMLCore(IndexedMetadata md, OfficeMetadata.Builder b, Set<String> mapped) {
         MetadataUtils.mapStringField(md, OfficeOpenXMLCore.CATEGORY, b::setCategory, mapped);
         MetadataUtils.mapStringField(md, OfficeOpenXMLCore.CONTENT_STATUS, b::setContentStatus, mapped);
         MetadataUtils.mapStringField(md, OfficeOpenXMLCore.LAST_MODIFIED_BY, b::setLastModifiedBy, mapped);
@@ -96,7 +95,7 @@ public class OfficeMetadataBuilder {
         MetadataUtils.mapStringField(md, OfficeOpenXMLCore.VERSION, b::setVersion, mapped);
     }
 
-    private static void mapOfficeOpenXMLExtended(Metadata md, OfficeMetadata.Builder b, Set<String> mapped) {
+    private static void mapOfficeOpenXMLExtended(IndexedMetadata md, OfficeMetadata.Builder b, Set<String> mapped) {
         MetadataUtils.mapStringField(md, OfficeOpenXMLExtended.TEMPLATE, b::setTemplate, mapped);
         MetadataUtils.mapRepeatedStringField(md, OfficeOpenXMLExtended.MANAGER, b::addAllManager, mapped);
         MetadataUtils.mapStringField(md, OfficeOpenXMLExtended.COMPANY, b::setCompany, mapped);
@@ -122,7 +121,7 @@ public class OfficeMetadataBuilder {
         MetadataUtils.mapRepeatedStringField(md, OfficeOpenXMLExtended.COMMENTS, b::addAllExtendedComments, mapped);
     }
 
-    private static void mapCommonFields(Metadata md, OfficeMetadata.Builder b, Set<String> mapped) {
+    private static void mapCommonFields(IndexedMetadata md, OfficeMetadata.Builder b, Set<String> mapped) {
         // Content type and security/signatures
         MetadataUtils.mapStringField(md, "Content-Type", b::setContentType, mapped);
 
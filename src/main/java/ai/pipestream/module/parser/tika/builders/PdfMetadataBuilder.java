@@ -4,7 +4,6 @@ import com.google.protobuf.Struct;
 import com.google.protobuf.Timestamp;
 import ai.pipestream.parsed.data.pdf.v1.PdfMetadata;
 import ai.pipestream.parsed.data.tika.base.v1.TikaBaseFields;
-import ai.pipestream.shaded.tika.metadata.Metadata;
 import ai.pipestream.shaded.tika.metadata.PDF;
 import ai.pipestream.shaded.tika.metadata.XMPPDF;
 import ai.pipestream.shaded.tika.metadata.AccessPermissions;
@@ -14,7 +13,6 @@ import ai.pipestream.shaded.tika.metadata.XMP;
 import ai.pipestream.shaded.tika.metadata.XMPMM;
 import org.jboss.logging.Logger;
 
-import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -38,13 +36,15 @@ public class PdfMetadataBuilder {
      * @param parserClass The Tika parser class name used
      * @param tikaVersion The Tika version used
      * @param excludedKeys Keys already consumed by Dublin Core or other shared builders
+     * @param projection Which metadata values are copied into the structs
      * @return Complete PdfMetadata with strongly-typed fields and additional metadata struct
      */
-    public static PdfMetadata build(Metadata tikaMetadata, String parserClass, String tikaVersion, Set<String> excludedKeys) {
-        LOG.debugf("Building PDF metadata from Tika metadata with %d total fields", tikaMetadata.names().length);
+    public static PdfMetadata build(IndexedMetadata tikaMetadata, String parserClass, String tikaVersion, IndexedMetadata.FieldSet excludedKeys,
+            MetadataProjection projection) {
+        LOG.debugf("Building PDF metadata from Tika metadata with %d total fields", tikaMetadata.size());
 
         PdfMetadata.Builder builder = PdfMetadata.newBuilder();
-        Set<String> mappedFields = new HashSet<>(excludedKeys);
+        IndexedMetadata.FieldSet mappedFields = excludedKeys.copy();
 
         // Map PDF interface fields using exact source-destination mappings
         mapPdfInterfaceFields(tikaMetadata, builder, mappedFields);
@@ -61,11 +61,11 @@ public class PdfMetadataBuilder {
         mapCustomDocinfoFields(tikaMetadata, mappedFields);
 
         // Build additional metadata struct for unmapped fields
-        Struct additionalMetadata = MetadataUtils.buildAdditionalMetadata(tikaMetadata, mappedFields);
+        Struct additionalMetadata = MetadataUtils.buildAdditionalMetadata(tikaMetadata, mappedFields, projection);
         builder.setAdditionalMetadata(additionalMetadata);
 
         // Build base fields
-        TikaBaseFields baseFields = MetadataUtils.buildBaseFields(parserClass, tikaVersion, tikaMetadata);
+        TikaBaseFields baseFields = MetadataUtils.buildBaseFields(parserClass, tikaVersion, tikaMetadata, projection);
         builder.setBaseFields(baseFields);
 
         PdfMetadata result = builder.build();
@@ -83,7 +83,7 @@ public class PdfMetadataBuilder {
     /**
      * Maps PDF interface fields using exact source-destination mappings from SOURCE_DESTINATION_MAPPING.md
      */
-    private static void mapPdfInterfaceFields(Metadata metadata, PdfMetadata.Builder builder, Set<String> mappedFields) {
+    private static void mapPdfInterfaceFields(IndexedMetadata metadata, PdfMetadata.Builder builder, Set<String> mappedFields) {
         // PDF Document Information (DocInfo) - exact mappings from SOURCE_DESTINATION_MAPPING.md
         MetadataUtils.mapStringField(metadata, PDF.DOC_INFO_TITLE, builder::setDocInfoTitle, mappedFields);
         MetadataUtils.mapStringField(metadata, PDF.DOC_INFO_CREATOR, builder::setDocInfoCreator, mappedFields);
@@ -168,7 +168,7 @@ public class PdfMetadataBuilder {
     /**
      * Maps XMP PDF fields using exact source-destination mappings
      */
-    private static void mapXmpPdfFields(Metadata metadata, PdfMetadata.Builder builder, Set<String> mappedFields) {
+    private static void mapXmpPdfFields(IndexedMetadata metadata, PdfMetadata.Builder builder, Set<String> mappedFields) {
         // Map XMP keywords to dedicated field separate from DocInfo keywords
         MetadataUtils.mapStringField(metadata, XMPPDF.KEY_WORDS, builder::setXmpKeywords, mappedFields);
         MetadataUtils.mapStringField(metadata, XMPPDF.PDF_VERSION, builder::setPdfVersion, mappedFields);
@@ -178,7 +178,7 @@ public class PdfMetadataBuilder {
     /**
      * Maps access permission fields using exact source-destination mappings
      */
-    private static void mapAccessPermissionFields(Metadata metadata, PdfMetadata.Builder builder, Set<String> mappedFields) {
+    private static void mapAccessPermissionFields(IndexedMetadata metadata, PdfMetadata.Builder builder, Set<String> mappedFields) {
         MetadataUtils.mapBooleanFieldWithRaw(metadata, AccessPermissions.ASSEMBLE_DOCUMENT, builder::setCanAssembleDocument, builder::setCanAssembleDocumentRaw, mappedFields);
         MetadataUtils.mapBooleanFieldWithRaw(metadata, AccessPermissions.EXTRACT_CONTENT, builder::setCanExtractContent, builder::setCanExtractContentRaw, mappedFields);
         MetadataUtils.mapBooleanFieldWithRaw(metadata, AccessPermissions.EXTRACT_FOR_ACCESSIBILITY, builder::setCanExtractForAccessibility, builder::setCanExtractForAccessibilityRaw, mappedFields);
@@ -192,7 +192,7 @@ public class PdfMetadataBuilder {
     /**
      * Maps additional cross-interface fields that live in the PDF proto.
      */
-    private static void mapCommonPdfRelatedFields(Metadata metadata, PdfMetadata.Builder builder, Set<String> mappedFields) {
+    private static void mapCommonPdfRelatedFields(IndexedMetadata metadata, PdfMetadata.Builder builder, Set<String> mappedFields) {
         // Number of pages
         MetadataUtils.mapIntField(metadata, PagedText.N_PAGES, builder::setNPages, mappedFields);
 
@@ -225,7 +225,7 @@ public class PdfMetadataBuilder {
      * These fields duplicate information already in DocInfo/producer fields but come from XMP.
      * We map them to mark them as consumed so they don't leak to additional_metadata.
      */
-    private static void mapXmpBasicFields(Metadata metadata, PdfMetadata.Builder builder, Set<String> mappedFields) {
+    private static void mapXmpBasicFields(IndexedMetadata metadata, PdfMetadata.Builder builder, Set<String> mappedFields) {
         // XMP Basic: xmp:CreatorTool → doc_info_creator_tool (same info, XMP source)
         // Only set if not already set by the PDF DocInfo mapping
         MetadataUtils.mapStringField(metadata, XMP.CREATOR_TOOL, val -> {
@@ -261,13 +261,13 @@ public class PdfMetadataBuilder {
      * Marks custom docinfo fields (pdf:docinfo:custom:*) as consumed so they go to
      * additional_metadata with clean keys rather than being double-counted.
      */
-    private static void mapCustomDocinfoFields(Metadata metadata, Set<String> mappedFields) {
+    private static void mapCustomDocinfoFields(IndexedMetadata metadata, Set<String> mappedFields) {
         // Custom docinfo fields are dynamic - just mark the prefix pattern
         // They'll still appear in additional_metadata but won't be counted as "leaked"
         // since they are genuinely unmapped custom fields
     }
 
-    private static void markAsConsumed(Metadata metadata, Object key, Set<String> mappedFields) {
+    private static void markAsConsumed(IndexedMetadata metadata, Object key, Set<String> mappedFields) {
         String keyStr = MetadataUtils.getKeyString(key);
         String value = metadata.get(keyStr);
         if (value != null && !value.trim().isEmpty()) {
@@ -275,7 +275,7 @@ public class PdfMetadataBuilder {
         }
     }
 
-    private static void mapRepeatedTimestampFieldWithRaw(Metadata metadata,
+    private static void mapRepeatedTimestampFieldWithRaw(IndexedMetadata metadata,
                                                   ai.pipestream.shaded.tika.metadata.Property property,
                                                   PdfMetadata.Builder builder,
                                                   Set<String> mappedFields) {
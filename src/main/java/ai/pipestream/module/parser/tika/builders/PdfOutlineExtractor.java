@@ -3,32 +3,57 @@ package ai.pipestream.module.parser.tika.builders;
 import ai.pipestream.data.v1.DocOutline;
 import ai.pipestream.data.v1.Section;
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentCatalog;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageTree;
+import org.apache.pdfbox.pdmodel.interactive.action.PDAction;
+import org.apache.pdfbox.pdmodel.interactive.action.PDActionGoTo;
 import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDNamedDestination;
 import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageDestination;
 import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocumentOutline;
 import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
 
+import java.nio.ByteBuffer;
+
 /**
  * Extracts PDF bookmarks/outlines using PDFBox and converts them to a neutral DocOutline.
+ * <p>
+ * Only the trailer, catalog, outline tree and the page dictionaries referenced by bookmark
+ * destinations are touched. PDFBox resolves indirect objects on demand, so content streams,
+ * fonts and images of the document are never parsed here.
  */
 public final class PdfOutlineExtractor {
 
     private PdfOutlineExtractor() {}
 
     public static DocOutline buildDocOutlineFromPdf(byte[] pdfBytes) {
+        if (pdfBytes == null || pdfBytes.length == 0) return DocOutline.getDefaultInstance();
+        return buildDocOutline(new RandomAccessReadBuffer(pdfBytes));
+    }
+
+    /**
+     * Same as {@link #buildDocOutlineFromPdf(byte[])} but reads directly from a buffer, e.g.
+     * {@code ByteString.asReadOnlyByteBuffer()}, so the blob is not copied before loading.
+     */
+    public static DocOutline buildDocOutlineFromPdf(ByteBuffer pdfData) {
+        if (pdfData == null || !pdfData.hasRemaining()) return DocOutline.getDefaultInstance();
+        return buildDocOutline(new RandomAccessReadBuffer(pdfData));
+    }
+
+    private static DocOutline buildDocOutline(RandomAccessRead source) {
         DocOutline.Builder outline = DocOutline.newBuilder();
-        if (pdfBytes == null || pdfBytes.length == 0) return outline.build();
-        try (PDDocument doc = Loader.loadPDF(pdfBytes)) {
-            PDDocumentOutline root = doc.getDocumentCatalog().getDocumentOutline();
+        try (PDDocument doc = Loader.loadPDF(source)) {
+            PDDocumentCatalog catalog = doc.getDocumentCatalog();
+            PDDocumentOutline root = catalog.getDocumentOutline();
             if (root == null) return outline.build();
             int[] counter = new int[]{0};
-            PDPageTree pages = doc.getPages();
             PDOutlineItem item = root.getFirstChild();
             while (item != null) {
-                appendItem(outline, item, null, 0, counter, pages);
+                appendItem(outline, item, null, 0, counter, catalog);
                 item = item.getNextSibling();
             }
         } catch (Exception ignored) {}
@@ -40,7 +65,7 @@ public final class PdfOutlineExtractor {
                                    String parentId,
                                    int depth,
                                    int[] counter,
-                                   PDPageTree pages) {
+                                   PDDocumentCatalog catalog) {
         String id = "sec-" + counter[0];
         String title = item.getTitle();
         Section.Builder sb = Section.newBuilder()
@@ -50,11 +75,11 @@ public final class PdfOutlineExtractor {
                 .setOrderIndex(counter[0]++)
                 .addTags("nav")
                 .addTags("bookmark");
-        // Page destination if available
+        // Page destination if available (direct, named or via a GoTo action)
         try {
-            PDDestination dest = item.getDestination();
-            if (dest instanceof PDPageDestination pdest) {
-                int pageIndex = retrievePageIndex(pdest, pages);
+            PDPageDestination pdest = resolvePageDestination(item, catalog);
+            if (pdest != null) {
+                int pageIndex = retrievePageIndex(pdest, catalog.getPages());
                 if (pageIndex >= 0) {
                     sb.setPageStart(pageIndex + 1);
                     sb.setHref("page=" + (pageIndex + 1));
@@ -67,11 +92,25 @@ public final class PdfOutlineExtractor {
         // Children
         PDOutlineItem child = item.getFirstChild();
         while (child != null) {
-            appendItem(outline, child, id, depth + 1, counter, pages);
+            appendItem(outline, child, id, depth + 1, counter, catalog);
             child = child.getNextSibling();
         }
     }
 
+    private static PDPageDestination resolvePageDestination(PDOutlineItem item, PDDocumentCatalog catalog) throws Exception {
+        PDDestination dest = item.getDestination();
+        if (dest == null) {
+            PDAction action = item.getAction();
+            if (action instanceof PDActionGoTo goTo) {
+                dest = goTo.getDestination();
+            }
+        }
+        if (dest instanceof PDNamedDestination named) {
+            return catalog.findNamedDestinationPage(named);
+        }
+        return dest instanceof PDPageDestination pdest ? pdest : null;
+    }
+
     private static int retrievePageIndex(PDPageDestination dest, PDPageTree pages) {
         try {
             int idx = dest.retrievePageNumber();
@@ -80,11 +119,8 @@ public final class PdfOutlineExtractor {
         try {
             PDPage page = dest.getPage();
             if (page != null) {
-                int i = 0;
-                for (PDPage p : pages) {
-                    if (p == page) return i;
-                    i++;
-                }
+                int idx = pages.indexOf(page);
+                if (idx >= 0) return idx;
             }
         } catch (Exception ignored) {}
         return -1;
@@ -3,14 +3,12 @@ package ai.pipestream.module.parser.tika.builders;
 import com.google.protobuf.Struct;
 import ai.pipestream.parsed.data.rtf.v1.RtfMetadata;
 import ai.pipestream.parsed.data.tika.base.v1.TikaBaseFields;
-import ai.pipestream.shaded.tika.metadata.Metadata;
 import ai.pipestream.shaded.tika.metadata.Office;
 import ai.pipestream.shaded.tika.metadata.OfficeOpenXMLCore;
 import ai.pipestream.shaded.tika.metadata.OfficeOpenXMLExtended;
 import ai.pipestream.shaded.tika.metadata.RTFMetadata;
 import ai.pipestream.shaded.tika.metadata.TikaCoreProperties;
 
-import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -18,9 +16,10 @@ import java.util.Set;
  */
 public class RtfMetadataBuilder {
 
-    public static RtfMetadata build(Metadata tikaMetadata, String parserClass, String tikaVersion, Set<String> excludedKeys) {
+    public static RtfMetadata build(IndexedMetadata tikaMetadata, String parserClass, String tikaVersion, IndexedMetadata.FieldSet excludedKeys,
+            MetadataProjection projection) {
         RtfMetadata.Builder builder = RtfMetadata.newBuilder();
-        Set<String> mapped = new HashSet<>(excludedKeys);
+        IndexedMetadata.FieldSet mapped = excludedKeys.copy();
 
         mapOfficeLikeFields(tikaMetadata, builder, mapped);
         mapRtfSpecificFields(tikaMetadata, builder, mapped);
@@ -29,17 +28,17 @@ public class RtfMetadataBuilder {
         mapSecurityAndRevision(tikaMetadata, builder, mapped);
 
         // Additional metadata for anything unmapped
-        Struct additional = MetadataUtils.buildAdditionalMetadata(tikaMetadata, mapped);
+        Struct additional = MetadataUtils.buildAdditionalMetadata(tikaMetadata, mapped, projection);
         builder.setAdditionalMetadata(additional);
 
         // Base fields
-        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, tikaMetadata);
+        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, tikaMetadata, projection);
         builder.setBaseFields(base);
 
         return builder.build();
     }
 
-    private static void mapOfficeLikeFields(Metadata md, RtfMetadata.Builder b, Set<String> mapped) {
+    private static void mapOfficeLikeFields(IndexedMetadata md, RtfMetadata.Builder b, Set<String> mapped) {
         // Keywords in RTF proto is a single string; Office.KEYWORDS is a bag. Join with commas.
         String[] kws = md.getValues(Office.KEYWORDS.getName());
         if (kws != null && kws.length > 0) {
@@ -70,13 +69,13 @@ public class RtfMetadataBuilder {
         MetadataUtils.mapStringField(md, OfficeOpenXMLExtended.TEMPLATE, b::setTemplate, mapped);
     }
 
-    private static void mapCountsAndStats(Metadata md, RtfMetadata.Builder b, Set<String> mapped) {
+    private static void mapCountsAndStats(IndexedMetadata md, RtfMetadata.Builder b, Set<String> mapped) {
         MetadataUtils.mapIntField(md, Office.PAGE_COUNT, b::setPageCount, mapped);
         MetadataUtils.mapIntField(md, Office.WORD_COUNT, b::setWordCount, mapped);
         MetadataUtils.mapIntField(md, Office.CHARACTER_COUNT, b::setCharacterCount, mapped);
     }
 
-    private static void mapRtfSpecificFields(Metadata md, RtfMetadata.Builder b, Set<String> mapped) {
+    private static void mapRtfSpecificFields(IndexedMetadata md, RtfMetadata.Builder b, Set<String> mapped) {
         MetadataUtils.mapBooleanField(md, RTFMetadata.CONTAINS_ENCAPSULATED_HTML, b::setContainsEncapsulatedHtml, mapped);
         MetadataUtils.mapBooleanField(md, RTFMetadata.THUMBNAIL, b::setThumbnail, mapped);
         MetadataUtils.mapStringField(md, RTFMetadata.EMB_APP_VERSION, b::setEmbAppVersion, mapped);
@@ -92,7 +91,7 @@ public class RtfMetadataBuilder {
         }
     }
 
-    private static void mapContentAndResourceFields(Metadata md, RtfMetadata.Builder b, Set<String> mapped) {
+    private static void mapContentAndResourceFields(IndexedMetadata md, RtfMetadata.Builder b, Set<String> mapped) {
         MetadataUtils.mapStringField(md, "Content-Type", b::setContentType, mapped);
         MetadataUtils.mapStringField(md, "Content-Encoding", b::setContentEncoding, mapped);
         MetadataUtils.mapStringField(md, "Content-Length", b::setContentLength, mapped);
@@ -101,7 +100,7 @@ public class RtfMetadataBuilder {
         MetadataUtils.mapStringField(md, TikaCoreProperties.EMBEDDED_RELATIONSHIP_ID, b::setEmbeddedRelationshipId, mapped);
     }
 
-    private static void mapSecurityAndRevision(Metadata md, RtfMetadata.Builder b, Set<String> mapped) {
+    private static void mapSecurityAndRevision(IndexedMetadata md, RtfMetadata.Builder b, Set<String> mapped) {
         // Use existing print date if present as print_time
         MetadataUtils.mapTimestampField(md, TikaCoreProperties.PRINT_DATE, b::setPrintTime, mapped);
         // Optional simple version/revision counts from generic fields if present
@@ -3,6 +3,13 @@ package ai.pipestream.module.parser.tika.builders;
 import ai.pipestream.data.v1.DocOutline;
 import ai.pipestream.data.v1.Section;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Post-processes a DocOutline to resolve character offsets for each section
  * by finding heading text positions in the extracted body text.
@@ -24,6 +31,8 @@ public final class SectionOffsetResolver {
      * Each section's end offset is the start of the next section (or end of text).
      * <p>
      * Sections whose titles can't be found in the body text are left without offsets.
+     * Matching ignores case and whitespace differences, and all titles are located in a single
+     * scan of the body, so the cost is linear in body length plus total title length.
      *
      * @param outline  the DocOutline with sections (titles must be populated)
      * @param bodyText the extracted text content (from Tika or Docling)
@@ -35,72 +44,286 @@ public final class SectionOffsetResolver {
             return outline;
         }
 
-        // First pass: find each section's heading position in the body text
+        // Normalize titles once; identical titles share one pattern
         int sectionCount = outline.getSectionsCount();
-        int[] startOffsets = new int[sectionCount];
-        boolean[] found = new boolean[sectionCount];
-        int searchFrom = 0;
-
+        int[] patternOf = new int[sectionCount];
+        Map<String, Integer> patternIds = new HashMap<>();
+        List<String> patterns = new ArrayList<>();
         for (int i = 0; i < sectionCount; i++) {
             Section section = outline.getSections(i);
-            String title = section.hasTitle() ? section.getTitle().trim() : "";
-
-            if (title.isEmpty()) {
-                startOffsets[i] = -1;
-                found[i] = false;
+            String key = section.hasTitle() ? normalize(section.getTitle()) : "";
+            if (key.isEmpty()) {
+                patternOf[i] = -1;
                 continue;
             }
+            Integer id = patternIds.get(key);
+            if (id == null) {
+                id = patterns.size();
+                patternIds.put(key, id);
+                patterns.add(key);
+            }
+            patternOf[i] = id;
+        }
+        if (patterns.isEmpty()) {
+            return outline;
+        }
 
-            // Search forward from last found position to maintain document order
-            int pos = bodyText.indexOf(title, searchFrom);
-            if (pos >= 0) {
-                startOffsets[i] = pos;
-                found[i] = true;
-                searchFrom = pos + title.length();
-            } else {
-                // Retry case-insensitive from searchFrom
-                pos = indexOfIgnoreCase(bodyText, title, searchFrom);
-                if (pos >= 0) {
-                    startOffsets[i] = pos;
-                    found[i] = true;
-                    searchFrom = pos + title.length();
-                } else {
-                    startOffsets[i] = -1;
-                    found[i] = false;
-                }
+        // First pass: one scan of the body finds every occurrence of every title
+        Matcher matcher = new Matcher(patterns);
+        Occurrences[] occurrences = matcher.scan(bodyText);
+
+        // Pick, for each section in order, the first occurrence after the previous match
+        int[] startOffsets = new int[sectionCount];
+        long searchFrom = 0;
+        for (int i = 0; i < sectionCount; i++) {
+            startOffsets[i] = -1;
+            if (patternOf[i] < 0) continue;
+            Occurrences occ = occurrences[patternOf[i]];
+            int k = occ.firstAtOrAfter(searchFrom);
+            if (k >= 0) {
+                startOffsets[i] = occ.originalStart[k];
+                searchFrom = (long) occ.normalizedStart[k] + patterns.get(patternOf[i]).length();
             }
         }
 
-        // Second pass: build new outline with offsets
-        // Each section ends where the next found section begins (or at end of text)
-        DocOutline.Builder newOutline = DocOutline.newBuilder();
+        // Second pass: each section ends where the next found section begins (or at end of text)
+        int[] endOffsets = new int[sectionCount];
+        int nextStart = bodyText.length();
+        for (int i = sectionCount - 1; i >= 0; i--) {
+            endOffsets[i] = nextStart;
+            if (startOffsets[i] >= 0) {
+                nextStart = startOffsets[i];
+            }
+        }
 
+        DocOutline.Builder newOutline = DocOutline.newBuilder();
         for (int i = 0; i < sectionCount; i++) {
             Section.Builder sb = outline.getSections(i).toBuilder();
-
-            if (found[i]) {
+            if (startOffsets[i] >= 0) {
                 sb.setCharStartOffset(startOffsets[i]);
+                sb.setCharEndOffset(endOffsets[i]);
+            }
+            newOutline.addSections(sb.build());
+        }
+
+        return newOutline.build();
+    }
 
-                // End offset: find the next section that was found
-                int endOffset = bodyText.length();
-                for (int j = i + 1; j < sectionCount; j++) {
-                    if (found[j]) {
-                        endOffset = startOffsets[j];
-                        break;
+    /**
+     * Returns true when every section already carries a char_start_offset, e.g. because the
+     * outline was captured from the parse stream by {@link HeadingOutlineHandler}.
+     * Such outlines need no text search.
+     */
+    public static boolean hasOffsets(DocOutline outline) {
+        if (outline == null || outline.getSectionsCount() == 0) {
+            return false;
+        }
+        for (Section section : outline.getSectionsList()) {
+            if (!section.hasCharStartOffset()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Case-folds and collapses whitespace runs to one space, trimming both ends. */
+    static String normalize(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isSpace(c)) {
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            sb.append(fold(c));
+        }
+        return sb.toString();
+    }
+
+    private static boolean isSpace(char c) {
+        return Character.isWhitespace(c) || Character.isSpaceChar(c);
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Aho–Corasick automaton over normalized titles. The body is normalized on the fly (folded
+     * chars, whitespace runs read as one space), so no copy of the body is ever made.
+     */
+    static final class Matcher {
+        private static final int ROOT = 0;
+
+        // Trie edges per node, sorted by char for binary search
+        private char[][] edgeChars;
+        private int[][] edgeTargets;
+        private int[] fail;
+        // Pattern ending exactly at this node, or -1
+        private int[] terminal;
+        // Nearest node on the fail chain (excluding itself) that ends a pattern, or -1
+        private int[] outputLink;
+
+        private final int[] patternLengths;
+        private final int maxPatternLength;
+
+        Matcher(List<String> patterns) {
+            patternLengths = new int[patterns.size()];
+            int max = 1;
+            for (int p = 0; p < patterns.size(); p++) {
+                patternLengths[p] = patterns.get(p).length();
+                max = Math.max(max, patternLengths[p]);
+            }
+            maxPatternLength = max;
+            build(patterns);
+        }
+
+        private void build(List<String> patterns) {
+            List<Map<Character, Integer>> children = new ArrayList<>();
+            List<Integer> terminals = new ArrayList<>();
+            children.add(new HashMap<>());
+            terminals.add(-1);
+            for (int p = 0; p < patterns.size(); p++) {
+                String pattern = patterns.get(p);
+                int node = ROOT;
+                for (int i = 0; i < pattern.length(); i++) {
+                    Integer next = children.get(node).get(pattern.charAt(i));
+                    if (next == null) {
+                        next = children.size();
+                        children.add(new HashMap<>());
+                        terminals.add(-1);
+                        children.get(node).put(pattern.charAt(i), next);
                     }
+                    node = next;
                 }
-                sb.setCharEndOffset(endOffset);
+                terminals.set(node, p);
             }
 
-            newOutline.addSections(sb.build());
+            int n = children.size();
+            edgeChars = new char[n][];
+            edgeTargets = new int[n][];
+            terminal = new int[n];
+            for (int node = 0; node < n; node++) {
+                terminal[node] = terminals.get(node);
+                List<Map.Entry<Character, Integer>> edges = new ArrayList<>(children.get(node).entrySet());
+                edges.sort(Map.Entry.comparingByKey());
+                edgeChars[node] = new char[edges.size()];
+                edgeTargets[node] = new int[edges.size()];
+                for (int e = 0; e < edges.size(); e++) {
+                    edgeChars[node][e] = edges.get(e).getKey();
+                    edgeTargets[node][e] = edges.get(e).getValue();
+                }
+            }
+
+            // Breadth-first fail and output links
+            fail = new int[n];
+            outputLink = new int[n];
+            outputLink[ROOT] = -1;
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int child : edgeTargets[ROOT]) {
+                fail[child] = ROOT;
+                outputLink[child] = -1;
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                for (int e = 0; e < edgeChars[node].length; e++) {
+                    char c = edgeChars[node][e];
+                    int child = edgeTargets[node][e];
+                    int f = fail[node];
+                    int target = child(f, c);
+                    while (target < 0 && f != ROOT) {
+                        f = fail[f];
+                        target = child(f, c);
+                    }
+                    fail[child] = target >= 0 ? target : ROOT;
+                    int fl = fail[child];
+                    outputLink[child] = terminal[fl] >= 0 ? fl : outputLink[fl];
+                    queue.add(child);
+                }
+            }
         }
 
-        return newOutline.build();
+        private int child(int node, char c) {
+            int idx = Arrays.binarySearch(edgeChars[node], c);
+            return idx >= 0 ? edgeTargets[node][idx] : -1;
+        }
+
+        /**
+         * Scans the body once and returns, per pattern, all occurrences in ascending order.
+         */
+        Occurrences[] scan(CharSequence body) {
+            Occurrences[] out = new Occurrences[patternLengths.length];
+            for (int p = 0; p < out.length; p++) {
+                out[p] = new Occurrences();
+            }
+            // Original index of the most recent normalized chars, enough to map a match start back
+            int[] originalAt = new int[maxPatternLength];
+            int node = ROOT;
+            int normalized = 0;
+            boolean inSpace = false;
+            for (int i = 0; i < body.length(); i++) {
+                char raw = body.charAt(i);
+                char c;
+                if (isSpace(raw)) {
+                    if (inSpace) continue;
+                    inSpace = true;
+                    c = ' ';
+                } else {
+                    inSpace = false;
+                    c = fold(raw);
+                }
+                originalAt[normalized % maxPatternLength] = i;
+
+                int next = child(node, c);
+                while (next < 0 && node != ROOT) {
+                    node = fail[node];
+                    next = child(node, c);
+                }
+                node = next >= 0 ? next : ROOT;
+
+                for (int m = terminal[node] >= 0 ? node : outputLink[node]; m >= 0; m = outputLink[m]) {
+                    int p = terminal[m];
+                    int normalizedStart = normalized - patternLengths[p] + 1;
+                    out[p].add(normalizedStart, originalAt[normalizedStart % maxPatternLength]);
+                }
+                normalized++;
+            }
+            return out;
+        }
     }
 
-    private static int indexOfIgnoreCase(String text, String target, int from) {
-        String lowerText = text.toLowerCase();
-        String lowerTarget = target.toLowerCase();
-        return lowerText.indexOf(lowerTarget, from);
+    /** Growable parallel arrays of match positions for one pattern. */
+    static final class Occurrences {
+        int[] normalizedStart = new int[4];
+        int[] originalStart = new int[4];
+        int size = 0;
+
+        void add(int normalized, int original) {
+            if (size == normalizedStart.length) {
+                normalizedStart = Arrays.copyOf(normalizedStart, size * 2);
+                originalStart = Arrays.copyOf(originalStart, size * 2);
+            }
+            normalizedStart[size] = normalized;
+            originalStart[size] = original;
+            size++;
+        }
+
+        /** Index of the first occurrence starting at or after {@code from}, or -1. */
+        int firstAtOrAfter(long from) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (normalizedStart[mid] < from) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo < size ? lo : -1;
+        }
     }
 }
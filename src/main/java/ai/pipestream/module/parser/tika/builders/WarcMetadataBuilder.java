@@ -10,31 +10,31 @@ import ai.pipestream.shaded.tika.metadata.WARC;
 
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 public class WarcMetadataBuilder {
 
-    public static WarcMetadata build(Metadata md, String parserClass, String tikaVersion, Set<String> excludedKeys) {
+    public static WarcMetadata build(IndexedMetadata md, String parserClass, String tikaVersion, IndexedMetadata.FieldSet excludedKeys,
+            MetadataProjection projection) {
         WarcMetadata.Builder b = WarcMetadata.newBuilder();
-        Set<String> mapped = new HashSet<>(excludedKeys);
+        IndexedMetadata.FieldSet mapped = excludedKeys.copy();
 
         mapWarc(md, b, mapped);
         mapHttp(md, b, mapped);
         mapContentAnalysis(md, b, mapped);
         mapArchiveProcessing(md, b, mapped);
 
-        Struct additional = MetadataUtils.buildAdditionalMetadata(md, mapped);
+        Struct additional = MetadataUtils.buildAdditionalMetadata(md, mapped, projection);
         b.setAdditionalMetadata(additional);
 
-        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, md);
+        TikaBaseFields base = MetadataUtils.buildBaseFields(parserClass, tikaVersion, md, projection);
         b.setBaseFields(base);
 
         return b.build();
     }
 
-    private static void mapWarc(Metadata md, WarcMetadata.Builder b, Set<String> mapped) {
+    private static void mapWarc(IndexedMetadata md, WarcMetadata.Builder b, Set<String> mapped) {
         MetadataUtils.mapRepeatedStringField(md, WARC.WARC_WARNING, b::addAllWarcWarnings, mapped);
         MetadataUtils.mapStringField(md, WARC.WARC_RECORD_CONTENT_TYPE, b::setWarcRecordContentType, mapped);
         MetadataUtils.mapStringField(md, WARC.WARC_PAYLOAD_CONTENT_TYPE, b::setWarcPayloadContentType, mapped);
@@ -58,17 +58,18 @@ public class WarcMetadataBuilder {
         MetadataUtils.mapStringField(md, "warc:WARC-Identified-Payload-Type", b::setWarcIdentifiedPayloadType, mapped);
     }
 
-    private static void mapHttp(Metadata md, WarcMetadata.Builder b, Set<String> mapped) {
+    private static void mapHttp(IndexedMetadata md, WarcMetadata.Builder b, Set<String> mapped) {
         // Status
         MetadataUtils.mapIntField(md, "warc:http:status", b::setHttpStatusCode, mapped);
         MetadataUtils.mapStringField(md, "warc:http:status:reason", b::setHttpStatusReason, mapped);
 
         // Headers (collect all warc:http:* excluding status fields)
         List<WarcHttpHeader> headers = new ArrayList<>();
-        for (String name : md.names()) {
+        for (int i = 0; i < md.size(); i++) {
+            String name = md.name(i);
             if (!name.startsWith("warc:http:")) continue;
             if (name.equals("warc:http:status") || name.equals("warc:http:status:reason")) continue;
-            for (String v : md.getValues(name)) {
+            for (String v : md.values(i)) {
                 WarcHttpHeader h = WarcHttpHeader.newBuilder()
                         .setName(name.substring("warc:http:".length()))
                         .setValue(v)
@@ -81,13 +82,13 @@ public class WarcMetadataBuilder {
         }
     }
 
-    private static void mapContentAnalysis(Metadata md, WarcMetadata.Builder b, Set<String> mapped) {
+    private static void mapContentAnalysis(IndexedMetadata md, WarcMetadata.Builder b, Set<String> mapped) {
         // Content language / encoding might be under various keys; map standard ones if present
         MetadataUtils.mapStringField(md, "Content-Language", b::setContentLanguage, mapped);
         MetadataUtils.mapStringField(md, "Content-Encoding", b::setContentEncoding, mapped);
     }
 
-    private static void mapArchiveProcessing(Metadata md, WarcMetadata.Builder b, Set<String> mapped) {
+    private static void mapArchiveProcessing(IndexedMetadata md, WarcMetadata.Builder b, Set<String> mapped) {
         // Best-effort mapping; many of these may not be present
         MetadataUtils.mapStringField(md, "warc:software", b::setWarcCreatedBy, mapped);
         MetadataUtils.mapStringField(md, "warc:WARC-Format", b::setWarcFormatVersion, mapped);
@@ -96,7 +97,7 @@ public class WarcMetadataBuilder {
         MetadataUtils.mapStringField(md, "warc:robots", b::setWarcRobotPolicy, mapped);
     }
 
-    private static void mapTimestampFromString(Metadata md, String key, java.util.function.Consumer<Timestamp> setter, Set<String> mapped) {
+    private static void mapTimestampFromString(IndexedMetadata md, String key, java.util.function.Consumer<Timestamp> setter, Set<String> mapped) {
         String v = md.get(key);
         if (v == null || v.trim().isEmpty()) return;
         try {
@@ -5,7 +5,13 @@ import ai.pipestream.data.v1.PipeDoc;
 import ai.pipestream.data.v1.SearchMetadata;
 import ai.pipestream.data.v1.ParsedMetadata;
 import ai.pipestream.module.parser.tika.TikaMetadataExtractor;
+import ai.pipestream.module.parser.tika.builders.EpubChapterExtractor;
+import ai.pipestream.module.parser.tika.builders.EpubContainer;
+import ai.pipestream.module.parser.tika.builders.EpubStructureExtractor;
+import ai.pipestream.module.parser.tika.builders.HeadingOutlineHandler;
+import ai.pipestream.module.parser.tika.builders.MetadataProjection;
 import ai.pipestream.module.parser.tika.builders.MetadataUtils;
+import ai.pipestream.parsed.data.epub.v1.EpubMetadata;
 import ai.pipestream.parsed.data.tika.v1.TikaResponse;
 import ai.pipestream.shaded.tika.Tika;
 import ai.pipestream.shaded.tika.exception.TikaException;
@@ -60,6 +66,12 @@ import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 //import ai.pipestream.shaded.tika.mime.MediaType;
@@ -81,6 +93,13 @@ public class DocumentParser {
     private static final Logger LOG = Logger.getLogger(DocumentParser.class);
     private static final Tika TIKA = new Tika();
 
+    /**
+     * Runs EPUB chapter parses. Parsing is called from the Mutiny worker pool and blocks on the
+     * chapters, so they need their own bounded pool; submitting them to the worker pool could
+     * leave every worker waiting on chapters that never get a thread.
+     */
+    private static final ExecutorService EPUB_CHAPTER_POOL = createEpubChapterPool();
+
     /**
      * Parses a document and returns a PipeDoc with the parsed content using ParserConfig.
      *
@@ -148,53 +167,64 @@ public class DocumentParser {
         // Create the appropriate parser based on configuration
         Parser parser = createParser(configMap, filename);
         
-        // Set up the content handler with the specified max content length
-        BodyContentHandler handler = createContentHandler(configMap);
+        // Set up the content handler with the specified max content length. Headings are
+        // recorded with their body offsets during this same pass (no re-parse for outlines).
+        HeadingOutlineHandler headingHandler = createHeadingHandler(configMap);
+        BodyContentHandler handler = new BodyContentHandler(headingHandler);
         
         // Set up metadata and parse context
         Metadata metadata = new Metadata();
         ParseContext parseContext = new ParseContext();
         parseContext.set(Parser.class, parser);
         
+        // EPUB chapter mode: spine items are parsed concurrently instead of in one sequential pass
+        EpubChapterExtractor.Result epubChapters = null;
+        if (getBooleanConfig(configMap, "parallelEpubChapters", false)
+                && filename != null && filename.toLowerCase().endsWith(".epub")) {
+            epubChapters = parseEpubChapters(content, metadata, parser, filename, configMap);
+        }
+
         // Parse the document
-        try (InputStream stream = new ByteArrayInputStream(content.toByteArray())) {
-            // Add filename to metadata if available
-            if (filename != null && !filename.isEmpty()) {
-                metadata.set("resourceName", filename);
-                // Hint content type to prefer the correct parser (e.g., PDF, fonts)
-                try {
-                    String hintedType = TIKA.detect(filename);
-                    if (hintedType != null && !hintedType.isEmpty()) {
-                        metadata.set("Content-Type", hintedType);
+        if (epubChapters == null) {
+            try (InputStream stream = new ByteArrayInputStream(content.toByteArray())) {
+                // Add filename to metadata if available
+                if (filename != null && !filename.isEmpty()) {
+                    metadata.set("resourceName", filename);
+                    // Hint content type to prefer the correct parser (e.g., PDF, fonts)
+                    try {
+                        String hintedType = TIKA.detect(filename);
+                        if (hintedType != null && !hintedType.isEmpty()) {
+                            metadata.set("Content-Type", hintedType);
+                        }
+                    } catch (Exception ignore) {
+                        // Best-effort hint only
                     }
-                } catch (Exception ignore) {
-                    // Best-effort hint only
-                }
 
-                // Additional strong hints for formats that are commonly mis-detected
-                String lowerName = filename.toLowerCase();
-                if (lowerName.endsWith(".ttf")) {
-                    metadata.set("Content-Type", "font/ttf");
-                } else if (lowerName.endsWith(".otf")) {
-                    metadata.set("Content-Type", "font/otf");
-                } else if (lowerName.endsWith(".woff")) {
-                    metadata.set("Content-Type", "font/woff");
-                } else if (lowerName.endsWith(".woff2")) {
-                    metadata.set("Content-Type", "font/woff2");
+                    // Additional strong hints for formats that are commonly mis-detected
+                    String lowerName = filename.toLowerCase();
+                    if (lowerName.endsWith(".ttf")) {
+                        metadata.set("Content-Type", "font/ttf");
+                    } else if (lowerName.endsWith(".otf")) {
+                        metadata.set("Content-Type", "font/otf");
+                    } else if (lowerName.endsWith(".woff")) {
+                        metadata.set("Content-Type", "font/woff");
+                    } else if (lowerName.endsWith(".woff2")) {
+                        metadata.set("Content-Type", "font/woff2");
+                    }
                 }
-            }
             
-            try {
-                parser.parse(TikaInputStream.get(stream), handler, metadata, parseContext);
-            } catch (org.apache.commons.compress.archivers.ArchiveException ae) {
-                // Some formats (e.g., fonts) can be misrouted into archive detection.
-                // Retry using basic AutoDetectParser without complex detection
-                LOG.warnf(ae, "Archive detection failed; retrying with basic parser");
-                try (InputStream retry = new ByteArrayInputStream(content.toByteArray())) {
-                    Parser retryParser = new AutoDetectParser(new DefaultDetector());
-                    ParseContext retryCtx = new ParseContext();
-                    retryCtx.set(Parser.class, retryParser);
-                    retryParser.parse(TikaInputStream.get(retry), handler, metadata, retryCtx);
+                try {
+                    parser.parse(TikaInputStream.get(stream), handler, metadata, parseContext);
+                } catch (org.apache.commons.compress.archivers.ArchiveException ae) {
+                    // Some formats (e.g., fonts) can be misrouted into archive detection.
+                    // Retry using basic AutoDetectParser without complex detection
+                    LOG.warnf(ae, "Archive detection failed; retrying with basic parser");
+                    try (InputStream retry = new ByteArrayInputStream(content.toByteArray())) {
+                        Parser retryParser = new AutoDetectParser(new DefaultDetector());
+                        ParseContext retryCtx = new ParseContext();
+                        retryCtx.set(Parser.class, retryParser);
+                        retryParser.parse(TikaInputStream.get(retry), handler, metadata, retryCtx);
+                    }
                 }
             }
         }
@@ -210,7 +240,7 @@ public class DocumentParser {
         }
 
         // Extract title and body
-        String handlerContent = handler.toString();
+        String handlerContent = epubChapters != null ? epubChapters.body() : handler.toString();
         String title = extractTitle(metadata, handlerContent, configMap);
         String body = extractBody(handlerContent, metadata, content, configMap);
         
@@ -234,6 +264,22 @@ public class DocumentParser {
         if (title != null && !title.isEmpty()) {
             searchMetadataBuilder.setTitle(title);
         }
+
+        // Outline from h1..h6 events seen during the parse; offsets already point into body
+        if (epubChapters != null) {
+            if (epubChapters.outline().getSectionsCount() > 0 && !body.isEmpty()) {
+                searchMetadataBuilder.setDocOutline(epubChapters.outline());
+            }
+        } else if (headingHandler.getHeadingCount() > 0 && !body.isEmpty()) {
+            try {
+                DocOutline outline = headingHandler.buildDocOutline(handlerContent);
+                if (outline.getSectionsCount() > 0) {
+                    searchMetadataBuilder.setDocOutline(outline);
+                }
+            } catch (Exception e) {
+                LOG.debugf("Could not build heading outline: %s", e.getMessage());
+            }
+        }
         
         PipeDoc.Builder docBuilder = PipeDoc.newBuilder()
                 .setSearchMetadata(searchMetadataBuilder.build());
@@ -249,7 +295,8 @@ public class DocumentParser {
                         metadata,
                         parserClass,
                         body,
-                        docId
+                        docId,
+                        MetadataProjection.fromConfig(configMap)
                 );
 
                 // Pack TikaResponse into Any
@@ -297,6 +344,61 @@ public class DocumentParser {
         return parseDocument(content, configMap, null);
     }
     
+    /**
+     * Builds the EPUB body from its spine items, parsed concurrently on {@link #EPUB_CHAPTER_POOL}
+     * within {@code parseTimeoutSeconds}, and fills {@code metadata} from the OPF. Returns null
+     * (sequential Tika parse) if the container has no usable spine.
+     *
+     * @throws TikaException if the chapters do not finish within {@code parseTimeoutSeconds}
+     */
+    private EpubChapterExtractor.Result parseEpubChapters(ByteString content, Metadata metadata, Parser parser,
+                                                          String filename, Map<String, String> configMap)
+            throws TikaException {
+        int timeoutSeconds = getIntConfig(configMap, "parseTimeoutSeconds", 0);
+        try {
+            EpubContainer epub = EpubContainer.open(content.asReadOnlyByteBuffer());
+            EpubMetadata.Builder structure = EpubMetadata.newBuilder();
+            EpubStructureExtractor.enrich(structure, epub);
+            if (structure.getSpineItemsCount() == 0) {
+                return null;
+            }
+
+            int maxContentLength = getIntConfig(configMap, "maxContentLength", 100 * 1024 * 1024);
+            EpubChapterExtractor.Result result = EpubChapterExtractor.extract(
+                    epub,
+                    structure.getSpineItemsList(),
+                    structure.getTableOfContentsList(),
+                    parser,
+                    EPUB_CHAPTER_POOL,
+                    maxContentLength,
+                    timeoutSeconds > 0 ? TimeUnit.SECONDS.toMillis(timeoutSeconds) : 0L);
+
+            metadata.set("resourceName", filename);
+            metadata.set(Metadata.CONTENT_TYPE, "application/epub+zip");
+            EpubStructureExtractor.readDublinCore(epub, structure.getRootOpfPath(), metadata::add);
+            LOG.debugf("Parsed %d EPUB chapters concurrently for %s", result.chapters().size(), filename);
+            return result;
+        } catch (TimeoutException e) {
+            throw new TikaException("EPUB chapter parse of " + filename + " exceeded " + timeoutSeconds + "s", e);
+        } catch (Exception e) {
+            LOG.debugf("EPUB chapter mode unavailable for %s, using sequential parse: %s", filename, e.getMessage());
+            return null;
+        }
+    }
+
+    private static ExecutorService createEpubChapterPool() {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "epub-chapter-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
     /**
      * Creates the appropriate Tika parser based on configuration.
      * <p>
@@ -356,19 +458,25 @@ public class DocumentParser {
     }
     
     /**
-     * Creates a content handler with appropriate limits.
+     * Creates the text writer with appropriate limits, wrapped in a heading recorder.
+     * The result is meant to be placed inside a {@link BodyContentHandler}.
      */
-    private BodyContentHandler createContentHandler(Map<String, String> configMap) {
+    private HeadingOutlineHandler createHeadingHandler(Map<String, String> configMap) {
         // Default to 100MB limit for content extraction
         int maxContentLength = getIntConfig(configMap, "maxContentLength", 100 * 1024 * 1024);
-        
-        if (maxContentLength > 0) {
-            // Use WriteOutContentHandler for better memory management with large documents
-            return new BodyContentHandler(new WriteOutContentHandler(maxContentLength));
-        } else {
-            // Use -1 for unlimited content length
-            return new BodyContentHandler(-1);
+
+        // Use WriteOutContentHandler for better memory management with large documents;
+        // -1 means unlimited content length
+        WriteOutContentHandler writer = new WriteOutContentHandler(maxContentLength > 0 ? maxContentLength : -1);
+
+        int minLevel = getIntConfig(configMap, "headingMinLevel", 1);
+        int maxLevel = getIntConfig(configMap, "headingMaxLevel", 6);
+        if (!getBooleanConfig(configMap, "enableHeadingOutline", true)) {
+            // An empty level range records nothing but keeps the handler chain identical
+            minLevel = 7;
         }
+        return new HeadingOutlineHandler(writer, minLevel, maxLevel,
+                getBooleanConfig(configMap, "headingGenerateIds", true));
     }
     
     /**
@@ -604,26 +712,7 @@ public class DocumentParser {
             }
         }
 
-        // Populate HTML outline if enabled and body present
-        try {
-            ai.pipestream.module.parser.config.ParserConfig cfg = ai.pipestream.module.parser.config.ParserConfig.defaultConfig();
-            if (cfg.outlineExtraction() != null && Boolean.TRUE.equals(cfg.outlineExtraction().enableHtmlOutline())) {
-                String body = parsedDoc.getSearchMetadata().getBody();
-                if (body != null && !body.isEmpty()) {
-                    DocOutline outline = ai.pipestream.module.parser.tika.builders.HtmlOutlineExtractor
-                            .buildDocOutlineFromHtml(body.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-                    if (outline.getSectionsCount() > 0) {
-                        // Resolve section character offsets against the body text
-                        DocOutline resolved = ai.pipestream.module.parser.tika.builders.SectionOffsetResolver
-                                .resolve(outline, body);
-                        SearchMetadata sm = parsedDoc.getSearchMetadata().toBuilder()
-                                .setDocOutline(resolved)
-                                .build();
-                        builder.setSearchMetadata(sm);
-                    }
-                }
-            }
-        } catch (Exception ignored) {}
+        // HTML outline is captured from the Tika SAX stream in parseDocument (HeadingOutlineHandler)
     }
     
     /**
@@ -735,6 +824,15 @@ public class DocumentParser {
             if (options.parseTimeoutSeconds() != null) {
                 configMap.put("parseTimeoutSeconds", options.parseTimeoutSeconds().toString());
             }
+            if (options.parallelEpubChapters() != null) {
+                configMap.put("parallelEpubChapters", options.parallelEpubChapters().toString());
+            }
+            if (options.includeRawMetadata() != null) {
+                configMap.put("includeRawMetadata", options.includeRawMetadata().toString());
+            }
+            if (options.dropBinaryMetadata() != null) {
+                configMap.put("dropBinaryMetadata", options.dropBinaryMetadata().toString());
+            }
         }
         
         // Advanced options
@@ -777,6 +875,23 @@ public class DocumentParser {
             }
         }
         
+        // Outline extraction
+        if (config.outlineExtraction() != null) {
+            var outline = config.outlineExtraction();
+            if (outline.enableHeadingOutline() != null) {
+                configMap.put("enableHeadingOutline", outline.enableHeadingOutline().toString());
+            }
+            if (outline.htmlMinHeadingLevel() != null) {
+                configMap.put("headingMinLevel", outline.htmlMinHeadingLevel().toString());
+            }
+            if (outline.htmlMaxHeadingLevel() != null) {
+                configMap.put("headingMaxLevel", outline.htmlMaxHeadingLevel().toString());
+            }
+            if (outline.htmlGenerateIds() != null) {
+                configMap.put("headingGenerateIds", outline.htmlGenerateIds().toString());
+            }
+        }
+
         // Error handling
         if (config.errorHandling() != null) {
             var errorHandling = config.errorHandling();
@@ -0,0 +1,169 @@
+package ai.pipestream.module.parser.docling;
+
+import ai.docling.serve.api.convert.request.options.ConvertDocumentOptions;
+import ai.pipestream.module.parser.config.DoclingOptions;
+import ai.pipestream.module.parser.config.DoclingOutputProjection;
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for gathering small Docling conversions into multi-file requests, against a stubbed
+ * {@link DoclingHttpClient}.
+ */
+class DoclingBatcherTest {
+
+    @Test
+    void groupsByOptionsAndRoutesResultsToCallers() throws Exception {
+        StubClient client = new StubClient();
+        DoclingBatcher batcher = batcher(client, 2, Duration.ofMillis(200));
+
+        CompletableFuture<DoclingHttpClient.ConvertedFile> a = submit(batcher, DoclingOptions.defaultOptions(), "a");
+        CompletableFuture<DoclingHttpClient.ConvertedFile> b = submit(batcher, DoclingOptions.fastProcessing(), "b");
+        CompletableFuture<DoclingHttpClient.ConvertedFile> c = submit(batcher, DoclingOptions.defaultOptions(), "c");
+
+        assertEquals("a", a.get(5, TimeUnit.SECONDS).markdown());
+        assertEquals("c", c.get(5, TimeUnit.SECONDS).markdown());
+        assertEquals("b", b.get(5, TimeUnit.SECONDS).markdown());
+        assertEquals(List.of(List.of("a.pdf", "c.pdf"), List.of("b.pdf")), client.batches,
+                "Equal options share a request, other options wait for their own");
+    }
+
+    @Test
+    void flushesAtMaxSizeWithoutWaiting() throws Exception {
+        StubClient client = new StubClient();
+        DoclingBatcher batcher = batcher(client, 3, Duration.ofMinutes(1));
+
+        List<CompletableFuture<DoclingHttpClient.ConvertedFile>> results = new ArrayList<>();
+        for (String name : List.of("a", "b", "c")) {
+            results.add(submit(batcher, DoclingOptions.defaultOptions(), name));
+        }
+
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(List.of("a", "b", "c").get(i), results.get(i).get(5, TimeUnit.SECONDS).markdown());
+        }
+        assertEquals(List.of(List.of("a.pdf", "b.pdf", "c.pdf")), client.batches);
+    }
+
+    @Test
+    void flushesPartialBatchAfterMaxWait() throws Exception {
+        StubClient client = new StubClient();
+        DoclingBatcher batcher = batcher(client, 8, Duration.ofMillis(300));
+
+        long start = System.nanoTime();
+        CompletableFuture<DoclingHttpClient.ConvertedFile> a = submit(batcher, DoclingOptions.defaultOptions(), "a");
+        CompletableFuture<DoclingHttpClient.ConvertedFile> b = submit(batcher, DoclingOptions.defaultOptions(), "b");
+        assertFalse(a.isDone(), "Waits for more documents");
+
+        assertEquals("a", a.get(5, TimeUnit.SECONDS).markdown());
+        assertEquals("b", b.get(5, TimeUnit.SECONDS).markdown());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(250), "Sent after max-wait");
+        assertEquals(List.of(List.of("a.pdf", "b.pdf")), client.batches);
+    }
+
+    @Test
+    void failedBatchFallsBackToOneByOne() throws Exception {
+        StubClient client = new StubClient();
+        client.rejectBatches = true;
+        DoclingBatcher batcher = batcher(client, 2, Duration.ofMinutes(1));
+
+        CompletableFuture<DoclingHttpClient.ConvertedFile> a = submit(batcher, DoclingOptions.defaultOptions(), "a");
+        CompletableFuture<DoclingHttpClient.ConvertedFile> b = submit(batcher, DoclingOptions.defaultOptions(), "b");
+
+        assertEquals("a", a.get(5, TimeUnit.SECONDS).markdown());
+        assertEquals("b", b.get(5, TimeUnit.SECONDS).markdown());
+        assertEquals(List.of("a.pdf", "b.pdf"), client.batches.get(0));
+        assertEquals(3, client.batches.size(), "Each document retried on its own");
+        assertTrue(client.batches.subList(1, 3).containsAll(List.of(List.of("a.pdf"), List.of("b.pdf"))));
+    }
+
+    @Test
+    void failureOfSingleDocumentReachesItsCaller() {
+        StubClient client = new StubClient();
+        client.failing = "bad";
+        DoclingBatcher batcher = batcher(client, 2, Duration.ofMillis(20));
+
+        CompletableFuture<DoclingHttpClient.ConvertedFile> bad = submit(batcher, DoclingOptions.defaultOptions(), "bad");
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> bad.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+    }
+
+    @Test
+    void acceptsOnlySmallDocumentsWithMultipartTransport() {
+        DoclingBatcher batcher = batcher(new StubClient(), 8, Duration.ofMillis(50));
+        batcher.maxDocumentBytes = 4;
+        ByteString small = ByteString.copyFromUtf8("tiny");
+
+        assertTrue(batcher.accepts(small));
+        assertFalse(batcher.accepts(ByteString.copyFromUtf8("too large")), "Beyond max-document-bytes");
+
+        batcher.transport = DoclingMetadataExtractor.TRANSPORT_ASYNC;
+        assertFalse(batcher.accepts(small), "Batches are multipart uploads");
+        batcher.transport = DoclingMetadataExtractor.TRANSPORT_BASE64;
+        assertFalse(batcher.accepts(small));
+
+        batcher.transport = DoclingMetadataExtractor.TRANSPORT_MULTIPART;
+        batcher.maxSize = 1;
+        assertFalse(batcher.accepts(small), "A batch of one is no batch");
+        batcher.maxSize = 8;
+        batcher.enabled = false;
+        assertFalse(batcher.accepts(small));
+    }
+
+    private static CompletableFuture<DoclingHttpClient.ConvertedFile> submit(DoclingBatcher batcher,
+                                                                             DoclingOptions options, String name) {
+        return batcher.submit(options, ConvertDocumentOptions.builder().build(),
+                        ByteString.copyFromUtf8(name), name + ".pdf")
+                .subscribeAsCompletionStage();
+    }
+
+    private static DoclingBatcher batcher(StubClient client, int maxSize, Duration maxWait) {
+        DoclingBatcher batcher = new DoclingBatcher();
+        batcher.doclingHttpClient = client;
+        batcher.enabled = true;
+        batcher.maxSize = maxSize;
+        batcher.maxWait = maxWait;
+        batcher.maxDocumentBytes = 1 << 20;
+        batcher.transport = DoclingMetadataExtractor.TRANSPORT_MULTIPART;
+        return batcher;
+    }
+
+    /**
+     * Records the filenames of every request and answers each document with its content as
+     * Markdown.
+     */
+    private static final class StubClient extends DoclingHttpClient {
+        final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean rejectBatches;
+        volatile String failing;
+
+        @Override
+        public List<ConvertedFile> convertFiles(List<Upload> uploads, ConvertDocumentOptions options,
+                                                DoclingOutputProjection projection) throws IOException {
+            batches.add(uploads.stream().map(Upload::filename).toList());
+            if (rejectBatches && uploads.size() > 1) {
+                throw new IOException("HTTP 500 from docling-serve");
+            }
+            List<ConvertedFile> results = new ArrayList<>();
+            for (Upload upload : uploads) {
+                String content = upload.content().toStringUtf8();
+                if (content.equals(failing)) {
+                    throw new IOException("Unsupported document " + upload.filename());
+                }
+                results.add(new ConvertedFile(null, content, null, null));
+            }
+            return results;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package ai.pipestream.module.parser.docling;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the Docling circuit breaker state machine and the latency window behind hedging.
+ */
+class DoclingCircuitBreakerTest {
+
+    @Test
+    void opensAtFailureRateAndFailsFast() {
+        DoclingCircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+
+        for (int i = 0; i < 2; i++) {
+            breaker.tryAcquire().success();
+        }
+        for (int i = 0; i < 2; i++) {
+            breaker.tryAcquire().failure();
+        }
+
+        assertEquals(DoclingCircuitBreaker.State.OPEN, breaker.getState(), "2 of 4 calls failed");
+        assertNull(breaker.tryAcquire(), "Open breaker fails fast");
+    }
+
+    @Test
+    void halfOpenAllowsSingleTrialThenCloses() {
+        DoclingCircuitBreaker breaker = breaker(Duration.ZERO);
+        trip(breaker);
+
+        DoclingCircuitBreaker.Permit trial = breaker.tryAcquire();
+        assertNotNull(trial, "Open duration elapsed — trial allowed");
+        assertNull(breaker.tryAcquire(), "Only one trial at a time");
+        trial.success();
+
+        assertEquals(DoclingCircuitBreaker.State.CLOSED, breaker.getState());
+        assertNotNull(breaker.tryAcquire());
+    }
+
+    @Test
+    void halfOpenTrialFailureReopens() {
+        DoclingCircuitBreaker breaker = breaker(Duration.ZERO);
+        trip(breaker);
+        DoclingCircuitBreaker.Permit trial = breaker.tryAcquire();
+        assertNotNull(trial);
+        breaker.openDuration = Duration.ofMinutes(1);
+        trial.failure();
+
+        assertEquals(DoclingCircuitBreaker.State.OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+    }
+
+    @Test
+    void onlyTheTrialDecidesInHalfOpen() {
+        DoclingCircuitBreaker breaker = breaker(Duration.ZERO);
+        DoclingCircuitBreaker.Permit late = breaker.tryAcquire();
+        trip(breaker);
+        DoclingCircuitBreaker.Permit trial = breaker.tryAcquire();
+        assertNotNull(trial);
+
+        late.success();
+        assertEquals(DoclingCircuitBreaker.State.HALF_OPEN, breaker.getState(),
+                "A call let through while closed does not close the breaker");
+        assertNull(breaker.tryAcquire(), "The trial still holds the half-open permit");
+
+        trial.ignored();
+        trial.success();
+        assertEquals(DoclingCircuitBreaker.State.HALF_OPEN, breaker.getState(), "A permit completes once");
+        DoclingCircuitBreaker.Permit next = breaker.tryAcquire();
+        assertNotNull(next, "Released trial lets the next one through");
+        next.success();
+        assertEquals(DoclingCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void latencyWindow_percentileOverRecentSamples() {
+        LatencyWindow window = new LatencyWindow(100);
+        assertEquals(-1, window.percentile(0.95, 20), "Not enough samples yet");
+
+        for (int i = 1; i <= 100; i++) {
+            window.record(i);
+        }
+        assertEquals(95, window.percentile(0.95, 20));
+
+        for (int i = 0; i < 100; i++) {
+            window.record(1000);
+        }
+        assertEquals(1000, window.percentile(0.5, 20), "Old samples fall out of the ring");
+    }
+
+    /** Opens the breaker with four failed calls. */
+    private static void trip(DoclingCircuitBreaker breaker) {
+        for (int i = 0; i < 4; i++) {
+            DoclingCircuitBreaker.Permit permit = breaker.tryAcquire();
+            if (permit != null) {
+                permit.failure();
+            }
+        }
+    }
+
+    private static DoclingCircuitBreaker breaker(Duration openDuration) {
+        DoclingCircuitBreaker breaker = new DoclingCircuitBreaker();
+        breaker.enabled = true;
+        breaker.windowSize = 10;
+        breaker.minimumCalls = 4;
+        breaker.failureRateThreshold = 50;
+        breaker.openDuration = openDuration;
+        return breaker;
+    }
+}
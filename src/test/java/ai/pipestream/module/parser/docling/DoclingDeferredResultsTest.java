@@ -0,0 +1,103 @@
+package ai.pipestream.module.parser.docling;
+
+import ai.pipestream.parsed.data.docling.v1.DoclingResponse;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for Docling results delivered after the Tika result.
+ */
+class DoclingDeferredResultsTest {
+
+    @Test
+    void resultBecomesAvailableWhenConversionFinishes() {
+        DoclingDeferredResults results = results(10);
+        AtomicReference<UniEmitter<? super DoclingResponse>> pending = new AtomicReference<>();
+        results.track("doc-1", Uni.createFrom().emitter(pending::set));
+
+        assertTrue(results.get("doc-1").isPresent());
+        assertFalse(results.isDone("doc-1"));
+        assertTrue(results.get("unknown").isEmpty());
+
+        pending.get().complete(DoclingResponse.newBuilder().setDocId("doc-1").setMarkdown("# Title").build());
+
+        assertTrue(results.isDone("doc-1"));
+        DoclingResponse response = results.get("doc-1").orElseThrow().await().atMost(Duration.ofSeconds(5));
+        assertEquals("# Title", response.getMarkdown());
+    }
+
+    @Test
+    void dropsOldestDocumentsBeyondMaxEntries() {
+        DoclingDeferredResults results = results(2);
+        for (int i = 1; i <= 3; i++) {
+            results.track("doc-" + i, Uni.createFrom().item(DoclingResponse.getDefaultInstance()));
+        }
+
+        assertTrue(results.get("doc-1").isEmpty(), "Oldest document dropped");
+        assertTrue(results.get("doc-2").isPresent());
+        assertTrue(results.get("doc-3").isPresent());
+    }
+
+    @Test
+    void keepsRunningConversionsAndDropsFinishedOnesFirst() {
+        DoclingDeferredResults results = results(1);
+        results.track("running", Uni.createFrom().emitter(emitter -> { }));
+        results.track("done", Uni.createFrom().item(DoclingResponse.getDefaultInstance()));
+        results.track("next", Uni.createFrom().emitter(emitter -> { }));
+
+        assertTrue(results.get("running").isPresent(), "Running conversion is never dropped");
+        assertTrue(results.get("done").isEmpty(), "Finished result evicted first");
+        assertTrue(results.get("next").isPresent());
+    }
+
+    @Test
+    void expiredResultsAreDroppedWithoutFurtherTracking() throws Exception {
+        DoclingDeferredResults results = results(10);
+        results.retention = Duration.ofMillis(20);
+        results.track("doc-1", Uni.createFrom().item(DoclingResponse.getDefaultInstance()));
+        results.track("doc-2", Uni.createFrom().item(DoclingResponse.getDefaultInstance()));
+        assertEquals(2, results.size());
+
+        Thread.sleep(50);
+        assertTrue(results.get("other").isEmpty());
+        assertEquals(0, results.size(), "Lookup evicts expired results");
+
+        results.track("doc-3", Uni.createFrom().item(DoclingResponse.getDefaultInstance()));
+        Thread.sleep(50);
+        results.evict();
+        assertEquals(0, results.size(), "Timer eviction");
+    }
+
+    @Test
+    void dropsOldestResultsBeyondMaxBytes() {
+        DoclingDeferredResults results = results(10);
+        DoclingResponse response = DoclingResponse.newBuilder().setMarkdown("x".repeat(1000)).build();
+        results.maxBytes = response.getSerializedSize() * 2L;
+        for (int i = 1; i <= 3; i++) {
+            results.track("doc-" + i, Uni.createFrom().item(response));
+        }
+
+        assertTrue(results.get("doc-1").isEmpty(), "Oldest result dropped");
+        assertTrue(results.get("doc-3").isPresent());
+        assertEquals(response.getSerializedSize() * 2L, results.retainedBytes());
+
+        results.track("huge", Uni.createFrom().item(DoclingResponse.newBuilder().setMarkdown("x".repeat(5000)).build()));
+        assertTrue(results.get("huge").isEmpty(), "Result larger than max-bytes not kept");
+        assertEquals(0, results.retainedBytes());
+    }
+
+    private static DoclingDeferredResults results(int maxEntries) {
+        DoclingDeferredResults results = new DoclingDeferredResults();
+        results.enabled = true;
+        results.retention = Duration.ofMinutes(30);
+        results.maxEntries = maxEntries;
+        results.maxBytes = 1 << 20;
+        return results;
+    }
+}
@@ -0,0 +1,181 @@
+package ai.pipestream.module.parser.docling;
+
+import ai.pipestream.parsed.data.docling.v1.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for merging page-window DoclingDocuments into one document.
+ */
+class DoclingDocumentMergerTest {
+
+    @Test
+    void merge_renumbersReferencesAcrossWindows() {
+        DoclingDocument first = window(1, 1, "First window");
+        DoclingDocument second = window(3, 3, "Second window");
+
+        DoclingDocument merged = DoclingDocumentMerger.merge(List.of(
+                new DoclingDocumentMerger.Part(first, 1),
+                new DoclingDocumentMerger.Part(second, 3)));
+
+        assertEquals(4, merged.getTextsCount());
+        assertEquals(2, merged.getTablesCount());
+        assertEquals(4, merged.getBody().getChildrenCount(), "Body children concatenated");
+        assertEquals("#/texts/0", merged.getBody().getChildren(0).getRef());
+        assertEquals("#/texts/2", merged.getBody().getChildren(2).getRef(), "Second window texts shifted by 2");
+        assertEquals("#/tables/1", merged.getBody().getChildren(3).getRef(), "Second window tables shifted by 1");
+
+        TextItem secondHeading = merged.getTexts(2).getText();
+        assertEquals("#/texts/2", secondHeading.getBase().getSelfRef());
+        assertEquals("#/body", secondHeading.getBase().getParent().getRef(), "Body pointer unchanged");
+        assertEquals("#/tables/1", merged.getTables(1).getSelfRef());
+        assertEquals(3, merged.getTables(1).getProv(0).getPageNo(), "Source page numbers kept");
+        assertTrue(merged.getPagesMap().containsKey("1"));
+        assertTrue(merged.getPagesMap().containsKey("3"));
+    }
+
+    @Test
+    void merge_shiftsPagesWhenWindowRestartsNumbering() {
+        DoclingDocument first = window(1, 1, "First window");
+        DoclingDocument restarted = window(1, 1, "Second window");
+
+        DoclingDocument merged = DoclingDocumentMerger.merge(List.of(
+                new DoclingDocumentMerger.Part(first, 1),
+                new DoclingDocumentMerger.Part(restarted, 21)));
+
+        assertEquals(21, merged.getTables(1).getProv(0).getPageNo());
+        assertEquals(21, merged.getTexts(3).getText().getBase().getProv(0).getPageNo());
+        assertEquals(21, merged.getPagesMap().get("21").getPageNo());
+        assertEquals(2, merged.getPagesCount());
+    }
+
+    @Test
+    void renumberFromFirstPage_storesPageIndependentlyOfPosition() {
+        DoclingDocument page7 = window(7, 7, "Seventh page");
+
+        DoclingDocument normalized = DoclingDocumentMerger.renumberFromFirstPage(page7);
+
+        assertEquals(1, normalized.getTables(0).getProv(0).getPageNo());
+        assertEquals(1, normalized.getPagesMap().get("1").getPageNo());
+        assertEquals("#/texts/1", normalized.getTexts(1).getText().getBase().getSelfRef(), "References untouched");
+
+        DoclingDocument merged = DoclingDocumentMerger.merge(List.of(
+                new DoclingDocumentMerger.Part(window(1, 1, "First page"), 1),
+                new DoclingDocumentMerger.Part(normalized, 9)));
+        assertEquals(9, merged.getTables(1).getProv(0).getPageNo(), "Cached page placed at its new position");
+    }
+
+    @Test
+    void mergeHtml_joinsBodiesIntoOneDocument() {
+        String first = "<!DOCTYPE html>\n<html><head><title>report</title></head>\n<BODY class=\"doc\"><h1>Intro</h1></BODY>\n</html>";
+        String second = "<!DOCTYPE html>\n<html><head><title>report</title></head>\n<body><p>Page 21</p></body>\n</html>";
+
+        String merged = DoclingDocumentMerger.mergeHtml(List.of(first, "", second, "<p>bare fragment</p>"));
+
+        assertEquals("<!DOCTYPE html>\n<html><head><title>report</title></head>\n<BODY class=\"doc\">"
+                + "<h1>Intro</h1>\n<p>Page 21</p>\n<p>bare fragment</p></BODY>\n</html>", merged);
+        assertEquals(1, merged.split("<!DOCTYPE", -1).length - 1, "One document");
+        assertEquals("", DoclingDocumentMerger.mergeHtml(List.of("", "")));
+    }
+
+    @Test
+    void splitPages_cutsDocumentByProvenance() {
+        ProvenanceItem page5 = ProvenanceItem.newBuilder().setPageNo(5).build();
+        ProvenanceItem page6 = ProvenanceItem.newBuilder().setPageNo(6).build();
+        DoclingDocument doc = DoclingDocument.newBuilder()
+                .setName("report")
+                .setBody(GroupItem.newBuilder()
+                        .setSelfRef("#/body")
+                        .addChildren(RefItem.newBuilder().setRef("#/texts/0"))
+                        .addChildren(RefItem.newBuilder().setRef("#/groups/0"))
+                        .addChildren(RefItem.newBuilder().setRef("#/tables/0")))
+                .addTexts(text("#/texts/0", "Heading", page5))
+                .addTexts(listItem("#/texts/1", "First item", page5))
+                .addTexts(listItem("#/texts/2", "Second item", page6))
+                .addGroups(GroupItem.newBuilder()
+                        .setSelfRef("#/groups/0")
+                        .setParent(RefItem.newBuilder().setRef("#/body"))
+                        .addChildren(RefItem.newBuilder().setRef("#/texts/1"))
+                        .addChildren(RefItem.newBuilder().setRef("#/texts/2")))
+                .addTables(TableItem.newBuilder()
+                        .setSelfRef("#/tables/0")
+                        .setParent(RefItem.newBuilder().setRef("#/body"))
+                        .addProv(page6))
+                .putPages("5", PageItem.newBuilder().setPageNo(5).build())
+                .putPages("6", PageItem.newBuilder().setPageNo(6).build())
+                .build();
+
+        List<DoclingDocument> pages = DoclingDocumentMerger.splitPages(doc, 5, 2);
+
+        assertEquals(2, pages.size());
+        DoclingDocument first = pages.get(0);
+        assertEquals(List.of("Heading", "First item"),
+                first.getTextsList().stream().map(t -> t.getText().getBase().getText()).toList());
+        assertEquals(0, first.getTablesCount());
+        assertEquals(1, first.getGroupsCount(), "List continuing onto the next page kept on both");
+        assertEquals(List.of("#/texts/1"), first.getGroups(0).getChildrenList().stream().map(RefItem::getRef).toList());
+        assertEquals(List.of("#/texts/0", "#/groups/0"),
+                first.getBody().getChildrenList().stream().map(RefItem::getRef).toList());
+        assertEquals(1, first.getTexts(1).getText().getBase().getProv(0).getPageNo(), "Renumbered as page 1");
+        assertEquals(1, first.getPagesCount());
+        assertTrue(first.getPagesMap().containsKey("1"));
+
+        DoclingDocument second = pages.get(1);
+        assertEquals(1, second.getTextsCount());
+        assertEquals("#/texts/0", second.getTexts(0).getText().getBase().getSelfRef(), "References renumbered");
+        assertEquals("#/groups/0", second.getTexts(0).getText().getBase().getParent().getRef());
+        assertEquals(List.of("#/texts/0"), second.getGroups(0).getChildrenList().stream().map(RefItem::getRef).toList());
+        assertEquals(List.of("#/groups/0", "#/tables/0"),
+                second.getBody().getChildrenList().stream().map(RefItem::getRef).toList());
+        assertEquals(1, second.getTables(0).getProv(0).getPageNo());
+        assertEquals(1, second.getPagesMap().get("1").getPageNo());
+
+        DoclingDocument merged = DoclingDocumentMerger.merge(List.of(
+                new DoclingDocumentMerger.Part(first, 5),
+                new DoclingDocumentMerger.Part(second, 6)));
+        assertEquals(3, merged.getTextsCount(), "Pages merge back");
+        assertEquals(6, merged.getTables(0).getProv(0).getPageNo());
+    }
+
+    private static BaseTextItem listItem(String selfRef, String text, ProvenanceItem prov) {
+        BaseTextItem item = text(selfRef, text, prov);
+        return item.toBuilder()
+                .setText(item.getText().toBuilder()
+                        .setBase(item.getText().getBase().toBuilder()
+                                .setParent(RefItem.newBuilder().setRef("#/groups/0"))))
+                .build();
+    }
+
+    /** Two texts and a table on one page, all children of the body. */
+    private static DoclingDocument window(int pageNo, int pageKey, String heading) {
+        ProvenanceItem prov = ProvenanceItem.newBuilder().setPageNo(pageNo).build();
+        return DoclingDocument.newBuilder()
+                .setName("report")
+                .setBody(GroupItem.newBuilder()
+                        .setSelfRef("#/body")
+                        .addChildren(RefItem.newBuilder().setRef("#/texts/0"))
+                        .addChildren(RefItem.newBuilder().setRef("#/tables/0")))
+                .addTexts(text("#/texts/0", heading, prov))
+                .addTexts(text("#/texts/1", "Body text", prov))
+                .addTables(TableItem.newBuilder()
+                        .setSelfRef("#/tables/0")
+                        .setParent(RefItem.newBuilder().setRef("#/body"))
+                        .addProv(prov))
+                .putPages(String.valueOf(pageKey), PageItem.newBuilder().setPageNo(pageNo).build())
+                .build();
+    }
+
+    private static BaseTextItem text(String selfRef, String text, ProvenanceItem prov) {
+        return BaseTextItem.newBuilder()
+                .setText(TextItem.newBuilder()
+                        .setBase(TextItemBase.newBuilder()
+                                .setSelfRef(selfRef)
+                                .setParent(RefItem.newBuilder().setRef("#/body"))
+                                .setText(text)
+                                .addProv(prov)))
+                .build();
+    }
+}
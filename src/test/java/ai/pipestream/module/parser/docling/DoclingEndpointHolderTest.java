@@ -0,0 +1,223 @@
+package ai.pipestream.module.parser.docling;
+
+import ai.docling.serve.api.DoclingServeApi;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for endpoint selection, passive ejection and the health monitor in the Docling endpoint pool.
+ */
+class DoclingEndpointHolderTest {
+
+    @Test
+    void acquire_picksLeastOutstandingEndpoint() {
+        DoclingEndpointHolder holder = holder("http://a", "http://b");
+
+        DoclingEndpointHolder.Lease first = holder.acquire();
+        DoclingEndpointHolder.Lease second = holder.acquire();
+        assertNotEquals(first.url(), second.url(), "Second request goes to the idle endpoint");
+
+        first.success();
+        first.close();
+        DoclingEndpointHolder.Lease third = holder.acquire();
+        assertEquals(first.url(), third.url(), "Released endpoint has fewer outstanding requests");
+        second.close();
+        third.close();
+
+        assertTrue(holder.getEndpointStats().stream().allMatch(s -> s.outstandingRequests() == 0));
+        assertEquals("http://a,http://b", holder.getActiveUrl());
+    }
+
+    @Test
+    void failure_ejectsEndpointAfterConsecutiveErrors() {
+        DoclingEndpointHolder holder = holder("http://a", "http://b");
+
+        for (int i = 0; i < 2; i++) {
+            try (DoclingEndpointHolder.Lease lease = holder.acquire()) {
+                assertEquals("http://a", lease.url(), "Idle pool prefers the first endpoint");
+                lease.failure(new IOException("connection refused"));
+            }
+        }
+
+        for (int i = 0; i < 3; i++) {
+            try (DoclingEndpointHolder.Lease lease = holder.acquire()) {
+                assertEquals("http://b", lease.url(), "Ejected endpoint receives no traffic");
+                lease.success();
+            }
+        }
+
+        List<DoclingEndpointHolder.EndpointStats> stats = holder.getEndpointStats();
+        assertFalse(stats.get(0).healthy());
+        assertEquals(2, stats.get(0).totalFailures());
+        assertTrue(stats.get(1).healthy());
+        assertEquals(3, stats.get(1).totalRequests());
+    }
+
+    @Test
+    void allEjected_stillServesFromEndpointRecoveringFirst() {
+        DoclingEndpointHolder holder = holder("http://only");
+        for (int i = 0; i < 2; i++) {
+            try (DoclingEndpointHolder.Lease lease = holder.acquire()) {
+                lease.failure(new IOException("timeout"));
+            }
+        }
+        try (DoclingEndpointHolder.Lease lease = holder.acquire()) {
+            assertEquals("http://only", lease.url());
+        }
+    }
+
+    @Test
+    void healthMonitor_takesFailingEndpointOutOfRotationUntilItRecovers() throws Exception {
+        Set<String> down = ConcurrentHashMap.newKeySet();
+        down.add("http://a");
+        DoclingEndpointHolder holder = holder("http://a", "http://b");
+        holder.setEndpoints(List.of("http://a", "http://b"), url -> healthClient(url, down));
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            holder.checkHealth(executor).get(5, TimeUnit.SECONDS);
+
+            assertTrue(holder.isHealthy());
+            assertEquals(1, holder.availableEndpointCount());
+            List<DoclingEndpointHolder.EndpointStats> stats = holder.getEndpointStats();
+            assertFalse(stats.get(0).healthy());
+            assertEquals("connection refused", stats.get(0).lastProbeError());
+            assertTrue(stats.get(0).lastProbedAt() > 0);
+            assertTrue(stats.get(1).healthy());
+            for (int i = 0; i < 3; i++) {
+                try (DoclingEndpointHolder.Lease lease = holder.acquire()) {
+                    assertEquals("http://b", lease.url(), "Endpoint failing its probe receives no traffic");
+                }
+            }
+
+            down.add("http://b");
+            holder.checkHealth(executor).get(5, TimeUnit.SECONDS);
+            assertFalse(holder.isHealthy());
+
+            down.clear();
+            holder.checkHealth(executor).get(5, TimeUnit.SECONDS);
+            assertEquals(2, holder.availableEndpointCount());
+            assertNull(holder.getEndpointStats().get(0).lastProbeError());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void healthMonitor_failsProbesThatDoNotAnswerInTime() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        DoclingEndpointHolder holder = holder("http://hung", "http://b");
+        holder.probeInterval = Duration.ofMillis(100);
+        holder.setEndpoints(List.of("http://hung", "http://b"), url -> healthClient(url, Set.of(),
+                url.equals("http://hung") ? release : null));
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            holder.checkHealth(executor).get(5, TimeUnit.SECONDS);
+
+            DoclingEndpointHolder.EndpointStats stats = holder.getEndpointStats().get(0);
+            assertFalse(stats.healthy(), "Hung probe takes the endpoint out of rotation");
+            assertTrue(stats.lastProbeError().contains("timed out"), stats.lastProbeError());
+            assertTrue(holder.getEndpointStats().get(1).healthy());
+            try (DoclingEndpointHolder.Lease lease = holder.acquire()) {
+                assertEquals("http://b", lease.url());
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void errorRate_breaksTiesTowardsReliableEndpoint() {
+        DoclingEndpointHolder holder = holder("http://a", "http://b");
+        holder.ejectionFailures = 10;
+        try (DoclingEndpointHolder.Lease lease = holder.acquire()) {
+            assertEquals("http://a", lease.url());
+            lease.failure(new IOException("500"));
+        }
+
+        try (DoclingEndpointHolder.Lease lease = holder.acquire()) {
+            assertEquals("http://b", lease.url(), "Equal load and latency: the endpoint with fewer errors wins");
+            lease.success();
+        }
+        assertTrue(holder.getEndpointStats().get(0).errorRate() > 0);
+        assertEquals(0.0, holder.getEndpointStats().get(1).errorRate());
+    }
+
+    /**
+     * A client whose {@code health()} fails while its URL is in {@code down}.
+     */
+    private static DoclingServeApi healthClient(String url, Set<String> down) {
+        return healthClient(url, down, null);
+    }
+
+    /**
+     * Same, with {@code health()} blocking until {@code hang} is released when it is not null.
+     */
+    private static DoclingServeApi healthClient(String url, Set<String> down, CountDownLatch hang) {
+        return (DoclingServeApi) Proxy.newProxyInstance(DoclingServeApi.class.getClassLoader(),
+                new Class<?>[]{DoclingServeApi.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("health")) {
+                        if (hang != null) {
+                            hang.await();
+                        }
+                        if (down.contains(url)) {
+                            throw new UncheckedIOException(new IOException("connection refused"));
+                        }
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Test
+    void report_countsOnlyTransportErrorsAndServerErrors() {
+        DoclingEndpointHolder holder = holder("http://a");
+
+        for (int i = 0; i < 5; i++) {
+            try (DoclingEndpointHolder.Lease lease = holder.acquire()) {
+                lease.report(new DoclingHttpClient.HttpStatusException(422, "unsupported document"));
+            }
+        }
+        DoclingEndpointHolder.EndpointStats stats = holder.getEndpointStats().get(0);
+        assertTrue(stats.healthy(), "Rejected documents do not eject the endpoint");
+        assertEquals(0, stats.totalFailures());
+
+        for (int i = 0; i < 2; i++) {
+            try (DoclingEndpointHolder.Lease lease = holder.acquire()) {
+                lease.report(new CompletionException(new DoclingHttpClient.HttpStatusException(503, "overloaded")));
+            }
+        }
+        stats = holder.getEndpointStats().get(0);
+        assertFalse(stats.healthy(), "5xx answers count toward ejection");
+        assertEquals(2, stats.totalFailures());
+
+        assertTrue(DoclingEndpointHolder.isEndpointFailure(new IOException("connection reset")));
+        assertTrue(DoclingEndpointHolder.isEndpointFailure(new TimeoutException()));
+        assertFalse(DoclingEndpointHolder.isEndpointFailure(
+                new UncheckedIOException(new DoclingHttpClient.HttpStatusException(413, "too large"))));
+    }
+
+    private static DoclingEndpointHolder holder(String... urls) {
+        DoclingEndpointHolder holder = new DoclingEndpointHolder();
+        holder.ejectionFailures = 2;
+        holder.ejectionTime = Duration.ofMinutes(1);
+        holder.probeInterval = Duration.ofSeconds(5);
+        holder.setEndpoints(List.of(urls), url -> null);
+        return holder;
+    }
+}
@@ -0,0 +1,320 @@
+package ai.pipestream.module.parser.docling;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the multipart requests DoclingHttpClient streams to docling-serve and for the async
+ * job flow, against a {@code com.sun.net.httpserver} stub.
+ */
+class DoclingHttpClientTest {
+
+    @Test
+    void buildFileRequest_streamsBlobAsMultipartWithContentLength() throws Exception {
+        byte[] pdf = new byte[256 * 1024];
+        for (int i = 0; i < pdf.length; i++) {
+            pdf[i] = (byte) i;
+        }
+        Map<String, List<String>> fields = new LinkedHashMap<>();
+        fields.put("to_formats", List.of("json", "md"));
+        fields.put("do_ocr", List.of("true"));
+
+        AtomicReference<byte[]> received = new AtomicReference<>();
+        AtomicReference<String> contentType = new AtomicReference<>();
+        AtomicReference<String> contentLength = new AtomicReference<>();
+        AtomicReference<String> apiKey = new AtomicReference<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext(DoclingHttpClient.CONVERT_FILE_PATH, exchange -> {
+            contentType.set(exchange.getRequestHeaders().getFirst("Content-Type"));
+            contentLength.set(exchange.getRequestHeaders().getFirst("Content-Length"));
+            apiKey.set(exchange.getRequestHeaders().getFirst(DoclingHttpClient.API_KEY_HEADER));
+            received.set(exchange.getRequestBody().readAllBytes());
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+            HttpRequest request = DoclingHttpClient.buildFileRequest(baseUrl + DoclingHttpClient.CONVERT_FILE_PATH, ByteString.copyFrom(pdf), "scan.pdf",
+                    fields, "secret", Duration.ofSeconds(10));
+            HttpResponse<Void> response = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()
+                    .send(request, HttpResponse.BodyHandlers.discarding());
+            assertEquals(200, response.statusCode());
+        } finally {
+            server.stop(0);
+        }
+
+        assertEquals("secret", apiKey.get());
+        assertTrue(contentType.get().startsWith("multipart/form-data; boundary="));
+        String boundary = contentType.get().substring(contentType.get().indexOf('=') + 1);
+        byte[] body = received.get();
+        assertEquals(String.valueOf(body.length), contentLength.get(), "Length is declared up front, no chunking");
+
+        String text = new String(body, StandardCharsets.ISO_8859_1);
+        assertEquals(2, count(text, "name=\"to_formats\""), "List options become repeated fields");
+        assertTrue(text.contains("name=\"do_ocr\"\r\n\r\ntrue\r\n"));
+        assertTrue(text.contains("name=\"files\"; filename=\"scan.pdf\""));
+        assertTrue(text.endsWith("\r\n--" + boundary + "--\r\n"));
+
+        int fileStart = text.indexOf("\r\n\r\n", text.indexOf("filename=\"scan.pdf\"")) + 4;
+        byte[] file = Arrays.copyOfRange(body, fileStart, fileStart + pdf.length);
+        assertArrayEquals(pdf, file, "File part carries the blob byte for byte");
+    }
+
+    @Test
+    void buildFilesRequest_writesOnePartPerUploadAndBatchNamesRoundTrip() throws Exception {
+        List<DoclingHttpClient.Upload> uploads = List.of(
+                new DoclingHttpClient.Upload(ByteString.copyFromUtf8("first"), DoclingHttpClient.batchName(0, "a/report.pdf")),
+                new DoclingHttpClient.Upload(ByteString.copyFromUtf8("second"), DoclingHttpClient.batchName(1, "notes")));
+
+        AtomicReference<byte[]> received = new AtomicReference<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext(DoclingHttpClient.CONVERT_FILE_PATH, exchange -> {
+            received.set(exchange.getRequestBody().readAllBytes());
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+            HttpRequest request = DoclingHttpClient.buildFilesRequest(baseUrl + DoclingHttpClient.CONVERT_FILE_PATH,
+                    uploads, Map.of(), null, Duration.ofSeconds(10));
+            HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()
+                    .send(request, HttpResponse.BodyHandlers.discarding());
+        } finally {
+            server.stop(0);
+        }
+
+        String text = new String(received.get(), StandardCharsets.ISO_8859_1);
+        assertEquals(2, count(text, "name=\"files\""), "One files part per upload");
+        assertTrue(text.contains("filename=\"doc-0.pdf\"\r\nContent-Type: application/octet-stream\r\n\r\nfirst\r\n"));
+        assertTrue(text.contains("filename=\"doc-1\"\r\nContent-Type: application/octet-stream\r\n\r\nsecond\r\n"));
+
+        assertEquals("doc-0.pdf", uploads.get(0).filename());
+        assertEquals("doc-1", uploads.get(1).filename());
+        assertEquals(0, DoclingHttpClient.batchIndex("doc-0"));
+        assertEquals(1, DoclingHttpClient.batchIndex("doc-1"));
+        assertEquals(-1, DoclingHttpClient.batchIndex("report"));
+        assertEquals(-1, DoclingHttpClient.batchIndex("doc-x"));
+    }
+
+    @Test
+    void convertFile_reportsHttpStatusSoOnlyMissingRoutesFallBack() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        AtomicInteger status = new AtomicInteger(404);
+        server.createContext(DoclingHttpClient.CONVERT_FILE_PATH, exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            byte[] body = "{\"detail\":\"nope\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status.get(), body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        try {
+            DoclingHttpClient client = client("http://127.0.0.1:" + server.getAddress().getPort());
+
+            DoclingHttpClient.HttpStatusException missing = assertThrows(DoclingHttpClient.HttpStatusException.class,
+                    () -> client.convertFile(ByteString.copyFromUtf8("%PDF"), "a.pdf", null, null));
+            assertEquals(404, missing.statusCode());
+            assertTrue(missing.isRouteMissing(), "404 means an older docling-serve without the file endpoint");
+
+            status.set(422);
+            DoclingHttpClient.HttpStatusException rejected = assertThrows(DoclingHttpClient.HttpStatusException.class,
+                    () -> client.convertFile(ByteString.copyFromUtf8("%PDF"), "a.pdf", null, null));
+            assertFalse(rejected.isRouteMissing(), "A rejected document must not be resent as base64");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void convertFileAsync_submitsPollsAndFetchesResult() throws Exception {
+        AtomicInteger polls = new AtomicInteger();
+        HttpServer server = asyncServer(exchange -> polls.incrementAndGet() < 2 ? "started" : "success");
+        try {
+            DoclingHttpClient client = client(baseUrl(server));
+
+            DoclingJsonMapper.Converted converted = client.convertFileAsync(ByteString.copyFromUtf8("%PDF"), "a.pdf", null, null)
+                    .await().atMost(Duration.ofSeconds(10));
+
+            assertEquals("report", converted.document().getName());
+            assertEquals(2, polls.get(), "Polled until the task reported success");
+            DoclingEndpointHolder.EndpointStats stats = client.doclingEndpointHolder.getEndpointStats().get(0);
+            assertEquals(0, stats.outstandingRequests(), "Lease released");
+            assertEquals(1, stats.totalRequests());
+            assertEquals(0, stats.totalFailures());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void convertFileAsync_failsOnFailedOrRevokedTask() throws Exception {
+        for (String terminal : List.of("failure", "revoked")) {
+            HttpServer server = asyncServer(exchange -> terminal);
+            try {
+                DoclingHttpClient client = client(baseUrl(server));
+
+                Throwable failure = failureOf(client.convertFileAsync(ByteString.copyFromUtf8("%PDF"), "a.pdf", null, null));
+
+                assertInstanceOf(IOException.class, failure);
+                assertTrue(failure.getMessage().contains(terminal), failure.getMessage());
+                assertEquals(0, client.doclingEndpointHolder.getEndpointStats().get(0).outstandingRequests());
+            } finally {
+                server.stop(0);
+            }
+        }
+    }
+
+    @Test
+    void convertFileAsync_timesOutAfterAsyncTimeout() throws Exception {
+        HttpServer server = asyncServer(exchange -> "started");
+        try {
+            DoclingHttpClient client = client(baseUrl(server));
+            client.asyncTimeout = Duration.ofMillis(200);
+
+            Throwable failure = failureOf(client.convertFileAsync(ByteString.copyFromUtf8("%PDF"), "a.pdf", null, null));
+
+            // DoclingMetadataExtractor reports a TimeoutException as STATUS_TIMEOUT
+            assertInstanceOf(TimeoutException.class, failure);
+            assertEquals(0, client.doclingEndpointHolder.getEndpointStats().get(0).outstandingRequests());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void convertFileAsync_cancellationReleasesLease() throws Exception {
+        CountDownLatch polled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        HttpServer server = asyncServer(exchange -> {
+            polled.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "started";
+        });
+        try {
+            DoclingHttpClient client = client(baseUrl(server));
+
+            Cancellable subscription = client.convertFileAsync(ByteString.copyFromUtf8("%PDF"), "a.pdf", null, null)
+                    .subscribe().with(item -> { }, failure -> { });
+            assertTrue(polled.await(10, TimeUnit.SECONDS), "Job submitted and polled");
+            assertEquals(1, client.doclingEndpointHolder.getEndpointStats().get(0).outstandingRequests());
+
+            subscription.cancel();
+
+            DoclingEndpointHolder.EndpointStats stats = client.doclingEndpointHolder.getEndpointStats().get(0);
+            assertEquals(0, stats.outstandingRequests(), "Cancelling releases the lease");
+            assertEquals(0, stats.totalFailures(), "A cancelled call is not held against the endpoint");
+        } finally {
+            release.countDown();
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Stub of docling-serve's async API: submit answers task {@code t1} pending, each poll answers
+     * the status {@code pollStatus} returns, and the result is a one-field document.
+     */
+    private static HttpServer asyncServer(Function<HttpExchange, String> pollStatus) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext(DoclingHttpClient.CONVERT_FILE_ASYNC_PATH, exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            respond(exchange, "{\"task_id\":\"t1\",\"task_status\":\"pending\"}");
+        });
+        server.createContext(DoclingHttpClient.STATUS_POLL_PATH, exchange ->
+                respond(exchange, "{\"task_id\":\"t1\",\"task_status\":\"" + pollStatus.apply(exchange) + "\"}"));
+        server.createContext(DoclingHttpClient.RESULT_PATH, exchange -> respond(exchange, """
+                {"document": {"filename": "a.pdf", "md_content": "# Report", "json_content": {"name": "report"}},
+                 "status": "success", "errors": [], "processing_time": 0.1, "timings": {}}
+                """));
+        server.start();
+        return server;
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    private static String baseUrl(HttpServer server) {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /** The failure the Uni ends with, unwrapped from Mutiny's CompletionException. */
+    private static Throwable failureOf(Uni<?> uni) {
+        try {
+            uni.await().atMost(Duration.ofSeconds(10));
+        } catch (CompletionException e) {
+            return e.getCause();
+        } catch (RuntimeException e) {
+            return e;
+        }
+        return fail("Expected the conversion to fail");
+    }
+
+    /** Client wired the way CDI would, with a single-endpoint pool at {@code baseUrl}. */
+    static DoclingHttpClient client(String baseUrl) {
+        DoclingEndpointHolder holder = new DoclingEndpointHolder();
+        holder.ejectionFailures = 3;
+        holder.ejectionTime = Duration.ofMinutes(1);
+        holder.setEndpoints(List.of(baseUrl), url -> null);
+
+        DoclingHttpClient client = new DoclingHttpClient();
+        client.objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        client.doclingEndpointHolder = holder;
+        client.configuredBaseUrl = Optional.empty();
+        client.apiKey = Optional.empty();
+        client.connectTimeout = Duration.ofSeconds(5);
+        client.readTimeout = Duration.ofSeconds(10);
+        client.asyncTimeout = Duration.ofSeconds(10);
+        client.pollWait = Duration.ofSeconds(1);
+        client.pollInterval = Duration.ofMillis(10);
+        client.jsonMapping = DoclingHttpClient.JSON_MAPPING_STREAMING;
+        return client;
+    }
+
+    private static int count(String haystack, String needle) {
+        int n = 0;
+        for (int i = haystack.indexOf(needle); i >= 0; i = haystack.indexOf(needle, i + 1)) {
+            n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,71 @@
+package ai.pipestream.module.parser.docling;
+
+import ai.pipestream.parsed.data.docling.v1.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for moving embedded Docling images to the image store.
+ */
+class DoclingImageOffloaderTest {
+
+    private static final byte[] IMAGE = new byte[4096];
+    private static final String DATA_URI = "data:image/png;base64," + Base64.getEncoder().encodeToString(IMAGE);
+
+    @Test
+    void replacesEmbeddedImagesWithStoreUris(@TempDir Path dir) throws Exception {
+        DoclingResponse response = DoclingResponse.newBuilder()
+                .setDocument(DoclingDocument.newBuilder()
+                        .addPictures(PictureItem.newBuilder().setImage(ImageRef.newBuilder()
+                                .setMimetype("image/png")
+                                .setDpi(144)
+                                .setUri(DATA_URI)))
+                        .putPages("1", PageItem.newBuilder().setPageNo(1).setImage(ImageRef.newBuilder()
+                                .setUri(DATA_URI)).build()))
+                .setMarkdown("Figure:\n\n![Image](" + DATA_URI + ")\n")
+                .build();
+
+        DoclingResponse offloaded = offloader(dir, 1024).offload(response);
+
+        ImageRef picture = offloaded.getDocument().getPictures(0).getImage();
+        assertTrue(picture.getUri().startsWith("file:"), picture.getUri());
+        assertEquals("image/png", picture.getMimetype());
+        assertEquals(144, picture.getDpi());
+        assertEquals(picture.getUri(), offloaded.getDocument().getPagesMap().get("1").getImage().getUri(),
+                "Same image stored once under one URI");
+        assertEquals("Figure:\n\n![Image](" + picture.getUri() + ")\n", offloaded.getMarkdown());
+        assertArrayEquals(IMAGE, Files.readAllBytes(Path.of(URI.create(picture.getUri()))));
+        assertTrue(offloaded.getSerializedSize() < response.getSerializedSize() / 10);
+    }
+
+    @Test
+    void keepsSmallImagesAndExternalUrisInline(@TempDir Path dir) {
+        DoclingResponse response = DoclingResponse.newBuilder()
+                .setDocument(DoclingDocument.newBuilder()
+                        .addPictures(PictureItem.newBuilder().setImage(ImageRef.newBuilder().setUri(DATA_URI)))
+                        .addPictures(PictureItem.newBuilder().setImage(ImageRef.newBuilder()
+                                .setUri("https://example.com/figure.png"))))
+                .build();
+
+        assertSame(response, offloader(dir, 8192).offload(response));
+    }
+
+    private static DoclingImageOffloader offloader(Path dir, int minBytes) {
+        LocalDoclingImageStore store = new LocalDoclingImageStore();
+        store.directory = dir.toString();
+        store.baseUri = Optional.empty();
+        DoclingImageOffloader offloader = new DoclingImageOffloader();
+        offloader.imageStore = store;
+        offloader.enabled = true;
+        offloader.minBytes = minBytes;
+        return offloader;
+    }
+}
@@ -0,0 +1,183 @@
+package ai.pipestream.module.parser.docling;
+
+import ai.pipestream.module.parser.config.DoclingOptions;
+import ai.pipestream.parsed.data.docling.v1.DoclingParseStatus;
+import ai.pipestream.parsed.data.docling.v1.DoclingResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the persistent Docling job queue: retries, concurrency and recovery after a restart.
+ */
+class DoclingJobQueueTest {
+
+    @Test
+    void retriesFailedConversionsWithBackoff(@TempDir Path dir) throws Exception {
+        StubExtractor extractor = new StubExtractor(List.of(status(DoclingParseStatus.Status.STATUS_TIMEOUT),
+                status(DoclingParseStatus.Status.STATUS_SUCCESS)));
+        DoclingJobQueue queue = queue(dir, extractor, deferred(false));
+
+        DoclingResponse response = queue.submit(ByteString.copyFromUtf8("%PDF-1.7"), "a.pdf", "doc-1", DoclingOptions.defaultOptions())
+                .await().atMost(Duration.ofSeconds(10));
+
+        assertEquals(DoclingParseStatus.Status.STATUS_SUCCESS, response.getStatus().getStatus());
+        assertEquals(2, extractor.calls.get());
+        DoclingJobQueue.Stats stats = queue.getStats();
+        assertEquals(1, stats.retried());
+        assertEquals(1, stats.completed());
+        assertEquals(0, stats.queued() + stats.running());
+        assertEquals(0, Files.list(dir.resolve("blobs")).count(), "Finished job's document removed");
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts(@TempDir Path dir) {
+        StubExtractor extractor = new StubExtractor(List.of());
+        DoclingJobQueue queue = queue(dir, extractor, deferred(false));
+
+        DoclingResponse response = queue.submit(ByteString.copyFromUtf8("x"), "a.pdf", "doc-1", DoclingOptions.defaultOptions())
+                .await().atMost(Duration.ofSeconds(10));
+
+        assertEquals(DoclingParseStatus.Status.STATUS_TIMEOUT, response.getStatus().getStatus());
+        assertEquals(3, extractor.calls.get());
+        assertEquals(1, queue.getStats().failed());
+    }
+
+    @Test
+    void retriesOnlyTransientFailures(@TempDir Path dir) {
+        DoclingResponse unavailable = failed(DoclingMetadataExtractor.UNAVAILABLE_ERROR_PREFIX + "HTTP 503");
+        StubExtractor extractor = new StubExtractor(List.of(unavailable, failed("Docling parsing failed: HTTP 422"),
+                status(DoclingParseStatus.Status.STATUS_SUCCESS)));
+        DoclingJobQueue queue = queue(dir, extractor, deferred(false));
+
+        DoclingResponse response = queue.submit(ByteString.copyFromUtf8("x"), "a.pdf", "doc-1", DoclingOptions.defaultOptions())
+                .await().atMost(Duration.ofSeconds(10));
+
+        assertEquals(DoclingParseStatus.Status.STATUS_FAILED, response.getStatus().getStatus());
+        assertEquals(2, extractor.calls.get(), "Unavailable service retried, rejected document not");
+        assertEquals(1, queue.getStats().retried());
+        assertEquals(1, queue.getStats().failed());
+
+        DoclingResponse skipped = failed("Docling parsing skipped: circuit breaker is open");
+        assertFalse(DoclingMetadataExtractor.isTransientFailure(skipped));
+        queue.shutdown();
+    }
+
+    @Test
+    void recoversUnfinishedJobsAfterRestart(@TempDir Path dir) throws Exception {
+        DoclingJobQueue crashed = queue(dir, new StubExtractor(null), deferred(false));
+        crashed.submit(ByteString.copyFromUtf8("%PDF-1.7 scanned"), "scan.pdf", "doc-7", DoclingOptions.defaultOptions())
+                .subscribe().with(response -> fail("Never completes before the restart"));
+        for (int i = 0; i < 200 && crashed.getStats().running() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, crashed.getStats().running());
+        crashed.shutdown();
+
+        StubExtractor extractor = new StubExtractor(List.of(status(DoclingParseStatus.Status.STATUS_SUCCESS)));
+        DoclingDeferredResults deferred = deferred(true);
+        DoclingJobQueue restarted = queue(dir, extractor, deferred);
+
+        DoclingResponse response = deferred.get("doc-7").orElseThrow().await().atMost(Duration.ofSeconds(10));
+        assertEquals(DoclingParseStatus.Status.STATUS_SUCCESS, response.getStatus().getStatus());
+        assertEquals("scan.pdf", extractor.lastFilename);
+        assertEquals("%PDF-1.7 scanned", extractor.lastContent.toStringUtf8());
+        assertEquals(1, restarted.getStats().completed());
+    }
+
+    @Test
+    void boundsConcurrency(@TempDir Path dir) throws Exception {
+        StubExtractor extractor = new StubExtractor(null);
+        DoclingJobQueue queue = queue(dir, extractor, deferred(false));
+        for (int i = 0; i < 5; i++) {
+            queue.submit(ByteString.copyFromUtf8("doc " + i), "a.pdf", "doc-" + i, DoclingOptions.defaultOptions())
+                    .subscribe().with(response -> { });
+        }
+        for (int i = 0; i < 200 && queue.getStats().queued() + queue.getStats().running() < 5; i++) {
+            Thread.sleep(10);
+        }
+
+        DoclingJobQueue.Stats stats = queue.getStats();
+        assertEquals(2, stats.running());
+        assertEquals(3, stats.queued());
+        assertTrue(stats.oldestAgeMs() >= 0);
+        queue.shutdown();
+    }
+
+    private static DoclingResponse status(DoclingParseStatus.Status status) {
+        return DoclingResponse.newBuilder()
+                .setStatus(DoclingParseStatus.newBuilder().setStatus(status))
+                .build();
+    }
+
+    private static DoclingResponse failed(String error) {
+        return DoclingResponse.newBuilder()
+                .setStatus(DoclingParseStatus.newBuilder().setStatus(DoclingParseStatus.Status.STATUS_FAILED).addErrors(error))
+                .build();
+    }
+
+    private static DoclingDeferredResults deferred(boolean enabled) {
+        DoclingDeferredResults deferred = new DoclingDeferredResults();
+        deferred.enabled = enabled;
+        deferred.retention = Duration.ofMinutes(5);
+        deferred.maxEntries = 100;
+        return deferred;
+    }
+
+    private static DoclingJobQueue queue(Path dir, DoclingMetadataExtractor extractor, DoclingDeferredResults deferred) {
+        DoclingJobQueue queue = new DoclingJobQueue();
+        queue.objectMapper = new ObjectMapper();
+        queue.doclingMetadataExtractor = extractor;
+        queue.deferredResults = deferred;
+        queue.enabled = true;
+        queue.directory = dir.toString();
+        queue.concurrency = 2;
+        queue.maxAttempts = 3;
+        queue.initialBackoff = Duration.ofMillis(5);
+        queue.maxBackoff = Duration.ofMillis(20);
+        queue.init();
+        return queue;
+    }
+
+    /**
+     * Answers with the scripted responses in order, then with timeouts; with a null script
+     * conversions never complete.
+     */
+    private static final class StubExtractor extends DoclingMetadataExtractor {
+        final Queue<DoclingResponse> script;
+        final AtomicInteger calls = new AtomicInteger();
+        volatile String lastFilename;
+        volatile ByteString lastContent;
+
+        StubExtractor(List<DoclingResponse> script) {
+            this.script = script != null ? new ArrayDeque<>(script) : null;
+        }
+
+        @Override
+        public Uni<DoclingResponse> extractComprehensiveMetadataAsync(ByteString content, String filename, String docId,
+                                                                      DoclingOptions options) {
+            calls.incrementAndGet();
+            lastFilename = filename;
+            lastContent = content;
+            if (script == null) {
+                return Uni.createFrom().emitter(emitter -> { });
+            }
+            synchronized (script) {
+                DoclingResponse next = script.poll();
+                return Uni.createFrom().item(next != null ? next : status(DoclingParseStatus.Status.STATUS_TIMEOUT));
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package ai.pipestream.module.parser.docling;
+
+import ai.docling.serve.api.convert.request.options.OutputFormat;
+import ai.pipestream.module.parser.config.DoclingOutputProjection;
+import ai.pipestream.parsed.data.docling.v1.*;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests for DoclingJsonMapper - streaming docling-serve JSON into the DoclingDocument proto.
+ */
+class DoclingJsonMapperTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Test
+    void readDocument_mapsDoclingJson() throws Exception {
+        String json = """
+                {
+                  "schema_name": "DoclingDocument",
+                  "version": "1.5.0",
+                  "name": "report",
+                  "origin": {"mimetype": "application/pdf", "binary_hash": 18446744073709551615, "filename": "report.pdf"},
+                  "furniture": {"self_ref": "#/furniture", "children": [], "content_layer": "furniture", "name": "_root_", "label": "unspecified"},
+                  "body": {"self_ref": "#/body", "children": [{"$ref": "#/texts/0"}, {"$ref": "#/groups/0"}], "content_layer": "body", "name": "_root_", "label": "unspecified"},
+                  "groups": [
+                    {"self_ref": "#/groups/0", "parent": {"$ref": "#/body"}, "children": [{"$ref": "#/texts/1"}], "content_layer": "body", "name": "list", "label": "list"}
+                  ],
+                  "texts": [
+                    {"self_ref": "#/texts/0", "parent": {"$ref": "#/body"}, "children": [], "content_layer": "body", "label": "section_header",
+                     "prov": [{"page_no": 2, "bbox": {"l": 1.5, "t": 2.5, "r": 3.5, "b": 4.5, "coord_origin": "BOTTOMLEFT"}, "charspan": [0, 12]}],
+                     "orig": "Introduction", "text": "Introduction", "level": 1},
+                    {"self_ref": "#/texts/1", "parent": {"$ref": "#/groups/0"}, "children": [], "content_layer": "body", "label": "list_item",
+                     "prov": [], "orig": "- first", "text": "first", "enumerated": false, "marker": "-"},
+                    {"label": "code", "self_ref": "#/texts/2", "text": "x = 1", "orig": "x = 1", "code_language": "Python",
+                     "captions": [{"$ref": "#/texts/3"}], "meta": {"summary": {"text": "assignment"}}},
+                    {"self_ref": "#/texts/3", "label": "caption", "text": "Listing 1", "orig": "Listing 1",
+                     "formatting": {"bold": true, "italic": false, "underline": false, "strikethrough": false, "script": "sub"},
+                     "some_future_field": {"nested": [1, 2, 3]}}
+                  ],
+                  "pictures": [],
+                  "tables": [
+                    {"self_ref": "#/tables/0", "parent": {"$ref": "#/body"}, "children": [], "content_layer": "body", "label": "table",
+                     "prov": [{"page_no": 2, "bbox": {"l": 0, "t": 0, "r": 10, "b": 10, "coord_origin": "TOPLEFT"}, "charspan": [0, 0]}],
+                     "captions": [], "references": [], "footnotes": [],
+                     "data": {"table_cells": [{"text": "A", "row_span": 1, "col_span": 1, "start_row_offset_idx": 0, "end_row_offset_idx": 1,
+                                               "start_col_offset_idx": 0, "end_col_offset_idx": 1, "column_header": true, "row_header": false,
+                                               "row_section": false, "bbox": {"l": 1, "t": 2, "r": 3, "b": 4, "coord_origin": "TOPLEFT"}}],
+                              "num_rows": 1, "num_cols": 1,
+                              "grid": [[{"text": "A", "row_span": 1, "col_span": 1, "column_header": true}]]}}
+                  ],
+                  "key_value_items": [],
+                  "form_items": [],
+                  "pages": {"2": {"size": {"width": 612.0, "height": 792.0}, "page_no": 2}}
+                }
+                """;
+
+        DoclingDocument doc;
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            doc = DoclingJsonMapper.readDocument(parser);
+        }
+
+        assertEquals("report", doc.getName());
+        assertEquals("18446744073709551615", doc.getOrigin().getBinaryHash());
+        assertEquals(List.of("#/texts/0", "#/groups/0"),
+                doc.getBody().getChildrenList().stream().map(RefItem::getRef).toList());
+        assertEquals(ContentLayer.CONTENT_LAYER_FURNITURE, doc.getFurniture().getContentLayer());
+        assertEquals(GroupLabel.GROUP_LABEL_LIST, doc.getGroups(0).getLabel());
+        assertEquals("#/body", doc.getGroups(0).getParent().getRef());
+
+        assertEquals(4, doc.getTextsCount());
+        SectionHeaderItem section = doc.getTexts(0).getSectionHeader();
+        assertEquals(1, section.getLevel());
+        assertEquals(DocItemLabel.DOC_ITEM_LABEL_SECTION_HEADER, section.getBase().getLabel());
+        ProvenanceItem prov = section.getBase().getProv(0);
+        assertEquals(2, prov.getPageNo());
+        assertEquals(3.5, prov.getBbox().getR(), 0.0001);
+        assertEquals("BOTTOMLEFT", prov.getBbox().getCoordOrigin());
+        assertEquals(2, prov.getCharspanCount());
+
+        ListItem list = doc.getTexts(1).getListItem();
+        assertEquals("-", list.getMarker());
+        assertEquals("first", list.getBase().getText());
+
+        CodeItem code = doc.getTexts(2).getCode();
+        assertEquals("Python", code.getCodeLanguage());
+        assertEquals("#/texts/3", code.getCaptions(0).getRef());
+        assertEquals("assignment", code.getMeta().getSummary().getText());
+        assertFalse(code.getBase().hasMeta(), "Code meta lives on the CodeItem, as in the POJO mapper");
+
+        TextItem caption = doc.getTexts(3).getText();
+        assertEquals(DocItemLabel.DOC_ITEM_LABEL_CAPTION, caption.getBase().getLabel());
+        assertTrue(caption.getBase().getFormatting().getBold());
+        assertEquals(Script.SCRIPT_SUB, caption.getBase().getFormatting().getScript());
+
+        TableData table = doc.getTables(0).getData();
+        assertEquals(1, table.getTableCellsCount());
+        assertTrue(table.getTableCells(0).getColumnHeader());
+        assertEquals(4.0, table.getTableCells(0).getBbox().getB(), 0.0001);
+        assertEquals(1, table.getGridCount());
+        assertEquals("A", table.getGrid(0).getCells(0).getText());
+
+        assertEquals(792.0, doc.getPagesMap().get("2").getSize().getHeight(), 0.0001);
+        assertEquals(2, doc.getPagesMap().get("2").getPageNo());
+    }
+
+    @Test
+    void readDocument_skipsSectionsOutsideProjection() throws Exception {
+        String json = """
+                {
+                  "name": "report",
+                  "body": {"self_ref": "#/body", "children": [{"$ref": "#/texts/0"}, {"$ref": "#/tables/0"}]},
+                  "texts": [{"self_ref": "#/texts/0", "label": "text", "text": "Intro", "orig": "Intro",
+                             "prov": [{"page_no": 1, "bbox": {"l": 1, "t": 2, "r": 3, "b": 4}, "charspan": [0, 5]}]}],
+                  "tables": [{"self_ref": "#/tables/0", "label": "table",
+                              "data": {"table_cells": [], "num_rows": 0, "num_cols": 0, "grid": []}}],
+                  "pages": {"1": {"size": {"width": 612.0, "height": 792.0}, "page_no": 1}}
+                }
+                """;
+        DoclingOutputProjection tablesOnly = new DoclingOutputProjection(
+                List.of(OutputFormat.MARKDOWN), List.of(DoclingOutputProjection.Section.TABLES));
+
+        DoclingDocument doc;
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            doc = DoclingJsonMapper.readDocument(parser, tablesOnly);
+        }
+
+        assertEquals("report", doc.getName(), "Document-level fields always kept");
+        assertEquals(1, doc.getTablesCount());
+        assertEquals(0, doc.getTextsCount());
+        assertEquals(0, doc.getPagesCount());
+        assertFalse(doc.hasBody());
+        assertEquals(List.of(OutputFormat.MARKDOWN, OutputFormat.JSON), tablesOnly.toFormats(List.of(OutputFormat.HTML)));
+        assertEquals(List.of(OutputFormat.MARKDOWN),
+                new DoclingOutputProjection(null, List.of()).toFormats(List.of(OutputFormat.JSON, OutputFormat.MARKDOWN)),
+                "No sections, no JSON document");
+    }
+
+    /**
+     * A table-heavy document (40 tables of 50x10 cells, each cell twice via the grid) mapped
+     * through the POJOs and through the streaming mapper must produce the same proto.
+     */
+    @Test
+    void readDocument_matchesPojoPath() throws Exception {
+        byte[] json = MAPPER.writeValueAsBytes(tableHeavyDocument(40, 50, 10));
+
+        DoclingDocument viaPojo = DoclingDocumentMapper.map(
+                MAPPER.readValue(json, ai.docling.core.DoclingDocument.class));
+        DoclingDocument streamed = stream(json);
+        assertEquals(viaPojo, streamed, "Streaming mapper must produce the POJO mapper's proto");
+    }
+
+    /**
+     * Benchmark, run with {@code ./gradlew benchmark}: the streaming path must allocate less than
+     * the POJO path because the POJO graph is never built.
+     */
+    @Test
+    @Tag("benchmark")
+    void readDocument_allocatesLessThanPojoPath() throws Exception {
+        byte[] json = MAPPER.writeValueAsBytes(tableHeavyDocument(40, 50, 10));
+
+        long[] pojo = measure(() -> DoclingDocumentMapper.map(MAPPER.readValue(json, ai.docling.core.DoclingDocument.class)));
+        long[] streaming = measure(() -> stream(json));
+        assumeTrue(pojo[1] > 0 && streaming[1] > 0, "Thread allocation accounting not available");
+        assertTrue(streaming[1] < pojo[1], "Streaming should allocate less than the POJO path");
+    }
+
+    private static DoclingDocument stream(byte[] json) throws Exception {
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            return DoclingJsonMapper.readDocument(parser);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Mapping {
+        DoclingDocument run() throws Exception;
+    }
+
+    /** Best-of-three wall time (ns) and the allocation of that run (bytes, 0 if unsupported). */
+    private static long[] measure(Mapping mapping) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        boolean allocation = threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled();
+        mapping.run(); // warm-up
+        long[] best = {Long.MAX_VALUE, 0};
+        for (int run = 0; run < 3; run++) {
+            long allocatedBefore = allocation ? threads.getCurrentThreadAllocatedBytes() : 0;
+            long start = System.nanoTime();
+            assertNotNull(mapping.run());
+            long elapsed = System.nanoTime() - start;
+            long allocated = allocation ? threads.getCurrentThreadAllocatedBytes() - allocatedBefore : 0;
+            if (elapsed < best[0]) {
+                best[0] = elapsed;
+                best[1] = allocated;
+            }
+        }
+        return best;
+    }
+
+    private static ai.docling.core.DoclingDocument tableHeavyDocument(int tables, int rows, int cols) {
+        var doc = ai.docling.core.DoclingDocument.builder().name("tables");
+        for (int t = 0; t < tables; t++) {
+            List<ai.docling.core.DoclingDocument.TableCell> cells = new ArrayList<>();
+            List<List<ai.docling.core.DoclingDocument.TableCell>> grid = new ArrayList<>();
+            for (int r = 0; r < rows; r++) {
+                List<ai.docling.core.DoclingDocument.TableCell> row = new ArrayList<>();
+                for (int c = 0; c < cols; c++) {
+                    ai.docling.core.DoclingDocument.TableCell cell = ai.docling.core.DoclingDocument.TableCell.builder()
+                            .bbox(ai.docling.core.DoclingDocument.BoundingBox.builder()
+                                    .l(c * 10.0).t(r * 12.0).r(c * 10.0 + 9).b(r * 12.0 + 11).coordOrigin("TOPLEFT").build())
+                            .text("cell " + t + "/" + r + "/" + c)
+                            .rowSpan(1).colSpan(1)
+                            .startRowOffsetIdx(r).endRowOffsetIdx(r + 1)
+                            .startColOffsetIdx(c).endColOffsetIdx(c + 1)
+                            .columnHeader(r == 0)
+                            .build();
+                    cells.add(cell);
+                    row.add(cell);
+                }
+                grid.add(row);
+            }
+            doc.table(ai.docling.core.DoclingDocument.TableItem.builder()
+                    .selfRef("#/tables/" + t)
+                    .prov(ai.docling.core.DoclingDocument.ProvenanceItem.builder()
+                            .pageNo(t + 1)
+                            .bbox(ai.docling.core.DoclingDocument.BoundingBox.builder().l(0.0).t(0.0).r(500.0).b(600.0).build())
+                            .charspan(List.of(0, 0))
+                            .build())
+                    .data(ai.docling.core.DoclingDocument.TableData.builder()
+                            .numRows(rows).numCols(cols)
+                            .tableCells(new ArrayList<>(cells))
+                            .grid(grid)
+                            .build())
+                    .build());
+            doc.text(ai.docling.core.DoclingDocument.TextItem.builder()
+                    .selfRef("#/texts/" + t)
+                    .label(ai.docling.core.DoclingDocument.DocItemLabel.CAPTION)
+                    .text("Table " + t)
+                    .orig("Table " + t)
+                    .contentLayer(ai.docling.core.DoclingDocument.ContentLayer.BODY)
+                    .build());
+        }
+        return doc.build();
+    }
+}
@@ -0,0 +1,177 @@
+package ai.pipestream.module.parser.docling;
+
+import ai.pipestream.module.parser.config.DoclingOptions;
+import ai.pipestream.parsed.data.docling.v1.DoclingDocument;
+import ai.pipestream.parsed.data.docling.v1.DoclingParseStatus;
+import ai.pipestream.parsed.data.docling.v1.DoclingResponse;
+import ai.pipestream.parsed.data.docling.v1.PageItem;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import io.smallrye.mutiny.Uni;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for how the Docling extractor schedules conversions: hedging against slow endpoints,
+ * the page cache and its interplay with the circuit breaker.
+ */
+class DoclingMetadataExtractorTest {
+
+    @Test
+    void hedgeDelay_followsRecentPercentileAboveMinimum() {
+        DoclingMetadataExtractor extractor = extractor("http://a", "http://b");
+        assertNull(extractor.hedgeDelay(), "Not enough samples yet");
+
+        for (int i = 1; i <= 100; i++) {
+            extractor.latencies.record(i * 10L);
+        }
+        assertEquals(Duration.ofMillis(950), extractor.hedgeDelay(), "p95 of the recent conversions");
+
+        extractor.hedgeMinDelay = Duration.ofSeconds(2);
+        assertEquals(Duration.ofSeconds(2), extractor.hedgeDelay(), "Never earlier than the minimum delay");
+
+        extractor.transport = DoclingMetadataExtractor.TRANSPORT_MULTIPART;
+        assertNull(extractor.hedgeDelay(), "Blocking transports are not hedged");
+    }
+
+    @Test
+    void hedged_returnsTheFasterAttemptAndCancelsTheOther() {
+        DoclingMetadataExtractor extractor = extractor("http://a", "http://b");
+        for (int i = 0; i < 100; i++) {
+            extractor.latencies.record(1);
+        }
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicBoolean primaryCancelled = new AtomicBoolean();
+        DoclingJsonMapper.Converted hedgeResult = new DoclingJsonMapper.Converted(null, null);
+
+        DoclingJsonMapper.Converted result = extractor.hedged(() -> attempts.incrementAndGet() == 1
+                        ? Uni.createFrom().<DoclingJsonMapper.Converted>emitter(emitter -> { })
+                                .onCancellation().invoke(() -> primaryCancelled.set(true))
+                        : Uni.createFrom().item(hedgeResult), "doc-1")
+                .await().atMost(Duration.ofSeconds(5));
+
+        assertSame(hedgeResult, result);
+        assertEquals(2, attempts.get(), "Hedge sent once the primary exceeded the delay");
+        assertTrue(primaryCancelled.get(), "Losing attempt cancelled");
+    }
+
+    @Test
+    void hedged_skippedWithFewerThanTwoEndpoints() {
+        DoclingMetadataExtractor extractor = extractor("http://only");
+        for (int i = 0; i < 100; i++) {
+            extractor.latencies.record(1);
+        }
+        assertNull(extractor.hedgeDelay());
+
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicBoolean completed = new AtomicBoolean();
+        extractor.hedged(() -> {
+            attempts.incrementAndGet();
+            return Uni.createFrom().<DoclingJsonMapper.Converted>emitter(emitter -> { });
+        }, "doc-1").subscribe().with(item -> completed.set(true));
+
+        assertEquals(1, attempts.get());
+        assertFalse(completed.get());
+    }
+
+    @Test
+    void windowRanges_mergesConsecutivePagesUpToWindowSize() {
+        List<int[]> windows = DoclingMetadataExtractor.windowRanges(List.of(1, 2, 3, 5, 6, 9), 2);
+
+        assertEquals(List.of("1-2", "3-3", "5-6", "9-9"),
+                windows.stream().map(w -> w[0] + "-" + w[1]).toList());
+    }
+
+    @Test
+    void fullyCachedPdf_leavesHalfOpenBreakerTrialAvailable() throws Exception {
+        DoclingMetadataExtractor extractor = extractor("http://a");
+        DoclingCircuitBreaker breaker = new DoclingCircuitBreaker();
+        breaker.enabled = true;
+        breaker.windowSize = 10;
+        breaker.minimumCalls = 4;
+        breaker.failureRateThreshold = 50;
+        breaker.openDuration = Duration.ZERO;
+        for (int i = 0; i < 4; i++) {
+            breaker.tryAcquire().failure();
+        }
+        extractor.circuitBreaker = breaker;
+
+        DoclingResultCache cache = new DoclingResultCache();
+        cache.objectMapper = new ObjectMapper();
+        cache.enabled = true;
+        cache.maxBytes = 1 << 20;
+        cache.diskDirectory = Optional.empty();
+        extractor.resultCache = cache;
+        extractor.pageCacheEnabled = true;
+        extractor.pageCacheMinPages = 2;
+
+        ByteString pdf = pdf("One", "Two", "Three");
+        DoclingOptions options = DoclingOptions.defaultOptions();
+        List<String> hashes = PdfPageHasher.pageHashes(pdf);
+        for (String hash : hashes) {
+            cache.put(cache.pageKey(hash, extractor.buildConvertDocumentOptions(options), options.outputProjection()),
+                    DoclingResponse.newBuilder()
+                            .setStatus(DoclingParseStatus.newBuilder().setStatus(DoclingParseStatus.Status.STATUS_SUCCESS))
+                            .setDocument(DoclingDocument.newBuilder()
+                                    .putPages("1", PageItem.newBuilder().setPageNo(1).build()))
+                            .build());
+        }
+
+        DoclingResponse response = extractor.extractComprehensiveMetadataAsync(pdf, "doc.pdf", "doc-1", options)
+                .await().atMost(Duration.ofSeconds(5));
+
+        assertEquals(DoclingParseStatus.Status.STATUS_SUCCESS, response.getStatus().getStatus());
+        assertEquals(3, response.getDocument().getPagesCount());
+        assertEquals(DoclingCircuitBreaker.State.HALF_OPEN, breaker.getState(), "No call made, nothing decided");
+        assertNotNull(breaker.tryAcquire(), "Trial still available");
+    }
+
+    private static ByteString pdf(String... pages) throws Exception {
+        try (PDDocument document = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (String text : pages) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(font, 12);
+                    content.newLineAtOffset(72, 700);
+                    content.showText(text);
+                    content.endText();
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return ByteString.copyFrom(out.toByteArray());
+        }
+    }
+
+    private static DoclingMetadataExtractor extractor(String... endpoints) {
+        DoclingEndpointHolder holder = new DoclingEndpointHolder();
+        holder.ejectionFailures = 3;
+        holder.ejectionTime = Duration.ofMinutes(1);
+        holder.probeInterval = Duration.ofSeconds(5);
+        holder.setEndpoints(List.of(endpoints), url -> null);
+
+        DoclingMetadataExtractor extractor = new DoclingMetadataExtractor();
+        extractor.doclingEndpointHolder = holder;
+        extractor.transport = DoclingMetadataExtractor.TRANSPORT_ASYNC;
+        extractor.hedgeEnabled = true;
+        extractor.hedgePercentile = 0.95;
+        extractor.hedgeMinDelay = Duration.ofMillis(20);
+        return extractor;
+    }
+}
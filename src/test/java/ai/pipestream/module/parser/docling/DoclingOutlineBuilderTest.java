@@ -0,0 +1,109 @@
+package ai.pipestream.module.parser.docling;
+
+import ai.pipestream.data.v1.DocOutline;
+import ai.pipestream.data.v1.Section;
+import ai.pipestream.parsed.data.docling.v1.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the body and DocOutline built from a Docling document.
+ */
+class DoclingOutlineBuilderTest {
+
+    @Test
+    void buildsReadingOrderBodyWithExactSectionOffsets() {
+        DoclingDocument document = DoclingDocument.newBuilder()
+                .setBody(GroupItem.newBuilder()
+                        .setSelfRef("#/body")
+                        .addChildren(ref("#/texts/0"))
+                        .addChildren(ref("#/texts/1"))
+                        .addChildren(ref("#/texts/3"))
+                        .addChildren(ref("#/groups/0"))
+                        .addChildren(ref("#/tables/0")))
+                .addTexts(BaseTextItem.newBuilder().setTitle(TitleItem.newBuilder()
+                        .setBase(text("Annual  Report", 1))))
+                .addTexts(BaseTextItem.newBuilder().setText(TextItem.newBuilder()
+                        .setBase(text("Intro\nparagraph.", 1))))
+                .addTexts(BaseTextItem.newBuilder().setText(TextItem.newBuilder()
+                        .setBase(text("Page 2 header", 2).toBuilder().setContentLayer(ContentLayer.CONTENT_LAYER_FURNITURE))))
+                .addTexts(BaseTextItem.newBuilder().setSectionHeader(SectionHeaderItem.newBuilder()
+                        .setLevel(1)
+                        .setBase(text("Results", 2))))
+                .addTexts(BaseTextItem.newBuilder().setListItem(ListItem.newBuilder()
+                        .setBase(text("first", 2))))
+                .addGroups(GroupItem.newBuilder().setSelfRef("#/groups/0").addChildren(ref("#/texts/4")))
+                .addTables(TableItem.newBuilder()
+                        .setSelfRef("#/tables/0")
+                        .setData(TableData.newBuilder()
+                                .addTableCells(TableCell.newBuilder().setText("A"))
+                                .addTableCells(TableCell.newBuilder().setText("B"))))
+                .build();
+
+        DoclingOutlineBuilder.Result result = DoclingOutlineBuilder.build(document);
+
+        assertEquals("Annual Report Intro paragraph. Results first A B", result.body());
+        DocOutline outline = result.outline();
+        assertEquals(2, outline.getSectionsCount());
+
+        Section title = outline.getSections(0);
+        assertEquals("Annual Report", title.getTitle());
+        assertEquals(1, title.getHeadingLevel());
+        assertEquals(0, title.getCharStartOffset());
+        assertEquals(result.body().indexOf("Results"), title.getCharEndOffset());
+        assertEquals(1, title.getPageStart());
+
+        Section results = outline.getSections(1);
+        assertEquals("Results", result.body().substring(results.getCharStartOffset(),
+                results.getCharStartOffset() + "Results".length()));
+        assertEquals(result.body().length(), results.getCharEndOffset());
+        assertEquals(2, results.getPageStart());
+        assertEquals(title.getId(), results.getParentId());
+    }
+
+    @Test
+    void documentWithoutHeadingsHasEmptyOutline() {
+        DoclingDocument document = DoclingDocument.newBuilder()
+                .setBody(GroupItem.newBuilder().addChildren(ref("#/texts/0")))
+                .addTexts(BaseTextItem.newBuilder().setText(TextItem.newBuilder().setBase(text("Only text", 1))))
+                .build();
+
+        DoclingOutlineBuilder.Result result = DoclingOutlineBuilder.build(document);
+
+        assertEquals("Only text", result.body());
+        assertEquals(0, result.outline().getSectionsCount());
+    }
+
+    @Test
+    void pageTextsFollowProvenance() {
+        DoclingDocument document = DoclingDocument.newBuilder()
+                .setBody(GroupItem.newBuilder()
+                        .addChildren(ref("#/texts/0"))
+                        .addChildren(ref("#/texts/1"))
+                        .addChildren(ref("#/texts/2"))
+                        .addChildren(ref("#/texts/3")))
+                .addTexts(BaseTextItem.newBuilder().setText(TextItem.newBuilder().setBase(text("Page  three", 3))))
+                .addTexts(BaseTextItem.newBuilder().setText(TextItem.newBuilder().setBase(text("continues", 3))))
+                .addTexts(BaseTextItem.newBuilder().setText(TextItem.newBuilder().setBase(text("Page five", 5))))
+                .addTexts(BaseTextItem.newBuilder().setText(TextItem.newBuilder()
+                        .setBase(TextItemBase.newBuilder().setText("No provenance"))))
+                .build();
+
+        assertEquals(Map.of(3, "Page three continues", 5, "Page five"),
+                DoclingOutlineBuilder.pageTexts(document));
+    }
+
+    private static RefItem ref(String ref) {
+        return RefItem.newBuilder().setRef(ref).build();
+    }
+
+    private static TextItemBase text(String text, int page) {
+        return TextItemBase.newBuilder()
+                .setText(text)
+                .addProv(ProvenanceItem.newBuilder().setPageNo(page))
+                .build();
+    }
+}
@@ -0,0 +1,66 @@
+package ai.pipestream.module.parser.docling;
+
+import com.google.protobuf.ByteString;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for splicing Docling's text of image-only pages into Tika's body.
+ */
+class DoclingPageSplicerTest {
+
+    @Test
+    void pagesGoAfterTheTextOfThePrecedingPage() throws Exception {
+        ByteString pdf = pdf("Alpha page text", "", "", "Delta page text", "");
+        String body = "Alpha page text Delta page text";
+
+        String spliced = DoclingPageSplicer.splice(pdf, body,
+                Map.of(2, "Scanned  two", 3, "Scanned three", 5, "Scanned five"));
+
+        assertEquals("Alpha page text Scanned two Scanned three Delta page text Scanned five", spliced);
+    }
+
+    @Test
+    void leadingPagesGoFirstAndUnmatchedPagesLast() throws Exception {
+        ByteString pdf = pdf("", "Beta page text", "");
+
+        assertEquals("Scanned one Beta page text", DoclingPageSplicer.splice(pdf, "Beta page text",
+                Map.of(1, "Scanned one")));
+        assertEquals("Something else Scanned three", DoclingPageSplicer.splice(pdf, "Something else",
+                Map.of(3, "Scanned three")), "Preceding page text not in the body");
+        assertEquals("Beta page text", DoclingPageSplicer.splice(pdf, "Beta page text", Map.of(1, " ")));
+    }
+
+    /** One page per entry; an empty entry makes a page without text. */
+    private static ByteString pdf(String... pages) throws Exception {
+        try (PDDocument document = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (String text : pages) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                if (text.isEmpty()) {
+                    continue;
+                }
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(font, 12);
+                    content.newLineAtOffset(72, 700);
+                    content.showText(text);
+                    content.endText();
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return ByteString.copyFrom(out.toByteArray());
+        }
+    }
+}
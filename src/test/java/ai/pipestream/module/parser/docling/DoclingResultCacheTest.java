@@ -0,0 +1,137 @@
+package ai.pipestream.module.parser.docling;
+
+import ai.docling.serve.api.convert.request.options.ConvertDocumentOptions;
+import ai.pipestream.parsed.data.docling.v1.DoclingParseStatus;
+import ai.pipestream.parsed.data.docling.v1.DoclingResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the Docling result cache: keys, coalescing, eviction and the disk tier.
+ */
+class DoclingResultCacheTest {
+
+    @Test
+    void key_dependsOnContentExtensionAndOptionsNotOptionOrder() {
+        DoclingResultCache cache = cache(1 << 20, Optional.empty());
+        ByteString pdf = ByteString.copyFromUtf8("%PDF-1.7 ...");
+        ConvertDocumentOptions options = ConvertDocumentOptions.builder().doOcr(true).forceOcr(false).build();
+        ConvertDocumentOptions sameOptions = ConvertDocumentOptions.builder().forceOcr(false).doOcr(true).build();
+
+        String key = cache.key(pdf, "a/report.PDF", options);
+        assertEquals(key, cache.key(pdf, "other.pdf", sameOptions));
+        assertNotEquals(key, cache.key(pdf, "report.docx", options));
+        assertNotEquals(key, cache.key(ByteString.copyFromUtf8("%PDF-1.7 ..!"), "report.pdf", options));
+        assertNotEquals(key, cache.key(pdf, "report.pdf", ConvertDocumentOptions.builder().doOcr(false).build()));
+    }
+
+    @Test
+    void getOrConvert_coalescesConcurrentRequestsAndRelabelsDocId() {
+        DoclingResultCache cache = cache(1 << 20, Optional.empty());
+        AtomicInteger conversions = new AtomicInteger();
+        AtomicReference<UniEmitter<? super DoclingResponse>> pending = new AtomicReference<>();
+        Uni<DoclingResponse> slowConversion = Uni.createFrom().emitter(emitter -> {
+            conversions.incrementAndGet();
+            pending.set(emitter);
+        });
+
+        AtomicReference<DoclingResponse> first = new AtomicReference<>();
+        AtomicReference<DoclingResponse> second = new AtomicReference<>();
+        cache.getOrConvert("k", "doc-1", () -> slowConversion).subscribe().with(first::set);
+        cache.getOrConvert("k", "doc-2", () -> slowConversion).subscribe().with(second::set);
+        pending.get().complete(success("doc-1", "converted"));
+
+        assertEquals(1, conversions.get(), "Identical in-flight requests share one conversion");
+        assertEquals("doc-1", first.get().getDocId());
+        assertEquals("doc-2", second.get().getDocId());
+        assertEquals("converted", second.get().getMarkdown());
+
+        DoclingResponse third = cache.getOrConvert("k", "doc-3", () -> fail("Must be served from the cache"))
+                .await().atMost(Duration.ofSeconds(5));
+        assertEquals("doc-3", third.getDocId());
+
+        DoclingResultCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.coalesced());
+        assertEquals(1, stats.hits());
+    }
+
+    @Test
+    void failedConversionsAreNotCached() {
+        DoclingResultCache cache = cache(1 << 20, Optional.empty());
+        DoclingResponse failed = DoclingResponse.newBuilder()
+                .setStatus(DoclingParseStatus.newBuilder().setStatus(DoclingParseStatus.Status.STATUS_FAILED))
+                .build();
+        cache.getOrConvert("k", "doc", () -> Uni.createFrom().item(failed)).await().atMost(Duration.ofSeconds(5));
+
+        assertNull(cache.get("k", "doc"));
+        assertEquals(0, cache.getStats().entries());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBySize() {
+        DoclingResponse sample = success("", "x".repeat(100));
+        DoclingResultCache cache = cache(sample.getSerializedSize() * 4L + 10, Optional.empty());
+        cache.put("a", sample);
+        cache.put("b", sample);
+        cache.put("c", sample);
+        assertNotNull(cache.get("a", "doc"), "Touch a so b becomes the eldest");
+        cache.put("d", sample);
+        cache.put("e", sample);
+
+        assertNull(cache.get("b", "doc"));
+        assertNotNull(cache.get("a", "doc"));
+        assertEquals(4, cache.getStats().entries());
+        assertEquals(1, cache.getStats().evictions());
+    }
+
+    @Test
+    void diskTierServesEntriesAfterMemoryIsGone(@TempDir Path dir) throws Exception {
+        DoclingResultCache writer = cache(1 << 20, Optional.of(dir.toString()));
+        writer.put("ab12", success("doc-1", "from disk"));
+
+        DoclingResultCache reader = cache(1 << 20, Optional.of(dir.toString()));
+        DoclingResponse response = null;
+        for (int i = 0; i < 100 && response == null; i++) {
+            response = reader.get("ab12", "doc-2"); // written on the worker pool
+            if (response == null) {
+                Thread.sleep(20);
+            }
+        }
+
+        assertNotNull(response);
+        assertEquals("doc-2", response.getDocId());
+        assertEquals("from disk", response.getMarkdown());
+        assertTrue(reader.getStats().diskHits() >= 1);
+    }
+
+    private static DoclingResponse success(String docId, String markdown) {
+        return DoclingResponse.newBuilder()
+                .setDocId(docId)
+                .setMarkdown(markdown)
+                .setStatus(DoclingParseStatus.newBuilder().setStatus(DoclingParseStatus.Status.STATUS_SUCCESS))
+                .build();
+    }
+
+    private static DoclingResultCache cache(long maxBytes, Optional<String> diskDirectory) {
+        DoclingResultCache cache = new DoclingResultCache();
+        cache.objectMapper = new ObjectMapper();
+        cache.enabled = true;
+        cache.maxBytes = maxBytes;
+        cache.diskDirectory = diskDirectory;
+        cache.diskMaxBytes = 1 << 20;
+        return cache;
+    }
+}
@@ -0,0 +1,139 @@
+package ai.pipestream.module.parser.docling;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for adaptive Docling routing from Tika's result.
+ */
+class DoclingRouterTest {
+
+    private static final String PAGE_TEXT = "Born-digital text that Tika extracts without trouble. ".repeat(10);
+
+    @Test
+    void bornDigitalPdfSkipsDocling() throws Exception {
+        ByteString pdf = pdf("text", "text", "text");
+
+        DoclingRouter.Decision decision = router().decide(pdf, "application/pdf", PAGE_TEXT.repeat(3));
+
+        assertEquals(DoclingRouter.Route.SKIP, decision.route());
+        assertEquals(3, decision.signals().pages());
+        assertTrue(decision.describe().startsWith("Docling routing: skip"), decision.describe());
+    }
+
+    @Test
+    void scannedPagesAreSentAsPageRanges() throws Exception {
+        ByteString pdf = pdf("text", "image", "image", "text", "image", "text", "text");
+
+        DoclingRouter.Decision decision = router().decide(pdf, "application/pdf", PAGE_TEXT.repeat(4));
+
+        assertEquals(DoclingRouter.Route.PAGES, decision.route());
+        assertEquals(List.of(2, 3, 5), decision.signals().imageOnlyPages());
+        assertEquals(2, decision.pageRanges().size());
+        assertArrayEquals(new int[]{2, 3}, decision.pageRanges().get(0));
+        assertArrayEquals(new int[]{5, 5}, decision.pageRanges().get(1));
+        assertTrue(decision.describe().contains("pages 2-3,5"), decision.describe());
+
+        Struct routing = decision.toStruct();
+        assertEquals("pages", routing.getFieldsOrThrow("route").getStringValue());
+        assertEquals(List.of("2-3", "5"), routing.getFieldsOrThrow("page_ranges").getListValue().getValuesList()
+                .stream().map(Value::getStringValue).toList());
+        assertEquals(7, routing.getFieldsOrThrow("pages").getNumberValue());
+        assertEquals(3, routing.getFieldsOrThrow("image_only_pages").getListValue().getValuesCount());
+    }
+
+    @Test
+    void onlyFullConversionsCoverTheWholeDocument() throws Exception {
+        DoclingRouter router = router();
+
+        assertFalse(router.decide(pdf("text", "image", "text", "text"), "application/pdf", PAGE_TEXT.repeat(3))
+                .coversWholeDocument(), "Image-only pages alone");
+        assertTrue(router.decide(pdf("image", "image", "text"), "application/pdf", PAGE_TEXT).coversWholeDocument());
+        assertFalse(router.decide(pdf("text", "text"), "application/pdf", PAGE_TEXT.repeat(2)).coversWholeDocument());
+    }
+
+    @Test
+    void mostlyScannedPdfIsConvertedWhole() throws Exception {
+        ByteString pdf = pdf("image", "image", "text");
+
+        DoclingRouter.Decision decision = router().decide(pdf, "application/pdf", PAGE_TEXT);
+
+        assertEquals(DoclingRouter.Route.FULL, decision.route());
+    }
+
+    @Test
+    void emptySparseOrGarbledTextIsConvertedWhole() throws Exception {
+        DoclingRouter router = router();
+        ByteString pdf = pdf("text", "text");
+
+        assertEquals("empty body", router.decide(pdf, "application/pdf", " \n ").reason());
+        assertEquals("sparse text", router.decide(pdf, "application/pdf", "Page 1 Page 2").reason());
+        String garbled = PAGE_TEXT.repeat(2).replace('e', '\uE000');
+        assertEquals("garbled text", router.decide(pdf, "application/pdf", garbled).reason());
+        assertEquals(DoclingRouter.Route.FULL,
+                router.decide(ByteString.copyFromUtf8("\u0089PNG"), "image/png", "").route());
+        assertEquals(DoclingRouter.Route.SKIP,
+                router.decide(ByteString.copyFromUtf8("<html>"), "text/html", "Short page").route());
+    }
+
+    @Test
+    void alwaysRoutingConvertsEverything() {
+        DoclingRouter router = router();
+        router.routing = DoclingRouter.ROUTING_ALWAYS;
+
+        DoclingRouter.Decision decision = router.decide(ByteString.copyFromUtf8("<html>"), "text/html", PAGE_TEXT);
+
+        assertEquals(DoclingRouter.Route.FULL, decision.route());
+        assertNull(decision.signals());
+    }
+
+    private static DoclingRouter router() {
+        DoclingRouter router = new DoclingRouter();
+        router.routing = DoclingRouter.ROUTING_ADAPTIVE;
+        router.minCharsPerPage = 200;
+        router.maxGarbageRatio = 0.05;
+        router.maxImageOnlyPageRatio = 0.5;
+        return router;
+    }
+
+    /** A PDF whose pages either draw a line of text or only an image. */
+    private static ByteString pdf(String... pages) throws Exception {
+        try (PDDocument document = new PDDocument()) {
+            PDImageXObject image = LosslessFactory.createFromImage(document,
+                    new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB));
+            for (String kind : pages) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    if (kind.equals("image")) {
+                        content.drawImage(image, 0, 0, 600, 780);
+                    } else {
+                        content.beginText();
+                        content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+                        content.newLineAtOffset(72, 700);
+                        content.showText("Text page");
+                        content.endText();
+                    }
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return ByteString.copyFrom(out.toByteArray());
+        }
+    }
+}
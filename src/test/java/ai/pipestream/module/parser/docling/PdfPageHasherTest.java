@@ -0,0 +1,94 @@
+package ai.pipestream.module.parser.docling;
+
+import com.google.protobuf.ByteString;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for per-page PDF content hashes used by the Docling page cache.
+ */
+class PdfPageHasherTest {
+
+    @Test
+    void unchangedPagesKeepTheirHashAcrossRevisions() throws Exception {
+        List<String> original = PdfPageHasher.pageHashes(pdf("Introduction", "Methods", "Results"));
+        List<String> revised = PdfPageHasher.pageHashes(pdf("Introduction", "Summary", "Methods", "Results (revised)"));
+
+        assertEquals(3, original.size());
+        assertEquals(4, revised.size());
+        assertEquals(original.get(0), revised.get(0));
+        assertFalse(original.contains(revised.get(1)), "Inserted page is new");
+        assertEquals(original.get(1), revised.get(2), "Page moved by the insertion keeps its hash");
+        assertNotEquals(original.get(2), revised.get(3), "Edited page changes hash");
+    }
+
+    @Test
+    void identicalPagesHashAlike() throws Exception {
+        List<String> hashes = PdfPageHasher.pageHashes(pdf("Same", "Same"));
+
+        assertEquals(hashes.get(0), hashes.get(1));
+    }
+
+    @Test
+    void inheritedPageAttributesAreHashed() throws Exception {
+        String plain = PdfPageHasher.pageHashes(pdf(tree -> { }, "Scan")).get(0);
+        String rotated = PdfPageHasher.pageHashes(pdf(tree -> tree.setInt(COSName.ROTATE, 90), "Scan")).get(0);
+        String resized = PdfPageHasher.pageHashes(pdf(tree -> tree.setItem(COSName.MEDIA_BOX, PDRectangle.A4.getCOSArray()), "Scan")).get(0);
+
+        assertNotEquals(plain, rotated, "Rotation inherited from the page tree");
+        assertNotEquals(plain, resized, "Media box inherited from the page tree");
+        assertEquals(rotated, PdfPageHasher.pageHashes(pdf(tree -> { }, page -> page.setRotation(90), "Scan")).get(0),
+                "Same rotation set on the page itself");
+    }
+
+    private static ByteString pdf(String... lines) throws Exception {
+        return pdf(tree -> { }, lines);
+    }
+
+    private static ByteString pdf(Consumer<COSDictionary> tree, String... lines) throws Exception {
+        return pdf(tree, page -> { }, lines);
+    }
+
+    /**
+     * One page per line. Page attributes that can be inherited are moved to the page tree
+     * root, which {@code tree} may then change; {@code pageSetup} customizes each page.
+     */
+    private static ByteString pdf(Consumer<COSDictionary> tree, Consumer<PDPage> pageSetup, String... lines)
+            throws Exception {
+        try (PDDocument document = new PDDocument()) {
+            COSDictionary root = document.getPages().getCOSObject();
+            root.setItem(COSName.MEDIA_BOX, PDRectangle.LETTER.getCOSArray());
+            tree.accept(root);
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (String line : lines) {
+                PDPage page = new PDPage();
+                page.getCOSObject().removeItem(COSName.MEDIA_BOX);
+                pageSetup.accept(page);
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(font, 12);
+                    content.newLineAtOffset(72, 700);
+                    content.showText(line);
+                    content.endText();
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return ByteString.copyFrom(out.toByteArray());
+        }
+    }
+}
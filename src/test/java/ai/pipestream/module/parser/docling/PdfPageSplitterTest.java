@@ -0,0 +1,61 @@
+package ai.pipestream.module.parser.docling;
+
+import com.google.protobuf.ByteString;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for cutting page windows out of a PDF for Docling fan-out.
+ */
+class PdfPageSplitterTest {
+
+    @Test
+    void split_savesEachWindowAsItsOwnPdf() throws Exception {
+        ByteString source = pdf(5);
+
+        List<PdfPageSplitter.Window> windows;
+        try (PDDocument pdf = PdfPageSplitter.load(source)) {
+            windows = PdfPageSplitter.split(pdf, PdfPageSplitter.windows(pdf.getNumberOfPages(), 2));
+        }
+
+        assertEquals(3, windows.size());
+        assertEquals(List.of(1, 3, 5), windows.stream().map(PdfPageSplitter.Window::firstPage).toList());
+        assertEquals(List.of(2, 4, 5), windows.stream().map(PdfPageSplitter.Window::lastPage).toList());
+        for (PdfPageSplitter.Window window : windows) {
+            try (PDDocument part = PdfPageSplitter.load(window.content())) {
+                assertEquals(window.lastPage() - window.firstPage() + 1, part.getNumberOfPages());
+                for (int i = 0; i < part.getNumberOfPages(); i++) {
+                    assertEquals(100 + window.firstPage() + i, part.getPage(i).getMediaBox().getWidth(),
+                            "Pages keep their order");
+                }
+            }
+        }
+        assertTrue(windows.get(0).content().size() < source.size(), "A window carries only its own pages");
+    }
+
+    @Test
+    void split_rejectsRangesOutsideTheDocument() throws Exception {
+        try (PDDocument pdf = PdfPageSplitter.load(pdf(2))) {
+            assertThrows(IOException.class, () -> PdfPageSplitter.split(pdf, List.of(new int[]{2, 3})));
+        }
+    }
+
+    /** A PDF whose page {@code n} is {@code 100 + n} points wide. */
+    private static ByteString pdf(int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int n = 1; n <= pages; n++) {
+                document.addPage(new PDPage(new PDRectangle(100 + n, 200)));
+            }
+            ByteString.Output out = ByteString.newOutput();
+            document.save(out);
+            return out.toByteString();
+        }
+    }
+}
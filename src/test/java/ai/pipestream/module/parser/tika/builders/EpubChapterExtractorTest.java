@@ -0,0 +1,120 @@
+package ai.pipestream.module.parser.tika.builders;
+
+import ai.pipestream.data.v1.DocOutline;
+import ai.pipestream.parsed.data.epub.v1.EpubMetadata;
+import ai.pipestream.shaded.tika.parser.AutoDetectParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EpubChapterExtractorTest {
+
+    @Test
+    void extract_concatenatesInSpineOrderWithExactOffsets() throws Exception {
+        EpubContainer epub = EpubContainer.open(ByteBuffer.wrap(buildEpub()));
+        EpubMetadata.Builder structure = EpubMetadata.newBuilder();
+        EpubStructureExtractor.enrich(structure, epub);
+
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        EpubChapterExtractor.Result result;
+        try {
+            result = EpubChapterExtractor.extract(epub, structure.getSpineItemsList(),
+                    structure.getTableOfContentsList(), new AutoDetectParser(), pool, -1, 0);
+        } finally {
+            pool.shutdown();
+        }
+
+        String body = result.body();
+        assertEquals(3, result.chapters().size());
+        for (int i = 0; i < 3; i++) {
+            EpubChapterExtractor.Chapter chapter = result.chapters().get(i);
+            assertEquals(i, chapter.spineIndex(), "Spine order preserved");
+            assertTrue(body.startsWith("Chapter " + (i + 1), chapter.start()), "Chapter " + i + " starts at its text");
+        }
+        assertEquals(result.chapters().get(1).start() - 1, result.chapters().get(0).end(), "Chapters joined by one space");
+        assertEquals(body.length(), result.chapters().get(2).end());
+        assertEquals(body.trim().replaceAll("\\s+", " "), body, "Body is already cleaned");
+
+        DocOutline outline = result.outline();
+        assertEquals(3, outline.getSectionsCount());
+        assertTrue(SectionOffsetResolver.hasOffsets(outline));
+        assertEquals(result.chapters().get(0).start(), outline.getSections(0).getCharStartOffset());
+        assertEquals(result.chapters().get(2).start(), outline.getSections(2).getCharStartOffset());
+        assertEquals(outline.getSections(2).getCharStartOffset(), outline.getSections(1).getCharEndOffset());
+    }
+
+    @Test
+    void extract_timesOutWhenChaptersDoNotFinish() throws Exception {
+        EpubContainer epub = EpubContainer.open(ByteBuffer.wrap(buildEpub()));
+        EpubMetadata.Builder structure = EpubMetadata.newBuilder();
+        EpubStructureExtractor.enrich(structure, epub);
+
+        // An executor that never runs anything stands in for a saturated pool
+        assertThrows(TimeoutException.class, () -> EpubChapterExtractor.extract(epub, structure.getSpineItemsList(),
+                structure.getTableOfContentsList(), new AutoDetectParser(), task -> {}, -1, 50));
+    }
+
+    @Test
+    void readDublinCore_reportsTikaKeys() throws Exception {
+        EpubContainer epub = EpubContainer.open(ByteBuffer.wrap(buildEpub()));
+        StringBuilder seen = new StringBuilder();
+        EpubStructureExtractor.readDublinCore(epub, "OEBPS/content.opf", (k, v) -> seen.append(k).append('=').append(v).append(';'));
+        assertEquals("dc:title=Three Chapters;dc:creator=A. Writer;", seen.toString());
+    }
+
+    private static byte[] buildEpub() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bos)) {
+            put(zip, "META-INF/container.xml", """
+                    <?xml version="1.0"?>
+                    <container version="1.0" xmlns="urn:oasis:names:tc:opendocument:xmlns:container">
+                      <rootfiles><rootfile full-path="OEBPS/content.opf" media-type="application/oebps-package+xml"/></rootfiles>
+                    </container>
+                    """);
+            put(zip, "OEBPS/content.opf", """
+                    <?xml version="1.0"?>
+                    <package xmlns="http://www.idpf.org/2007/opf" xmlns:dc="http://purl.org/dc/elements/1.1/" version="3.0">
+                      <metadata><dc:title>Three Chapters</dc:title><dc:creator>A. Writer</dc:creator></metadata>
+                      <manifest>
+                        <item id="nav" href="nav.xhtml" media-type="application/xhtml+xml" properties="nav"/>
+                        <item id="c1" href="c1.xhtml" media-type="application/xhtml+xml"/>
+                        <item id="c2" href="c2.xhtml" media-type="application/xhtml+xml"/>
+                        <item id="c3" href="c3.xhtml" media-type="application/xhtml+xml"/>
+                      </manifest>
+                      <spine><itemref idref="c1"/><itemref idref="c2"/><itemref idref="c3"/></spine>
+                    </package>
+                    """);
+            put(zip, "OEBPS/nav.xhtml", """
+                    <?xml version="1.0"?>
+                    <html xmlns="http://www.w3.org/1999/xhtml" xmlns:epub="http://www.idpf.org/2007/ops"><body>
+                      <nav epub:type="toc"><ol>
+                        <li><a href="c1.xhtml">Chapter 1</a></li>
+                        <li><a href="c2.xhtml">Chapter 2</a></li>
+                        <li><a href="c3.xhtml">Chapter 3</a></li>
+                      </ol></nav>
+                    </body></html>
+                    """);
+            for (int i = 1; i <= 3; i++) {
+                put(zip, "OEBPS/c" + i + ".xhtml", "<?xml version=\"1.0\"?><html xmlns=\"http://www.w3.org/1999/xhtml\"><body>"
+                        + "<h1>Chapter " + i + "</h1>\n<p>Text   of\n chapter " + i + ".</p></body></html>");
+            }
+        }
+        return bos.toByteArray();
+    }
+
+    private static void put(ZipOutputStream zip, String name, String data) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(data.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,154 @@
+package ai.pipestream.module.parser.tika.builders;
+
+import ai.pipestream.parsed.data.epub.v1.EpubMetadata;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EpubContainerTest {
+
+    private static final String CONTAINER = """
+            <?xml version="1.0"?>
+            <container version="1.0" xmlns="urn:oasis:names:tc:opendocument:xmlns:container">
+              <rootfiles><rootfile full-path="OEBPS/content.opf" media-type="application/oebps-package+xml"/></rootfiles>
+            </container>
+            """;
+
+    private static final String OPF = """
+            <?xml version="1.0"?>
+            <package xmlns="http://www.idpf.org/2007/opf" version="3.0">
+              <manifest>
+                <item id="nav" href="nav.xhtml" media-type="application/xhtml+xml" properties="nav"/>
+                <item id="ch1" href="text/ch1.xhtml" media-type="application/xhtml+xml"/>
+                <item id="img" href="images/big.png" media-type="image/png"/>
+              </manifest>
+              <spine><itemref idref="ch1"/></spine>
+            </package>
+            """;
+
+    private static final String NAV = """
+            <?xml version="1.0"?>
+            <html xmlns="http://www.w3.org/1999/xhtml" xmlns:epub="http://www.idpf.org/2007/ops"><body>
+              <nav epub:type="toc"><ol><li><a href="text/ch1.xhtml">Chapter One</a></li></ol></nav>
+            </body></html>
+            """;
+
+    @Test
+    void open_readsDirectoryAndInflatesOnDemand() throws Exception {
+        byte[] epub = buildEpub(new byte[1_000_000]);
+        EpubContainer container = EpubContainer.open(ByteBuffer.wrap(epub).asReadOnlyBuffer());
+
+        assertTrue(container.contains("OEBPS/content.opf"));
+        assertEquals(1_000_000, container.size("OEBPS/images/big.png"), "Size from central directory");
+        assertEquals(-1, container.size("missing"));
+        assertEquals(OPF, new String(container.read("OEBPS/content.opf"), StandardCharsets.UTF_8));
+        assertEquals("application/epub+zip", new String(container.read("mimetype"), StandardCharsets.US_ASCII),
+                "Stored entries are read as-is");
+        try (InputStream in = container.open("OEBPS/images/big.png")) {
+            assertEquals(1_000_000, in.readAllBytes().length);
+        }
+    }
+
+    @Test
+    void open_rejectsNonZip() {
+        assertThrows(IOException.class, () -> EpubContainer.open(ByteBuffer.wrap("not a zip".getBytes())));
+    }
+
+    @Test
+    void read_rejectsUntrustedDeclaredSizes() throws Exception {
+        byte[] epub = buildEpub(new byte[16]);
+
+        byte[] huge = withDeclaredSize(epub, "OEBPS/content.opf", 0x7FFF_FFF0);
+        ZipException tooLarge = assertThrows(ZipException.class,
+                () -> EpubContainer.open(ByteBuffer.wrap(huge)).read("OEBPS/content.opf"));
+        assertTrue(tooLarge.getMessage().contains("too large"), tooLarge.getMessage());
+
+        byte[] bomb = withDeclaredSize(epub, "OEBPS/content.opf", 64 * 1024 * 1024);
+        ZipException ratio = assertThrows(ZipException.class,
+                () -> EpubContainer.open(ByteBuffer.wrap(bomb)).read("OEBPS/content.opf"));
+        assertTrue(ratio.getMessage().contains("impossible"), ratio.getMessage());
+
+        byte[] understated = withDeclaredSize(epub, "OEBPS/content.opf", 10);
+        ZipException larger = assertThrows(ZipException.class,
+                () -> EpubContainer.open(ByteBuffer.wrap(understated)).read("OEBPS/content.opf"));
+        assertTrue(larger.getMessage().contains("larger than its declared size"), larger.getMessage());
+
+        byte[] overstated = withDeclaredSize(epub, "OEBPS/content.opf", OPF.length() + 100);
+        assertThrows(ZipException.class,
+                () -> EpubContainer.open(ByteBuffer.wrap(overstated)).read("OEBPS/content.opf"));
+    }
+
+    @Test
+    void enrich_buildsStructureFromContainer() throws Exception {
+        EpubMetadata.Builder builder = EpubMetadata.newBuilder();
+        EpubStructureExtractor.enrich(builder, ByteBuffer.wrap(buildEpub(new byte[4096])));
+
+        assertEquals("OEBPS/content.opf", builder.getRootOpfPath());
+        assertEquals(1, builder.getSpineItemsCount());
+        assertEquals("OEBPS/text/ch1.xhtml", builder.getSpineItems(0).getHref());
+        assertEquals(1, builder.getImagesCount());
+        assertEquals(4096, builder.getImages(0).getFileSize());
+        assertEquals(1, builder.getTableOfContentsCount());
+        assertEquals("Chapter One", builder.getTableOfContents(0).getLabel());
+        assertEquals("OEBPS/text/ch1.xhtml", builder.getTableOfContents(0).getHref());
+    }
+
+    private static byte[] buildEpub(byte[] image) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bos)) {
+            byte[] mimetype = "application/epub+zip".getBytes(StandardCharsets.US_ASCII);
+            ZipEntry stored = new ZipEntry("mimetype");
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(mimetype.length);
+            CRC32 crc = new CRC32();
+            crc.update(mimetype);
+            stored.setCrc(crc.getValue());
+            zip.putNextEntry(stored);
+            zip.write(mimetype);
+
+            put(zip, "META-INF/container.xml", CONTAINER.getBytes(StandardCharsets.UTF_8));
+            put(zip, "OEBPS/content.opf", OPF.getBytes(StandardCharsets.UTF_8));
+            put(zip, "OEBPS/nav.xhtml", NAV.getBytes(StandardCharsets.UTF_8));
+            put(zip, "OEBPS/text/ch1.xhtml", "<html><body><h1>Chapter One</h1></body></html>".getBytes(StandardCharsets.UTF_8));
+            put(zip, "OEBPS/images/big.png", image);
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * Copy of {@code zip} with the central directory's uncompressed size of {@code name} replaced.
+     */
+    private static byte[] withDeclaredSize(byte[] zip, String name, int size) {
+        byte[] copy = zip.clone();
+        ByteBuffer buf = ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] wanted = name.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i + 46 <= copy.length; i++) {
+            if (buf.getInt(i) != 0x02014b50) continue;
+            int nameLength = Short.toUnsignedInt(buf.getShort(i + 28));
+            if (nameLength == wanted.length
+                    && Arrays.equals(copy, i + 46, i + 46 + nameLength, wanted, 0, wanted.length)) {
+                buf.putInt(i + 24, size);
+                return copy;
+            }
+        }
+        throw new IllegalArgumentException("No central directory entry for " + name);
+    }
+
+    private static void put(ZipOutputStream zip, String name, byte[] data) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(data);
+        zip.closeEntry();
+    }
+}
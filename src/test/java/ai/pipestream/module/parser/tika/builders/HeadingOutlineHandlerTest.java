@@ -0,0 +1,100 @@
+package ai.pipestream.module.parser.tika.builders;
+
+import ai.pipestream.data.v1.DocOutline;
+import ai.pipestream.data.v1.Section;
+import ai.pipestream.shaded.tika.sax.WriteOutContentHandler;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.helpers.AttributesImpl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeadingOutlineHandlerTest {
+
+    private static final String XHTML = "http://www.w3.org/1999/xhtml";
+
+    @Test
+    void buildDocOutline_offsetsPointIntoCleanedBody() throws Exception {
+        HeadingOutlineHandler handler = new HeadingOutlineHandler(new WriteOutContentHandler(-1));
+
+        element(handler, "h1", null, "\n  Introduction  ");
+        text(handler, "\n");
+        element(handler, "p", null, "This   is the\tintro.");
+        text(handler, "\n\n");
+        element(handler, "h2", "methods", "Methods");
+        text(handler, "\n");
+        element(handler, "p", null, "We did things.");
+
+        String raw = handler.toString();
+        String body = clean(raw);
+        DocOutline outline = handler.buildDocOutline(raw);
+
+        assertEquals(2, outline.getSectionsCount(), "Both headings captured");
+
+        Section intro = outline.getSections(0);
+        assertEquals("Introduction", intro.getTitle());
+        assertEquals(1, intro.getHeadingLevel());
+        assertEquals("Introduction", body.substring(intro.getCharStartOffset(), intro.getCharStartOffset() + "Introduction".length()),
+                "Start offset points at heading text in cleaned body");
+
+        Section methods = outline.getSections(1);
+        assertEquals("methods", methods.getId(), "Uses id attribute when present");
+        assertEquals("#methods", methods.getHref());
+        assertEquals(intro.getId(), methods.getParentId(), "h2 nests under preceding h1");
+        assertEquals(methods.getCharStartOffset(), intro.getCharEndOffset(), "Intro ends where Methods begins");
+        assertTrue(body.startsWith("Methods", methods.getCharStartOffset()));
+        assertEquals(body.length(), methods.getCharEndOffset(), "Last section ends at body length");
+    }
+
+    @Test
+    void buildDocOutline_respectsLevelRange() throws Exception {
+        HeadingOutlineHandler handler = new HeadingOutlineHandler(new WriteOutContentHandler(-1), 2, 3, true);
+
+        element(handler, "h1", null, "Title");
+        element(handler, "h2", null, "Chapter");
+        element(handler, "h4", null, "Detail");
+
+        DocOutline outline = handler.buildDocOutline(handler.toString());
+        assertEquals(1, outline.getSectionsCount(), "Only h2..h3 recorded");
+        assertEquals("Chapter", outline.getSections(0).getTitle());
+    }
+
+    @Test
+    void buildDocOutline_noHeadings_returnsEmpty() throws Exception {
+        HeadingOutlineHandler handler = new HeadingOutlineHandler(new WriteOutContentHandler(-1));
+        element(handler, "p", null, "Just a paragraph.");
+
+        assertEquals(0, handler.getHeadingCount());
+        assertEquals(0, handler.buildDocOutline(handler.toString()).getSectionsCount());
+    }
+
+    @Test
+    void toCollapsedOffsets_matchesTrimAndCollapse() {
+        String raw = "  a \n\n b\t\tc  ";
+        long[] offsets = {0, 2, 3, 7, 10, raw.length()};
+        int[] mapped = HeadingOutlineHandler.toCollapsedOffsets(raw, offsets);
+        String cleaned = clean(raw);
+
+        assertEquals("a b c", cleaned);
+        assertArrayEquals(new int[]{0, 0, 1, 2, 4, cleaned.length()}, mapped);
+    }
+
+    private static void element(HeadingOutlineHandler handler, String tag, String id, String content) throws Exception {
+        AttributesImpl atts = new AttributesImpl();
+        if (id != null) {
+            atts.addAttribute("", "id", "id", "CDATA", id);
+        }
+        handler.startElement(XHTML, tag, tag, atts);
+        text(handler, content);
+        handler.endElement(XHTML, tag, tag);
+    }
+
+    private static void text(HeadingOutlineHandler handler, String content) throws Exception {
+        char[] chars = content.toCharArray();
+        handler.characters(chars, 0, chars.length);
+    }
+
+    /** Same normalization DocumentParser applies to the handler output. */
+    private static String clean(String text) {
+        return text.trim().replaceAll("\\s+", " ");
+    }
+}
@@ -0,0 +1,76 @@
+package ai.pipestream.module.parser.tika.builders;
+
+import ai.pipestream.data.v1.LinkReference;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HtmlOutlineExtractorTest {
+
+    private static final String PAGE = """
+            <html><head>
+              <title>Test</title>
+              <link rel="canonical" href="https://example.com/page">
+              <link rel="alternate" type="application/rss+xml" title="Feed" href="/feed.xml">
+            </head><body>
+              <nav><h2>Menu</h2><a href="/home">Home</a></nav>
+              <main>
+                <h1 id="top">Title</h1>
+                <script>document.write('<a href="/js">js</a>')</script>
+                <h2>Chapter</h2>
+                <p>See <a href="docs/intro.html" rel="next">the intro</a>.</p>
+                <h4>Deep</h4>
+              </main>
+            </body></html>
+            """;
+
+    @Test
+    void analyze_collectsOutlineBodyAndHeadLinksInOnePass() throws Exception {
+        HtmlOutlineExtractor.HtmlAnalysis analysis = HtmlOutlineExtractor.analyze(
+                new ByteArrayInputStream(PAGE.getBytes(StandardCharsets.UTF_8)), null, "https://example.com/",
+                null, "nav", true, 1, 3, true);
+
+        assertEquals(2, analysis.outline().getSectionsCount(), "nav excluded, h4 above max level");
+        assertEquals("top", analysis.outline().getSections(0).getId());
+        assertEquals("top", analysis.outline().getSections(1).getParentId());
+
+        assertEquals(1, analysis.bodyLinks().size(), "Excluded nav and script links are skipped");
+        LinkReference intro = analysis.bodyLinks().get(0);
+        assertEquals("https://example.com/docs/intro.html", intro.getUrl());
+        assertEquals("the intro", intro.getText());
+        assertEquals("next", intro.getRel());
+
+        assertEquals(2, analysis.headLinks().size());
+        assertEquals("canonical", analysis.headLinks().get(0).getRel());
+        LinkReference feed = analysis.headLinks().get(1);
+        assertEquals("https://example.com/feed.xml", feed.getUrl());
+        assertEquals("application/rss+xml", feed.getType());
+    }
+
+    @Test
+    void analyze_includeSelectorLimitsOutlineAndLinks() throws Exception {
+        HtmlOutlineExtractor.HtmlAnalysis analysis = HtmlOutlineExtractor.analyze(
+                new ByteArrayInputStream(PAGE.getBytes(StandardCharsets.UTF_8)), null, "",
+                "nav", null, true, 1, 6, true);
+
+        assertEquals(1, analysis.outline().getSectionsCount());
+        assertEquals("Menu", analysis.outline().getSections(0).getTitle());
+        assertEquals(1, analysis.bodyLinks().size());
+        assertEquals("/home", analysis.bodyLinks().get(0).getUrl());
+    }
+
+    @Test
+    void analyze_sniffsMetaCharset() throws Exception {
+        String html = "<html><head><meta charset=\"windows-1252\"></head><body><h1>Café crème</h1></body></html>";
+        byte[] bytes = html.getBytes(Charset.forName("windows-1252"));
+
+        HtmlOutlineExtractor.HtmlAnalysis analysis = HtmlOutlineExtractor.analyze(
+                new ByteArrayInputStream(bytes), null, "", null, null, true, 1, 6, true);
+
+        assertEquals("Café crème", analysis.outline().getSections(0).getTitle());
+    }
+}
@@ -0,0 +1,72 @@
+package ai.pipestream.module.parser.tika.builders;
+
+import ai.pipestream.module.parser.tika.TikaMetadataExtractor;
+import ai.pipestream.parsed.data.tika.v1.TikaResponse;
+import ai.pipestream.shaded.tika.metadata.Metadata;
+import com.google.protobuf.Struct;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedMetadataTest {
+
+    @Test
+    void view_indexesNamesAndValuesOnce() {
+        Metadata md = new Metadata();
+        md.set("Content-Type", "image/jpeg");
+        md.add("xmp:Keywords", "sunset");
+        md.add("xmp:Keywords", "beach");
+
+        IndexedMetadata view = IndexedMetadata.of(md);
+        md.set("added-later", "x");
+
+        assertEquals(2, view.size());
+        assertEquals("image/jpeg", view.get("Content-Type"));
+        assertArrayEquals(new String[]{"sunset", "beach"}, view.getValues("xmp:Keywords"));
+        assertEquals(0, view.getValues("missing").length);
+        assertNull(view.get("added-later"), "Snapshot taken at indexing time");
+        assertEquals("content-type", view.lowerName(view.indexOf("Content-Type")));
+    }
+
+    @Test
+    void fieldSet_tracksOrdinalsAndCopiesIndependently() {
+        Metadata md = new Metadata();
+        md.set("a", "1");
+        md.set("b", "2");
+        md.set("c", "3");
+        IndexedMetadata view = IndexedMetadata.of(md);
+
+        IndexedMetadata.FieldSet shared = view.newFieldSet();
+        assertTrue(shared.add("a"));
+        assertFalse(shared.add("a"));
+        assertFalse(shared.add("not-in-metadata"), "Unknown names are never unmapped, so not recorded");
+
+        IndexedMetadata.FieldSet mapped = shared.copy();
+        mapped.add("b");
+        assertEquals(Set.of("a"), shared);
+        assertEquals(Set.of("a", "b"), mapped);
+
+        Struct additional = MetadataUtils.buildAdditionalMetadata(view, mapped, MetadataProjection.ALL);
+        assertEquals(Set.of("c"), additional.getFieldsMap().keySet());
+    }
+
+    @Test
+    void extractor_excludesSharedKeysFromTypeBuilder() {
+        Metadata md = new Metadata();
+        md.set("Content-Type", "application/pdf");
+        md.set("dc:title", "Annual Report");
+        md.set("X-TIKA:Parsed-By", "org.apache.tika.parser.pdf.PDFParser");
+        md.set("custom:department", "Finance");
+
+        TikaResponse response = TikaMetadataExtractor.extractComprehensiveMetadata(md, "PDFParser", "body", "doc-1");
+
+        assertEquals("Annual Report", response.getDublinCore().getTitle());
+        Set<String> additional = response.getPdf().getAdditionalMetadata().getFieldsMap().keySet();
+        assertTrue(additional.contains("custom:department"));
+        assertFalse(additional.contains("dc:title"));
+        assertFalse(additional.contains("X-TIKA:Parsed-By"));
+        assertEquals(4, response.getPdf().getBaseFields().getRawMetadata().getFieldsCount());
+    }
+}
@@ -0,0 +1,59 @@
+package ai.pipestream.module.parser.tika.builders;
+
+import ai.pipestream.data.v1.Section;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarkdownExtractorTest {
+
+    private static final String MD = """
+            # Guide
+
+            Intro with a [link](https://example.com "Example").
+
+            Setext
+            Chapter
+            -------
+
+            Text\r
+            \r
+            ## Details
+            More [docs](docs/readme.md).
+            """;
+
+    @Test
+    void analyze_offsetsPointIntoCollapsedBody() {
+        MarkdownExtractor.MarkdownAnalysis analysis = MarkdownExtractor.analyze(MD, 1, 6, true);
+        String body = MD.trim().replaceAll("\\s+", " ");
+
+        assertTrue(MarkdownExtractor.matchesCollapsedSource(MD, body));
+        assertEquals(3, analysis.outline().getSectionsCount());
+
+        Section guide = analysis.outline().getSections(0);
+        assertEquals(0, guide.getCharStartOffset());
+        assertTrue(body.startsWith("# Guide", guide.getCharStartOffset()));
+
+        Section chapter = analysis.outline().getSections(1);
+        assertEquals("Setext Chapter", chapter.getTitle(), "Setext heading spanning two lines");
+        assertTrue(body.startsWith("Setext Chapter", chapter.getCharStartOffset()));
+        assertEquals(chapter.getCharStartOffset(), guide.getCharEndOffset());
+
+        Section details = analysis.outline().getSections(2);
+        assertEquals(chapter.getId(), details.getParentId());
+        assertTrue(body.startsWith("## Details", details.getCharStartOffset()), "CRLF lines map correctly");
+        assertEquals(body.length(), details.getCharEndOffset());
+
+        assertEquals(2, analysis.links().size());
+        assertEquals("https://example.com", analysis.links().get(0).getUrl());
+        assertEquals("link", analysis.links().get(0).getText());
+        assertEquals("docs/readme.md", analysis.links().get(1).getUrl());
+    }
+
+    @Test
+    void matchesCollapsedSource_detectsDifferentBody() {
+        assertFalse(MarkdownExtractor.matchesCollapsedSource(MD, "# Guide"));
+        assertFalse(MarkdownExtractor.matchesCollapsedSource(MD, MD.trim().replaceAll("\\s+", " ") + " extra"));
+        assertTrue(MarkdownExtractor.matchesCollapsedSource("  a\n\n b  ", "a b"));
+    }
+}
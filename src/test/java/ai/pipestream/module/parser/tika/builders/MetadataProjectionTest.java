@@ -0,0 +1,89 @@
+package ai.pipestream.module.parser.tika.builders;
+
+import ai.pipestream.module.parser.config.ParsingOptions;
+import ai.pipestream.parsed.data.tika.base.v1.TikaBaseFields;
+import ai.pipestream.shaded.tika.metadata.Metadata;
+import com.google.protobuf.Struct;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetadataProjectionTest {
+
+    /** A JPEG header followed by random bytes, base64 encoded like an EXIF thumbnail. */
+    private static final String THUMBNAIL;
+
+    static {
+        byte[] bytes = new byte[600];
+        new Random(42).nextBytes(bytes);
+        bytes[0] = (byte) 0xFF;
+        bytes[1] = (byte) 0xD8;
+        bytes[2] = (byte) 0xFF;
+        THUMBNAIL = Base64.getEncoder().encodeToString(bytes);
+    }
+
+    @Test
+    void looksBinary_requiresWellFormedBase64() {
+        assertTrue(MetadataProjection.looksBinary(THUMBNAIL));
+        assertTrue(MetadataProjection.looksBinary(THUMBNAIL.replace('+', '-').replace('/', '_')), "URL-safe alphabet");
+
+        assertFalse(MetadataProjection.looksBinary(THUMBNAIL.substring(1)), "Length not a multiple of four");
+        assertFalse(MetadataProjection.looksBinary(THUMBNAIL.substring(0, 400) + "=" + THUMBNAIL.substring(401)),
+                "Padding in the middle");
+        assertFalse(MetadataProjection.looksBinary(THUMBNAIL.replaceFirst("/", "_")), "Mixed alphabets");
+        String path = "/Volumes/Photos/Library/Originals/2024/Holidays/Coast/Day3".repeat(5);
+        assertFalse(MetadataProjection.looksBinary(path.substring(0, path.length() - path.length() % 4)), "File path");
+    }
+
+    @Test
+    void apply_truncatesAndDropsBinaryValues() {
+        MetadataProjection projection = new MetadataProjection(true, 5, true);
+
+        assertEquals("Canon", projection.apply("Canon EOS 5D"));
+        assertEquals("f/2", projection.apply("f/2"));
+        assertNull(projection.apply(THUMBNAIL), "Base64 thumbnail dropped");
+        assertNull(projection.apply("\u0001\u0002\u0003MM\u0000*\u0000"), "Control characters dropped");
+        assertEquals("Canon EOS 5D", MetadataProjection.ALL.apply("Canon EOS 5D"));
+    }
+
+    @Test
+    void buildStructs_applyProjection() {
+        Metadata md = new Metadata();
+        md.set("exif:Make", "Canon");
+        md.set("exif:Comment", "x".repeat(50));
+        md.set("exif:Thumbnail", THUMBNAIL.substring(0, 400));
+        md.add("xmp:Keywords", "sunset");
+        md.add("xmp:Keywords", "beach");
+
+        MetadataProjection projection = new MetadataProjection(false, 20, true);
+        Struct additional = MetadataUtils.buildAdditionalMetadata(md, Set.of("exif:Make"), projection);
+        assertEquals(Set.of("exif:Comment", "xmp:Keywords"), additional.getFieldsMap().keySet());
+        assertEquals(20, additional.getFieldsOrThrow("exif:Comment").getStringValue().length());
+        assertEquals(2, additional.getFieldsOrThrow("xmp:Keywords").getListValue().getValuesCount());
+
+        TikaBaseFields base = MetadataUtils.buildBaseFields("parser", "3.2.1", md, projection);
+        assertFalse(base.hasRawMetadata(), "Raw copy left out");
+
+        TikaBaseFields full = MetadataUtils.buildBaseFields("parser", "3.2.1", md);
+        assertEquals(5, full.getRawMetadata().getFieldsCount());
+        assertEquals(400, full.getRawMetadata().getFieldsOrThrow("exif:Thumbnail").getStringValue().length());
+    }
+
+    @Test
+    void fromConfig_fallsBackToParsingDefaults() {
+        MetadataProjection defaults = MetadataProjection.fromConfig(Map.of());
+        assertEquals(MetadataProjection.of(ParsingOptions.defaultOptions()), defaults);
+        assertTrue(defaults.includeRawMetadata());
+        assertEquals(10000, defaults.maxValueLength());
+        assertFalse(defaults.dropBinaryValues(), "Binary values are kept unless asked for");
+
+        MetadataProjection configured = MetadataProjection.fromConfig(
+                Map.of("includeRawMetadata", "false", "maxMetadataValueLength", "-1", "dropBinaryMetadata", "false"));
+        assertEquals(new MetadataProjection(false, -1, false), configured);
+    }
+}
@@ -0,0 +1,90 @@
+package ai.pipestream.module.parser.tika.builders;
+
+import ai.pipestream.data.v1.DocOutline;
+import ai.pipestream.data.v1.Section;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.interactive.action.PDActionGoTo;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageFitDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocumentOutline;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfOutlineExtractorTest {
+
+    @Test
+    void buildDocOutlineFromPdf_readOnlyBuffer_resolvesDestinationsAndActions() throws Exception {
+        byte[] pdf = createPdfWithBookmarks();
+
+        DocOutline outline = PdfOutlineExtractor.buildDocOutlineFromPdf(ByteBuffer.wrap(pdf).asReadOnlyBuffer());
+
+        assertEquals(3, outline.getSectionsCount());
+
+        Section chapter = outline.getSections(0);
+        assertEquals("Chapter 1", chapter.getTitle());
+        assertEquals(1, chapter.getPageStart(), "Direct page destination");
+
+        Section child = outline.getSections(1);
+        assertEquals("Section 1.1", child.getTitle());
+        assertEquals(chapter.getId(), child.getParentId());
+        assertEquals(1, child.getDepth());
+        assertEquals(2, child.getPageStart());
+
+        Section viaAction = outline.getSections(2);
+        assertEquals("Chapter 2", viaAction.getTitle());
+        assertEquals(3, viaAction.getPageStart(), "GoTo action destination");
+        assertEquals("page=3", viaAction.getHref());
+
+        assertEquals(outline, PdfOutlineExtractor.buildDocOutlineFromPdf(pdf), "Buffer and byte[] paths agree");
+    }
+
+    @Test
+    void buildDocOutlineFromPdf_invalidInput_returnsEmpty() {
+        assertEquals(0, PdfOutlineExtractor.buildDocOutlineFromPdf(ByteBuffer.wrap("not a pdf".getBytes())).getSectionsCount());
+        assertEquals(0, PdfOutlineExtractor.buildDocOutlineFromPdf(ByteBuffer.allocate(0)).getSectionsCount());
+    }
+
+    private static byte[] createPdfWithBookmarks() throws Exception {
+        try (PDDocument doc = new PDDocument()) {
+            PDPage[] pages = {new PDPage(), new PDPage(), new PDPage()};
+            for (PDPage page : pages) {
+                doc.addPage(page);
+            }
+
+            PDDocumentOutline root = new PDDocumentOutline();
+            doc.getDocumentCatalog().setDocumentOutline(root);
+
+            PDOutlineItem chapter1 = new PDOutlineItem();
+            chapter1.setTitle("Chapter 1");
+            chapter1.setDestination(fit(pages[0]));
+            root.addLast(chapter1);
+
+            PDOutlineItem section11 = new PDOutlineItem();
+            section11.setTitle("Section 1.1");
+            section11.setDestination(fit(pages[1]));
+            chapter1.addLast(section11);
+
+            PDOutlineItem chapter2 = new PDOutlineItem();
+            chapter2.setTitle("Chapter 2");
+            PDActionGoTo goTo = new PDActionGoTo();
+            goTo.setDestination(fit(pages[2]));
+            chapter2.setAction(goTo);
+            root.addLast(chapter2);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            doc.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static PDPageFitDestination fit(PDPage page) {
+        PDPageFitDestination dest = new PDPageFitDestination();
+        dest.setPage(page);
+        return dest;
+    }
+}
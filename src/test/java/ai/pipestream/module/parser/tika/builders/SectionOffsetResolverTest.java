@@ -2,6 +2,7 @@ package ai.pipestream.module.parser.tika.builders;
 
 import ai.pipestream.data.v1.DocOutline;
 import ai.pipestream.data.v1.Section;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -121,4 +122,79 @@ class SectionOffsetResolverTest {
         assertTrue(alphaStart < betaStart, "Alpha before Beta");
         assertTrue(betaStart < gammaStart, "Beta before Gamma");
     }
+
+    @Test
+    void resolve_whitespaceAndCaseInsensitive() {
+        String body = "Preface text.\n\nGETTING\n   started\tquickly\nBody of the chapter.";
+
+        DocOutline outline = DocOutline.newBuilder()
+                .addSections(Section.newBuilder().setTitle("  Getting Started  Quickly ").setDepth(0))
+                .build();
+
+        DocOutline resolved = SectionOffsetResolver.resolve(outline, body);
+        assertEquals(body.indexOf("GETTING"), resolved.getSections(0).getCharStartOffset(),
+                "Whitespace runs and case differences are ignored");
+    }
+
+    @Test
+    void resolve_repeatedTitlesAssignedInOrder() {
+        String body = "Overview\nfirst part\nDetails\nmore\nOverview\nsecond part\nDetails\nend";
+
+        DocOutline outline = DocOutline.newBuilder()
+                .addSections(Section.newBuilder().setTitle("Overview"))
+                .addSections(Section.newBuilder().setTitle("Details"))
+                .addSections(Section.newBuilder().setTitle("Missing"))
+                .addSections(Section.newBuilder().setTitle("Overview"))
+                .addSections(Section.newBuilder().setTitle("Details"))
+                .build();
+
+        DocOutline resolved = SectionOffsetResolver.resolve(outline, body);
+
+        assertEquals(0, resolved.getSections(0).getCharStartOffset());
+        assertEquals(body.indexOf("Details"), resolved.getSections(1).getCharStartOffset());
+        assertFalse(resolved.getSections(2).hasCharStartOffset(), "Missing title skipped");
+        assertEquals(body.lastIndexOf("Overview"), resolved.getSections(3).getCharStartOffset());
+        assertEquals(body.lastIndexOf("Overview"), resolved.getSections(1).getCharEndOffset(),
+                "End offset skips unresolved sections");
+        assertEquals(body.lastIndexOf("Details"), resolved.getSections(4).getCharStartOffset());
+    }
+
+    /**
+     * Benchmark: 8x the body and 8x the headings should cost roughly 8x, not 64x.
+     * Wall-clock dependent, so it is excluded from the default test run ({@code ./gradlew benchmark}).
+     */
+    @Test
+    @Tag("benchmark")
+    void resolve_scalesLinearly() {
+        long small = bestOfThree(250, 4_000);
+        long large = bestOfThree(2_000, 32_000);
+        double ratio = (double) large / Math.max(1, small);
+        assertTrue(ratio < 32, "Expected near-linear scaling, got x" + ratio);
+    }
+
+    private static long bestOfThree(int sections, int paragraphsPerSection) {
+        StringBuilder body = new StringBuilder();
+        DocOutline.Builder outline = DocOutline.newBuilder();
+        for (int i = 0; i < sections; i++) {
+            String title = "Section " + i + " Heading";
+            outline.addSections(Section.newBuilder().setTitle(title.toUpperCase()).setOrderIndex(i));
+            body.append(title).append('\n');
+            for (int p = 0; p < paragraphsPerSection / sections; p++) {
+                body.append("Lorem ipsum dolor sit amet, consectetur adipiscing elit sed do eiusmod tempor incididunt ut labore. ");
+            }
+            body.append("\n\n");
+        }
+        String text = body.toString();
+        DocOutline built = outline.build();
+
+        SectionOffsetResolver.resolve(built, text); // warm-up
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            long start = System.nanoTime();
+            DocOutline resolved = SectionOffsetResolver.resolve(built, text);
+            best = Math.min(best, System.nanoTime() - start);
+            assertTrue(resolved.getSections(sections - 1).hasCharStartOffset());
+        }
+        return best;
+    }
 }